@@ -18,9 +18,13 @@ package uk.co.real_logic.artio.builder;
 import uk.co.real_logic.artio.EncodingException;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
+import static uk.co.real_logic.artio.util.AsciiBuffer.LONGEST_INT_LENGTH;
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR_LENGTH;
+
 public interface Encoder
 {
     int BITS_IN_INT = 32;
+    int CHECKSUM_FIELD_LENGTH = "10=000\001".length();
 
     static int length(final long result)
     {
@@ -37,6 +41,30 @@ public interface Encoder
         return length | ((long)offset) << BITS_IN_INT;
     }
 
+    /**
+     * Gets the length of the BeginString and BodyLength fields of a message, given the length of the whole message.
+     *
+     * @param headerPrefixStringLength the length of the BeginString field and the BodyLength tag.
+     * @param messageLength the length of the whole message.
+     * @return the length of the BeginString and BodyLength fields.
+     */
+    static int headerPrefixLength(final int headerPrefixStringLength, final int messageLength)
+    {
+        // The BodyLength value doesn't count itself, so find the number of digits that's consistent with the rest.
+        int headerPrefixLength = 0;
+        for (int digits = 1; digits <= LONGEST_INT_LENGTH; digits++)
+        {
+            headerPrefixLength = headerPrefixStringLength + digits + SEPARATOR_LENGTH;
+            final int bodyLength = messageLength - headerPrefixLength - CHECKSUM_FIELD_LENGTH;
+            if (MutableAsciiBuffer.lengthInAscii(bodyLength) <= digits)
+            {
+                break;
+            }
+        }
+
+        return headerPrefixLength;
+    }
+
     /**
      * Encode the message onto a buffer in FIX tag=value\001 format.
      *
@@ -48,6 +76,43 @@ public interface Encoder
      */
     long encode(MutableAsciiBuffer buffer, int offset);
 
+    /**
+     * Encode the message onto a buffer in FIX tag=value\001 format, starting exactly at offset and taking up exactly
+     * messageLength bytes. The body length and checksum are written in place, so this can be used to encode directly
+     * into a region of the required size, for example a claimed publication buffer.
+     *
+     * If the encoded message isn't messageLength bytes long then an exception is thrown and the contents of the
+     * buffer around the region are undefined.
+     *
+     * The default implementation encodes the message with {@link #encode(MutableAsciiBuffer, int)} and then moves
+     * it to offset, so it may write past the end of the region. Generated encoders encode the message in place.
+     *
+     * @param buffer the buffer to encode the message to.
+     * @param offset the offset within the buffer to start encoding the message at.
+     * @param messageLength the length of the encoded message, including its header and trailer.
+     * @return the length of the encoded message.
+     * @throws EncodingException if a required field (other than the message sequence number)
+     *                           is missing and codec validation is enabled, or if the message
+     *                           isn't messageLength bytes long.
+     */
+    default int encode(final MutableAsciiBuffer buffer, final int offset, final int messageLength)
+    {
+        final long result = encode(buffer, offset);
+        final int length = length(result);
+        if (length != messageLength)
+        {
+            throw new EncodingException("Encoded message length was " + length + " rather than " + messageLength);
+        }
+
+        final int encodedOffset = offset(result);
+        if (encodedOffset != offset)
+        {
+            buffer.putBytes(offset, buffer, encodedOffset, length);
+        }
+
+        return length;
+    }
+
     /**
      * Resets the encoder. Sets all the fields back to their uninitialized state.
      */
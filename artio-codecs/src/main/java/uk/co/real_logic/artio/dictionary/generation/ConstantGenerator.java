@@ -19,11 +19,15 @@ import org.agrona.collections.IntHashSet;
 import org.agrona.generation.OutputManager;
 import uk.co.real_logic.artio.dictionary.CharArraySet;
 import uk.co.real_logic.artio.dictionary.ir.Dictionary;
+import uk.co.real_logic.artio.dictionary.ir.Entry;
 import uk.co.real_logic.artio.dictionary.ir.Field;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 import static uk.co.real_logic.artio.dictionary.generation.DecoderGenerator.addField;
 import static uk.co.real_logic.artio.dictionary.generation.GenerationUtil.fileHeader;
 import static uk.co.real_logic.artio.dictionary.generation.GenerationUtil.importFor;
@@ -59,6 +63,7 @@ public class ConstantGenerator
             out.append(generateMessageTypes());
             out.append(generateFieldTags());
             out.append(generateAllFieldsDictionary());
+            out.append(generateHeaderFieldsDictionary());
             out.append("}\n");
         });
     }
@@ -68,6 +73,20 @@ public class ConstantGenerator
         return generateFieldDictionary(dictionary.fields().values(), "ALL_FIELDS");
     }
 
+    private String generateHeaderFieldsDictionary()
+    {
+        final List<Field> headerFields = headerFields(dictionary.header().entries()).collect(toList());
+        return generateFieldDictionary(headerFields, "HEADER_FIELDS");
+    }
+
+    private Stream<Field> headerFields(final List<Entry> entries)
+    {
+        return entries.stream().flatMap((entry) -> entry.match(
+            (e, field) -> Stream.of(field),
+            (e, group) -> Stream.concat(Stream.of((Field)group.numberField().element()), headerFields(group.entries())),
+            (e, component) -> headerFields(component.entries())));
+    }
+
     private String generateFieldDictionary(final Collection<Field> fields, final String name)
     {
         final String addFields = fields
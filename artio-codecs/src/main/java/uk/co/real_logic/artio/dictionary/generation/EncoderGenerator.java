@@ -68,9 +68,25 @@ public class EncoderGenerator extends Generator
     // returns (offset, length) as long
     private static final String MESSAGE_ENCODE_PREFIX =
         "    public static int MAX_HEADER_PREFIX_LENGTH = %d;\n" +
+        "    public static final int HEADER_PREFIX_STRING_LENGTH = %d;\n\n" +
         "    public long encode(final MutableAsciiBuffer buffer, final int offset)\n" +
         "    {\n" +
-        "        int start = offset + MAX_HEADER_PREFIX_LENGTH;\n\n" +
+        "        return encodeFrom(buffer, offset + MAX_HEADER_PREFIX_LENGTH);\n" +
+        "    }\n\n" +
+        "    public int encode(final MutableAsciiBuffer buffer, final int offset, final int messageLength)\n" +
+        "    {\n" +
+        "        final int start = offset + Encoder.headerPrefixLength(HEADER_PREFIX_STRING_LENGTH, messageLength);\n" +
+        "        final long result = encodeFrom(buffer, start);\n" +
+        "        final int length = Encoder.length(result);\n" +
+        "        if (length != messageLength || Encoder.offset(result) != offset)\n" +
+        "        {\n" +
+        "            throw new EncodingException(\n" +
+        "                \"Encoded message length was \" + length + \" rather than \" + messageLength);\n" +
+        "        }\n\n" +
+        "        return length;\n" +
+        "    }\n\n" +
+        "    private long encodeFrom(final MutableAsciiBuffer buffer, final int start)\n" +
+        "    {\n" +
         "        int position = start;\n\n" +
         "        position += header.encode(buffer, position);\n";
 
@@ -512,7 +528,7 @@ public class EncoderGenerator extends Generator
                 break;
 
             case MESSAGE:
-                prefix = String.format(MESSAGE_ENCODE_PREFIX, maxHeaderPrefixLength);
+                prefix = String.format(MESSAGE_ENCODE_PREFIX, maxHeaderPrefixLength, headerPrefixString.length());
                 break;
 
             default:
@@ -18,6 +18,7 @@ package uk.co.real_logic.artio.fields;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static uk.co.real_logic.artio.fields.CalendricalUtil.MICROS_IN_DAY;
 import static uk.co.real_logic.artio.fields.CalendricalUtil.MILLIS_IN_DAY;
 import static uk.co.real_logic.artio.fields.UtcDateOnlyDecoder.LENGTH;
@@ -32,6 +33,10 @@ import static uk.co.real_logic.artio.fields.UtcDateOnlyDecoder.LENGTH;
  * millisecond precision then you can use the normal {@link UtcTimestampDecoder#decode(AsciiBuffer, int, int)} method.
  * Support for microsecond precision, eg: "yyyyMMdd-HH:mm:ss[.SSSSSS]" is provided through the
  * {@link UtcTimestampDecoder#decodeMicros(AsciiBuffer, int, int)} method.
+ * <p>
+ * Timestamps that are decoded one after another usually fall on the same day, so the
+ * {@link UtcTimestampDecoder#update(AsciiBuffer, int, int)} methods remember the date of the last timestamp
+ * that they decoded and only decode the time of day when the date hasn't changed.
  */
 public final class UtcTimestampDecoder
 {
@@ -45,9 +50,14 @@ public final class UtcTimestampDecoder
     public static final int LENGTH_WITH_MICROSECONDS = 24;
 
     private static final int TIME_OFFSET = LENGTH + 1;
+    private static final long EPOCH_DATE = new MutableAsciiBuffer("19700101".getBytes(US_ASCII)).getLong(0);
 
     private final AsciiBuffer buffer = new MutableAsciiBuffer();
 
+    // The date characters of the last timestamp to be updated, read as a long, and the day they represent
+    private long cachedDate = EPOCH_DATE;
+    private long cachedEpochDay = 0;
+
     public long decode(final byte[] bytes, final int length)
     {
         buffer.wrap(bytes);
@@ -70,6 +80,74 @@ public final class UtcTimestampDecoder
         return decodeMicros(bytes, bytes.length);
     }
 
+    public long update(final byte[] bytes, final int length)
+    {
+        buffer.wrap(bytes);
+        return update(buffer, 0, length);
+    }
+
+    public long update(final byte[] bytes)
+    {
+        return update(bytes, bytes.length);
+    }
+
+    public long updateMicros(final byte[] bytes, final int length)
+    {
+        buffer.wrap(bytes);
+        return updateMicros(buffer, 0, length);
+    }
+
+    public long updateMicros(final byte[] bytes)
+    {
+        return updateMicros(bytes, bytes.length);
+    }
+
+    /**
+     * Decodes the timestamp like {@link #decode(AsciiBuffer, int, int)}, but only decodes the date if it differs
+     * from the date of the last timestamp passed to one of the update methods.
+     *
+     * @param timestamp a buffer containing the FIX encoded value of the timestamp in ASCII
+     * @param offset the offset within the timestamp buffer where the value starts
+     * @param length the length of the FIX encoded value in bytes / ASCII characters
+     * @return the number of milliseconds since the Unix Epoch that represents this timestamp
+     */
+    public long update(final AsciiBuffer timestamp, final int offset, final int length)
+    {
+        final long epochDay = epochDay(timestamp, offset);
+        final long millisecondOfDay = UtcTimeOnlyDecoder.decode(
+            timestamp, offset + TIME_OFFSET, length - TIME_OFFSET);
+        return epochDay * MILLIS_IN_DAY + millisecondOfDay;
+    }
+
+    /**
+     * Decodes the timestamp like {@link #decodeMicros(AsciiBuffer, int, int)}, but only decodes the date if it
+     * differs from the date of the last timestamp passed to one of the update methods.
+     *
+     * @param timestamp a buffer containing the FIX encoded value of the timestamp in ASCII
+     * @param offset the offset within the timestamp buffer where the value starts
+     * @param length the length of the FIX encoded value in bytes / ASCII characters
+     * @return the number of microseconds since the Unix Epoch that represents this timestamp
+     */
+    public long updateMicros(final AsciiBuffer timestamp, final int offset, final int length)
+    {
+        final long epochDay = epochDay(timestamp, offset);
+        final long microsOfDay = UtcTimeOnlyDecoder.decodeMicros(
+            timestamp, offset + TIME_OFFSET, length - TIME_OFFSET);
+        return epochDay * MICROS_IN_DAY + microsOfDay;
+    }
+
+    private long epochDay(final AsciiBuffer timestamp, final int offset)
+    {
+        final long date = timestamp.getLong(offset);
+        if (date != cachedDate)
+        {
+            cachedEpochDay = UtcDateOnlyDecoder.decode(timestamp, offset);
+            cachedDate = date;
+        }
+
+        return cachedEpochDay;
+    }
+
     /**
      * @param timestamp a buffer containing the FIX encoded value of the timestamp in ASCII
      * @param offset the offset within the timestamp buffer where the value starts
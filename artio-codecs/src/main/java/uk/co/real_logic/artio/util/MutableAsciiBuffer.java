@@ -21,7 +21,9 @@ import uk.co.real_logic.artio.fields.*;
 
 import java.nio.ByteBuffer;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
 
 public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffer
 {
@@ -32,6 +34,15 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
     private static final byte Y = (byte)'Y';
     private static final byte N = (byte)'N';
 
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long LOW_BYTES = 0x00FF00FF00FF00FFL;
+    private static final long LOW_SHORTS = 0x0000FFFF0000FFFFL;
+
+    // Each word adds at most 2 * 255 to a 16 bit lane.
+    private static final int CHECKSUM_WORDS_PER_FOLD = 128;
+
     private static final int[] INT_ROUNDS =
     {
         9, 99, 999, 9999, 99999, 999999, 9999999, 99999999, 999999999, Integer.MAX_VALUE
@@ -318,7 +329,21 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
 
     public int scanBack(final int startInclusive, final int endExclusive, final byte terminator)
     {
-        for (int index = startInclusive; index >= endExclusive; index--)
+        // Callers may pass a range that runs off the buffer, relying on finding the terminator first.
+        final int wordsEnd = Math.max(endExclusive, 0);
+        final long pattern = repeat(terminator);
+        int index = startInclusive;
+        for (; index - (SIZE_OF_LONG - 1) >= wordsEnd; index -= SIZE_OF_LONG)
+        {
+            final int wordStart = index - (SIZE_OF_LONG - 1);
+            final long matches = matchingBytes(getLong(wordStart, LITTLE_ENDIAN) ^ pattern);
+            if (matches != 0)
+            {
+                return wordStart + ((Long.SIZE - 1 - Long.numberOfLeadingZeros(matches)) >>> 3);
+            }
+        }
+
+        for (; index >= endExclusive; index--)
         {
             final byte value = getByte(index);
             if (value == terminator)
@@ -337,29 +362,88 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
 
     public int scan(final int startInclusive, final int endInclusive, final byte terminator)
     {
-        int indexValue = UNKNOWN_INDEX;
-        for (int i = startInclusive; i <= endInclusive; i++)
+        // Callers may pass a range that runs off the buffer, relying on finding the terminator first.
+        final int wordsEnd = Math.min(endInclusive, capacity() - 1);
+        final long pattern = repeat(terminator);
+        int index = startInclusive;
+        for (; index + (SIZE_OF_LONG - 1) <= wordsEnd; index += SIZE_OF_LONG)
         {
-            final byte value = getByte(i);
+            final long matches = matchingBytes(getLong(index, LITTLE_ENDIAN) ^ pattern);
+            if (matches != 0)
+            {
+                return index + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+        }
+
+        for (; index <= endInclusive; index++)
+        {
+            final byte value = getByte(index);
             if (value == terminator)
             {
-                indexValue = i;
-                break;
+                return index;
             }
         }
 
-        return indexValue;
+        return UNKNOWN_INDEX;
     }
 
     public int computeChecksum(final int offset, final int end)
     {
+        return sumBytes(offset, end) % 256;
+    }
+
+    /**
+     * Sums the bytes in a range as signed values. The checksum of a message can be computed piecemeal as data
+     * arrives by adding together the sums of consecutive ranges and taking the total modulo 256.
+     *
+     * @param offset the start of the range, inclusive.
+     * @param end the end of the range, exclusive.
+     * @return the sum of the bytes in the range.
+     */
+    public int sumBytes(final int offset, final int end)
+    {
+        // Sums the bytes of each word in 16 bit lanes, the lanes are folded before they can overflow. The sum is of
+        // signed bytes, so 256 is taken off for each byte with its top bit set.
         int total = 0;
-        for (int index = offset; index < end; index++)
+        int index = offset;
+        while (index + SIZE_OF_LONG <= end)
+        {
+            final int wordsEnd = index + Math.min(end - index, CHECKSUM_WORDS_PER_FOLD * SIZE_OF_LONG);
+            long lanes = 0;
+            int negativeBytes = 0;
+            for (; index + SIZE_OF_LONG <= wordsEnd; index += SIZE_OF_LONG)
+            {
+                final long word = getLong(index);
+                lanes += (word & LOW_BYTES) + ((word >>> 8) & LOW_BYTES);
+                negativeBytes += Long.bitCount(word & HIGH_BITS);
+            }
+
+            lanes = (lanes & LOW_SHORTS) + ((lanes >>> 16) & LOW_SHORTS);
+            total += (int)((lanes & 0xFFFFFFFFL) + (lanes >>> 32)) - (negativeBytes << 8);
+        }
+
+        for (; index < end; index++)
         {
             total += (int)getByte(index);
         }
 
-        return total % 256;
+        return total;
+    }
+
+    private static long repeat(final byte value)
+    {
+        return (value & 0xFFL) * LOW_BITS;
+    }
+
+    /**
+     * Finds the zero bytes in a word without any false positives, so it's safe to search from either end.
+     *
+     * @param word the word to search.
+     * @return a word with the top bit of each byte set if that byte of the input is zero.
+     */
+    private static long matchingBytes(final long word)
+    {
+        return ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
     }
 
     public int putAscii(final int index, final String string)
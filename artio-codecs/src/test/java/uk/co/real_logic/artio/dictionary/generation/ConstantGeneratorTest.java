@@ -95,6 +95,20 @@ public class ConstantGeneratorTest
         assertThat(allFields, not(hasItem(999)));
     }
 
+    @Test
+    public void shouldGenerateHeaderFieldsSet() throws Exception
+    {
+        final Object headerFieldsField = getField(constants, "HEADER_FIELDS");
+        assertThat(headerFieldsField, instanceOf(IntHashSet.class));
+
+        @SuppressWarnings("unchecked") final Set<Integer> headerFields = (Set<Integer>)headerFieldsField;
+        assertThat(headerFields, hasItem(8));
+        assertThat(headerFields, hasItem(9));
+        assertThat(headerFields, hasItem(35));
+        assertThat(headerFields, not(hasItem(123)));
+        assertThat(headerFields, not(hasItem(10)));
+    }
+
     @Test(expected = NoSuchFieldException.class)
     public void shouldNotGenerateUnnecessaryValuesOfMethods() throws Exception
     {
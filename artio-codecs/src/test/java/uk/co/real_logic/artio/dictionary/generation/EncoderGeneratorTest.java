@@ -260,6 +260,36 @@ public class EncoderGeneratorTest
         assertEncodesTo(encoder, DERIVED_FIELDS_MESSAGE);
     }
 
+    @Test
+    public void encodesInPlaceWithGivenMessageLength() throws Exception
+    {
+        final Encoder encoder = newHeartbeat();
+
+        setRequiredFields(encoder);
+        setupHeader(encoder);
+        setupTrailer(encoder);
+        setOptionalFields(encoder);
+
+        final int offset = 1;
+        final int length = encoder.encode(buffer, offset, ENCODED_MESSAGE.length());
+
+        assertEquals(ENCODED_MESSAGE.length(), length);
+        assertEquals(ENCODED_MESSAGE, buffer.getAscii(offset, length));
+    }
+
+    @Test(expected = EncodingException.class)
+    public void shouldValidateMessageLengthWhenEncodingInPlace() throws Exception
+    {
+        final Encoder encoder = newHeartbeat();
+
+        setRequiredFields(encoder);
+        setupHeader(encoder);
+        setupTrailer(encoder);
+        setOptionalFields(encoder);
+
+        encoder.encode(buffer, 1, ENCODED_MESSAGE.length() - 1);
+    }
+
     @Test
     public void shouldGenerateHumanReadableToString() throws Exception
     {
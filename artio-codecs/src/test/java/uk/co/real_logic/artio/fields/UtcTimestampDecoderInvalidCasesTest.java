@@ -60,4 +60,27 @@ public class UtcTimestampDecoderInvalidCasesTest
     {
         new UtcTimestampDecoder().decodeMicros(timestamp.getBytes(US_ASCII));
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotUpdateTimestamp()
+    {
+        new UtcTimestampDecoder().update(timestamp.getBytes(US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotUpdateTimestampAfterUpdatingToMidnightOfTheSameDate()
+    {
+        final UtcTimestampDecoder decoder = new UtcTimestampDecoder();
+        final byte[] bytes = timestamp.getBytes(US_ASCII);
+        try
+        {
+            decoder.update((timestamp.substring(0, 9) + "00:00:00").getBytes(US_ASCII));
+        }
+        catch (final IllegalArgumentException e)
+        {
+            // The date itself is invalid, so it isn't cached and the next update must fail as well
+        }
+
+        decoder.update(bytes);
+    }
 }
@@ -103,5 +103,17 @@ public class UtcTimestampDecoderValidCasesTest
         assertEquals("Failed Micros testcase for: " + timestamp, expectedEpochMicros, epochMicros);
     }
 
+    @Test
+    public void canUpdateTimestampOnANewOrTheSameDay()
+    {
+        final long expectedEpochMillis = toEpochMillis(timestamp);
+        final byte[] bytes = timestamp.getBytes(US_ASCII);
+        final UtcTimestampDecoder decoder = new UtcTimestampDecoder();
+
+        decoder.update("20170101-12:00:00".getBytes(US_ASCII));
+        assertEquals("Failed new day testcase for: " + timestamp, expectedEpochMillis, decoder.update(bytes));
+        assertEquals("Failed same day testcase for: " + timestamp, expectedEpochMillis, decoder.update(bytes));
+    }
+
     // TODO: test leap second conversion 60
 }
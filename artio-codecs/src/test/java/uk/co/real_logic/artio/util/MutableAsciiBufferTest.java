@@ -22,9 +22,11 @@ import org.junit.experimental.theories.Theory;
 import org.junit.runner.RunWith;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
 import static uk.co.real_logic.artio.util.CustomMatchers.sequenceEqualsAscii;
 
 @RunWith(Theories.class)
@@ -119,6 +121,103 @@ public class MutableAsciiBufferTest
         assertThat(string, sequenceEqualsAscii(String.valueOf(Long.MIN_VALUE), 1, length));
     }
 
+    @Test
+    public void shouldScanForTerminatorWithinEachWordPosition()
+    {
+        fillWith('a', 0, 64);
+
+        for (int offset = 0; offset < 8; offset++)
+        {
+            for (int terminatorIndex = offset; terminatorIndex < 40; terminatorIndex++)
+            {
+                string.putByte(terminatorIndex, (byte)'\001');
+
+                assertEquals(terminatorIndex, string.scan(offset, 40, '\001'));
+                assertEquals(terminatorIndex, string.scanBack(40, offset, '\001'));
+
+                string.putByte(terminatorIndex, (byte)'a');
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindFirstTerminatorWhenScanningAndLastWhenScanningBack()
+    {
+        fillWith('a', 0, 64);
+        string.putByte(3, (byte)'=');
+        string.putByte(4, (byte)'=');
+        string.putByte(20, (byte)'=');
+        string.putByte(21, (byte)'=');
+
+        assertEquals(3, string.scan(0, 63, '='));
+        assertEquals(21, string.scanBack(63, 0, '='));
+    }
+
+    @Test
+    public void shouldNotScanOutsideOfRange()
+    {
+        fillWith('=', 0, 64);
+        fillWith('a', 10, 30);
+
+        assertEquals(UNKNOWN_INDEX, string.scan(10, 29, '='));
+        assertEquals(UNKNOWN_INDEX, string.scanBack(29, 10, '='));
+        assertEquals(UNKNOWN_INDEX, string.scan(12, 11, '='));
+    }
+
+    @Test
+    public void shouldFindTerminatorWhenRangeRunsOffTheEndOfTheBuffer()
+    {
+        final MutableAsciiBuffer buffer = new MutableAsciiBuffer(new byte[12]);
+        buffer.putByte(10, (byte)'\001');
+        buffer.putByte(1, (byte)'\001');
+
+        assertEquals(10, buffer.scan(2, 100, '\001'));
+        assertEquals(1, buffer.scanBack(9, -100, '\001'));
+    }
+
+    @Test
+    public void shouldNotFindTerminatorNextToZeroByte()
+    {
+        fillWith('\000', 0, 16);
+        string.putByte(9, (byte)'\001');
+
+        assertEquals(UNKNOWN_INDEX, string.scanBack(8, 0, '\001'));
+        assertEquals(9, string.scanBack(15, 0, '\001'));
+    }
+
+    @Test
+    public void shouldComputeChecksumOfRanges()
+    {
+        final Random random = new Random(42);
+        random.nextBytes(string.byteArray());
+
+        final int[] lengths = {0, 1, 7, 8, 9, 63, 100, 1023, 1024, 1025, 4000};
+        for (final int length : lengths)
+        {
+            for (int offset = 0; offset < 8; offset++)
+            {
+                int total = 0;
+                for (int i = offset; i < offset + length; i++)
+                {
+                    total += string.getByte(i);
+                }
+
+                assertEquals(
+                    "offset=" + offset + ",length=" + length,
+                    total % 256,
+                    string.computeChecksum(offset, offset + length));
+            }
+        }
+    }
+
+    private void fillWith(final char value, final int start, final int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            string.putByte(i, (byte)value);
+        }
+    }
+
     @DataPoints
     public static int[][] valuesAndLengths()
     {
@@ -27,6 +27,11 @@ public final class TestMessages
 
     public static final int MSG_LEN = EG_MESSAGE.length;
 
+    public static final byte[] TEST_REQUEST = toAscii("8=FIX.4.2\0019=61\00135=1\00134=5\00149=ABC_DEFG01\001" +
+            "52=20090323-15:40:29\00156=CCG\001112=TEST\00110=139\001");
+
+    public static final int TEST_REQUEST_LEN = TEST_REQUEST.length;
+
     public static final byte[] GARBLED_MESSAGE = toAscii("8=FIX.4.2\0019=153\00135=D\00134=4\0014garbled9=ABC_DEFG01\001" +
         "52=20090323-15:40:29\00156=CCG\001115=XYZ\00111=NF 0542/03232009\00154=1\00138=100\00155=CVS\00140=1" +
         "\00159=0\00147=A\00160=20090323-15:40:29\00121=1\001207=N\00110=146\001");
@@ -101,6 +101,11 @@ public class CommonConfiguration
      * Property name for the file to which histogram intervals are logged
      */
     public static final String HISTOGRAM_LOGGING_FILE_PROPERTY = "fix.benchmark.histogram_file";
+    /**
+     * Property name for the flag to give each library its own Aeron session on the inbound stream
+     */
+    public static final String DEDICATED_LIBRARY_INBOUND_SESSIONS_PROPERTY =
+        "fix.core.dedicated_library_inbound_sessions";
 
     public static final int DEFAULT_MONITORING_BUFFER_LENGTH = 64 * 1024 * 1024;
     public static final String DEFAULT_DIRECTORY = optimalTmpDirName() + File.separator + "fix-%s";
@@ -112,6 +117,13 @@ public class CommonConfiguration
     public static final long DEFAULT_REASONABLE_TRANSMISSION_TIME_IN_MS =
         SECONDS.toMillis(DEFAULT_REASONABLE_TRANSMISSION_TIME_IN_S);
     public static final boolean DEFAULT_PRINT_AERON_STREAM_IDENTIFIERS = false;
+    /**
+     * The range of library ids used when libraries have their own inbound sessions. The library id is also the Aeron
+     * session id of the library's inbound session, so the range lies within the session ids that the media driver
+     * reserves by default for publications that specify their own, which it never assigns to other publications.
+     */
+    public static final int DEDICATED_LIBRARY_ID_LOW = 1;
+    public static final int DEDICATED_LIBRARY_ID_HIGH = 10_000;
 
     private long reasonableTransmissionTimeInMs = DEFAULT_REASONABLE_TRANSMISSION_TIME_IN_MS;
     private boolean printAeronStreamIdentifiers = DEFAULT_PRINT_AERON_STREAM_IDENTIFIERS;
@@ -217,6 +229,7 @@ public class CommonConfiguration
     private long histogramPollPeriodInMs =
         Long.getLong(HISTOGRAM_POLL_PERIOD_IN_MS_PROPERTY, DEFAULT_HISTOGRAM_POLL_PERIOD_IN_MS);
     private String histogramLoggingFile = null;
+    private boolean dedicatedLibraryInboundSessions = Boolean.getBoolean(DEDICATED_LIBRARY_INBOUND_SESSIONS_PROPERTY);
     private HistogramHandler histogramHandler;
     private String agentNamePrefix = DEFAULT_NAME_PREFIX;
 
@@ -459,6 +472,27 @@ public class CommonConfiguration
         return this;
     }
 
+    /**
+     * Sets whether each library gets its own Aeron session on the inbound stream. When enabled the engine writes the
+     * messages addressed to a library onto that library's session and the library only subscribes to its own
+     * session, rather than reading and filtering out the messages for every other library. This reduces the cost of
+     * polling on each library as the number of libraries grows, at the cost of a log buffer per library.
+     *
+     * The engine and all of its libraries must be configured with the same value. The engine can't also use framer
+     * shards, since the messages to each library are written from the Framer. Libraries pick their id from between
+     * {@link #DEDICATED_LIBRARY_ID_LOW} and {@link #DEDICATED_LIBRARY_ID_HIGH}, which the media driver must keep
+     * within its reserved publication session ids if they have been configured.
+     *
+     * @param dedicatedLibraryInboundSessions true to give each library its own inbound session.
+     * @return this
+     * @see CommonConfiguration#DEDICATED_LIBRARY_INBOUND_SESSIONS_PROPERTY
+     */
+    public CommonConfiguration dedicatedLibraryInboundSessions(final boolean dedicatedLibraryInboundSessions)
+    {
+        this.dedicatedLibraryInboundSessions = dedicatedLibraryInboundSessions;
+        return this;
+    }
+
     public CommonConfiguration printAeronStreamIdentifiers(final boolean printAeronStreamIdentifiers)
     {
         this.printAeronStreamIdentifiers = printAeronStreamIdentifiers;
@@ -542,6 +576,11 @@ public class CommonConfiguration
         return histogramPollPeriodInMs;
     }
 
+    public boolean dedicatedLibraryInboundSessions()
+    {
+        return dedicatedLibraryInboundSessions;
+    }
+
     public int inboundMaxClaimAttempts()
     {
         return inboundMaxClaimAttempts;
@@ -16,11 +16,25 @@
 package uk.co.real_logic.artio;
 
 import org.agrona.CloseHelper;
+import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
 import org.agrona.concurrent.status.CountersManager;
 
+import java.util.Arrays;
+
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.concurrent.status.CountersReader.LABEL_OFFSET;
+import static org.agrona.concurrent.status.CountersReader.MAX_LABEL_LENGTH;
+import static org.agrona.concurrent.status.CountersReader.metaDataOffset;
+
 public class FixCounters implements AutoCloseable
 {
+    private static final String UNUSED_CONNECTION_COUNTER = "Unused connection counter";
+    private static final int MAX_CONNECTION_ID_LENGTH = 20;
+
+    // Ids of the connection counters that can be reused, used as a stack
+    private int[] freeConnectionCounterIds = new int[16];
+    private int freeConnectionCounterCount;
     private final CountersManager countersManager;
     private final AtomicCounter failedInboundPublications;
     private final AtomicCounter failedOutboundPublications;
@@ -28,7 +42,7 @@ public class FixCounters implements AutoCloseable
 
     private AtomicCounter failedRaftPublications = null;
 
-    FixCounters(final CountersManager countersManager)
+    public FixCounters(final CountersManager countersManager)
     {
         this.countersManager = countersManager;
         failedInboundPublications = countersManager.newCounter("Failed offer to inbound publication");
@@ -63,27 +77,78 @@ public class FixCounters implements AutoCloseable
 
     public AtomicCounter messagesRead(final long connectionId, final String address)
     {
-        return newCounter("Messages Read from " + address + " id = " + connectionId);
+        return connectionCounter("Messages Read from ", address, " id = ", connectionId);
     }
 
     public AtomicCounter bytesInBuffer(final long connectionId, final String address)
     {
-        return newCounter("Quarantined bytes for " + address + " id = " + connectionId);
+        return connectionCounter("Quarantined bytes for ", address, " id = ", connectionId);
     }
 
     public AtomicCounter invalidLibraryAttempts(final long connectionId, final String address)
     {
-        return newCounter("Invalid Library Attempts for " + address + " id = " + connectionId);
+        return connectionCounter("Invalid Library Attempts for ", address, " id = ", connectionId);
+    }
+
+    public AtomicCounter throttledMessages(final long connectionId, final String address)
+    {
+        return connectionCounter("Throttled messages for ", address, " id = ", connectionId);
     }
 
     public AtomicCounter sentMsgSeqNo(final long connectionId)
     {
-        return newCounter("Last Sent MsgSeqNo for " + connectionId);
+        return connectionCounter("Last Sent MsgSeqNo for ", "", "", connectionId);
     }
 
     public AtomicCounter receivedMsgSeqNo(final long connectionId)
     {
-        return newCounter("Last Received MsgSeqNo for " + connectionId);
+        return connectionCounter("Last Received MsgSeqNo for ", "", "", connectionId);
+    }
+
+    public AtomicCounter receiveBuffersInUse(final int bufferSize)
+    {
+        return newCounter("Receive buffers in use of size " + bufferSize);
+    }
+
+    public AtomicCounter pooledReceiveBuffers(final int bufferSize)
+    {
+        return newCounter("Pooled receive buffers of size " + bufferSize);
+    }
+
+    public AtomicCounter pendingAuthentications()
+    {
+        return newCounter("Pending authentications");
+    }
+
+    public AtomicCounter logonQueueDepth()
+    {
+        return newCounter("Logon queue depth");
+    }
+
+    // Sample both counters over an interval to get the average logon latency in that interval
+    public AtomicCounter totalLogonLatencyInMs()
+    {
+        return newCounter("Total logon latency in ms");
+    }
+
+    public AtomicCounter completedLogons()
+    {
+        return newCounter("Logons completed");
+    }
+
+    public AtomicCounter replaySetupTimeInNs(final String replayName)
+    {
+        return newCounter("Last " + replayName + " setup time in ns");
+    }
+
+    public AtomicCounter replayCacheHits()
+    {
+        return newCounter("Resend requests replayed from the replay cache");
+    }
+
+    public AtomicCounter replayCacheMisses()
+    {
+        return newCounter("Resend requests replayed from the archive");
     }
 
     private AtomicCounter newCounter(final String label)
@@ -91,12 +156,94 @@ public class FixCounters implements AutoCloseable
         return countersManager.newCounter(label);
     }
 
-    public void close()
+    /**
+     * Counters that only live as long as a connection are kept for reuse when they're closed rather than freed, so
+     * that connection churn doesn't allocate a new counter and label each time. A reused counter is reset and its
+     * label rewritten in place.
+     *
+     * Each connection gets its own counter object for the reused id, which can only release the id once, so closing
+     * it again after the id has been handed to another connection doesn't release the other connection's counter.
+     */
+    private synchronized AtomicCounter connectionCounter(
+        final String prefix, final String address, final String infix, final long connectionId)
+    {
+        final int counterId = freeConnectionCounterCount > 0 ?
+            freeConnectionCounterIds[--freeConnectionCounterCount] :
+            countersManager.allocate(UNUSED_CONNECTION_COUNTER);
+
+        final ConnectionCounter counter = new ConnectionCounter(counterId);
+        counter.setOrdered(0);
+        putLabel(counterId, prefix, address, infix, connectionId);
+
+        return counter;
+    }
+
+    private synchronized void release(final ConnectionCounter counter)
+    {
+        if (!counter.released)
+        {
+            counter.released = true;
+            counter.setOrdered(0);
+            putLabel(counter.id(), UNUSED_CONNECTION_COUNTER, "", "", Long.MIN_VALUE);
+
+            if (freeConnectionCounterCount == freeConnectionCounterIds.length)
+            {
+                freeConnectionCounterIds = Arrays.copyOf(freeConnectionCounterIds, freeConnectionCounterCount * 2);
+            }
+            freeConnectionCounterIds[freeConnectionCounterCount++] = counter.id();
+        }
+    }
+
+    private void putLabel(
+        final int counterId, final String prefix, final String address, final String infix, final long connectionId)
+    {
+        final AtomicBuffer metaDataBuffer = countersManager.metaDataBuffer();
+        final int labelOffset = metaDataOffset(counterId) + LABEL_OFFSET;
+        final int start = labelOffset + SIZE_OF_INT;
+        final int end = start + MAX_LABEL_LENGTH;
+
+        int position = putAscii(metaDataBuffer, start, end, prefix);
+        position = putAscii(metaDataBuffer, position, end, address);
+        position = putAscii(metaDataBuffer, position, end, infix);
+        if (connectionId != Long.MIN_VALUE && end - position >= MAX_CONNECTION_ID_LENGTH)
+        {
+            position += metaDataBuffer.putLongAscii(position, connectionId);
+        }
+
+        metaDataBuffer.putIntOrdered(labelOffset, position - start);
+    }
+
+    private static int putAscii(final AtomicBuffer buffer, final int position, final int end, final String value)
+    {
+        return position + buffer.putStringWithoutLengthAscii(position, value, 0, end - position);
+    }
+
+    public synchronized void close()
     {
         failedInboundPublications.close();
         failedOutboundPublications.close();
         failedReplayPublications.close();
         CloseHelper.close(failedRaftPublications);
+
+        while (freeConnectionCounterCount > 0)
+        {
+            countersManager.free(freeConnectionCounterIds[--freeConnectionCounterCount]);
+        }
+    }
+
+    private final class ConnectionCounter extends AtomicCounter
+    {
+        private boolean released;
+
+        ConnectionCounter(final int counterId)
+        {
+            super(countersManager.valuesBuffer(), counterId, countersManager);
+        }
+
+        public void close()
+        {
+            release(this);
+        }
     }
 
 }
@@ -37,6 +37,12 @@ public class GatewayProcess implements AutoCloseable
     public static final int OUTBOUND_REPLAY_STREAM = 3;
     public static final int ARCHIVE_REPLAY_STREAM = 4;
     public static final int ARCHIVE_SCANNER_STREAM = 5;
+    public static final int ARCHIVE_CATCHUP_REPLAY_STREAM = 6;
+    /**
+     * Default stream id that replayer shards after the first replay from the archive on consecutive streams from,
+     * see {@link uk.co.real_logic.artio.engine.EngineConfiguration#replayerShardStreamId(int)}
+     */
+    public static final int ARCHIVE_REPLAYER_SHARD_STREAM = 7;
 
     /** Common id used by messages in both engine and library */
     public static final long NO_CORRELATION_ID = 0;
@@ -50,12 +50,33 @@ public class ChecksumFramer extends SectorFramer
 
     public void validateCheckSums()
     {
-        withChecksums(validateChecksumFunc);
+        withChecksums(validateChecksumFunc, capacity);
     }
 
     public void updateChecksums()
     {
-        withChecksums(saveChecksumFunc);
+        withChecksums(saveChecksumFunc, capacity);
+    }
+
+    /**
+     * Updates the checksums of the sectors that hold data before an offset, for when nothing after it has changed.
+     *
+     * @param end the offset after the last data that has changed.
+     */
+    public void updateChecksums(final int end)
+    {
+        withChecksums(saveChecksumFunc, Math.min(nextSectorStart(end - 1), capacity));
+    }
+
+    /**
+     * Updates the checksum of a single sector.
+     *
+     * @param sectorStart the offset of the start of the sector.
+     */
+    public void updateChecksum(final int sectorStart)
+    {
+        buffer.putInt(sectorStart + FIRST_CHECKSUM_LOCATION, checksum(sectorStart));
+        clearByteBuffer();
     }
 
     private void validateChecksum(final int checksumOffset, final int calculatedChecksum)
@@ -66,32 +87,41 @@ public class ChecksumFramer extends SectorFramer
         validateCheckSum(fileName, start, end, savedChecksum, calculatedChecksum, errorHandler);
     }
 
-    private void withChecksums(final ChecksumConsumer consumer)
+    private void withChecksums(final ChecksumConsumer consumer, final int end)
     {
-        final byte[] inMemoryBytes = buffer.byteArray();
-        final ByteBuffer inMemoryByteBuffer = buffer.byteBuffer();
-        final int capacity = this.capacity;
-
-        for (int sectorEnd = SECTOR_SIZE; sectorEnd <= capacity; sectorEnd += SECTOR_SIZE)
+        for (int sectorEnd = SECTOR_SIZE; sectorEnd <= end; sectorEnd += SECTOR_SIZE)
         {
             final int sectorStart = sectorEnd - SECTOR_SIZE;
             final int checksumOffset = sectorEnd - CHECKSUM_SIZE;
+            consumer.accept(checksumOffset, checksum(sectorStart));
+        }
+
+        clearByteBuffer();
+    }
+
+    private int checksum(final int sectorStart)
+    {
+        final byte[] inMemoryBytes = buffer.byteArray();
 
-            crc32.reset();
-            if (inMemoryBytes != null)
-            {
-                crc32.update(inMemoryBytes, sectorStart, SECTOR_DATA_LENGTH);
-            }
-            else
-            {
-                ByteBufferUtil.limit(inMemoryByteBuffer, sectorStart + SECTOR_DATA_LENGTH);
-                ByteBufferUtil.position(inMemoryByteBuffer, sectorStart);
-                crc32.update(inMemoryByteBuffer);
-            }
-            final int sectorChecksum = (int)crc32.getValue();
-            consumer.accept(checksumOffset, sectorChecksum);
+        crc32.reset();
+        if (inMemoryBytes != null)
+        {
+            crc32.update(inMemoryBytes, sectorStart, SECTOR_DATA_LENGTH);
         }
+        else
+        {
+            final ByteBuffer inMemoryByteBuffer = buffer.byteBuffer();
+            ByteBufferUtil.limit(inMemoryByteBuffer, sectorStart + SECTOR_DATA_LENGTH);
+            ByteBufferUtil.position(inMemoryByteBuffer, sectorStart);
+            crc32.update(inMemoryByteBuffer);
+        }
+
+        return (int)crc32.getValue();
+    }
 
+    private void clearByteBuffer()
+    {
+        final ByteBuffer inMemoryByteBuffer = buffer.byteBuffer();
         if (inMemoryByteBuffer != null)
         {
             inMemoryByteBuffer.clear();
@@ -15,11 +15,13 @@
  */
 package uk.co.real_logic.artio.engine;
 
+import io.aeron.archive.client.AeronArchive;
 import org.agrona.CloseHelper;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.GatewayProcess;
 import uk.co.real_logic.artio.decoder.*;
 import uk.co.real_logic.artio.engine.framer.TcpChannelSupplier;
 import uk.co.real_logic.artio.validation.SessionPersistenceStrategy;
@@ -84,6 +86,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the size in bytes of the receiver end point's framing buffer.
      */
     public static final String RECEIVER_BUFFER_SIZE_PROP = "fix.core.receiver_buffer_size";
+    /**
+     * Property name for the size in bytes of the framing buffer that a receiver end point starts with, it grows up
+     * to the receiver buffer size when larger messages are received.
+     */
+    public static final String RECEIVER_INITIAL_BUFFER_SIZE_PROP = "fix.core.receiver_initial_buffer_size";
     /**
      * Property name for the size in bytes of the TCP socket's receive buffer.
      */
@@ -104,10 +111,70 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the maximum number of bytes to allow in the quarantine buffer before disconnection
      */
     public static final String SENDER_MAX_BYTES_IN_BUFFER_PROP = "fix.core.sender_max_bytes_in_buffer";
+    /**
+     * Property name for whether slow consumers copy their unsent messages into an off-heap queue rather than having
+     * them re-read from the log, see {@link #senderSpillSlowConsumers(boolean)}.
+     */
+    public static final String SENDER_SPILL_SLOW_CONSUMERS_PROP = "fix.core.sender_spill_slow_consumers";
     /**
      * Property name for the timeout before a connection that hasn't sent a logon is disconnected
      */
     public static final String NO_LOGON_DISCONNECT_TIMEOUT_PROP = "fix.core.no_logon_disconnect";
+    /**
+     * Property name for the timeout before a connection whose logon is still being authenticated is disconnected
+     */
+    public static final String AUTHENTICATION_TIMEOUT_PROP = "fix.core.authentication_timeout";
+    /**
+     * Property name for the number of logons that the framer starts to process on each duty cycle, 0 for no limit
+     */
+    public static final String LOGONS_PER_DUTY_CYCLE_PROP = "fix.core.logons_per_duty_cycle";
+    /**
+     * Property name for the number of logons that can wait to be processed when logonsPerDutyCycle is used up
+     */
+    public static final String LOGON_QUEUE_CAPACITY_PROP = "fix.core.logon_queue_capacity";
+    /**
+     * Property name for the number of framer shards that read from the TCP connections of library owned sessions
+     */
+    public static final String FRAMER_SHARD_COUNT_PROP = "fix.core.framer_shard_count";
+    /**
+     * Property name for the number of inbound messages per second that each connection is allowed, 0 for no limit
+     */
+    public static final String INBOUND_THROTTLE_MESSAGES_PER_SECOND_PROP =
+        "fix.core.inbound_throttle_messages_per_second";
+    /**
+     * Property name for the number of inbound bytes per second that each connection is allowed, 0 for no limit
+     */
+    public static final String INBOUND_THROTTLE_BYTES_PER_SECOND_PROP = "fix.core.inbound_throttle_bytes_per_second";
+    /**
+     * Property name for what happens to a message that arrives when a connection has used up its inbound throttle,
+     * one of the names of {@link InboundThrottleAction}
+     */
+    public static final String INBOUND_THROTTLE_ACTION_PROP = "fix.core.inbound_throttle_action";
+    /**
+     * Property name for the number of messages that each session can send in an outbound throttle window,
+     * 0 for no limit
+     */
+    public static final String OUTBOUND_THROTTLE_MESSAGES_PER_WINDOW_PROP =
+        "fix.core.outbound_throttle_messages_per_window";
+    /**
+     * Property name for the length of the outbound throttle window in milliseconds
+     */
+    public static final String OUTBOUND_THROTTLE_WINDOW_IN_MS_PROP = "fix.core.outbound_throttle_window_in_ms";
+    /**
+     * Property name for the size in bytes of the buffer that caches each session's most recently sent messages for
+     * resend requests, 0 for no cache
+     */
+    public static final String REPLAY_CACHE_BUFFER_SIZE_PROP = "fix.core.replay_cache_buffer_size";
+    /**
+     * Property name for the number of replayer shards that answer resend requests, 0 to answer them on the
+     * archiving agent
+     */
+    public static final String REPLAYER_SHARD_COUNT_PROP = "fix.core.replayer_shard_count";
+    /**
+     * Property name for the first of the consecutive archive replay stream ids used by the replayer shards after the
+     * first one
+     */
+    public static final String REPLAYER_SHARD_STREAM_ID_PROP = "fix.core.replayer_shard_stream_id";
 
     // ------------------------------------------------
     //          Configuration Defaults
@@ -117,17 +184,32 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     public static final int DEFAULT_REPLAY_INDEX_FILE_SIZE = 2 * 1024 * 1024 + INITIAL_RECORD_OFFSET;
     public static final int DEFAULT_LOGGER_CACHE_NUM_SETS = 8;
     public static final int DEFAULT_LOGGER_CACHE_SET_SIZE = 4;
+    public static final int DEFAULT_REPLAY_CACHE_BUFFER_SIZE = 0;
+    public static final int DEFAULT_REPLAY_CACHE_NUM_SETS = 8;
+    public static final int DEFAULT_REPLAY_CACHE_SET_SIZE = 4;
+    public static final int DEFAULT_REPLAYER_SHARD_COUNT = 0;
+    public static final int DEFAULT_REPLAYER_SHARD_STREAM_ID = GatewayProcess.ARCHIVE_REPLAYER_SHARD_STREAM;
 
     public static final int DEFAULT_OUTBOUND_LIBRARY_FRAGMENT_LIMIT = 100;
     public static final int DEFAULT_REPLAY_FRAGMENT_LIMIT = 5;
     public static final int DEFAULT_INBOUND_BYTES_RECEIVED_LIMIT = 8 * 1024;
     public static final int DEFAULT_RECEIVER_BUFFER_SIZE = 16 * 1024;
+    public static final int DEFAULT_RECEIVER_INITIAL_BUFFER_SIZE = 4 * 1024;
     public static final int DEFAULT_RECEIVER_SOCKET_BUFFER_SIZE = 1024 * 1024;
     public static final int DEFAULT_SENDER_SOCKET_BUFFER_SIZE = 1024 * 1024;
     public static final int DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE = 8 * 1024 * 1024;
     public static final int DEFAULT_SESSION_ID_BUFFER_SIZE = 4 * 1024 * 1024;
     public static final int DEFAULT_SENDER_MAX_BYTES_IN_BUFFER = 4 * 1024 * 1024;
     public static final int DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT = (int)SECONDS.toMillis(5);
+    public static final int DEFAULT_AUTHENTICATION_TIMEOUT_IN_MS = (int)SECONDS.toMillis(5);
+    public static final int DEFAULT_LOGONS_PER_DUTY_CYCLE = 0;
+    public static final int DEFAULT_LOGON_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_FRAMER_SHARD_COUNT = 0;
+    public static final int DEFAULT_INBOUND_THROTTLE_MESSAGES_PER_SECOND = 0;
+    public static final int DEFAULT_INBOUND_THROTTLE_BYTES_PER_SECOND = 0;
+    public static final InboundThrottleAction DEFAULT_INBOUND_THROTTLE_ACTION = InboundThrottleAction.PAUSE;
+    public static final int DEFAULT_OUTBOUND_THROTTLE_MESSAGES_PER_WINDOW = 0;
+    public static final int DEFAULT_OUTBOUND_THROTTLE_WINDOW_IN_MS = (int)SECONDS.toMillis(1);
     public static final String DEFAULT_SESSION_ID_FILE = "session_id_buffer";
     public static final String DEFAULT_SEQUENCE_NUMBERS_SENT_FILE = "sequence_numbers_sent";
     public static final String DEFAULT_SEQUENCE_NUMBERS_RECEIVED_FILE = "sequence_numbers_received";
@@ -157,6 +239,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     private String logFileDir = getProperty(LOG_FILE_DIR_PROP, DEFAULT_LOG_FILE_DIR);
     private int loggerCacheNumSets = DEFAULT_LOGGER_CACHE_NUM_SETS;
     private int loggerCacheSetSize = DEFAULT_LOGGER_CACHE_SET_SIZE;
+    private int replayCacheBufferSize = getInteger(REPLAY_CACHE_BUFFER_SIZE_PROP, DEFAULT_REPLAY_CACHE_BUFFER_SIZE);
+    private int replayCacheNumSets = DEFAULT_REPLAY_CACHE_NUM_SETS;
+    private int replayCacheSetSize = DEFAULT_REPLAY_CACHE_SET_SIZE;
+    private int replayerShardCount = getInteger(REPLAYER_SHARD_COUNT_PROP, DEFAULT_REPLAYER_SHARD_COUNT);
+    private int replayerShardStreamId = getInteger(REPLAYER_SHARD_STREAM_ID_PROP, DEFAULT_REPLAYER_SHARD_STREAM_ID);
     private boolean logInboundMessages = true;
     private boolean logOutboundMessages = true;
     private IdleStrategy framerIdleStrategy = backoffIdleStrategy();
@@ -176,6 +263,8 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         getInteger(INBOUND_BYTES_RECEIVED_LIMIT_PROP, DEFAULT_INBOUND_BYTES_RECEIVED_LIMIT);
     private int receiverBufferSize =
         getInteger(RECEIVER_BUFFER_SIZE_PROP, DEFAULT_RECEIVER_BUFFER_SIZE);
+    private int receiverInitialBufferSize =
+        getInteger(RECEIVER_INITIAL_BUFFER_SIZE_PROP, DEFAULT_RECEIVER_INITIAL_BUFFER_SIZE);
     private int receiverSocketBufferSize =
         getInteger(RECEIVER_SOCKET_BUFFER_SIZE_PROP, DEFAULT_RECEIVER_SOCKET_BUFFER_SIZE);
     private int senderSocketBufferSize =
@@ -186,8 +275,27 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         getInteger(SESSION_ID_BUFFER_SIZE_PROP, DEFAULT_SESSION_ID_BUFFER_SIZE);
     private int senderMaxBytesInBuffer =
         getInteger(SENDER_MAX_BYTES_IN_BUFFER_PROP, DEFAULT_SENDER_MAX_BYTES_IN_BUFFER);
+    private boolean senderSpillSlowConsumers = Boolean.getBoolean(SENDER_SPILL_SLOW_CONSUMERS_PROP);
     private int noLogonDisconnectTimeoutInMs =
         getInteger(NO_LOGON_DISCONNECT_TIMEOUT_PROP, DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT);
+    private int authenticationTimeoutInMs =
+        getInteger(AUTHENTICATION_TIMEOUT_PROP, DEFAULT_AUTHENTICATION_TIMEOUT_IN_MS);
+    private int logonsPerDutyCycle =
+        getInteger(LOGONS_PER_DUTY_CYCLE_PROP, DEFAULT_LOGONS_PER_DUTY_CYCLE);
+    private int logonQueueCapacity =
+        getInteger(LOGON_QUEUE_CAPACITY_PROP, DEFAULT_LOGON_QUEUE_CAPACITY);
+    private int framerShardCount =
+        getInteger(FRAMER_SHARD_COUNT_PROP, DEFAULT_FRAMER_SHARD_COUNT);
+    private int inboundThrottleMessagesPerSecond =
+        getInteger(INBOUND_THROTTLE_MESSAGES_PER_SECOND_PROP, DEFAULT_INBOUND_THROTTLE_MESSAGES_PER_SECOND);
+    private int inboundThrottleBytesPerSecond =
+        getInteger(INBOUND_THROTTLE_BYTES_PER_SECOND_PROP, DEFAULT_INBOUND_THROTTLE_BYTES_PER_SECOND);
+    private InboundThrottleAction inboundThrottleAction = InboundThrottleAction.valueOf(
+        getProperty(INBOUND_THROTTLE_ACTION_PROP, DEFAULT_INBOUND_THROTTLE_ACTION.name()));
+    private int outboundThrottleMessagesPerWindow =
+        getInteger(OUTBOUND_THROTTLE_MESSAGES_PER_WINDOW_PROP, DEFAULT_OUTBOUND_THROTTLE_MESSAGES_PER_WINDOW);
+    private int outboundThrottleWindowInMs =
+        getInteger(OUTBOUND_THROTTLE_WINDOW_IN_MS_PROP, DEFAULT_OUTBOUND_THROTTLE_WINDOW_IN_MS);
 
     private String libraryAeronChannel = null;
     private Function<EngineConfiguration, TcpChannelSupplier> channelSupplierFactory = TcpChannelSupplier::new;
@@ -228,6 +336,22 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the size of the buffer that receiver end points start framing messages in. Buffers are pooled in size
+     * classes that double from this size up to the receiver buffer size, and an end point only moves up to a
+     * larger buffer when it receives a message that doesn't fit in its current one.
+     *
+     * @param receiverInitialBufferSize the initial receiver buffer size.
+     * @return this
+     * @see EngineConfiguration#receiverBufferSize(int)
+     * @see EngineConfiguration#RECEIVER_INITIAL_BUFFER_SIZE_PROP
+     */
+    public EngineConfiguration receiverInitialBufferSize(final int receiverInitialBufferSize)
+    {
+        this.receiverInitialBufferSize = receiverInitialBufferSize;
+        return this;
+    }
+
     /**
      * Sets the receiver socket buffer size.
      *
@@ -313,6 +437,88 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the size of the buffer that caches each session's most recently sent messages in memory. Resend requests
+     * for messages that are all still in the cache are answered from it rather than replayed from the archive.
+     * <p>
+     * A buffer is allocated off heap for each session that the cache holds, so the cache uses at most
+     * replayCacheBufferSize * {@link #replayCacheNumSets(int)} * {@link #replayCacheSetSize(int)} bytes. Sessions
+     * that have sent the least recently are dropped from the cache when it's full.
+     * <p>
+     * Default: 0, which disables the cache.
+     *
+     * @param replayCacheBufferSize the size in bytes of each session's buffer, which is rounded up to a power of
+     *                              two, or 0 for no cache.
+     * @return this
+     * @see EngineConfiguration#REPLAY_CACHE_BUFFER_SIZE_PROP
+     */
+    public EngineConfiguration replayCacheBufferSize(final int replayCacheBufferSize)
+    {
+        this.replayCacheBufferSize = replayCacheBufferSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of sets in the replay cache.
+     *
+     * @param replayCacheNumSets the number of sets in the replay cache.
+     * @return this
+     * @see this#replayCacheBufferSize(int)
+     */
+    public EngineConfiguration replayCacheNumSets(final int replayCacheNumSets)
+    {
+        this.replayCacheNumSets = replayCacheNumSets;
+        return this;
+    }
+
+    /**
+     * Sets the number of sessions in each set of the replay cache.
+     *
+     * @param replayCacheSetSize the set size of the replay cache.
+     * @return this
+     * @see this#replayCacheBufferSize(int)
+     */
+    public EngineConfiguration replayCacheSetSize(final int replayCacheSetSize)
+    {
+        this.replayCacheSetSize = replayCacheSetSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of replayer shards. Resend requests are split between the shards by session id and each
+     * shard queries the archive and publishes its replays independently of the others, so a large resend request
+     * only holds up the sessions on its own shard. The default of 0 answers all resend requests on the archiving
+     * agent.
+     *
+     * Shards are run as part of the archiving agent unless the configured {@link EngineScheduler} gives
+     * them their own threads, for example the {@link ShardedEngineScheduler}. When they have their own threads the
+     * {@link ReplayHandler} may be invoked on any of them.
+     *
+     * @param replayerShardCount the number of replayer shards.
+     * @return this
+     * @see EngineConfiguration#REPLAYER_SHARD_COUNT_PROP
+     */
+    public EngineConfiguration replayerShardCount(final int replayerShardCount)
+    {
+        this.replayerShardCount = replayerShardCount;
+        return this;
+    }
+
+    /**
+     * Sets the first stream id that replayer shards replay from the archive on. The first shard uses the engine's
+     * usual replay stream and each of the others uses the next stream id from this one, so the range of stream ids
+     * mustn't overlap the engine's own streams or the archive's control streams.
+     *
+     * @param replayerShardStreamId the first stream id used by replayer shards.
+     * @return this
+     * @see EngineConfiguration#REPLAYER_SHARD_STREAM_ID_PROP
+     */
+    public EngineConfiguration replayerShardStreamId(final int replayerShardStreamId)
+    {
+        this.replayerShardStreamId = replayerShardStreamId;
+        return this;
+    }
+
     /**
      * Sets logging of inbound messages.
      * <p>
@@ -417,6 +623,25 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets how messages are held for a slow consumer, a connection whose TCP send buffer is full.
+     *
+     * By default a slow consumer's messages are left in the outbound and replay logs and re-read from there once the
+     * connection can take them, which holds back the log position of the library that sent them and every other
+     * session on it. When spilling is enabled the unsent messages are copied into a per-connection off-heap queue
+     * instead, so the logs keep moving. In both cases the connection is disconnected once more than
+     * {@link #senderMaxBytesInBuffer()} bytes are waiting to be sent.
+     *
+     * @param senderSpillSlowConsumers true to copy unsent messages into a queue, false to re-read them from the log.
+     * @return this
+     * @see EngineConfiguration#SENDER_SPILL_SLOW_CONSUMERS_PROP
+     */
+    public EngineConfiguration senderSpillSlowConsumers(final boolean senderSpillSlowConsumers)
+    {
+        this.senderSpillSlowConsumers = senderSpillSlowConsumers;
+        return this;
+    }
+
     /**
      * Set the timeout in milliseconds for TCP connections which don't send a logon message.
      *
@@ -429,6 +654,146 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Set the timeout in milliseconds for authenticating a logon message. Once a logon has been received the
+     * connection is disconnected if the {@link uk.co.real_logic.artio.validation.AuthenticationStrategy} hasn't
+     * accepted or rejected it within this timeout, instead of the no logon timeout.
+     *
+     * @param authenticationTimeoutInMs the timeout in milliseconds for authenticating a logon message
+     * @return this
+     */
+    public EngineConfiguration authenticationTimeoutInMs(final int authenticationTimeoutInMs)
+    {
+        this.authenticationTimeoutInMs = authenticationTimeoutInMs;
+        return this;
+    }
+
+    /**
+     * Limits the number of logons that the framer starts to process on each duty cycle, so that many connections
+     * logging on at once, for example after an outage, don't hold up the messages of sessions that are already
+     * logged on. Logons over the limit wait in a queue and are processed in the order they arrived on later duty
+     * cycles. Whilst a logon waits the no logon timeout still applies to its connection.
+     *
+     * @param logonsPerDutyCycle the number of logons per duty cycle, or 0 for no limit.
+     * @return this
+     * @see EngineConfiguration#logonQueueCapacity(int)
+     * @see EngineConfiguration#LOGONS_PER_DUTY_CYCLE_PROP
+     */
+    public EngineConfiguration logonsPerDutyCycle(final int logonsPerDutyCycle)
+    {
+        this.logonsPerDutyCycle = logonsPerDutyCycle;
+        return this;
+    }
+
+    /**
+     * Sets the number of logons that can wait to be processed when {@link #logonsPerDutyCycle(int)} is used up.
+     * Connections whose logon arrives when the queue is full are disconnected.
+     *
+     * @param logonQueueCapacity the number of logons that can wait to be processed.
+     * @return this
+     * @see EngineConfiguration#LOGON_QUEUE_CAPACITY_PROP
+     */
+    public EngineConfiguration logonQueueCapacity(final int logonQueueCapacity)
+    {
+        this.logonQueueCapacity = logonQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the number of framer shards. Once a session is owned by a library, reading and framing
+     * messages from its TCP connection is moved from the Framer onto one of these shards, spreading
+     * the inbound work of many connections over several threads. The default of 0 keeps all inbound
+     * connections on the Framer.
+     *
+     * Shards are run as part of the framer agent unless the configured {@link EngineScheduler} gives
+     * them their own threads, for example the {@link ShardedEngineScheduler}.
+     *
+     * @param framerShardCount the number of framer shards.
+     * @return this
+     * @see EngineConfiguration#FRAMER_SHARD_COUNT_PROP
+     */
+    public EngineConfiguration framerShardCount(final int framerShardCount)
+    {
+        this.framerShardCount = framerShardCount;
+        return this;
+    }
+
+    /**
+     * Limits the number of messages per second that the engine accepts from each connection. The limit is applied
+     * as a token bucket, so a connection can burst up to a second's worth of messages at once.
+     *
+     * @param inboundThrottleMessagesPerSecond the number of messages per second, or 0 for no limit.
+     * @return this
+     * @see EngineConfiguration#inboundThrottleAction(InboundThrottleAction)
+     * @see EngineConfiguration#INBOUND_THROTTLE_MESSAGES_PER_SECOND_PROP
+     */
+    public EngineConfiguration inboundThrottleMessagesPerSecond(final int inboundThrottleMessagesPerSecond)
+    {
+        this.inboundThrottleMessagesPerSecond = inboundThrottleMessagesPerSecond;
+        return this;
+    }
+
+    /**
+     * Limits the number of bytes of messages per second that the engine accepts from each connection. The limit is
+     * applied as a token bucket, so a connection can burst up to a second's worth of bytes at once.
+     *
+     * @param inboundThrottleBytesPerSecond the number of bytes per second, or 0 for no limit.
+     * @return this
+     * @see EngineConfiguration#inboundThrottleAction(InboundThrottleAction)
+     * @see EngineConfiguration#INBOUND_THROTTLE_BYTES_PER_SECOND_PROP
+     */
+    public EngineConfiguration inboundThrottleBytesPerSecond(final int inboundThrottleBytesPerSecond)
+    {
+        this.inboundThrottleBytesPerSecond = inboundThrottleBytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Sets what happens to a message that arrives when its connection has used up its inbound throttle.
+     *
+     * @param inboundThrottleAction the action to take.
+     * @return this
+     * @see EngineConfiguration#INBOUND_THROTTLE_ACTION_PROP
+     */
+    public EngineConfiguration inboundThrottleAction(final InboundThrottleAction inboundThrottleAction)
+    {
+        this.inboundThrottleAction = inboundThrottleAction;
+        return this;
+    }
+
+    /**
+     * Limits the number of messages that each session sends to its counterparty in any window of
+     * {@link #outboundThrottleWindowInMs()} milliseconds, for counterparties that disconnect sessions which exceed
+     * their message rate. Messages over the limit are held in the engine and sent as the window moves on, and the
+     * owning library is told when a session starts and stops having messages held back through
+     * {@link uk.co.real_logic.artio.library.SessionHandler#onThrottleStatus}.
+     *
+     * Held messages count towards {@link #senderMaxBytesInBuffer()}, and throttled sessions always spill their slow
+     * consumer messages, see {@link #senderSpillSlowConsumers(boolean)}. Resent messages aren't throttled.
+     *
+     * @param outboundThrottleMessagesPerWindow the number of messages per window, or 0 for no limit.
+     * @return this
+     * @see EngineConfiguration#OUTBOUND_THROTTLE_MESSAGES_PER_WINDOW_PROP
+     */
+    public EngineConfiguration outboundThrottleMessagesPerWindow(final int outboundThrottleMessagesPerWindow)
+    {
+        this.outboundThrottleMessagesPerWindow = outboundThrottleMessagesPerWindow;
+        return this;
+    }
+
+    /**
+     * Sets the length of the window used by {@link #outboundThrottleMessagesPerWindow(int)}.
+     *
+     * @param outboundThrottleWindowInMs the length of the window in milliseconds.
+     * @return this
+     * @see EngineConfiguration#OUTBOUND_THROTTLE_WINDOW_IN_MS_PROP
+     */
+    public EngineConfiguration outboundThrottleWindowInMs(final int outboundThrottleWindowInMs)
+    {
+        this.outboundThrottleWindowInMs = outboundThrottleWindowInMs;
+        return this;
+    }
+
     public EngineConfiguration channelSupplierFactory(final Function<EngineConfiguration, TcpChannelSupplier> value)
     {
         this.channelSupplierFactory = value;
@@ -491,6 +856,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return receiverBufferSize;
     }
 
+    public int receiverInitialBufferSize()
+    {
+        return receiverInitialBufferSize;
+    }
+
     public int receiverSocketBufferSize()
     {
         return receiverSocketBufferSize;
@@ -531,6 +901,31 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return loggerCacheNumSets;
     }
 
+    public int replayCacheBufferSize()
+    {
+        return replayCacheBufferSize;
+    }
+
+    public int replayCacheNumSets()
+    {
+        return replayCacheNumSets;
+    }
+
+    public int replayCacheSetSize()
+    {
+        return replayCacheSetSize;
+    }
+
+    public int replayerShardCount()
+    {
+        return replayerShardCount;
+    }
+
+    public int replayerShardStreamId()
+    {
+        return replayerShardStreamId;
+    }
+
     public boolean logInboundMessages()
     {
         return logInboundMessages;
@@ -606,11 +1001,61 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return senderMaxBytesInBuffer;
     }
 
+    public boolean senderSpillSlowConsumers()
+    {
+        return senderSpillSlowConsumers;
+    }
+
     public int noLogonDisconnectTimeoutInMs()
     {
         return noLogonDisconnectTimeoutInMs;
     }
 
+    public int authenticationTimeoutInMs()
+    {
+        return authenticationTimeoutInMs;
+    }
+
+    public int logonsPerDutyCycle()
+    {
+        return logonsPerDutyCycle;
+    }
+
+    public int logonQueueCapacity()
+    {
+        return logonQueueCapacity;
+    }
+
+    public int inboundThrottleMessagesPerSecond()
+    {
+        return inboundThrottleMessagesPerSecond;
+    }
+
+    public int inboundThrottleBytesPerSecond()
+    {
+        return inboundThrottleBytesPerSecond;
+    }
+
+    public InboundThrottleAction inboundThrottleAction()
+    {
+        return inboundThrottleAction;
+    }
+
+    public int outboundThrottleMessagesPerWindow()
+    {
+        return outboundThrottleMessagesPerWindow;
+    }
+
+    public int outboundThrottleWindowInMs()
+    {
+        return outboundThrottleWindowInMs;
+    }
+
+    public int framerShardCount()
+    {
+        return framerShardCount;
+    }
+
     public SessionPersistenceStrategy sessionPersistenceStrategy()
     {
         return sessionPersistenceStrategy;
@@ -667,6 +1112,39 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    private void validateReplayerShardStreams()
+    {
+        if (replayerShardCount() <= 1)
+        {
+            return;
+        }
+
+        final long firstStreamId = replayerShardStreamId();
+        final long lastStreamId = firstStreamId + replayerShardCount() - 2;
+        if (firstStreamId <= GatewayProcess.ARCHIVE_CATCHUP_REPLAY_STREAM || lastStreamId > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException(
+                "replayerShardStreamId must be above the engine's own streams and leave room for every shard: " +
+                replayerShardStreamId() + " stream id, " + replayerShardCount() + " shards");
+        }
+
+        final AeronArchive.Context archiveContext = aeronArchiveContext();
+        final int[] archiveStreamIds = new int[] {
+            archiveContext.controlRequestStreamId(),
+            archiveContext.controlResponseStreamId(),
+            AeronArchive.Configuration.localControlStreamId()};
+        for (final int archiveStreamId : archiveStreamIds)
+        {
+            if (firstStreamId <= archiveStreamId && archiveStreamId <= lastStreamId)
+            {
+                throw new IllegalArgumentException(
+                    "Replayer shard streams " + firstStreamId + " to " + lastStreamId +
+                    " overlap the archive's control stream " + archiveStreamId +
+                    ", reduce replayerShardCount or change replayerShardStreamId");
+            }
+        }
+    }
+
     public EngineConfiguration conclude()
     {
         super.conclude("engine");
@@ -676,6 +1154,80 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
             throw new IllegalArgumentException("Missing required configuration: library aeron channel");
         }
 
+        if (framerShardCount() < 0)
+        {
+            throw new IllegalArgumentException("framerShardCount must not be negative: " + framerShardCount());
+        }
+
+        if (framerShardCount() > 0 && dedicatedLibraryInboundSessions())
+        {
+            // Shards would have to write to the exclusive publications of the libraries' inbound sessions.
+            throw new IllegalArgumentException(
+                "framerShardCount can't be used with dedicatedLibraryInboundSessions: " + framerShardCount());
+        }
+
+        if (inboundThrottleMessagesPerSecond() < 0 || inboundThrottleBytesPerSecond() < 0)
+        {
+            throw new IllegalArgumentException(
+                "Inbound throttle limits can't be negative: " + inboundThrottleMessagesPerSecond() +
+                " messages, " + inboundThrottleBytesPerSecond() + " bytes");
+        }
+
+        if (logonsPerDutyCycle() < 0)
+        {
+            throw new IllegalArgumentException("logonsPerDutyCycle must not be negative: " + logonsPerDutyCycle());
+        }
+
+        if (logonsPerDutyCycle() > 0 && logonQueueCapacity() <= 0)
+        {
+            throw new IllegalArgumentException("logonQueueCapacity must be positive: " + logonQueueCapacity());
+        }
+
+        if (replayCacheBufferSize() < 0)
+        {
+            throw new IllegalArgumentException(
+                "replayCacheBufferSize must not be negative: " + replayCacheBufferSize());
+        }
+
+        if (replayCacheBufferSize() > 0 && (replayCacheNumSets() <= 0 || replayCacheSetSize() <= 0))
+        {
+            throw new IllegalArgumentException(
+                "The replay cache must have a positive number of sets and set size: " + replayCacheNumSets() +
+                " sets, " + replayCacheSetSize() + " set size");
+        }
+
+        if (replayerShardCount() < 0)
+        {
+            throw new IllegalArgumentException("replayerShardCount must not be negative: " + replayerShardCount());
+        }
+
+        if (replayerShardCount() > 0 && replayCacheBufferSize() > 0)
+        {
+            // The replay cache is written by the outbound indexer, so it can only be read on the archiving agent.
+            throw new IllegalArgumentException(
+                "replayerShardCount can't be used with a replay cache: " + replayerShardCount());
+        }
+
+        validateReplayerShardStreams();
+
+        if (outboundThrottleMessagesPerWindow() < 0)
+        {
+            throw new IllegalArgumentException(
+                "outboundThrottleMessagesPerWindow must not be negative: " + outboundThrottleMessagesPerWindow());
+        }
+
+        if (outboundThrottleWindowInMs() <= 0)
+        {
+            throw new IllegalArgumentException(
+                "outboundThrottleWindowInMs must be positive: " + outboundThrottleWindowInMs());
+        }
+
+        if (receiverInitialBufferSize() <= 0)
+        {
+            throw new IllegalArgumentException(
+                "receiverInitialBufferSize must be positive: " + receiverInitialBufferSize());
+        }
+
         if (receiverBufferSize() < sessionBufferSize())
         {
             throw new IllegalArgumentException(String.format(
@@ -26,18 +26,23 @@ import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.CompositeAgent;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.SystemEpochClock;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.Clock;
 import uk.co.real_logic.artio.FixCounters;
 import uk.co.real_logic.artio.StreamInformation;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.logger.*;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 import uk.co.real_logic.artio.protocol.Streams;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Arrays.asList;
+import static uk.co.real_logic.artio.GatewayProcess.ARCHIVE_CATCHUP_REPLAY_STREAM;
+import static uk.co.real_logic.artio.GatewayProcess.ARCHIVE_REPLAY_STREAM;
 import static uk.co.real_logic.artio.GatewayProcess.INBOUND_LIBRARY_STREAM;
 import static uk.co.real_logic.artio.GatewayProcess.OUTBOUND_LIBRARY_STREAM;
 import static uk.co.real_logic.artio.dictionary.generation.Exceptions.suppressingClose;
@@ -52,12 +57,15 @@ public class EngineContext implements AutoCloseable
     private final SenderSequenceNumbers senderSequenceNumbers;
     private final AeronArchive aeronArchive;
     private final RecordingCoordinator recordingCoordinator;
-    private final ExclusivePublication replayPublication;
+    // One per replayer shard, or just one if the replayer isn't sharded
+    private final List<ExclusivePublication> replayPublications;
     private final SequenceNumberIndexWriter sentSequenceNumberIndex;
     private final SequenceNumberIndexWriter receivedSequenceNumberIndex;
     private final CompletionPosition inboundCompletionPosition = new CompletionPosition();
     private final CompletionPosition outboundLibraryCompletionPosition = new CompletionPosition();
     private final CompletionPosition outboundClusterCompletionPosition = new CompletionPosition();
+    // Indexed positions that the Framer publishes onto the libraries' own inbound sessions, null if they're disabled
+    private final RingBuffer forwardedSentPositions;
 
     private Streams inboundLibraryStreams;
     private Streams outboundLibraryStreams;
@@ -66,11 +74,12 @@ public class EngineContext implements AutoCloseable
     private Indexer inboundIndexer;
     private Indexer outboundIndexer;
     private Agent archivingAgent;
+    private final List<Agent> replayerShards = new ArrayList<>();
 
     public EngineContext(
         final EngineConfiguration configuration,
         final ErrorHandler errorHandler,
-        final ExclusivePublication replayPublication,
+        final List<ExclusivePublication> replayPublications,
         final FixCounters fixCounters,
         final Aeron aeron,
         final AeronArchive aeronArchive,
@@ -81,11 +90,13 @@ public class EngineContext implements AutoCloseable
         this.fixCounters = fixCounters;
         this.aeron = aeron;
         this.clock = configuration.clock();
-        this.replayPublication = replayPublication;
+        this.replayPublications = replayPublications;
         this.aeronArchive = aeronArchive;
         this.recordingCoordinator = recordingCoordinator;
 
         senderSequenceNumbers = new SenderSequenceNumbers(configuration.framerIdleStrategy());
+        forwardedSentPositions = configuration.dedicatedLibraryInboundSessions() &&
+            configuration.logOutboundMessages() ? PositionSender.newForwardedPositions() : null;
 
         try
         {
@@ -158,7 +169,11 @@ public class EngineContext implements AutoCloseable
             recordingIdLookup);
     }
 
-    protected ReplayQuery newReplayQuery(final IdleStrategy idleStrategy, final int streamId)
+    protected ReplayQuery newReplayQuery(
+        final IdleStrategy idleStrategy,
+        final int streamId,
+        final int replayStreamId,
+        final AtomicCounter replaySetupTimeInNs)
     {
         final String logFileDir = configuration.logFileDir();
         final int cacheSetSize = configuration.loggerCacheSetSize();
@@ -171,14 +186,30 @@ public class EngineContext implements AutoCloseable
             streamId,
             idleStrategy,
             aeronArchive,
-            errorHandler);
+            errorHandler,
+            replayStreamId,
+            replaySetupTimeInNs);
     }
 
     protected Replayer newReplayer(
-        final ExclusivePublication replayPublication)
+        final ExclusivePublication replayPublication,
+        final ReplayCache replayCache,
+        final int shardIndex,
+        final int shardCount)
     {
+        // Each shard replays from the archive on its own stream so that its replays aren't held up by the others.
+        final int replayStreamId = shardIndex == 0 ?
+            ARCHIVE_REPLAY_STREAM : configuration.replayerShardStreamId() + shardIndex - 1;
+        // Every shard needs a reader of its own, so the first shard takes the one that the others are created from.
+        final SenderSequenceNumbers shardSenderSequenceNumbers = shardIndex == 0 ?
+            senderSequenceNumbers : senderSequenceNumbers.newReader();
+
         return new Replayer(
-            newReplayQuery(configuration.archiverIdleStrategy(), OUTBOUND_LIBRARY_STREAM),
+            newReplayQuery(
+                configuration.archiverIdleStrategy(),
+                OUTBOUND_LIBRARY_STREAM,
+                replayStreamId,
+                fixCounters.replaySetupTimeInNs(shardCount > 1 ? "resend replay " + shardIndex : "resend replay")),
             replayPublication,
             new ExclusiveBufferClaim(),
             configuration.archiverIdleStrategy(),
@@ -189,11 +220,29 @@ public class EngineContext implements AutoCloseable
             new SystemEpochClock(),
             configuration.gapfillOnReplayMessageTypes(),
             configuration.replayHandler(),
-            senderSequenceNumbers);
+            shardSenderSequenceNumbers,
+            replayCache,
+            shardIndex,
+            shardCount);
+    }
+
+    private ReplayCache newReplayCache()
+    {
+        if (configuration.replayCacheBufferSize() == 0)
+        {
+            return null;
+        }
+
+        return new ReplayCache(
+            configuration.replayCacheBufferSize(),
+            configuration.replayCacheNumSets(),
+            configuration.replayCacheSetSize(),
+            fixCounters.replayCacheHits(),
+            fixCounters.replayCacheMisses());
     }
 
     protected void newIndexers(
-        final Index extraOutboundIndex)
+        final Index extraOutboundIndex, final ReplayCache replayCache)
     {
         final int cacheSetSize = configuration.loggerCacheSetSize();
         final int cacheNumSets = configuration.loggerCacheNumSets();
@@ -218,6 +267,10 @@ public class EngineContext implements AutoCloseable
         {
             outboundIndices.add(extraOutboundIndex);
         }
+        if (replayCache != null)
+        {
+            outboundIndices.add(replayCache);
+        }
 
         outboundIndexer = new Indexer(
             outboundIndices,
@@ -232,22 +285,37 @@ public class EngineContext implements AutoCloseable
     {
         if (configuration.logOutboundMessages())
         {
+            final ReplayCache replayCache = newReplayCache();
             newIndexers(
-                new PositionSender(inboundPublication()));
-
-            final Replayer replayer = newReplayer(replayPublication);
+                forwardedSentPositions != null ?
+                    new PositionSender(forwardedSentPositions) :
+                    new PositionSender(inboundPublication()),
+                replayCache);
 
             final List<Agent> agents = new ArrayList<>();
             agents.add(inboundIndexer);
             agents.add(outboundIndexer);
-            agents.add(replayer);
+
+            final int replayerShardCount = configuration.replayerShardCount();
+            if (replayerShardCount == 0)
+            {
+                agents.add(newReplayer(replayPublications.get(0), replayCache, 0, 1));
+            }
+            else
+            {
+                for (int shardIndex = 0; shardIndex < replayerShardCount; shardIndex++)
+                {
+                    replayerShards.add(newReplayer(
+                        replayPublications.get(shardIndex), replayCache, shardIndex, replayerShardCount));
+                }
+            }
 
             archivingAgent = new CompositeAgent(agents);
         }
         else
         {
             final GatewayPublication replayGatewayPublication = new GatewayPublication(
-                replayPublication,
+                replayPublications.get(0),
                 fixCounters.failedReplayPublications(),
                 configuration.archiverIdleStrategy(),
                 clock,
@@ -283,7 +351,11 @@ public class EngineContext implements AutoCloseable
             return null;
         }
 
-        return newReplayQuery(configuration.framerIdleStrategy(), INBOUND_LIBRARY_STREAM);
+        return newReplayQuery(
+            configuration.framerIdleStrategy(),
+            INBOUND_LIBRARY_STREAM,
+            ARCHIVE_CATCHUP_REPLAY_STREAM,
+            fixCounters.replaySetupTimeInNs("catchup replay"));
     }
 
     public GatewayPublication inboundPublication()
@@ -292,6 +364,23 @@ public class EngineContext implements AutoCloseable
             configuration.framerIdleStrategy(), "inboundPublication");
     }
 
+    public GatewayPublication sharedInboundPublication(final IdleStrategy idleStrategy, final String name)
+    {
+        return inboundLibraryStreams.sharedGatewayPublication(idleStrategy, name);
+    }
+
+    public InboundPublications framerInboundPublications(final GatewayPublication defaultPublication)
+    {
+        final Streams libraryStreams = configuration.dedicatedLibraryInboundSessions() ? inboundLibraryStreams : null;
+        return new InboundPublications(
+            defaultPublication, libraryStreams, configuration.framerIdleStrategy(), "libraryInboundPublication");
+    }
+
+    public RingBuffer forwardedSentPositions()
+    {
+        return forwardedSentPositions;
+    }
+
     public CompletionPosition inboundCompletionPosition()
     {
         return inboundCompletionPosition;
@@ -314,6 +403,11 @@ public class EngineContext implements AutoCloseable
         return archivingAgent;
     }
 
+    List<Agent> replayerShards()
+    {
+        return replayerShards;
+    }
+
     public SenderSequenceNumbers senderSequenceNumbers()
     {
         return senderSequenceNumbers;
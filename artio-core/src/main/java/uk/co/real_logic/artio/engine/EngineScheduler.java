@@ -19,6 +19,10 @@ import io.aeron.Aeron;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.CompositeAgent;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Interface for determining how an Engine's Agents are allocated to threads.
@@ -45,6 +49,96 @@ public interface EngineScheduler extends AutoCloseable
         Agent conductorAgent,
         RecordingCoordinator recordingCoordinator);
 
+    /**
+     * Invoked by the FIX Engine to start the threads when it may have framer shards to schedule,
+     * see {@link EngineConfiguration#framerShardCount(int)}. By default the shards are run as part of
+     * the framer agent, override this method in order to give them their own threads.
+     *
+     * @param configuration the engine's configuration object.
+     * @param errorHandler the ErrorHandler used by the engine.
+     * @param framer the framer agent to schedule.
+     * @param framerShards the framer shard agents to schedule, empty if there are none.
+     * @param archivingAgent the archiver agent to schedule.
+     * @param monitoringAgent the monitoring agent to schedule.
+     * @param conductorAgent if aeron has useConductorInvoker enable it
+     * @param recordingCoordinator must be shut down after the Framer but before the conductorAgent.
+     */
+    default void launch(
+        EngineConfiguration configuration,
+        ErrorHandler errorHandler,
+        Agent framer,
+        List<Agent> framerShards,
+        Agent archivingAgent,
+        Agent monitoringAgent,
+        Agent conductorAgent,
+        RecordingCoordinator recordingCoordinator)
+    {
+        Agent framerAgent = framer;
+        if (!framerShards.isEmpty())
+        {
+            // The framer is closed first as it hands the connections of its shards back on close.
+            final List<Agent> agents = new ArrayList<>();
+            agents.add(framer);
+            agents.addAll(framerShards);
+            framerAgent = new CompositeAgent(agents);
+        }
+
+        launch(
+            configuration,
+            errorHandler,
+            framerAgent,
+            archivingAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+    }
+
+    /**
+     * Invoked by the FIX Engine to start the threads when it may have framer or replayer shards to schedule,
+     * see {@link EngineConfiguration#replayerShardCount(int)}. By default the replayer shards are run as part of
+     * the archiving agent, override this method in order to give them their own threads.
+     *
+     * @param configuration the engine's configuration object.
+     * @param errorHandler the ErrorHandler used by the engine.
+     * @param framer the framer agent to schedule.
+     * @param framerShards the framer shard agents to schedule, empty if there are none.
+     * @param archivingAgent the archiver agent to schedule.
+     * @param replayerShards the replayer shard agents to schedule, empty if there are none.
+     * @param monitoringAgent the monitoring agent to schedule.
+     * @param conductorAgent if aeron has useConductorInvoker enable it
+     * @param recordingCoordinator must be shut down after the Framer but before the conductorAgent.
+     */
+    default void launch(
+        EngineConfiguration configuration,
+        ErrorHandler errorHandler,
+        Agent framer,
+        List<Agent> framerShards,
+        Agent archivingAgent,
+        List<Agent> replayerShards,
+        Agent monitoringAgent,
+        Agent conductorAgent,
+        RecordingCoordinator recordingCoordinator)
+    {
+        Agent archivingAndReplayAgent = archivingAgent;
+        if (!replayerShards.isEmpty())
+        {
+            final List<Agent> agents = new ArrayList<>();
+            agents.add(archivingAgent);
+            agents.addAll(replayerShards);
+            archivingAndReplayAgent = new CompositeAgent(agents);
+        }
+
+        launch(
+            configuration,
+            errorHandler,
+            framer,
+            framerShards,
+            archivingAndReplayAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+    }
+
     /**
      * Invoked by the FIX Engine to stop the threads. Should only return once they are completed stopped.
      */
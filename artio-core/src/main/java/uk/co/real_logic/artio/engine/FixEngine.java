@@ -30,6 +30,7 @@ import uk.co.real_logic.artio.engine.framer.LibraryInfo;
 import uk.co.real_logic.artio.timing.EngineTimers;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import static io.aeron.CommonContext.IPC_CHANNEL;
@@ -165,16 +166,16 @@ public final class FixEngine extends GatewayProcess
                 aeron.conductorAgentInvoker(),
                 configuration.archiverIdleStrategy());
 
-            final ExclusivePublication replayPublication = replayPublication();
+            final List<ExclusivePublication> replayPublications = replayPublications();
             engineContext = new EngineContext(
                 configuration,
                 errorHandler,
-                replayPublication,
+                replayPublications,
                 fixCounters,
                 aeron,
                 aeronArchive,
                 recordingCoordinator);
-            initFramer(configuration, fixCounters, replayPublication.sessionId());
+            initFramer(configuration, fixCounters, replayPublications);
             initMonitoringAgent(timers.all(), configuration);
             recordingCoordinator.awaitReady();
         }
@@ -191,35 +192,54 @@ public final class FixEngine extends GatewayProcess
         }
     }
 
-    private ExclusivePublication replayPublication()
+    // Each replayer shard publishes its replays on its own publication
+    private List<ExclusivePublication> replayPublications()
     {
-        final ExclusivePublication publication = aeron.addExclusivePublication(
-            IPC_CHANNEL, OUTBOUND_REPLAY_STREAM);
-        StreamInformation.print("replayPublication", publication, configuration);
-        return publication;
+        final int count = configuration.logOutboundMessages() ? Math.max(1, configuration.replayerShardCount()) : 1;
+        final List<ExclusivePublication> publications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            final ExclusivePublication publication = aeron.addExclusivePublication(
+                IPC_CHANNEL, OUTBOUND_REPLAY_STREAM);
+            StreamInformation.print("replayPublication", publication, configuration);
+            publications.add(publication);
+        }
+        return publications;
     }
 
     private void initFramer(
-        final EngineConfiguration configuration, final FixCounters fixCounters, final int replaySessionId)
+        final EngineConfiguration configuration,
+        final FixCounters fixCounters,
+        final List<ExclusivePublication> replayPublications)
     {
         framerContext = new FramerContext(
             configuration,
             fixCounters,
             engineContext,
             errorHandler,
-            replayImage("replay", replaySessionId),
-            replayImage("slow-replay", replaySessionId),
+            replayImages("replay", replayPublications),
+            replayImages("slow-replay", replayPublications),
             timers,
             aeron.conductorAgentInvoker(),
             recordingCoordinator);
     }
 
-    private Image replayImage(final String name, final int replaySessionId)
+    private Image[] replayImages(final String name, final List<ExclusivePublication> replayPublications)
     {
         final Subscription subscription = aeron.addSubscription(
             IPC_CHANNEL, OUTBOUND_REPLAY_STREAM);
         StreamInformation.print(name, subscription, configuration);
 
+        final Image[] images = new Image[replayPublications.size()];
+        for (int i = 0; i < images.length; i++)
+        {
+            images[i] = replayImage(subscription, replayPublications.get(i).sessionId());
+        }
+        return images;
+    }
+
+    private Image replayImage(final Subscription subscription, final int replaySessionId)
+    {
         // Await replay publication
         while (true)
         {
@@ -251,7 +271,9 @@ public final class FixEngine extends GatewayProcess
             configuration,
             errorHandler,
             framerContext.framer(),
+            framerContext.framerShards(),
             engineContext.archivingAgent(),
+            engineContext.replayerShards(),
             monitoringAgent,
             conductorAgent(),
             recordingCoordinator);
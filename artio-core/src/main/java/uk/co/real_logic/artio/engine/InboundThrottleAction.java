@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+/**
+ * What the engine does with an inbound message that arrives when the connection has used up its inbound throttle.
+ *
+ * @see EngineConfiguration#inboundThrottleMessagesPerSecond(int)
+ * @see EngineConfiguration#inboundThrottleBytesPerSecond(int)
+ */
+public enum InboundThrottleAction
+{
+    /**
+     * Stop reading from the connection until the throttle allows more messages, leaving TCP to push back on the
+     * counterparty. No messages are lost.
+     */
+    PAUSE,
+
+    /**
+     * Archive the message with a {@link uk.co.real_logic.artio.messages.MessageStatus#THROTTLED} status, which isn't
+     * handed on to the application. The session sends a Reject for the message and counts it as received, so the
+     * counterparty doesn't have to resend it.
+     */
+    REJECT,
+
+    /**
+     * Disconnect the connection with a {@link uk.co.real_logic.artio.messages.DisconnectReason#THROTTLED} reason.
+     */
+    DISCONNECT
+}
@@ -17,31 +17,76 @@ package uk.co.real_logic.artio.engine;
 
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Long2LongHashMap;
 import org.agrona.collections.LongLongConsumer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
 import uk.co.real_logic.artio.Pressure;
 import uk.co.real_logic.artio.engine.logger.Index;
 import uk.co.real_logic.artio.engine.logger.IndexedPositionConsumer;
+import uk.co.real_logic.artio.messages.FixMessageBatchDecoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
+
+import java.nio.ByteBuffer;
+
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
 
 public class PositionSender implements Index
 {
     private static final int MISSING_LIBRARY = -1;
+    private static final int FORWARDED_POSITION_MSG_TYPE_ID = 1;
+    private static final int FORWARDED_POSITION_LENGTH = SIZE_OF_INT + SIZE_OF_LONG;
+    private static final int FORWARDED_POSITION_LIMIT = 100;
+    private static final int FORWARDED_POSITIONS_CAPACITY = 64 * 1024;
 
     private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
     private final FixMessageDecoder fixMessage = new FixMessageDecoder();
+    private final FixMessageBatchDecoder fixMessageBatch = new FixMessageBatchDecoder();
     private final Long2LongHashMap libraryIdToPosition = new Long2LongHashMap(MISSING_LIBRARY);
     private final LongLongConsumer resendPositionFunc = this::endPosition;
+    private final MessageHandler onForwardedPositionFunc = this::onForwardedPosition;
+    private final UnsafeBuffer forwardBuffer = new UnsafeBuffer(new byte[FORWARDED_POSITION_LENGTH]);
 
-    private final GatewayPublication publication;
+    private final InboundPublications publications;
+    private final RingBuffer forwardedPositions;
 
     private int resendCount;
 
     public PositionSender(final GatewayPublication publication)
     {
-        this.publication = publication;
+        this(new InboundPublications(publication));
+    }
+
+    public PositionSender(final InboundPublications publications)
+    {
+        this.publications = publications;
+        this.forwardedPositions = null;
+    }
+
+    /**
+     * Creates a position sender that hands its positions over to another thread, rather than publishing them. The
+     * other thread's position sender publishes them via {@link #receiveForwardedPositions(RingBuffer)}.
+     *
+     * @param forwardedPositions the buffer that positions are forwarded through.
+     */
+    public PositionSender(final RingBuffer forwardedPositions)
+    {
+        this.publications = null;
+        this.forwardedPositions = forwardedPositions;
+    }
+
+    public static RingBuffer newForwardedPositions()
+    {
+        return new OneToOneRingBuffer(
+            new UnsafeBuffer(ByteBuffer.allocateDirect(FORWARDED_POSITIONS_CAPACITY + TRAILER_LENGTH)));
     }
 
     @SuppressWarnings("FinalParameters")
@@ -53,7 +98,8 @@ public class PositionSender implements Index
     {
         messageHeader.wrap(buffer, offset);
 
-        if (messageHeader.templateId() == FixMessageDecoder.TEMPLATE_ID)
+        final int templateId = messageHeader.templateId();
+        if (templateId == FixMessageDecoder.TEMPLATE_ID)
         {
             offset += MessageHeaderDecoder.ENCODED_LENGTH;
 
@@ -61,6 +107,14 @@ public class PositionSender implements Index
 
             newPosition(fixMessage.libraryId(), header.position());
         }
+        else if (templateId == FixMessageBatchDecoder.TEMPLATE_ID)
+        {
+            offset += MessageHeaderDecoder.ENCODED_LENGTH;
+
+            fixMessageBatch.wrap(buffer, offset, messageHeader.blockLength(), messageHeader.version());
+
+            newPosition(fixMessageBatch.libraryId(), header.position());
+        }
     }
 
     public void newPosition(final int libraryId, final long endPosition)
@@ -84,9 +138,30 @@ public class PositionSender implements Index
         }
     }
 
+    public int receiveForwardedPositions(final RingBuffer forwardedPositions)
+    {
+        return forwardedPositions.read(onForwardedPositionFunc, FORWARDED_POSITION_LIMIT);
+    }
+
+    private void onForwardedPosition(
+        final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length)
+    {
+        newPosition(buffer.getInt(index), buffer.getLong(index + SIZE_OF_INT));
+    }
+
     private boolean saveNewSentPosition(final int libraryId, final long endPosition)
     {
-        return !Pressure.isBackPressured(publication.saveNewSentPosition(libraryId, endPosition));
+        if (forwardedPositions != null)
+        {
+            final UnsafeBuffer forwardBuffer = this.forwardBuffer;
+            forwardBuffer.putInt(0, libraryId);
+            forwardBuffer.putLong(SIZE_OF_INT, endPosition);
+            return forwardedPositions.write(
+                FORWARDED_POSITION_MSG_TYPE_ID, forwardBuffer, 0, FORWARDED_POSITION_LENGTH);
+        }
+
+        return !Pressure.isBackPressured(
+            publications.forLibrary(libraryId).saveNewSentPosition(libraryId, endPosition));
     }
 
     public void close()
@@ -109,6 +109,17 @@ public class RecordingCoordinator implements AutoCloseable
         }
     }
 
+    public boolean isRecording(final int streamId, final int sessionId)
+    {
+        if ((streamId == OUTBOUND_LIBRARY_STREAM && configuration.logOutboundMessages()) ||
+            (streamId == INBOUND_LIBRARY_STREAM && configuration.logInboundMessages()))
+        {
+            return hasRecordingStarted(sessionId);
+        }
+
+        return true;
+    }
+
     // Only called on single threaded engine startup
     void awaitReady()
     {
@@ -19,10 +19,13 @@ import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.OneToOneConcurrentArrayQueue;
 
+import java.util.Arrays;
 import java.util.function.Consumer;
 
 /**
  * For publishing the last sent sequence number to the replay system.
+ *
+ * Each thread of the replay system reads from its own instance, see {@link #newReader()}.
  */
 public class SenderSequenceNumbers
 {
@@ -32,6 +35,7 @@ public class SenderSequenceNumbers
 
     // Framer state
     private final IdleStrategy framerIdleStrategy;
+    private SenderSequenceNumbers[] readers = new SenderSequenceNumbers[0];
 
     // Written on Framer, Read on Indexer
     private final OneToOneConcurrentArrayQueue<SenderSequenceNumber> queue
@@ -48,6 +52,20 @@ public class SenderSequenceNumbers
         this.framerIdleStrategy = framerIdleStrategy;
     }
 
+    /**
+     * Creates another instance that is told about the same senders as this one, for a replay thread of its own to
+     * poll. Should be called before any senders are added.
+     *
+     * @return the new instance.
+     */
+    public SenderSequenceNumbers newReader()
+    {
+        final SenderSequenceNumbers reader = new SenderSequenceNumbers(framerIdleStrategy);
+        readers = Arrays.copyOf(readers, readers.length + 1);
+        readers[readers.length - 1] = reader;
+        return reader;
+    }
+
     // Called on Framer Thread
     public SenderSequenceNumber onNewSender(final long connectionId)
     {
@@ -64,6 +82,15 @@ public class SenderSequenceNumbers
 
     // We receive the object to either add or remove it.
     private void enqueue(final SenderSequenceNumber senderSequenceNumber)
+    {
+        offer(senderSequenceNumber);
+        for (final SenderSequenceNumbers reader : readers)
+        {
+            reader.offer(senderSequenceNumber);
+        }
+    }
+
+    private void offer(final SenderSequenceNumber senderSequenceNumber)
     {
         while (!queue.offer(senderSequenceNumber))
         {
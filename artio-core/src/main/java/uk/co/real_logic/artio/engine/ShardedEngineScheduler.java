@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.IdleStrategy;
+import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.dictionary.generation.Exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.agrona.concurrent.AgentRunner.startOnThread;
+
+/**
+ * A scheduler that runs each framer shard on its own thread, in addition to the threads
+ * of the {@link DefaultEngineScheduler}. This spreads the work of reading from many TCP
+ * connections over several cores, see {@link EngineConfiguration#framerShardCount(int)}.
+ * Each replayer shard also gets its own thread, see {@link EngineConfiguration#replayerShardCount(int)}.
+ *
+ * NB: Ensure that a new instance is created for each engine.
+ */
+public class ShardedEngineScheduler extends DefaultEngineScheduler
+{
+    private final Supplier<IdleStrategy> shardIdleStrategySupplier;
+    private final List<AgentRunner> shardRunners = new ArrayList<>();
+    private final List<AgentRunner> replayerShardRunners = new ArrayList<>();
+
+    public ShardedEngineScheduler()
+    {
+        this(CommonConfiguration::backoffIdleStrategy);
+    }
+
+    /**
+     * Create the scheduler.
+     *
+     * @param shardIdleStrategySupplier supplies the idle strategy of each shard's thread, a new instance must
+     *                                  be returned on each call since idle strategies can hold state.
+     */
+    public ShardedEngineScheduler(final Supplier<IdleStrategy> shardIdleStrategySupplier)
+    {
+        this.shardIdleStrategySupplier = shardIdleStrategySupplier;
+    }
+
+    public void launch(
+        final EngineConfiguration configuration,
+        final ErrorHandler errorHandler,
+        final Agent framer,
+        final List<Agent> framerShards,
+        final Agent archivingAgent,
+        final Agent monitoringAgent,
+        final Agent conductorAgent,
+        final RecordingCoordinator recordingCoordinator)
+    {
+        launch(
+            configuration,
+            errorHandler,
+            framer,
+            archivingAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+
+        startShards(errorHandler, framerShards, shardRunners);
+    }
+
+    public void launch(
+        final EngineConfiguration configuration,
+        final ErrorHandler errorHandler,
+        final Agent framer,
+        final List<Agent> framerShards,
+        final Agent archivingAgent,
+        final List<Agent> replayerShards,
+        final Agent monitoringAgent,
+        final Agent conductorAgent,
+        final RecordingCoordinator recordingCoordinator)
+    {
+        launch(
+            configuration,
+            errorHandler,
+            framer,
+            framerShards,
+            archivingAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+
+        startShards(errorHandler, replayerShards, replayerShardRunners);
+    }
+
+    private void startShards(
+        final ErrorHandler errorHandler, final List<Agent> shards, final List<AgentRunner> runners)
+    {
+        for (final Agent shard : shards)
+        {
+            final AgentRunner shardRunner = new AgentRunner(
+                shardIdleStrategySupplier.get(), errorHandler, null, shard);
+            runners.add(shardRunner);
+            startOnThread(shardRunner);
+        }
+    }
+
+    public void close()
+    {
+        shardRunners.forEach(EngineScheduler::awaitRunnerStart);
+        replayerShardRunners.forEach(EngineScheduler::awaitRunnerStart);
+
+        // Shards stop reading before the framer closes, so all inbound messages precede its completion positions.
+        Exceptions.closeAll(shardRunners);
+        Exceptions.closeAll(replayerShardRunners);
+
+        super.close();
+    }
+}
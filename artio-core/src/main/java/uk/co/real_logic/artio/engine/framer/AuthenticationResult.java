@@ -6,10 +6,13 @@ final class AuthenticationResult
         new AuthenticationResult(AuthenticationError.DUPLICATE_SESSION);
     static final AuthenticationResult FAILED_AUTHENTICATION =
         new AuthenticationResult(AuthenticationError.FAILED_AUTHENTICATION);
+    static final AuthenticationResult LOGON_QUEUE_FULL =
+        new AuthenticationResult(AuthenticationError.LOGON_QUEUE_FULL);
+    static final AuthenticationResult PENDING = new AuthenticationResult((GatewaySession)null);
 
     enum AuthenticationError
     {
-        DUPLICATE_SESSION, FAILED_AUTHENTICATION
+        DUPLICATE_SESSION, FAILED_AUTHENTICATION, LOGON_QUEUE_FULL
     }
 
     final GatewaySession session;
@@ -39,6 +42,16 @@ final class AuthenticationResult
         return null != error && AuthenticationError.DUPLICATE_SESSION == error;
     }
 
+    boolean isLogonQueueFull()
+    {
+        return null != error && AuthenticationError.LOGON_QUEUE_FULL == error;
+    }
+
+    boolean isPending()
+    {
+        return this == PENDING;
+    }
+
     boolean isValid()
     {
         return null != session;
@@ -38,6 +38,7 @@ import uk.co.real_logic.artio.messages.FixMessageEncoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
@@ -76,7 +77,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
 
     private final PossDupEnabler possDupEnabler;
     private final ReplayQuery inboundMessages;
-    private final GatewayPublication inboundPublication;
+    private final InboundPublications inboundPublications;
     private final ErrorHandler errorHandler;
     private final long correlationId;
     private final long connectionId;
@@ -100,7 +101,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
 
     CatchupReplayer(
         final ReplayQuery inboundMessages,
-        final GatewayPublication inboundPublication,
+        final InboundPublications inboundPublications,
         final ErrorHandler errorHandler,
         final long correlationId,
         final long connectionId,
@@ -114,7 +115,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
         final EpochClock clock)
     {
         this.inboundMessages = inboundMessages;
-        this.inboundPublication = inboundPublication;
+        this.inboundPublications = inboundPublications;
         this.errorHandler = errorHandler;
         this.correlationId = correlationId;
         this.connectionId = connectionId;
@@ -133,7 +134,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
             this::onIllegalState,
             errorHandler,
             clock,
-            inboundPublication.maxPayloadLength());
+            inboundPublications.forLibrary(libraryId).maxPayloadLength());
     }
 
     private void onPreCommit(final MutableDirectBuffer buffer, final int offset)
@@ -146,6 +147,12 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
             .status(CATCHUP_REPLAY);
     }
 
+    // Looked up each time, since the library's own publication is closed if it times out during the catchup
+    private GatewayPublication inboundPublication()
+    {
+        return inboundPublications.forLibrary(libraryId);
+    }
+
     private void onIllegalState(final String msg)
     {
         errorHandler.onError(new IllegalStateException(msg));
@@ -153,7 +160,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
 
     private boolean claimBuffer(final int length)
     {
-        return inboundPublication.claim(length, bufferClaim) > 0;
+        return inboundPublication().claim(length, bufferClaim) > 0;
     }
 
     public Action onFragment(
@@ -241,7 +248,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
         final long result = sequenceResetEncoder.encode(encodeBuffer, 0);
         final int encodedLength = Encoder.length(result);
         final int encodedOffset = Encoder.offset(result);
-        final boolean sent = inboundPublication.saveMessage(
+        final boolean sent = inboundPublication().saveMessage(
             encodeBuffer, encodedOffset, encodedLength,
             libraryId, SequenceResetDecoder.MESSAGE_TYPE,
             messageDecoder.session(), replayFromSequenceIndex, libraryId,
@@ -307,6 +314,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
                 // Timeout the catchup operations
                 if (System.currentTimeMillis() > catchupEndTimeInMs)
                 {
+                    replayOperation.close();
                     return switchToMissingMessages();
                 }
 
@@ -319,7 +327,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
                     else
                     {
                         state = State.SEND_OK;
-                        return sendOk(inboundPublication, correlationId, session);
+                        return sendOk(inboundPublication(), correlationId, session);
                     }
                 }
                 else
@@ -336,7 +344,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
 
             case SEND_OK:
             {
-                return sendOk(inboundPublication, correlationId, session);
+                return sendOk(inboundPublication(), correlationId, session);
             }
 
             // Javac required fall-through case that should never be reached
@@ -390,7 +398,7 @@ public class CatchupReplayer implements ControlledFragmentHandler, Continuation
     private long sendMissingMessages()
     {
         DebugLogger.log(CATCHUP, "Missing Messages for %d%n", session.sessionId());
-        final long position = inboundPublication.saveRequestSessionReply(libraryId, MISSING_MESSAGES, correlationId);
+        final long position = inboundPublication().saveRequestSessionReply(libraryId, MISSING_MESSAGES, correlationId);
         if (position > 0)
         {
             errorHandler.onError(new IllegalStateException(String.format(
@@ -16,28 +16,30 @@
 package uk.co.real_logic.artio.engine.framer;
 
 import org.agrona.ErrorHandler;
+import uk.co.real_logic.artio.Clock;
 import uk.co.real_logic.artio.FixCounters;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.SenderSequenceNumbers;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
-import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 
-class EndPointFactory
+class EndPointFactory implements AutoCloseable
 {
     private final EngineConfiguration configuration;
     private final SessionContexts sessionContexts;
-    private final GatewayPublication inboundLibraryPublication;
+    private final InboundPublications inboundLibraryPublications;
     private final FixCounters fixCounters;
     private final ErrorHandler errorHandler;
     private final GatewaySessions gatewaySessions;
     private final SenderSequenceNumbers senderSequenceNumbers;
+    private final ReceiveBufferPool receiveBufferPool;
 
-    private SlowPeeker replaySlowPeeker;
+    private SlowPeeker[] replaySlowPeekers;
 
     EndPointFactory(
         final EngineConfiguration configuration,
         final SessionContexts sessionContexts,
-        final GatewayPublication inboundLibraryPublication,
+        final InboundPublications inboundLibraryPublications,
         final FixCounters fixCounters,
         final ErrorHandler errorHandler,
         final GatewaySessions gatewaySessions,
@@ -45,11 +47,14 @@ class EndPointFactory
     {
         this.configuration = configuration;
         this.sessionContexts = sessionContexts;
-        this.inboundLibraryPublication = inboundLibraryPublication;
+        this.inboundLibraryPublications = inboundLibraryPublications;
         this.fixCounters = fixCounters;
         this.errorHandler = errorHandler;
         this.gatewaySessions = gatewaySessions;
         this.senderSequenceNumbers = senderSequenceNumbers;
+
+        receiveBufferPool = new ReceiveBufferPool(
+            configuration.receiverInitialBufferSize(), configuration.receiverBufferSize(), fixCounters);
     }
 
     ReceiverEndPoint receiverEndPoint(
@@ -64,8 +69,8 @@ class EndPointFactory
     {
         return new ReceiverEndPoint(
             channel,
-            configuration.receiverBufferSize(),
-            inboundLibraryPublication,
+            receiveBufferPool,
+            inboundLibraryPublications,
             connectionId,
             sessionId,
             sequenceIndex,
@@ -76,10 +81,28 @@ class EndPointFactory
             framer,
             errorHandler,
             libraryId,
-            gatewaySessions
+            gatewaySessions,
+            inboundThrottle(connectionId, channel.remoteAddress())
         );
     }
 
+    private InboundThrottle inboundThrottle(final long connectionId, final String remoteAddress)
+    {
+        final int messagesPerSecond = configuration.inboundThrottleMessagesPerSecond();
+        final int bytesPerSecond = configuration.inboundThrottleBytesPerSecond();
+        if (messagesPerSecond == 0 && bytesPerSecond == 0)
+        {
+            return null;
+        }
+
+        return new InboundThrottle(
+            messagesPerSecond,
+            bytesPerSecond,
+            configuration.inboundThrottleAction(),
+            Clock.systemNanoTime(),
+            fixCounters.throttledMessages(connectionId, remoteAddress));
+    }
+
     SenderEndPoint senderEndPoint(
         final TcpChannel channel,
         final long connectionId,
@@ -92,7 +115,7 @@ class EndPointFactory
             connectionId,
             libraryId,
             libraryBlockablePosition,
-            replaySlowPeeker,
+            replaySlowPeekers,
             channel,
             fixCounters.bytesInBuffer(connectionId, remoteAddress),
             fixCounters.invalidLibraryAttempts(connectionId, remoteAddress),
@@ -101,11 +124,30 @@ class EndPointFactory
             configuration.senderMaxBytesInBuffer(),
             configuration.slowConsumerTimeoutInMs(),
             System.currentTimeMillis(),
-            senderSequenceNumbers.onNewSender(connectionId));
+            senderSequenceNumbers.onNewSender(connectionId),
+            configuration.senderSpillSlowConsumers(),
+            outboundThrottle());
+    }
+
+    private OutboundThrottle outboundThrottle()
+    {
+        final int messagesPerWindow = configuration.outboundThrottleMessagesPerWindow();
+        if (messagesPerWindow == 0)
+        {
+            return null;
+        }
+
+        return new OutboundThrottle(
+            messagesPerWindow, configuration.outboundThrottleWindowInMs(), configuration.senderMaxBytesInBuffer());
+    }
+
+    void replaySlowPeekers(final SlowPeeker[] replaySlowPeekers)
+    {
+        this.replaySlowPeekers = replaySlowPeekers;
     }
 
-    void replaySlowPeeker(final SlowPeeker replaySlowPeeker)
+    public void close()
     {
-        this.replaySlowPeeker = replaySlowPeeker;
+        receiveBufferPool.close();
     }
 }
@@ -31,6 +31,7 @@ import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.AgentInvoker;
 import org.agrona.concurrent.EpochClock;
 import org.agrona.concurrent.QueuedPipe;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LivenessDetector;
 import uk.co.real_logic.artio.Pressure;
@@ -102,10 +103,11 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final Timer sendTimer;
 
     private final ControlledFragmentHandler librarySubscriber;
-    private final ControlledFragmentHandler replaySubscriber;
+    // One assembler per replay image, since each one holds the partial message of its image
+    private final ControlledFragmentHandler[] replaySubscribers;
     private final ControlledFragmentHandler replaySlowSubscriber;
 
-    private final ReceiverEndPoints receiverEndPoints = new ReceiverEndPoints();
+    private final ReceiverEndPoints receiverEndPoints;
     private final ControlledFragmentAssembler senderEndPointAssembler;
     private final SenderEndPoints senderEndPoints;
 
@@ -113,10 +115,12 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final EndPointFactory endPointFactory;
     private final Subscription librarySubscription;
     private final SubscriptionSlowPeeker librarySlowPeeker;
-    private final Image replayImage;
-    private final SlowPeeker replaySlowPeeker;
+    // One per replayer shard's publication, in shard order so that end points can find their session's peeker
+    private final Image[] replayImages;
+    private final SlowPeeker[] replaySlowPeekers;
     private final BlockablePosition engineBlockablePosition;
     private final GatewayPublication inboundPublication;
+    private final InboundPublications inboundPublications;
     private final String agentNamePrefix;
     private final CompletionPosition inboundCompletionPosition;
     private final CompletionPosition outboundLibraryCompletionPosition;
@@ -127,6 +131,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final SequenceNumberIndexReader sentSequenceNumberIndex;
     private final SequenceNumberIndexReader receivedSequenceNumberIndex;
     private final int inboundBytesReceivedLimit;
+    private final boolean spillSlowConsumers;
+    private final boolean throttleOutbound;
     private final int outboundLibraryFragmentLimit;
     private final int replayFragmentLimit;
     private final GatewaySessions gatewaySessions;
@@ -140,9 +146,14 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     // Both connection id to library id maps
     private final Long2LongHashMap resendSlowStatus = new Long2LongHashMap(-1);
     private final Long2LongHashMap resendNotSlowStatus = new Long2LongHashMap(-1);
+    private final Long2LongHashMap resendThrottled = new Long2LongHashMap(-1);
+    private final Long2LongHashMap resendNotThrottled = new Long2LongHashMap(-1);
     private final AgentInvoker conductorAgentInvoker;
     private final RecordingCoordinator recordingCoordinator;
     private final PositionSender nonLoggingPositionSender;
+    // Sends the positions indexed on the archiver thread when libraries have their own inbound sessions
+    private final PositionSender indexedPositionSender;
+    private final RingBuffer forwardedSentPositions;
 
     private long nextConnectionId = (long)(Math.random() * Long.MAX_VALUE);
 
@@ -154,11 +165,12 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final EndPointFactory endPointFactory,
         final Subscription librarySubscription,
         final Subscription slowSubscription,
-        final Image replayImage,
-        final Image replaySlowImage,
+        final Image[] replayImages,
+        final Image[] replaySlowImages,
         final ReplayQuery inboundMessages,
         final GatewayPublication outboundPublication,
-        final GatewayPublication inboundPublication,
+        final InboundPublications inboundPublications,
+        final RingBuffer forwardedSentPositions,
         final QueuedPipe<AdminCommand> adminCommands,
         final SessionIdStrategy sessionIdStrategy,
         final SessionContexts sessionContexts,
@@ -171,7 +183,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final CompletionPosition outboundLibraryCompletionPosition,
         final FinalImagePositions finalImagePositions,
         final AgentInvoker conductorAgentInvoker,
-        final RecordingCoordinator recordingCoordinator)
+        final RecordingCoordinator recordingCoordinator,
+        final FramerShard[] framerShards)
     {
         this.clock = clock;
         this.outboundTimer = outboundTimer;
@@ -179,15 +192,17 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         this.configuration = configuration;
         this.endPointFactory = endPointFactory;
         this.librarySubscription = librarySubscription;
-        this.replayImage = replayImage;
+        this.replayImages = replayImages;
         this.gatewaySessions = gatewaySessions;
         this.inboundMessages = inboundMessages;
         this.errorHandler = errorHandler;
         this.outboundPublication = outboundPublication;
-        this.inboundPublication = inboundPublication;
+        this.inboundPublications = inboundPublications;
+        this.inboundPublication = inboundPublications.defaultPublication();
         this.agentNamePrefix = agentNamePrefix;
         this.inboundCompletionPosition = inboundCompletionPosition;
         this.outboundLibraryCompletionPosition = outboundLibraryCompletionPosition;
+        this.receiverEndPoints = new ReceiverEndPoints(framerShards);
         this.senderEndPoints = new SenderEndPoints(errorHandler);
         this.conductorAgentInvoker = conductorAgentInvoker;
         this.recordingCoordinator = recordingCoordinator;
@@ -204,22 +219,30 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         this.outboundLibraryFragmentLimit = configuration.outboundLibraryFragmentLimit();
         this.replayFragmentLimit = configuration.replayFragmentLimit();
         this.inboundBytesReceivedLimit = configuration.inboundBytesReceivedLimit();
+        this.throttleOutbound = configuration.outboundThrottleMessagesPerWindow() > 0;
+        this.spillSlowConsumers = configuration.senderSpillSlowConsumers() || throttleOutbound;
 
-        this.replaySlowPeeker = new SlowPeeker(replaySlowImage, replayImage);
-        endPointFactory.replaySlowPeeker(replaySlowPeeker);
+        replaySlowPeekers = new SlowPeeker[replayImages.length];
+        for (int i = 0; i < replayImages.length; i++)
+        {
+            replaySlowPeekers[i] = new SlowPeeker(replaySlowImages[i], replayImages[i]);
+        }
+        endPointFactory.replaySlowPeekers(replaySlowPeekers);
 
 
         engineBlockablePosition = getOutboundSlowPeeker(outboundPublication);
         librarySubscriber = new ControlledFragmentAssembler(
-            ProtocolSubscription.of(this, new EngineProtocolSubscription(this)),
+            senderEndPoints.gatheringHandler(ProtocolSubscription.of(this, new EngineProtocolSubscription(this))),
             0,
             true);
         nonLoggingPositionSender = configuration.logOutboundMessages() ?
-            null : new PositionSender(inboundPublication);
+            null : new PositionSender(inboundPublications);
+        this.forwardedSentPositions = forwardedSentPositions;
+        indexedPositionSender = forwardedSentPositions == null ? null : new PositionSender(inboundPublications);
 
         // We lookup replayed message by session id, since the connection id may have changed
         // if it's a persistent session.
-        replaySubscriber = new ImageControlledFragmentAssembler(ProtocolSubscription.of(new ProtocolHandler()
+        final ControlledFragmentHandler replaySubscription = ProtocolSubscription.of(new ProtocolHandler()
         {
             public Action onMessage(
                 final DirectBuffer buffer,
@@ -243,9 +266,12 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 // Should never be replayed.
                 return Action.CONTINUE;
             }
-        }),
-        0,
-        true);
+        });
+        replaySubscribers = new ControlledFragmentHandler[replayImages.length];
+        for (int i = 0; i < replayImages.length; i++)
+        {
+            replaySubscribers[i] = new ImageControlledFragmentAssembler(replaySubscription, 0, true);
+        }
 
         replaySlowSubscriber = new ControlledFragmentAssembler(ProtocolSubscription.of(new ProtocolHandler()
         {
@@ -300,6 +326,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         return retryManager.attemptSteps() +
             sendOutboundMessages() +
             sendReplayMessages() +
+            gatewaySessions.pollLogonQueue() +
             pollEndPoints() +
             pollNewConnections(timeInMs) +
             pollLibraries(timeInMs) +
@@ -313,7 +340,32 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     {
         return removeIf(replies, ResetSequenceNumberCommand::poll) +
             resendSaveNotifications(this.resendSlowStatus, SlowStatus.SLOW) +
-            resendSaveNotifications(this.resendNotSlowStatus, SlowStatus.NOT_SLOW);
+            resendSaveNotifications(this.resendNotSlowStatus, SlowStatus.NOT_SLOW) +
+            resendThrottleNotifications(this.resendThrottled, ThrottleStatus.THROTTLED) +
+            resendThrottleNotifications(this.resendNotThrottled, ThrottleStatus.NOT_THROTTLED);
+    }
+
+    private int resendThrottleNotifications(final Long2LongHashMap resend, final ThrottleStatus status)
+    {
+        int actions = 0;
+        if (!resend.isEmpty())
+        {
+            final KeyIterator keyIterator = resend.keySet().iterator();
+            while (keyIterator.hasNext())
+            {
+                final long connectionId = keyIterator.nextValue();
+                final int libraryId = (int)resend.get(connectionId);
+                final long position = inboundPublications.forLibrary(libraryId)
+                    .saveThrottleNotification(libraryId, connectionId, status);
+                if (position > 0)
+                {
+                    actions++;
+                    keyIterator.remove();
+                }
+            }
+        }
+
+        return actions;
     }
 
     private int resendSaveNotifications(final Long2LongHashMap resend, final SlowStatus status)
@@ -326,7 +378,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             {
                 final long connectionId = keyIterator.nextValue();
                 final int libraryId = (int)resend.get(connectionId);
-                final long position = inboundPublication.saveSlowStatusNotification(
+                final long position = inboundPublications.forLibrary(libraryId).saveSlowStatusNotification(
                     libraryId, connectionId, status);
                 if (position > 0)
                 {
@@ -341,13 +393,29 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     private int sendReplayMessages()
     {
-        return replayImage.controlledPoll(replaySubscriber, replayFragmentLimit) +
-            replaySlowPeeker.peek(replaySlowSubscriber);
+        final Image[] replayImages = this.replayImages;
+        final SlowPeeker[] replaySlowPeekers = this.replaySlowPeekers;
+        final ControlledFragmentHandler[] replaySubscribers = this.replaySubscribers;
+
+        int messagesRead = 0;
+        for (int i = 0, size = replayImages.length; i < size; i++)
+        {
+            messagesRead += replayImages[i].controlledPoll(replaySubscribers[i], replayFragmentLimit) +
+                replaySlowPeekers[i].peek(replaySlowSubscriber);
+        }
+
+        return messagesRead;
     }
 
     private int sendOutboundMessages()
     {
-        int messagesRead = librarySubscription.controlledPoll(librarySubscriber, outboundLibraryFragmentLimit);
+        int messagesRead = spillSlowConsumers ? senderEndPoints.drainSpillQueues() : 0;
+        if (throttleOutbound)
+        {
+            messagesRead += senderEndPoints.releaseThrottledMessages();
+        }
+        messagesRead += librarySubscription.controlledPoll(librarySubscriber, outboundLibraryFragmentLimit);
+        senderEndPoints.flushGatheredMessages();
         messagesRead += librarySlowPeeker.peek(senderEndPointAssembler);
 
         if (nonLoggingPositionSender != null)
@@ -355,6 +423,12 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             nonLoggingPositionSender.doWork();
         }
 
+        if (indexedPositionSender != null)
+        {
+            indexedPositionSender.receiveForwardedPositions(forwardedSentPositions);
+            indexedPositionSender.doWork();
+        }
+
         return messagesRead;
     }
 
@@ -423,7 +497,17 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private void saveLibraryTimeout(final LibraryInfo library)
     {
         final int libraryId = library.libraryId();
-        schedule(() -> inboundPublication.saveLibraryTimeout(libraryId, 0));
+        schedule(() ->
+        {
+            final long position = inboundPublications.forLibrary(libraryId).saveLibraryTimeout(libraryId, 0);
+            // Nothing else is sent to the library's own session once it has been told, unless it has reconnected
+            if (position > 0 && !idToLibrary.containsKey(libraryId))
+            {
+                inboundPublications.removeLibrary(libraryId);
+            }
+
+            return position;
+        });
         schedule(() -> outboundPublication.saveLibraryTimeout(libraryId, 0));
     }
 
@@ -443,6 +527,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 LIBRARY_MANAGEMENT,
                 "Acquiring session %s from library %s%n", session.sessionId(), library.libraryId());
 
+            receiverEndPoints.reclaimFromShard(session.receiverEndPoint());
             gatewaySessions.acquire(
                 session,
                 state,
@@ -477,7 +562,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         }
         while (bytesReceived > 0 && totalBytesReceived < inboundBytesReceivedLimit);
 
-        return totalBytesReceived;
+        return totalBytesReceived + receiverEndPoints.pollShardDisconnects();
     }
 
     private int pollNewConnections(final long timeInMs) throws IOException
@@ -676,7 +761,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
                 private long saveManageSession()
                 {
-                    return inboundPublication.saveManageSession(
+                    return inboundPublications.forLibrary(libraryId).saveManageSession(
                         libraryId,
                         connectionId,
                         sessionId,
@@ -724,7 +809,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     private void saveError(final GatewayError error, final int libraryId, final long replyToId, final String message)
     {
-        schedule(() -> inboundPublication.saveError(error, libraryId, replyToId, message));
+        schedule(() -> inboundPublications.forLibrary(libraryId).saveError(error, libraryId, replyToId, message));
     }
 
     private void saveError(final GatewayError error, final int libraryId, final long replyToId, final Exception e)
@@ -751,7 +836,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
         sessionContexts.onSentFollowerMessage(sessionId, sequenceIndex, messageType, buffer, offset, length);
 
-        senderEndPoints.onMessage(libraryId, connectionId, buffer, offset, length, sequenceNumber, position);
+        senderEndPoints.onMessage(
+            libraryId, connectionId, buffer, offset, length, sequenceNumber, messageType, position);
 
         if (nonLoggingPositionSender != null)
         {
@@ -799,6 +885,11 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
         receiverEndPoint.gatewaySession(gatewaySession);
 
+        if (libraryId != ENGINE_LIBRARY_ID)
+        {
+            receiverEndPoints.transferToShard(receiverEndPoint);
+        }
+
         return gatewaySession;
     }
 
@@ -821,8 +912,9 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     public Action onDisconnect(final int libraryId, final long connectionId, final DisconnectReason reason)
     {
-        receiverEndPoints.removeConnection(connectionId, reason);
+        // Write out any messages gathered for the connection before the receiver end point closes the channel.
         senderEndPoints.removeConnection(connectionId);
+        receiverEndPoints.removeConnection(connectionId, reason);
         final LiveLibraryInfo library = idToLibrary.get(libraryId);
         if (library != null)
         {
@@ -848,6 +940,13 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             return action;
         }
 
+        // Allocates the library's own inbound session when they're enabled, before anything is sent to it.
+        final GatewayPublication inboundPublication = inboundPublications.addLibrary(libraryId);
+        if (inboundPublication == null)
+        {
+            return ABORT;
+        }
+
         final LiveLibraryInfo existingLibrary = idToLibrary.get(libraryId);
         if (existingLibrary != null)
         {
@@ -936,7 +1035,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final LiveLibraryInfo libraryInfo = idToLibrary.get(libraryId);
         if (libraryInfo == null)
         {
-            return Pressure.apply(inboundPublication.saveReleaseSessionReply(
+            return Pressure.apply(inboundPublications.forLibrary(libraryId).saveReleaseSessionReply(
                 libraryId, SessionReplyStatus.UNKNOWN_LIBRARY, correlationId));
         }
 
@@ -951,17 +1050,19 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
         if (session == null)
         {
-            return Pressure.apply(inboundPublication.saveReleaseSessionReply(
+            return Pressure.apply(inboundPublications.forLibrary(libraryId).saveReleaseSessionReply(
                 libraryId, SessionReplyStatus.UNKNOWN_SESSION, correlationId));
         }
 
-        final Action action = Pressure.apply(inboundPublication.saveReleaseSessionReply(libraryId, OK, correlationId));
+        final Action action = Pressure.apply(
+            inboundPublications.forLibrary(libraryId).saveReleaseSessionReply(libraryId, OK, correlationId));
         if (action == ABORT)
         {
             libraryInfo.addSession(session);
         }
         else
         {
+            receiverEndPoints.reclaimFromShard(session.receiverEndPoint());
             gatewaySessions.acquire(
                 session,
                 state,
@@ -1002,21 +1103,21 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final LiveLibraryInfo libraryInfo = idToLibrary.get(libraryId);
         if (libraryInfo == null)
         {
-            return Pressure.apply(inboundPublication.saveRequestSessionReply(
+            return Pressure.apply(inboundPublications.forLibrary(libraryId).saveRequestSessionReply(
                 libraryId, SessionReplyStatus.UNKNOWN_LIBRARY, correlationId));
         }
 
         final GatewaySession gatewaySession = gatewaySessions.releaseBySessionId(sessionId);
         if (gatewaySession == null)
         {
-            return Pressure.apply(inboundPublication.saveRequestSessionReply(
+            return Pressure.apply(inboundPublications.forLibrary(libraryId).saveRequestSessionReply(
                 libraryId, SessionReplyStatus.UNKNOWN_SESSION, correlationId));
         }
 
         final Session session = gatewaySession.session();
         if (!session.isActive())
         {
-            return Pressure.apply(inboundPublication.saveRequestSessionReply(
+            return Pressure.apply(inboundPublications.forLibrary(libraryId).saveRequestSessionReply(
                 libraryId, SESSION_NOT_LOGGED_IN, correlationId));
         }
 
@@ -1028,6 +1129,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
         gatewaySession.handoverManagementTo(libraryId, libraryInfo.librarySlowPeeker());
         libraryInfo.addSession(gatewaySession);
+        receiverEndPoints.transferToShard(gatewaySession.receiverEndPoint());
 
         DebugLogger.log(LIBRARY_MANAGEMENT, "Handing control for session %s to library %s%n", sessionId, libraryId);
 
@@ -1044,7 +1146,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 sentIndexedPosition(aeronSessionId, requiredPosition) ? COMPLETE : BACK_PRESSURED);
         }
 
-        continuations.add(() -> inboundPublication.saveManageSession(
+        continuations.add(() -> inboundPublications.forLibrary(libraryId).saveManageSession(
             libraryId,
             connectionId,
             sessionId,
@@ -1091,7 +1193,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         {
             final long connectionId = gatewaySession.connectionId();
 
-            return inboundPublication.saveManageSession(
+            return inboundPublications.forLibrary(libraryId).saveManageSession(
                 libraryId,
                 connectionId,
                 gatewaySession.sessionId(),
@@ -1139,7 +1241,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
             continuations.add(new CatchupReplayer(
                 inboundMessages,
-                inboundPublication,
+                inboundPublications,
                 errorHandler,
                 correlationId,
                 connectionId,
@@ -1154,7 +1256,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         }
         else
         {
-            continuations.add(() -> CatchupReplayer.sendOk(inboundPublication, correlationId, session, libraryId));
+            continuations.add(() -> CatchupReplayer.sendOk(
+                inboundPublications.forLibrary(libraryId), correlationId, session, libraryId));
         }
     }
 
@@ -1165,7 +1268,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     private long sequenceNumberTooHigh(final int libraryId, final long correlationId, final GatewaySession session)
     {
-        final long position = inboundPublication.saveRequestSessionReply(
+        final long position = inboundPublications.forLibrary(libraryId).saveRequestSessionReply(
             libraryId, SEQUENCE_NUMBER_TOO_HIGH, correlationId);
         if (!Pressure.isBackPressured(position))
         {
@@ -1176,37 +1279,51 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     private void onSessionLogon(final GatewaySession gatewaySession)
     {
-        schedule(() ->
+        if (inboundPublications.hasLibraryPublications())
         {
-            if (null == gatewaySession.session())
+            // Libraries only read their own inbound session, so each of them is told about the session.
+            for (final LiveLibraryInfo library : idToLibrary.values())
             {
-                // Generally means that another library is now handling the session
-                // so we shouldn't publish availability.
-                return 0;
+                final int libraryId = library.libraryId();
+                schedule(() -> saveSessionExists(gatewaySession, inboundPublications.forLibrary(libraryId)));
             }
+        }
+        else
+        {
+            schedule(() -> saveSessionExists(gatewaySession, inboundPublication));
+        }
+    }
 
-            final CompositeKey key = gatewaySession.sessionKey();
-            return inboundPublication.saveManageSession(ENGINE_LIBRARY_ID,
-                gatewaySession.connectionId(),
-                gatewaySession.sessionId(),
-                gatewaySession.session().lastSentMsgSeqNum(),
-                gatewaySession.session().lastReceivedMsgSeqNum(),
-                gatewaySession.session().logonTime(),
-                LogonStatus.NEW,
-                gatewaySession.slowStatus(),
-                gatewaySession.connectionType(),
-                gatewaySession.session().state(),
-                gatewaySession.heartbeatIntervalInS(),
-                NO_CORRELATION_ID,
-                gatewaySession.sequenceIndex(),
-                key.localCompId(),
-                key.localSubId(),
-                key.localLocationId(),
-                key.remoteCompId(),
-                key.remoteSubId(),
-                key.remoteLocationId(),
-                gatewaySession.address());
-        });
+    private long saveSessionExists(final GatewaySession gatewaySession, final GatewayPublication publication)
+    {
+        if (null == gatewaySession.session())
+        {
+            // Generally means that another library is now handling the session
+            // so we shouldn't publish availability.
+            return 0;
+        }
+
+        final CompositeKey key = gatewaySession.sessionKey();
+        return publication.saveManageSession(ENGINE_LIBRARY_ID,
+            gatewaySession.connectionId(),
+            gatewaySession.sessionId(),
+            gatewaySession.session().lastSentMsgSeqNum(),
+            gatewaySession.session().lastReceivedMsgSeqNum(),
+            gatewaySession.session().logonTime(),
+            LogonStatus.NEW,
+            gatewaySession.slowStatus(),
+            gatewaySession.connectionType(),
+            gatewaySession.session().state(),
+            gatewaySession.heartbeatIntervalInS(),
+            NO_CORRELATION_ID,
+            gatewaySession.sequenceIndex(),
+            key.localCompId(),
+            key.localSubId(),
+            key.localLocationId(),
+            key.remoteCompId(),
+            key.remoteSubId(),
+            key.remoteLocationId(),
+            gatewaySession.address());
     }
 
     void onQueryLibraries(final QueryLibrariesCommand command)
@@ -1298,13 +1415,15 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             inboundMessages,
             receiverEndPoints,
             senderEndPoints,
+            endPointFactory,
             channelSupplier);
     }
 
     private void quiesce()
     {
         final Long2LongHashMap inboundPositions = new Long2LongHashMap(CompletionPosition.MISSING_VALUE);
-        inboundPositions.put(inboundPublication.id(), inboundPublication.position());
+        inboundPublications.forEachPublication(publication ->
+            inboundPositions.put(publication.id(), publication.position()));
         inboundCompletionPosition.complete(inboundPositions);
 
         final Long2LongHashMap outboundPositions = new Long2LongHashMap(CompletionPosition.MISSING_VALUE);
@@ -1357,7 +1476,39 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final SlowStatus status)
     {
         toNotResend.remove(connectionId);
-        final long position = inboundPublication.saveSlowStatusNotification(libraryId, connectionId, status);
+        final long position = inboundPublications.forLibrary(libraryId)
+            .saveSlowStatusNotification(libraryId, connectionId, status);
+
+        if (Pressure.isBackPressured(position))
+        {
+            toResend.put(connectionId, libraryId);
+        }
+    }
+
+    void throttleStatus(final int libraryId, final long connectionId, final boolean isThrottled)
+    {
+        if (isThrottled)
+        {
+            sendThrottleStatus(
+                libraryId, connectionId, resendNotThrottled, resendThrottled, ThrottleStatus.THROTTLED);
+        }
+        else
+        {
+            sendThrottleStatus(
+                libraryId, connectionId, resendThrottled, resendNotThrottled, ThrottleStatus.NOT_THROTTLED);
+        }
+    }
+
+    private void sendThrottleStatus(
+        final int libraryId,
+        final long connectionId,
+        final Long2LongHashMap toNotResend,
+        final Long2LongHashMap toResend,
+        final ThrottleStatus status)
+    {
+        toNotResend.remove(connectionId);
+        final long position = inboundPublications.forLibrary(libraryId)
+            .saveThrottleNotification(libraryId, connectionId, status);
 
         if (Pressure.isBackPressured(position))
         {
@@ -26,14 +26,18 @@ import uk.co.real_logic.artio.engine.EngineContext;
 import uk.co.real_logic.artio.engine.RecordingCoordinator;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 import uk.co.real_logic.artio.protocol.Streams;
 import uk.co.real_logic.artio.session.SessionIdStrategy;
 import uk.co.real_logic.artio.timing.EngineTimers;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
+import static uk.co.real_logic.artio.CommonConfiguration.backoffIdleStrategy;
+
 /**
  * Context that injects all the necessary information into different Framer classes.
  *
@@ -47,12 +51,13 @@ public class FramerContext
     private final QueuedPipe<AdminCommand> adminCommands = new ManyToOneConcurrentArrayQueue<>(ADMIN_COMMAND_CAPACITY);
 
     private final Framer framer;
+    private final FramerShard[] framerShards;
 
     private final GatewaySessions gatewaySessions;
     private final SequenceNumberIndexReader sentSequenceNumberIndex;
     private final SequenceNumberIndexReader receivedSequenceNumberIndex;
     private final GatewayPublication outboundPublication;
-    private final GatewayPublication inboundPublication;
+    private final InboundPublications inboundPublications;
     private final SessionContexts sessionContexts;
 
     public FramerContext(
@@ -60,8 +65,8 @@ public class FramerContext
         final FixCounters fixCounters,
         final EngineContext engineContext,
         final ErrorHandler errorHandler,
-        final Image replayImage,
-        final Image slowReplayImage,
+        final Image[] replayImages,
+        final Image[] slowReplayImages,
         final EngineTimers timers,
         final AgentInvoker conductorAgentInvoker,
         final RecordingCoordinator recordingCoordinator)
@@ -72,7 +77,28 @@ public class FramerContext
         final Streams outboundLibraryStreams = engineContext.outboundLibraryStreams();
 
         final SystemEpochClock clock = new SystemEpochClock();
-        this.inboundPublication = engineContext.inboundPublication();
+        final int framerShardCount = configuration.framerShardCount();
+        framerShards = new FramerShard[framerShardCount];
+        final GatewayPublication inboundPublication;
+        if (framerShardCount > 0)
+        {
+            // Shards share the framer's inbound log so that subscribers see a single stream of messages.
+            inboundPublication = engineContext.sharedInboundPublication(idleStrategy, "inboundPublication");
+            for (int i = 0; i < framerShardCount; i++)
+            {
+                framerShards[i] = new FramerShard(
+                    i,
+                    new InboundPublications(engineContext.sharedInboundPublication(
+                        backoffIdleStrategy(), "framerShardInboundPublication-" + i)),
+                    configuration.inboundBytesReceivedLimit(),
+                    configuration.agentNamePrefix());
+            }
+        }
+        else
+        {
+            inboundPublication = engineContext.inboundPublication();
+        }
+        this.inboundPublications = engineContext.framerInboundPublications(inboundPublication);
         this.outboundPublication = outboundLibraryStreams.gatewayPublication(idleStrategy, "outboundPublication");
 
         gatewaySessions = new GatewaySessions(
@@ -89,12 +115,20 @@ public class FramerContext
             errorHandler,
             sessionContexts,
             configuration.sessionPersistenceStrategy(),
-            idleStrategy);
+            idleStrategy,
+            fixCounters.pendingAuthentications(),
+            configuration.authenticationTimeoutInMs(),
+            new LogonQueue(
+                configuration.logonsPerDutyCycle(),
+                configuration.logonQueueCapacity(),
+                fixCounters.logonQueueDepth()),
+            fixCounters.totalLogonLatencyInMs(),
+            fixCounters.completedLogons());
 
         final EndPointFactory endPointFactory = new EndPointFactory(
             configuration,
             sessionContexts,
-            inboundPublication,
+            inboundPublications,
             fixCounters,
             errorHandler,
             gatewaySessions,
@@ -117,11 +151,12 @@ public class FramerContext
                 "outboundLibrarySubscription", finalImagePositions),
             engineContext.outboundLibrarySubscription(
                 "outboundSlowSubscription", null),
-            replayImage,
-            slowReplayImage,
+            replayImages,
+            slowReplayImages,
             engineContext.inboundReplayQuery(),
             outboundPublication,
-            inboundPublication,
+            inboundPublications,
+            engineContext.forwardedSentPositions(),
             adminCommands,
             sessionIdStrategy,
             sessionContexts,
@@ -134,7 +169,8 @@ public class FramerContext
             engineContext.outboundLibraryCompletionPosition(),
             finalImagePositions,
             conductorAgentInvoker,
-            recordingCoordinator);
+            recordingCoordinator,
+            framerShards);
     }
 
     public Agent framer()
@@ -142,6 +178,11 @@ public class FramerContext
         return framer;
     }
 
+    public List<Agent> framerShards()
+    {
+        return Arrays.asList(framerShards);
+    }
+
     public Reply<List<LibraryInfo>> libraries()
     {
         final QueryLibrariesCommand reply = new QueryLibrariesCommand();
@@ -162,7 +203,7 @@ public class FramerContext
             sessionContexts,
             receivedSequenceNumberIndex,
             sentSequenceNumberIndex,
-            inboundPublication,
+            inboundPublications,
             outboundPublication);
 
         if (adminCommands.offer(reply))
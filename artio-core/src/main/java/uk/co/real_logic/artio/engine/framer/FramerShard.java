@@ -0,0 +1,299 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.LangUtil;
+import org.agrona.collections.ArrayUtil;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.ManyToOneConcurrentLinkedQueue;
+import org.agrona.nio.TransportPoller;
+import uk.co.real_logic.artio.protocol.InboundPublications;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+
+/**
+ * Reads and frames the inbound messages of library owned connections on behalf of the {@link Framer}.
+ *
+ * The framer hands end points over once a library owns their session and takes them back whenever it
+ * needs to change them, for example on disconnect or when a session is acquired by the engine. Each
+ * shard publishes onto its own publication of the shared inbound log. Disconnects that a shard detects
+ * are handed back to the framer, since all the connection lifecycle logic lives there.
+ */
+class FramerShard extends TransportPoller implements Agent
+{
+    private final ManyToOneConcurrentLinkedQueue<ReceiverEndPoint> transferredEndPoints =
+        new ManyToOneConcurrentLinkedQueue<>();
+    private final ManyToOneConcurrentLinkedQueue<ReceiverEndPoint> disconnectedEndPoints =
+        new ManyToOneConcurrentLinkedQueue<>();
+
+    private final int shardId;
+    private final InboundPublications inboundPublications;
+    private final int inboundBytesReceivedLimit;
+    private final String agentNamePrefix;
+
+    private ReceiverEndPoint[] endPoints = new ReceiverEndPoint[0];
+    // End points paused by their inbound throttle. The selector doesn't select an end point whose remaining messages
+    // are already in its buffer, so they're polled on every duty cycle until the throttle has capacity again.
+    private ReceiverEndPoint[] throttledEndPoints = new ReceiverEndPoint[0];
+
+    FramerShard(
+        final int shardId,
+        final InboundPublications inboundPublications,
+        final int inboundBytesReceivedLimit,
+        final String agentNamePrefix)
+    {
+        this.shardId = shardId;
+        this.inboundPublications = inboundPublications;
+        this.inboundBytesReceivedLimit = inboundBytesReceivedLimit;
+        this.agentNamePrefix = agentNamePrefix;
+    }
+
+    // ------------------------------------------------
+    //          Called on the framer thread
+    // ------------------------------------------------
+
+    void transfer(final ReceiverEndPoint endPoint)
+    {
+        endPoint.transferToShard(inboundPublications);
+        transferredEndPoints.offer(endPoint);
+    }
+
+    // The shard drops its registration of a reclaimed end point lazily
+    void onReclaimed(final ReceiverEndPoint endPoint)
+    {
+        transferredEndPoints.offer(endPoint);
+    }
+
+    int drainDisconnects()
+    {
+        int count = 0;
+        ReceiverEndPoint endPoint;
+        while ((endPoint = disconnectedEndPoints.poll()) != null)
+        {
+            endPoint.onShardDisconnect();
+            count++;
+        }
+
+        return count;
+    }
+
+    // ------------------------------------------------
+    //          Called on the shard thread
+    // ------------------------------------------------
+
+    public int doWork()
+    {
+        final int transfers = drainTransfers();
+
+        final int inboundBytesReceivedLimit = this.inboundBytesReceivedLimit;
+        int totalBytesReceived = 0;
+        int bytesReceived;
+        do
+        {
+            bytesReceived = pollEndPoints();
+            totalBytesReceived += bytesReceived;
+        }
+        while (bytesReceived > 0 && totalBytesReceived < inboundBytesReceivedLimit);
+
+        return transfers + totalBytesReceived;
+    }
+
+    private int drainTransfers()
+    {
+        int count = 0;
+        ReceiverEndPoint endPoint;
+        while ((endPoint = transferredEndPoints.poll()) != null)
+        {
+            onTransfer(endPoint);
+            count++;
+        }
+
+        return count;
+    }
+
+    private void onTransfer(final ReceiverEndPoint endPoint)
+    {
+        final boolean isRegistered = ArrayUtil.UNKNOWN_INDEX != indexOf(endPoint);
+        if (endPoint.isOwnedByShard())
+        {
+            if (!isRegistered)
+            {
+                try
+                {
+                    endPoint.channel().register(selector, OP_READ, endPoint);
+                    endPoints = ArrayUtil.add(endPoints, endPoint);
+                }
+                catch (final ClosedChannelException ex)
+                {
+                    // Reclaimed and closed by the framer in the meantime
+                }
+                catch (final IOException ex)
+                {
+                    LangUtil.rethrowUnchecked(ex);
+                }
+            }
+        }
+        else if (isRegistered)
+        {
+            remove(endPoint);
+        }
+    }
+
+    private int pollEndPoints()
+    {
+        int bytesReceived = 0;
+        try
+        {
+            final ReceiverEndPoint[] endPoints = this.endPoints;
+            final int numEndPoints = endPoints.length;
+            if (numEndPoints <= ITERATION_THRESHOLD)
+            {
+                for (int i = numEndPoints - 1; i >= 0; i--)
+                {
+                    bytesReceived += poll(endPoints[i]);
+                }
+            }
+            else
+            {
+                selector.selectNow();
+
+                final SelectionKey[] keys = selectedKeySet.keys();
+                for (int i = selectedKeySet.size() - 1; i >= 0; i--)
+                {
+                    final ReceiverEndPoint endPoint = (ReceiverEndPoint)keys[i].attachment();
+                    bytesReceived += poll(endPoint);
+                    if (endPoint.isThrottledOnShard() &&
+                        indexOf(throttledEndPoints, endPoint) == ArrayUtil.UNKNOWN_INDEX)
+                    {
+                        throttledEndPoints = ArrayUtil.add(throttledEndPoints, endPoint);
+                    }
+                }
+
+                selectedKeySet.reset();
+            }
+
+            bytesReceived += pollThrottledEndPoints();
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        return bytesReceived;
+    }
+
+    private int pollThrottledEndPoints()
+    {
+        int bytesReceived = 0;
+        final ReceiverEndPoint[] throttledEndPoints = this.throttledEndPoints;
+        for (int i = throttledEndPoints.length - 1; i >= 0; i--)
+        {
+            final ReceiverEndPoint endPoint = throttledEndPoints[i];
+            bytesReceived += poll(endPoint);
+            if (!endPoint.isThrottledOnShard())
+            {
+                removeThrottled(endPoint);
+            }
+        }
+
+        return bytesReceived;
+    }
+
+    private int poll(final ReceiverEndPoint endPoint)
+    {
+        final int bytesReceived = endPoint.pollOnShard();
+        if (!endPoint.isOwnedByShard())
+        {
+            remove(endPoint);
+            if (endPoint.hasShardDisconnect())
+            {
+                disconnectedEndPoints.offer(endPoint);
+            }
+        }
+
+        return bytesReceived;
+    }
+
+    private void remove(final ReceiverEndPoint endPoint)
+    {
+        removeThrottled(endPoint);
+        final int index = indexOf(endPoint);
+        if (index != ArrayUtil.UNKNOWN_INDEX)
+        {
+            endPoints = ArrayUtil.remove(endPoints, index);
+            final SelectionKey key = endPoint.channel().keyFor(selector);
+            if (key != null)
+            {
+                key.cancel();
+                selectNowToForceProcessing();
+            }
+        }
+    }
+
+    private void removeThrottled(final ReceiverEndPoint endPoint)
+    {
+        final int index = indexOf(throttledEndPoints, endPoint);
+        if (index != ArrayUtil.UNKNOWN_INDEX)
+        {
+            throttledEndPoints = ArrayUtil.remove(throttledEndPoints, index);
+        }
+    }
+
+    private int indexOf(final ReceiverEndPoint endPoint)
+    {
+        return indexOf(endPoints, endPoint);
+    }
+
+    private static int indexOf(final ReceiverEndPoint[] endPoints, final ReceiverEndPoint endPoint)
+    {
+        for (int i = 0, length = endPoints.length; i < length; i++)
+        {
+            if (endPoints[i] == endPoint)
+            {
+                return i;
+            }
+        }
+
+        return ArrayUtil.UNKNOWN_INDEX;
+    }
+
+    private void selectNowToForceProcessing()
+    {
+        try
+        {
+            selector.selectNow();
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    public void onClose()
+    {
+        // End points are closed by the framer, which reclaims them on shutdown.
+        close();
+    }
+
+    public String roleName()
+    {
+        return agentNamePrefix + "FramerShard-" + shardId;
+    }
+}
@@ -52,6 +52,9 @@ class GatewaySession implements SessionInfo
     private String password;
     private int heartbeatIntervalInS;
     private long disconnectTimeout = NO_TIMEOUT;
+    private PendingAuthentication pendingAuthentication;
+    private int logonQueueState = LogonQueue.NOT_QUEUED;
+    private long logonReceivedTimeInMs;
 
     private PersistenceLevel persistenceLevel;
     private Consumer<GatewaySession> onGatewaySessionLogon;
@@ -126,11 +129,22 @@ class GatewaySession implements SessionInfo
         receiverEndPoint.play();
     }
 
+    ReceiverEndPoint receiverEndPoint()
+    {
+        return receiverEndPoint;
+    }
+
     int poll(final long time)
     {
         return session.poll(time) + checkNoLogonDisconnect(time);
     }
 
+    long nextPollTime(final long time)
+    {
+        final long sessionPollTime = session.nextPollTime(time);
+        return disconnectTimeout == NO_TIMEOUT ? sessionPollTime : Math.min(sessionPollTime, disconnectTimeout);
+    }
+
     private int checkNoLogonDisconnect(final long time)
     {
         if (disconnectTimeout == NO_TIMEOUT)
@@ -184,6 +198,14 @@ class GatewaySession implements SessionInfo
         }
     }
 
+    void onThrottledMessage(final MutableAsciiBuffer buffer, final int offset, final int length)
+    {
+        if (sessionParser != null)
+        {
+            sessionParser.onThrottledMessage(buffer, offset, length);
+        }
+    }
+
     void onLogon(
         final String username,
         final String password,
@@ -257,6 +279,48 @@ class GatewaySession implements SessionInfo
         this.disconnectTimeout = disconnectTimeout;
     }
 
+    // The authentication timeout takes over from the no logon timeout once a logon has been received
+    void onAuthenticationPending(final PendingAuthentication pendingAuthentication)
+    {
+        this.pendingAuthentication = pendingAuthentication;
+        disconnectTimeout = NO_TIMEOUT;
+    }
+
+    void onAuthenticationDone()
+    {
+        pendingAuthentication = null;
+    }
+
+    PendingAuthentication pendingAuthentication()
+    {
+        return pendingAuthentication;
+    }
+
+    void logonQueueState(final int logonQueueState)
+    {
+        this.logonQueueState = logonQueueState;
+    }
+
+    int logonQueueState()
+    {
+        return logonQueueState;
+    }
+
+    boolean isLogonQueued()
+    {
+        return logonQueueState == LogonQueue.QUEUED;
+    }
+
+    void logonReceivedTimeInMs(final long logonReceivedTimeInMs)
+    {
+        this.logonReceivedTimeInMs = logonReceivedTimeInMs;
+    }
+
+    long logonReceivedTimeInMs()
+    {
+        return logonReceivedTimeInMs;
+    }
+
     public long bytesInBuffer()
     {
         return senderEndPoint.bytesInBuffer();
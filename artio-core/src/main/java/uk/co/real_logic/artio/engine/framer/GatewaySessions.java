@@ -62,6 +62,12 @@ class GatewaySessions
     private final SessionContexts sessionContexts;
     private final SessionPersistenceStrategy sessionPersistenceStrategy;
     private final IdleStrategy framerIdleStrategy;
+    private final SessionTimerWheel<GatewaySession> sessionTimers;
+    private final AtomicCounter pendingAuthentications;
+    private final long authenticationTimeoutInMs;
+    private final LogonQueue logonQueue;
+    private final AtomicCounter totalLogonLatencyInMs;
+    private final AtomicCounter completedLogons;
 
     private ErrorHandler errorHandler;
 
@@ -79,7 +85,12 @@ class GatewaySessions
         final ErrorHandler errorHandler,
         final SessionContexts sessionContexts,
         final SessionPersistenceStrategy sessionPersistenceStrategy,
-        final IdleStrategy framerIdleStrategy)
+        final IdleStrategy framerIdleStrategy,
+        final AtomicCounter pendingAuthentications,
+        final long authenticationTimeoutInMs,
+        final LogonQueue logonQueue,
+        final AtomicCounter totalLogonLatencyInMs,
+        final AtomicCounter completedLogons)
     {
         this.clock = clock;
         this.outboundPublication = outboundPublication;
@@ -95,6 +106,12 @@ class GatewaySessions
         this.sessionContexts = sessionContexts;
         this.sessionPersistenceStrategy = sessionPersistenceStrategy;
         this.framerIdleStrategy = framerIdleStrategy;
+        this.sessionTimers = new SessionTimerWheel<>(this::onSessionTimer);
+        this.pendingAuthentications = pendingAuthentications;
+        this.authenticationTimeoutInMs = authenticationTimeoutInMs;
+        this.logonQueue = logonQueue;
+        this.totalLogonLatencyInMs = totalLogonLatencyInMs;
+        this.completedLogons = completedLogons;
     }
 
     void acquire(
@@ -146,6 +163,7 @@ class GatewaySessions
 
         sessions.add(gatewaySession);
         gatewaySession.manage(sessionParser, session, engineBlockablePosition);
+        sessionTimers.add(gatewaySession, session, clock.time());
 
         final CompositeKey sessionKey = gatewaySession.sessionKey();
         DebugLogger.log(FIX_MESSAGE, "Gateway Acquired Session %d%n", connectionId);
@@ -164,7 +182,9 @@ class GatewaySessions
             return null;
         }
 
-        return sessions.remove(index);
+        final GatewaySession gatewaySession = sessions.remove(index);
+        sessionTimers.remove(gatewaySession.session());
+        return gatewaySession;
     }
 
     GatewaySession sessionById(final long sessionId)
@@ -199,21 +219,27 @@ class GatewaySessions
         final GatewaySession session = removeSessionByConnectionId(connectionId, sessions);
         if (session != null)
         {
+            sessionTimers.remove(session.session());
             session.close();
         }
     }
 
+    int pollLogonQueue()
+    {
+        return logonQueue.onDutyCycle();
+    }
+
+    // Only the sessions that have a heartbeat or timeout due, or have changed state, get polled.
     int pollSessions(final long time)
     {
-        final List<GatewaySession> sessions = this.sessions;
+        return sessionTimers.poll(time);
+    }
 
-        int eventsProcessed = 0;
-        for (int i = 0, size = sessions.size(); i < size; i++)
-        {
-            final GatewaySession session = sessions.get(i);
-            eventsProcessed += session.poll(time);
-        }
-        return eventsProcessed;
+    private int onSessionTimer(final GatewaySession gatewaySession, final long time)
+    {
+        final int actions = gatewaySession.poll(time);
+        sessionTimers.schedule(gatewaySession.session(), gatewaySession.nextPollTime(time));
+        return actions;
     }
 
     List<GatewaySession> sessions()
@@ -236,6 +262,12 @@ class GatewaySessions
         return null;
     }
 
+    /**
+     * Authenticates a logon and sets up its session once it's been accepted. The logon may have to wait in the
+     * logon queue and the authentication strategy may take a while to give its result, in either case this returns
+     * {@link AuthenticationResult#PENDING} and should be called again with the same logon until it returns
+     * something else.
+     */
     AuthenticationResult authenticateAndInitiate(
         final LogonDecoder logon,
         final long connectionId,
@@ -243,17 +275,47 @@ class GatewaySessions
         final SequenceNumberIndexReader receivedSequenceNumberIndex,
         final GatewaySession gatewaySession)
     {
-        final CompositeKey compositeKey = sessionIdStrategy.onAcceptLogon(logon.header());
-        final SessionContext sessionContext = sessionContexts.onLogon(compositeKey);
-        final long sessionId = sessionContext.sessionId();
-        if (sessionContext == DUPLICATE_SESSION)
+        PendingAuthentication pendingAuthentication = gatewaySession.pendingAuthentication();
+        if (pendingAuthentication == null)
+        {
+            final int admission = logonQueue.admit(gatewaySession, clock.time());
+            if (admission == LogonQueue.QUEUED)
+            {
+                return AuthenticationResult.PENDING;
+            }
+
+            if (admission == LogonQueue.FULL)
+            {
+                return AuthenticationResult.LOGON_QUEUE_FULL;
+            }
+
+            final CompositeKey compositeKey = sessionIdStrategy.onAcceptLogon(logon.header());
+            final SessionContext sessionContext = sessionContexts.onLogon(compositeKey);
+            if (sessionContext == DUPLICATE_SESSION)
+            {
+                return AuthenticationResult.DUPLICATE_SESSION;
+            }
+
+            pendingAuthentication = new PendingAuthentication(
+                sessionContext, compositeKey, clock.time() + authenticationTimeoutInMs);
+            gatewaySession.onAuthenticationPending(pendingAuthentication);
+            pendingAuthentications.increment();
+            authenticate(logon, connectionId, pendingAuthentication);
+        }
+
+        final int state = pendingAuthentication.poll(clock.time());
+        if (state == PendingAuthentication.PENDING)
         {
-            return AuthenticationResult.DUPLICATE_SESSION;
+            return AuthenticationResult.PENDING;
         }
 
-        final boolean authenticated = authenticate(logon, connectionId);
-        if (!authenticated)
+        onAuthenticationDone(gatewaySession);
+        final SessionContext sessionContext = pendingAuthentication.sessionContext();
+        final CompositeKey compositeKey = pendingAuthentication.compositeKey();
+        final long sessionId = sessionContext.sessionId();
+        if (state == PendingAuthentication.REJECTED)
         {
+            sessionContexts.onDisconnect(sessionId);
             return AuthenticationResult.FAILED_AUTHENTICATION;
         }
 
@@ -285,6 +347,9 @@ class GatewaySessions
         gatewaySession.acceptorSequenceNumbers(lastSentSequenceNumber, lastReceivedSequenceNumber);
         gatewaySession.persistenceLevel(persistenceLevel);
 
+        totalLogonLatencyInMs.getAndAddOrdered(clock.time() - gatewaySession.logonReceivedTimeInMs());
+        completedLogons.incrementOrdered();
+
         return AuthenticationResult.authenticatedSession(gatewaySession);
     }
 
@@ -301,16 +366,40 @@ class GatewaySessions
         }
     }
 
-    private boolean authenticate(final LogonDecoder logon, final long connectionId)
+    /**
+     * Stops queueing or authenticating the logon of a connection that has disconnected, so that its session can log
+     * on again. A result that the authentication strategy gives afterwards is ignored.
+     */
+    void abortAuthentication(final GatewaySession gatewaySession)
+    {
+        logonQueue.remove(gatewaySession);
+
+        final PendingAuthentication pendingAuthentication = gatewaySession.pendingAuthentication();
+        if (pendingAuthentication != null)
+        {
+            pendingAuthentication.reject();
+            onAuthenticationDone(gatewaySession);
+            sessionContexts.onDisconnect(pendingAuthentication.sessionContext().sessionId());
+        }
+    }
+
+    private void onAuthenticationDone(final GatewaySession gatewaySession)
+    {
+        gatewaySession.onAuthenticationDone();
+        pendingAuthentications.decrement();
+    }
+
+    private void authenticate(
+        final LogonDecoder logon, final long connectionId, final PendingAuthentication pendingAuthentication)
     {
         try
         {
-            return authenticationStrategy.authenticate(logon);
+            authenticationStrategy.authenticateAsync(logon, pendingAuthentication);
         }
         catch (final Throwable throwable)
         {
             onStrategyError("authentication", throwable, connectionId, "false", logon);
-            return false;
+            pendingAuthentication.reject();
         }
     }
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.Clock;
+import uk.co.real_logic.artio.engine.InboundThrottleAction;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Token bucket limits on the messages and bytes per second that a connection is allowed to send us. Each bucket
+ * holds up to a second's worth of tokens. A message is let through whenever both buckets have some tokens left,
+ * taking the bucket into debt if needs be, so that messages larger than the bytes per second limit are still
+ * accepted, just not more often than the limit allows.
+ *
+ * Only used by the thread that is currently polling the connection's end point.
+ */
+class InboundThrottle implements AutoCloseable
+{
+    private static final long NANOS_PER_SECOND = SECONDS.toNanos(1);
+
+    private final TokenBucket messages;
+    private final TokenBucket bytes;
+    private final InboundThrottleAction action;
+    private final Clock clock;
+    private final AtomicCounter throttledMessages;
+
+    InboundThrottle(
+        final int messagesPerSecond,
+        final int bytesPerSecond,
+        final InboundThrottleAction action,
+        final Clock clock,
+        final AtomicCounter throttledMessages)
+    {
+        this.action = action;
+        this.clock = clock;
+        this.throttledMessages = throttledMessages;
+
+        final long timeInNs = clock.time();
+        messages = new TokenBucket(messagesPerSecond, timeInNs);
+        bytes = new TokenBucket(bytesPerSecond, timeInNs);
+    }
+
+    /**
+     * Take the tokens needed for a message, if they're available.
+     *
+     * @param length the length of the message in bytes.
+     * @return true if the message is within the limits, false if it has been throttled.
+     */
+    boolean tryAcquire(final int length)
+    {
+        if (!hasCapacity())
+        {
+            throttledMessages.incrementOrdered();
+            return false;
+        }
+
+        messages.tokens--;
+        bytes.tokens -= length;
+        return true;
+    }
+
+    boolean hasCapacity()
+    {
+        final long timeInNs = clock.time();
+        return messages.hasTokens(timeInNs) && bytes.hasTokens(timeInNs);
+    }
+
+    InboundThrottleAction action()
+    {
+        return action;
+    }
+
+    public void close()
+    {
+        throttledMessages.close();
+    }
+
+    static final class TokenBucket
+    {
+        private final long tokensPerSecond;
+        private long tokens;
+        private long lastRefillTimeInNs;
+
+        TokenBucket(final long tokensPerSecond, final long timeInNs)
+        {
+            this.tokensPerSecond = tokensPerSecond;
+            tokens = tokensPerSecond;
+            lastRefillTimeInNs = timeInNs;
+        }
+
+        boolean hasTokens(final long timeInNs)
+        {
+            final long tokensPerSecond = this.tokensPerSecond;
+            if (tokensPerSecond == 0)
+            {
+                return true;
+            }
+
+            final long missingTokens = tokensPerSecond - tokens;
+            final long elapsedInNs = timeInNs - lastRefillTimeInNs;
+            if (elapsedInNs >= missingTokens * NANOS_PER_SECOND / tokensPerSecond)
+            {
+                tokens = tokensPerSecond;
+                lastRefillTimeInNs = timeInNs;
+            }
+            else
+            {
+                final long newTokens = elapsedInNs * tokensPerSecond / NANOS_PER_SECOND;
+                if (newTokens > 0)
+                {
+                    tokens += newTokens;
+                    // Only move the refill time on by the time that has been converted into whole tokens.
+                    lastRefillTimeInNs += newTokens * NANOS_PER_SECOND / tokensPerSecond;
+                }
+            }
+
+            return tokens > 0;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.util.ArrayDeque;
+
+/**
+ * Limits the number of logons that the framer starts to process on each duty cycle, so that a burst of connections
+ * logging on at once doesn't hold up the messages of sessions that are already logged on. Logons over the limit wait
+ * in the order they arrived and are admitted on later duty cycles, before any logon that arrives afterwards.
+ * <p>
+ * Not thread safe, should only be used on the framer thread.
+ */
+final class LogonQueue
+{
+    static final int NO_LIMIT = 0;
+
+    // The state of a gateway session's logon, the first three are also the results of admit()
+    static final int ADMITTED = 0;
+    static final int QUEUED = 1;
+    static final int FULL = 2;
+    static final int NOT_QUEUED = 3;
+
+    private final ArrayDeque<GatewaySession> queue = new ArrayDeque<>();
+    private final int logonsPerDutyCycle;
+    private final int capacity;
+    private final AtomicCounter queueDepth;
+
+    private int remainingLogons;
+
+    LogonQueue(final int logonsPerDutyCycle, final int capacity, final AtomicCounter queueDepth)
+    {
+        this.logonsPerDutyCycle = logonsPerDutyCycle;
+        this.capacity = capacity;
+        this.queueDepth = queueDepth;
+        this.remainingLogons = logonsPerDutyCycle;
+    }
+
+    /**
+     * Starts a new duty cycle, admitting as many of the waiting logons as it allows.
+     *
+     * @return the number of logons admitted from the queue.
+     */
+    int onDutyCycle()
+    {
+        if (logonsPerDutyCycle == NO_LIMIT)
+        {
+            return 0;
+        }
+
+        int remainingLogons = logonsPerDutyCycle;
+        int admitted = 0;
+        GatewaySession gatewaySession;
+        while (remainingLogons > 0 && (gatewaySession = queue.poll()) != null)
+        {
+            gatewaySession.logonQueueState(ADMITTED);
+            remainingLogons--;
+            admitted++;
+        }
+        this.remainingLogons = remainingLogons;
+
+        if (admitted > 0)
+        {
+            queueDepth.setOrdered(queue.size());
+        }
+
+        return admitted;
+    }
+
+    /**
+     * Checks whether the logon of a gateway session can be processed now, queueing it if not.
+     *
+     * @param gatewaySession the session whose logon has been received.
+     * @param timeInMs the current time in milliseconds.
+     * @return ADMITTED if the logon can be processed, QUEUED if it has to wait or FULL if it can't be queued.
+     */
+    int admit(final GatewaySession gatewaySession, final long timeInMs)
+    {
+        switch (gatewaySession.logonQueueState())
+        {
+            case ADMITTED:
+                gatewaySession.logonQueueState(NOT_QUEUED);
+                return ADMITTED;
+
+            case QUEUED:
+                return QUEUED;
+        }
+
+        gatewaySession.logonReceivedTimeInMs(timeInMs);
+        if (logonsPerDutyCycle == NO_LIMIT)
+        {
+            return ADMITTED;
+        }
+
+        if (remainingLogons > 0 && queue.isEmpty())
+        {
+            remainingLogons--;
+            return ADMITTED;
+        }
+
+        if (queue.size() >= capacity)
+        {
+            return FULL;
+        }
+
+        queue.add(gatewaySession);
+        gatewaySession.logonQueueState(QUEUED);
+        queueDepth.setOrdered(queue.size());
+        return QUEUED;
+    }
+
+    /**
+     * Called when the connection of a gateway session is disconnected, so that its logon stops waiting.
+     *
+     * @param gatewaySession the session whose connection has been disconnected.
+     */
+    void remove(final GatewaySession gatewaySession)
+    {
+        if (gatewaySession.logonQueueState() == QUEUED)
+        {
+            queue.remove(gatewaySession);
+            queueDepth.setOrdered(queue.size());
+        }
+        gatewaySession.logonQueueState(NOT_QUEUED);
+    }
+}
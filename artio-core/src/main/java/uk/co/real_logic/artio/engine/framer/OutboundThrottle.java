@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import uk.co.real_logic.artio.engine.ByteBufferUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Limits the number of messages a session sends in any window of time, and holds the messages that are over the
+ * limit until they can be sent.
+ *
+ * The window slides rather than being reset every period, so a counterparty never sees more than the limit in any
+ * window however the sends line up with its own clock: the send times of the last messagesPerWindow messages are
+ * kept and a message can only be sent once the oldest of them is a whole window old.
+ *
+ * Session level messages, such as heartbeats and logouts, don't count towards the limit, but are still held behind
+ * any held messages so that messages are sent in order.
+ *
+ * Held messages are copied into a lazily allocated off-heap buffer, each one prefixed by its length, its sequence
+ * number and whether it's a session level message.
+ */
+class OutboundThrottle
+{
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int SEQUENCE_NUMBER_OFFSET = 4;
+    private static final int SESSION_MESSAGE_OFFSET = 8;
+    static final int HEADER_SIZE = 9;
+    private static final long NO_SEND = Long.MIN_VALUE;
+
+    private final long[] sendTimesInMs;
+    private final long windowInMs;
+    private final int maxBytes;
+
+    private int oldestSendIndex;
+    private ByteBuffer buffer;
+    private ByteBuffer messageView;
+    private int readOffset;
+    private int heldMessages;
+
+    OutboundThrottle(final int messagesPerWindow, final long windowInMs, final int maxBytes)
+    {
+        this.windowInMs = windowInMs;
+        this.maxBytes = maxBytes;
+        sendTimesInMs = new long[messagesPerWindow];
+        Arrays.fill(sendTimesInMs, NO_SEND);
+    }
+
+    /**
+     * Record a send if the limit allows it.
+     *
+     * @param timeInMs the current time.
+     * @return true if a message can be sent now, false if it would take the session over its limit.
+     */
+    boolean tryAcquire(final long timeInMs)
+    {
+        final long[] sendTimesInMs = this.sendTimesInMs;
+        final int index = oldestSendIndex;
+        if (sendTimesInMs[index] > timeInMs - windowInMs)
+        {
+            return false;
+        }
+
+        sendTimesInMs[index] = timeInMs;
+        oldestSendIndex = index + 1 == sendTimesInMs.length ? 0 : index + 1;
+        return true;
+    }
+
+    /**
+     * Record the send of the oldest held message if the limit allows it, session level messages are always allowed.
+     *
+     * @param timeInMs the current time.
+     * @return true if the oldest held message can be sent now.
+     */
+    boolean tryAcquireOldest(final long timeInMs)
+    {
+        return buffer.get(readOffset + SESSION_MESSAGE_OFFSET) != 0 || tryAcquire(timeInMs);
+    }
+
+    /**
+     * Copy a message onto the end of the held messages.
+     *
+     * @param message the message, from its position to its limit.
+     * @param sequenceNumber the message's sequence number.
+     * @param isSessionMessage true if the message is a session level message that isn't limited.
+     * @return true if the message was held, false if it would take the held messages beyond the maximum size.
+     */
+    boolean hold(final ByteBuffer message, final int sequenceNumber, final boolean isSessionMessage)
+    {
+        final int length = message.remaining();
+        final int framedLength = HEADER_SIZE + length;
+        if (size() + framedLength > maxBytes)
+        {
+            return false;
+        }
+
+        ensureCapacity(framedLength);
+        final ByteBuffer buffer = this.buffer;
+        buffer.putInt(length);
+        buffer.putInt(sequenceNumber);
+        buffer.put(isSessionMessage ? (byte)1 : (byte)0);
+        buffer.put(message);
+        heldMessages++;
+
+        return true;
+    }
+
+    /**
+     * Get the oldest held message, which stays held until {@link #removeOldest()} is called.
+     *
+     * @return a view of the message, from its position to its limit.
+     */
+    ByteBuffer oldest()
+    {
+        final ByteBuffer messageView = this.messageView;
+        final int offset = readOffset + HEADER_SIZE;
+        final int length = buffer.getInt(readOffset);
+        ByteBufferUtil.limit(messageView, offset + length);
+        ByteBufferUtil.position(messageView, offset);
+
+        return messageView;
+    }
+
+    int oldestSequenceNumber()
+    {
+        return buffer.getInt(readOffset + SEQUENCE_NUMBER_OFFSET);
+    }
+
+    void removeOldest()
+    {
+        final ByteBuffer buffer = this.buffer;
+        readOffset += HEADER_SIZE + buffer.getInt(readOffset);
+        if (--heldMessages == 0)
+        {
+            readOffset = 0;
+            buffer.clear();
+        }
+    }
+
+    boolean hasHeldMessages()
+    {
+        return heldMessages > 0;
+    }
+
+    int size()
+    {
+        return buffer == null ? 0 : buffer.position() - readOffset;
+    }
+
+    private void ensureCapacity(final int length)
+    {
+        final ByteBuffer buffer = this.buffer;
+        if (buffer == null)
+        {
+            wrap(ByteBuffer.allocateDirect(newCapacity(INITIAL_CAPACITY, length)));
+            return;
+        }
+
+        if (buffer.remaining() >= length)
+        {
+            return;
+        }
+
+        final int size = size();
+        ByteBufferUtil.limit(buffer, readOffset + size);
+        ByteBufferUtil.position(buffer, readOffset);
+        if (buffer.capacity() >= size + length)
+        {
+            buffer.compact();
+        }
+        else
+        {
+            final ByteBuffer largerBuffer = ByteBuffer.allocateDirect(
+                newCapacity(2 * buffer.capacity(), size + length));
+            largerBuffer.put(buffer);
+            wrap(largerBuffer);
+        }
+        readOffset = 0;
+    }
+
+    private void wrap(final ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        messageView = buffer.duplicate();
+    }
+
+    private int newCapacity(final int preferredCapacity, final int requiredCapacity)
+    {
+        return Math.min(maxBytes, Math.max(preferredCapacity, requiredCapacity));
+    }
+}
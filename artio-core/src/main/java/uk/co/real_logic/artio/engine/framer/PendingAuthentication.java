@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import uk.co.real_logic.artio.session.CompositeKey;
+import uk.co.real_logic.artio.validation.AuthenticationProxy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The authentication of a logon that hasn't completed yet. The strategy completes it from any thread, the framer
+ * polls it until it's done and only the first of accept, reject or timing out counts.
+ */
+final class PendingAuthentication implements AuthenticationProxy
+{
+    static final int PENDING = 0;
+    static final int ACCEPTED = 1;
+    static final int REJECTED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final SessionContext sessionContext;
+    private final CompositeKey compositeKey;
+    private final long timeoutInMs;
+
+    PendingAuthentication(
+        final SessionContext sessionContext, final CompositeKey compositeKey, final long timeoutInMs)
+    {
+        this.sessionContext = sessionContext;
+        this.compositeKey = compositeKey;
+        this.timeoutInMs = timeoutInMs;
+    }
+
+    public void accept()
+    {
+        state.compareAndSet(PENDING, ACCEPTED);
+    }
+
+    public void reject()
+    {
+        state.compareAndSet(PENDING, REJECTED);
+    }
+
+    /**
+     * Gets the state of the authentication, rejecting it if it has timed out.
+     *
+     * @param timeInMs the current time in milliseconds.
+     * @return one of PENDING, ACCEPTED or REJECTED.
+     */
+    int poll(final long timeInMs)
+    {
+        if (timeInMs >= timeoutInMs)
+        {
+            reject();
+        }
+
+        return state.get();
+    }
+
+    SessionContext sessionContext()
+    {
+        return sessionContext;
+    }
+
+    CompositeKey compositeKey()
+    {
+        return compositeKey;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.FixCounters;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Lends the direct buffers that receiver end points frame messages in. Buffers come in size classes that double
+ * from the initial buffer size up to the maximum receiver buffer size. End points start with the smallest class
+ * and only move up a class when a message doesn't fit, so connections that only ever receive small messages don't
+ * pin the memory needed for the largest ones. Buffers are returned when connections close and reused by later
+ * connections.
+ *
+ * Buffers are upgraded by end points that are being polled on framer shards, so the pool is thread safe.
+ */
+class ReceiveBufferPool implements AutoCloseable
+{
+    private final int[] sizes;
+    private final ArrayDeque<ByteBuffer>[] freeBuffers;
+    private final AtomicCounter[] buffersInUse;
+    private final AtomicCounter[] pooledBuffers;
+
+    @SuppressWarnings("unchecked")
+    ReceiveBufferPool(final int initialBufferSize, final int maxBufferSize, final FixCounters fixCounters)
+    {
+        int sizeClasses = 1;
+        for (int size = Math.min(initialBufferSize, maxBufferSize); size < maxBufferSize; size *= 2)
+        {
+            sizeClasses++;
+        }
+
+        sizes = new int[sizeClasses];
+        freeBuffers = new ArrayDeque[sizeClasses];
+        buffersInUse = new AtomicCounter[sizeClasses];
+        pooledBuffers = new AtomicCounter[sizeClasses];
+
+        int size = Math.min(initialBufferSize, maxBufferSize);
+        for (int i = 0; i < sizeClasses; i++)
+        {
+            sizes[i] = Math.min(size, maxBufferSize);
+            freeBuffers[i] = new ArrayDeque<>();
+            buffersInUse[i] = fixCounters.receiveBuffersInUse(sizes[i]);
+            pooledBuffers[i] = fixCounters.pooledReceiveBuffers(sizes[i]);
+            size *= 2;
+        }
+    }
+
+    /**
+     * Acquire a buffer from the smallest size class.
+     *
+     * @return the buffer.
+     */
+    synchronized ByteBuffer acquire()
+    {
+        return acquire(0);
+    }
+
+    /**
+     * Acquire a buffer from the size class above that of the buffer passed in. The buffer passed in remains owned by
+     * the caller, which should release it once it has copied its contents across.
+     *
+     * @param buffer the buffer that is too small.
+     * @return a larger buffer or null if the buffer is already in the largest size class.
+     */
+    synchronized ByteBuffer acquireLarger(final ByteBuffer buffer)
+    {
+        final int sizeClass = sizeClass(buffer);
+        if (sizeClass == sizes.length - 1)
+        {
+            return null;
+        }
+
+        return acquire(sizeClass + 1);
+    }
+
+    synchronized void release(final ByteBuffer buffer)
+    {
+        final int sizeClass = sizeClass(buffer);
+        final ArrayDeque<ByteBuffer> freeBuffers = this.freeBuffers[sizeClass];
+        freeBuffers.push(buffer);
+        pooledBuffers[sizeClass].setOrdered(freeBuffers.size());
+        buffersInUse[sizeClass].getAndAddOrdered(-1);
+    }
+
+    private ByteBuffer acquire(final int sizeClass)
+    {
+        final ArrayDeque<ByteBuffer> freeBuffers = this.freeBuffers[sizeClass];
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null)
+        {
+            buffer = ByteBuffer.allocateDirect(sizes[sizeClass]);
+        }
+        else
+        {
+            buffer.clear();
+            pooledBuffers[sizeClass].setOrdered(freeBuffers.size());
+        }
+
+        buffersInUse[sizeClass].getAndAddOrdered(1);
+
+        return buffer;
+    }
+
+    private int sizeClass(final ByteBuffer buffer)
+    {
+        final int capacity = buffer.capacity();
+        final int[] sizes = this.sizes;
+        for (int i = 0; i < sizes.length; i++)
+        {
+            if (sizes[i] == capacity)
+            {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Buffer of size " + capacity + " wasn't acquired from this pool");
+    }
+
+    public synchronized void close()
+    {
+        for (int i = 0; i < sizes.length; i++)
+        {
+            buffersInUse[i].close();
+            pooledBuffers[i].close();
+            freeBuffers[i].clear();
+        }
+    }
+}
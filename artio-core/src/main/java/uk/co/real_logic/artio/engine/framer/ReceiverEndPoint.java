@@ -25,7 +25,9 @@ import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
 import uk.co.real_logic.artio.messages.DisconnectReason;
+import uk.co.real_logic.artio.messages.MessageStatus;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.io.IOException;
@@ -34,6 +36,7 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.channels.SelectionKey.OP_READ;
 import static uk.co.real_logic.artio.LogTag.FIX_MESSAGE;
@@ -67,10 +70,16 @@ class ReceiverEndPoint
     private static final int SOCKET_DISCONNECTED = -1;
     private static final int UNKNOWN_MESSAGE_TYPE = -1;
 
+    // Ownership states, only the owning thread reads from the channel.
+    private static final int OWNED_BY_FRAMER = 0;
+    private static final int OWNED_BY_SHARD = 1;
+    private static final int POLLING_ON_SHARD = 2;
+
     private final LogonDecoder logon = new LogonDecoder();
 
     private final TcpChannel channel;
-    private final GatewayPublication publication;
+    private final InboundPublications inboundPublications;
+    private final AtomicInteger owner = new AtomicInteger(OWNED_BY_FRAMER);
     private final long connectionId;
     private final SessionContexts sessionContexts;
     private final SequenceNumberIndexReader sentSequenceNumberIndex;
@@ -79,22 +88,40 @@ class ReceiverEndPoint
     private final Framer framer;
     private final ErrorHandler errorHandler;
     private final MutableAsciiBuffer buffer;
-    private final ByteBuffer byteBuffer;
+    private final ReceiveBufferPool bufferPool;
     private final GatewaySessions gatewaySessions;
+    private final InboundThrottle throttle;
 
+    // The publications of the thread that polls the end point, publication is looked up from them for libraryId.
+    private InboundPublications publications;
+    private GatewayPublication publication;
+    private int publicationLibraryId;
     private int libraryId;
     private GatewaySession gatewaySession;
     private long sessionId;
     private int sequenceIndex;
+    // Framing works over the window [startOfUnframedData, usedBufferData) of the buffer.
+    private int startOfUnframedData = 0;
+    // Running sum of the bytes of a partially received message, see sumReceivedBytes()
+    private int checksumMessageOffset = UNKNOWN_INDEX;
+    private int checksumPosition;
+    private int checksumSum;
     private int usedBufferData = 0;
+    private ByteBuffer byteBuffer;
+    private boolean hasReleasedBuffer = false;
     private boolean hasDisconnected = false;
     private SelectionKey selectionKey;
-    private boolean isPaused = false;
+    private volatile boolean isPaused = false;
+    // Separate from isPaused, which the framer controls during catchup.
+    private boolean isThrottled = false;
+    // The logon stays unframed at the start of the buffer whilst it's being authenticated.
+    private boolean isAuthenticating = false;
+    private DisconnectReason shardDisconnectReason;
 
     ReceiverEndPoint(
         final TcpChannel channel,
-        final int bufferSize,
-        final GatewayPublication publication,
+        final ReceiveBufferPool bufferPool,
+        final InboundPublications publications,
         final long connectionId,
         final long sessionId,
         final int sequenceIndex,
@@ -105,14 +132,16 @@ class ReceiverEndPoint
         final Framer framer,
         final ErrorHandler errorHandler,
         final int libraryId,
-        final GatewaySessions gatewaySessions)
+        final GatewaySessions gatewaySessions,
+        final InboundThrottle throttle)
     {
-        Objects.requireNonNull(publication, "publication");
+        Objects.requireNonNull(publications, "publications");
         Objects.requireNonNull(sessionContexts, "sessionContexts");
         Objects.requireNonNull(gatewaySessions, "gatewaySessions");
 
         this.channel = channel;
-        this.publication = publication;
+        this.inboundPublications = publications;
+        this.publications = publications;
         this.connectionId = connectionId;
         this.sessionId = sessionId;
         this.sequenceIndex = sequenceIndex;
@@ -124,8 +153,11 @@ class ReceiverEndPoint
         this.errorHandler = errorHandler;
         this.libraryId = libraryId;
         this.gatewaySessions = gatewaySessions;
+        this.throttle = throttle;
+
+        this.bufferPool = bufferPool;
 
-        byteBuffer = ByteBuffer.allocateDirect(bufferSize);
+        byteBuffer = bufferPool.acquire();
         buffer = new MutableAsciiBuffer(byteBuffer);
     }
 
@@ -136,14 +168,16 @@ class ReceiverEndPoint
 
     int pollForData()
     {
-        if (isPaused || hasDisconnected())
+        if (isPaused || hasDisconnected() || isThrottled())
         {
             return 0;
         }
 
         try
         {
-            return readData() + frameMessages();
+            final int dataRead = readData();
+            // A disconnect releases the buffer back to the pool
+            return hasDisconnected ? dataRead : dataRead + frameMessages();
         }
         catch (final ClosedChannelException ex)
         {
@@ -170,7 +204,7 @@ class ReceiverEndPoint
         {
             if (dataRead > 0)
             {
-                DebugLogger.log(FIX_MESSAGE, "Read     %s%n", buffer, 0, dataRead);
+                DebugLogger.log(FIX_MESSAGE, "Read     %s%n", buffer, usedBufferData, dataRead);
             }
             usedBufferData += dataRead;
         }
@@ -185,13 +219,18 @@ class ReceiverEndPoint
 
     private int frameMessages()
     {
-        int offset = 0;
+        final int startOfFraming = startOfUnframedData;
+        return frameMessages(startOfFraming) - startOfFraming;
+    }
+
+    private int frameMessages(final int startOfFraming)
+    {
+        int offset = startOfFraming;
         while (true)
         {
             if (usedBufferData < offset + StandardFixConstants.MIN_MESSAGE_SIZE) // Need more data
             {
-                // Need more data
-                break;
+                return needMoreData(offset);
             }
             try
             {
@@ -204,7 +243,7 @@ class ReceiverEndPoint
                 final int endOfBodyLength = scanEndOfBodyLength(startOfBodyLength);
                 if (endOfBodyLength == UNKNOWN_INDEX) // Need more data
                 {
-                    break;
+                    return needMoreData(offset);
                 }
 
                 final int startOfChecksumTag = endOfBodyLength + getBodyLength(startOfBodyLength, endOfBodyLength);
@@ -212,7 +251,8 @@ class ReceiverEndPoint
                 final int endOfChecksumTag = startOfChecksumTag + 3;
                 if (endOfChecksumTag >= usedBufferData)
                 {
-                    break;
+                    sumReceivedBytes(offset, Math.min(usedBufferData, startOfChecksumTag + 1));
+                    return needMoreData(offset);
                 }
 
                 if (!validateBodyLength(startOfChecksumTag))
@@ -221,17 +261,24 @@ class ReceiverEndPoint
                     {
                         return offset;
                     }
-                    close(INVALID_BODY_LENGTH);
-                    removeEndpointFromFramer();
+                    if (isPollingOnShard())
+                    {
+                        shardDisconnectReason = INVALID_BODY_LENGTH;
+                    }
+                    else
+                    {
+                        close(INVALID_BODY_LENGTH);
+                        removeEndpointFromFramer();
+                        return offset;
+                    }
                     break;
                 }
 
                 final int startOfChecksumValue = startOfChecksumTag + MIN_CHECKSUM_SIZE;
                 final int endOfMessage = scanEndOfMessage(startOfChecksumValue);
-                if (endOfMessage == UNKNOWN_INDEX)
+                if (endOfMessage == UNKNOWN_INDEX) // Need more data
                 {
-                    // Need more data
-                    break;
+                    return needMoreData(offset);
                 }
 
                 // TODO(Nick): We already scan for the message type so we can check for logon messages here?
@@ -251,7 +298,6 @@ class ReceiverEndPoint
                         return offset;
                     }
 
-                    messagesRead.incrementOrdered();
                     if (saveMessage(offset, messageType, length))
                     {
                         return offset;
@@ -272,10 +318,61 @@ class ReceiverEndPoint
             }
         }
 
-        moveRemainingDataToBufferStart(offset);
+        consumeFramedData(offset);
+        return offset;
+    }
+
+    /**
+     * Called when the message starting at offset is incomplete. If that message already fills the buffer then it
+     * can never be completed in place, so it is moved into a larger buffer. Buffers full of complete messages that
+     * are waiting on back pressure, the throttle or authentication never grow.
+     */
+    private int needMoreData(final int offset)
+    {
+        consumeFramedData(offset);
+
+        // Compaction in consumeFramedData means the buffer can only be full here if it holds just this message.
+        if (usedBufferData == byteBuffer.capacity())
+        {
+            growBuffer();
+            ByteBufferUtil.position(byteBuffer, usedBufferData);
+        }
+
         return offset;
     }
 
+    /**
+     * Moves the unframed data into a buffer from the next size class up, if there is one.
+     */
+    private void growBuffer()
+    {
+        if (hasReleasedBuffer)
+        {
+            return;
+        }
+
+        final ByteBuffer largerBuffer = bufferPool.acquireLarger(byteBuffer);
+        if (largerBuffer == null)
+        {
+            return;
+        }
+
+        final int startOfUnframedData = this.startOfUnframedData;
+        final int unframedLength = usedBufferData - startOfUnframedData;
+        buffer.getBytes(startOfUnframedData, largerBuffer, unframedLength);
+        bufferPool.release(byteBuffer);
+
+        byteBuffer = largerBuffer;
+        buffer.wrap(largerBuffer);
+        this.startOfUnframedData = 0;
+        usedBufferData = unframedLength;
+        if (checksumMessageOffset != UNKNOWN_INDEX)
+        {
+            checksumMessageOffset -= startOfUnframedData;
+            checksumPosition -= startOfUnframedData;
+        }
+    }
+
     private boolean validateChecksum(
         final int endOfMessage,
         final int startOfChecksumValue,
@@ -283,10 +380,33 @@ class ReceiverEndPoint
         final int startOfChecksumTag)
     {
         final int expectedChecksum = buffer.getInt(startOfChecksumValue - 1, endOfMessage);
-        final int computedChecksum = buffer.computeChecksum(offset, startOfChecksumTag + 1);
+        final int computedChecksum = sumReceivedBytes(offset, startOfChecksumTag + 1) % 256;
         return expectedChecksum != computedChecksum;
     }
 
+    /**
+     * Adds the bytes of the message at offset up to end to its running checksum sum. When a message is split
+     * over several reads only the newly received bytes are summed on each poll, rather than the whole message
+     * being re-read once it has arrived.
+     */
+    private int sumReceivedBytes(final int offset, final int end)
+    {
+        if (checksumMessageOffset != offset)
+        {
+            checksumMessageOffset = offset;
+            checksumPosition = offset;
+            checksumSum = 0;
+        }
+
+        if (end > checksumPosition)
+        {
+            checksumSum += buffer.sumBytes(checksumPosition, end);
+            checksumPosition = end;
+        }
+
+        return checksumSum;
+    }
+
     private int scanEndOfMessage(final int startOfChecksumValue)
     {
         return buffer.scan(startOfChecksumValue, usedBufferData - 1, START_OF_HEADER);
@@ -333,6 +453,13 @@ class ReceiverEndPoint
             return false;
         }
 
+        // Nothing can happen until the logon queue admits the logon
+        if (isAuthenticating && isLogonQueued())
+        {
+            consumeFramedData(offset);
+            return true;
+        }
+
         logon.decode(buffer, offset, length);
 
         final AuthenticationResult authResult = gatewaySessions.authenticateAndInitiate(
@@ -342,6 +469,13 @@ class ReceiverEndPoint
             receivedSequenceNumberIndex,
             gatewaySession);
 
+        isAuthenticating = authResult.isPending();
+        if (isAuthenticating)
+        {
+            consumeFramedData(offset);
+            return true;
+        }
+
         if (authResult.isDuplicateSession())
         {
             close(DisconnectReason.DUPLICATE_SESSION);
@@ -350,6 +484,13 @@ class ReceiverEndPoint
             return true;
         }
 
+        if (authResult.isLogonQueueFull())
+        {
+            disconnectEndpoint(LOGON_QUEUE_FULL);
+            removeEndpointFromFramer();
+            return true;
+        }
+
         if (!authResult.isValid())
         {
             onInvalidLogon();
@@ -367,7 +508,7 @@ class ReceiverEndPoint
         final boolean backPressured = Pressure.isBackPressured(position);
         if (backPressured)
         {
-            moveRemainingDataToBufferStart(offset);
+            consumeFramedData(offset);
         }
 
         return backPressured;
@@ -375,7 +516,14 @@ class ReceiverEndPoint
 
     private boolean saveMessage(final int offset, final int messageType, final int length)
     {
-        final long position = publication.saveMessage(buffer,
+        // Session messages are exempt, otherwise a throttled counterparty couldn't keep its session alive.
+        if (throttle != null && !SenderEndPoint.isSessionMessage(messageType) && !throttle.tryAcquire(length))
+        {
+            return onThrottled(offset, messageType, length);
+        }
+
+        messagesRead.incrementOrdered();
+        final long position = publication().saveMessage(buffer,
             offset,
             length,
             libraryId,
@@ -388,7 +536,7 @@ class ReceiverEndPoint
 
         if (Pressure.isBackPressured(position))
         {
-            moveRemainingDataToBufferStart(offset);
+            consumeFramedData(offset);
             return true;
         }
         else
@@ -398,6 +546,67 @@ class ReceiverEndPoint
         }
     }
 
+    private boolean onThrottled(final int offset, final int messageType, final int length)
+    {
+        switch (throttle.action())
+        {
+            case REJECT:
+            {
+                final long position = publication().saveMessage(buffer,
+                    offset,
+                    length,
+                    libraryId,
+                    messageType,
+                    sessionId,
+                    sequenceIndex,
+                    connectionId,
+                    MessageStatus.THROTTLED,
+                    0);
+
+                if (stashIfBackPressured(offset, position))
+                {
+                    return true;
+                }
+
+                // The session rejects the message, libraries do the same for the sessions that they own
+                gatewaySession.onThrottledMessage(buffer, offset, length);
+                return false;
+            }
+
+            case DISCONNECT:
+                if (isPollingOnShard())
+                {
+                    shardDisconnectReason = DisconnectReason.THROTTLED;
+                    consumeFramedData(offset);
+                }
+                else
+                {
+                    close(DisconnectReason.THROTTLED);
+                    removeEndpointFromFramer();
+                }
+                return true;
+
+            case PAUSE:
+            default:
+                // Leave the message in the buffer and stop reading, so TCP pushes back on the sender.
+                isThrottled = true;
+                consumeFramedData(offset);
+                return true;
+        }
+    }
+
+    // The selector doesn't select an end point whose remaining messages are already in its buffer, so whoever polls
+    // it has to keep polling until this stops being true.
+    boolean isThrottled()
+    {
+        if (isThrottled && throttle.hasCapacity())
+        {
+            isThrottled = false;
+        }
+
+        return isThrottled;
+    }
+
     private boolean validateBodyLength(final int startOfChecksumTag)
     {
         return buffer.getByte(startOfChecksumTag) == CHECKSUM0 &&
@@ -434,12 +643,44 @@ class ReceiverEndPoint
         }
     }
 
-    private void moveRemainingDataToBufferStart(final int offset)
+    /**
+     * Marks the data up to offset as framed. Unframed data is left where it is and framing carries on from offset
+     * next time, so a back pressured or partially received message isn't copied on every poll. The unframed data
+     * is only moved to the start of the buffer when the space left at the end is smaller than the space that has
+     * already been framed, which means data is copied at most once for each time the buffer fills up.
+     */
+    private void consumeFramedData(final int offset)
     {
-        usedBufferData -= offset;
-        buffer.putBytes(0, buffer, offset, usedBufferData);
+        final int usedBufferData = this.usedBufferData;
+        if (checksumMessageOffset < offset)
+        {
+            checksumMessageOffset = UNKNOWN_INDEX;
+        }
+
+        if (offset == usedBufferData)
+        {
+            startOfUnframedData = 0;
+            this.usedBufferData = 0;
+        }
+        else if (byteBuffer.capacity() - usedBufferData < offset)
+        {
+            final int unframedLength = usedBufferData - offset;
+            buffer.putBytes(0, buffer, offset, unframedLength);
+            startOfUnframedData = 0;
+            this.usedBufferData = unframedLength;
+            if (checksumMessageOffset != UNKNOWN_INDEX)
+            {
+                checksumMessageOffset -= offset;
+                checksumPosition -= offset;
+            }
+        }
+        else
+        {
+            startOfUnframedData = offset;
+        }
+
         // position set to ensure that back pressure is applied to TCP when read(byteBuffer) called.
-        ByteBufferUtil.position(byteBuffer, usedBufferData);
+        ByteBufferUtil.position(byteBuffer, this.usedBufferData);
     }
 
     private void invalidateMessage(final int offset)
@@ -450,7 +691,7 @@ class ReceiverEndPoint
 
     private boolean saveInvalidMessage(final int offset, final int startOfChecksumTag)
     {
-        final long position = publication.saveMessage(
+        final long position = publication().saveMessage(
             buffer,
             offset,
             libraryId,
@@ -467,9 +708,9 @@ class ReceiverEndPoint
 
     private boolean saveInvalidMessage(final int offset)
     {
-        final long position = publication.saveMessage(buffer,
+        final long position = publication().saveMessage(buffer,
             offset,
-            usedBufferData,
+            usedBufferData - offset,
             libraryId,
             INVALID_MESSAGE_TYPE,
             sessionId,
@@ -490,12 +731,12 @@ class ReceiverEndPoint
 
     private void clearBuffer()
     {
-        moveRemainingDataToBufferStart(usedBufferData);
+        consumeFramedData(usedBufferData);
     }
 
     private boolean saveInvalidChecksumMessage(final int offset, final int messageType, final int length)
     {
-        final long position = publication.saveMessage(buffer,
+        final long position = publication().saveMessage(buffer,
             offset,
             length,
             libraryId,
@@ -525,11 +766,21 @@ class ReceiverEndPoint
         {
             channel.close();
             messagesRead.close();
+            if (throttle != null)
+            {
+                throttle.close();
+            }
         }
         catch (final Exception ex)
         {
             errorHandler.onError(ex);
         }
+
+        if (!hasReleasedBuffer)
+        {
+            hasReleasedBuffer = true;
+            bufferPool.release(byteBuffer);
+        }
     }
 
     private void removeEndpointFromFramer()
@@ -539,6 +790,13 @@ class ReceiverEndPoint
 
     private void onDisconnectDetected()
     {
+        if (isPollingOnShard())
+        {
+            // The framer owns the disconnect logic, so it's handed back once the shard has finished polling.
+            shardDisconnectReason = REMOTE_DISCONNECT;
+            return;
+        }
+
         disconnectEndpoint(REMOTE_DISCONNECT);
         removeEndpointFromFramer();
     }
@@ -557,9 +815,15 @@ class ReceiverEndPoint
 
     private void disconnectEndpoint(final DisconnectReason reason)
     {
-        framer.schedule(() -> publication.saveDisconnect(libraryId, connectionId, reason));
+        framer.schedule(() ->
+            inboundPublications.forLibrary(libraryId).saveDisconnect(libraryId, connectionId, reason));
 
         sessionContexts.onDisconnect(sessionId);
+        if (isAuthenticating)
+        {
+            isAuthenticating = false;
+            gatewaySessions.abortAuthentication(gatewaySession);
+        }
         if (selectionKey != null)
         {
             selectionKey.cancel();
@@ -573,6 +837,23 @@ class ReceiverEndPoint
         return hasDisconnected;
     }
 
+    /**
+     * Whether the logon is waiting in the logon queue or on the result of its authentication, in which case the end
+     * point needs to be polled until it's done even if no more data arrives.
+     *
+     * @return true if the logon is being queued or authenticated.
+     */
+    boolean isAuthenticating()
+    {
+        return isAuthenticating;
+    }
+
+    // Logons in the logon queue only need polling once they've been admitted
+    boolean isLogonQueued()
+    {
+        return gatewaySession.isLogonQueued();
+    }
+
     public void register(final Selector selector) throws IOException
     {
         selectionKey = channel.register(selector, OP_READ, this);
@@ -602,4 +883,117 @@ class ReceiverEndPoint
     {
         isPaused = false;
     }
+
+    TcpChannel channel()
+    {
+        return channel;
+    }
+
+    // Called on the framer thread, the shard picks the end point up after this.
+    void transferToShard(final InboundPublications shardPublications)
+    {
+        if (selectionKey != null)
+        {
+            selectionKey.cancel();
+            selectionKey = null;
+        }
+
+        usePublications(shardPublications);
+        owner.set(OWNED_BY_SHARD);
+    }
+
+    // Called on the framer thread, fails whilst the shard is polling the end point.
+    boolean tryReclaimFromShard()
+    {
+        final int owner = this.owner.get();
+        if (owner == POLLING_ON_SHARD ||
+            (owner == OWNED_BY_SHARD && !this.owner.compareAndSet(OWNED_BY_SHARD, OWNED_BY_FRAMER)))
+        {
+            return false;
+        }
+
+        usePublications(inboundPublications);
+        return true;
+    }
+
+    private void usePublications(final InboundPublications publications)
+    {
+        this.publications = publications;
+        publication = null;
+    }
+
+    private GatewayPublication publication()
+    {
+        final int libraryId = this.libraryId;
+        // A library's own publication is closed when the library times out
+        if (publication == null || publicationLibraryId != libraryId || publication.isClosed())
+        {
+            publication = publications.forLibrary(libraryId);
+            publicationLibraryId = libraryId;
+        }
+
+        return publication;
+    }
+
+    boolean isOwnedByShard()
+    {
+        return owner.get() != OWNED_BY_FRAMER;
+    }
+
+    private boolean isPollingOnShard()
+    {
+        return owner.get() == POLLING_ON_SHARD;
+    }
+
+    // Called on the shard thread
+    int pollOnShard()
+    {
+        if (!owner.compareAndSet(OWNED_BY_SHARD, POLLING_ON_SHARD))
+        {
+            return 0;
+        }
+
+        try
+        {
+            return pollForData();
+        }
+        finally
+        {
+            owner.set(shardDisconnectReason == null ? OWNED_BY_SHARD : OWNED_BY_FRAMER);
+        }
+    }
+
+    // Whether a shard needs to keep polling the end point, false once the framer has reclaimed it.
+    boolean isThrottledOnShard()
+    {
+        if (!owner.compareAndSet(OWNED_BY_SHARD, POLLING_ON_SHARD))
+        {
+            return false;
+        }
+
+        try
+        {
+            return isThrottled();
+        }
+        finally
+        {
+            owner.set(OWNED_BY_SHARD);
+        }
+    }
+
+    boolean hasShardDisconnect()
+    {
+        return shardDisconnectReason != null;
+    }
+
+    // Called on the framer thread for a disconnect that was detected by a shard.
+    void onShardDisconnect()
+    {
+        usePublications(inboundPublications);
+        if (!hasDisconnected)
+        {
+            close(shardDisconnectReason);
+            removeEndpointFromFramer();
+        }
+    }
 }
@@ -29,7 +29,26 @@ import static uk.co.real_logic.artio.messages.DisconnectReason.ENGINE_SHUTDOWN;
 
 class ReceiverEndPoints extends TransportPoller
 {
+    private final FramerShard[] shards;
+
     private ReceiverEndPoint[] endPoints = new ReceiverEndPoint[0];
+    // End points that have been transferred to a shard, the shard reads from them.
+    private ReceiverEndPoint[] shardedEndPoints = new ReceiverEndPoint[0];
+    // End points whose logon is being authenticated, the selector doesn't select them unless more data arrives so
+    // they're polled on every duty cycle until the authentication is done.
+    private ReceiverEndPoint[] authenticatingEndPoints = new ReceiverEndPoint[0];
+    // End points paused by their inbound throttle, which are polled on every duty cycle for the same reason.
+    private ReceiverEndPoint[] throttledEndPoints = new ReceiverEndPoint[0];
+
+    ReceiverEndPoints()
+    {
+        this(new FramerShard[0]);
+    }
+
+    ReceiverEndPoints(final FramerShard[] shards)
+    {
+        this.shards = shards;
+    }
 
     void add(final ReceiverEndPoint endPoint)
     {
@@ -60,11 +79,122 @@ class ReceiverEndPoints extends TransportPoller
             }
         }
 
-        this.endPoints = ArrayUtil.remove(endPoints, index);
+        if (index != UNKNOWN_INDEX)
+        {
+            this.endPoints = ArrayUtil.remove(endPoints, index);
+        }
+        else
+        {
+            removeShardedConnection(connectionId, reason);
+        }
 
         selectNowToForceProcessing();
     }
 
+    private void removeShardedConnection(final long connectionId, final DisconnectReason reason)
+    {
+        final ReceiverEndPoint[] shardedEndPoints = this.shardedEndPoints;
+        for (int i = 0, length = shardedEndPoints.length; i < length; i++)
+        {
+            final ReceiverEndPoint endPoint = shardedEndPoints[i];
+            if (endPoint.connectionId() == connectionId)
+            {
+                awaitReclaim(endPoint);
+                this.shardedEndPoints = ArrayUtil.remove(shardedEndPoints, i);
+                endPoint.close(reason);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands reading from the end point over to one of the framer shards, if there are any.
+     *
+     * @param endPoint the end point of a library owned session.
+     */
+    void transferToShard(final ReceiverEndPoint endPoint)
+    {
+        if (shards.length == 0 || endPoint.hasDisconnected() || endPoint.hasShardDisconnect())
+        {
+            return;
+        }
+
+        final int index = indexOf(endPoints, endPoint);
+        if (index == UNKNOWN_INDEX)
+        {
+            return;
+        }
+
+        endPoints = ArrayUtil.remove(endPoints, index);
+        removeThrottled(endPoint);
+        shardedEndPoints = ArrayUtil.add(shardedEndPoints, endPoint);
+        shardFor(endPoint).transfer(endPoint);
+
+        selectNowToForceProcessing();
+    }
+
+    /**
+     * Moves reading from the end point back onto the framer. Must be called before the framer
+     * changes the state of a session whose end point may have been transferred to a shard.
+     *
+     * @param endPoint the end point to reclaim.
+     */
+    void reclaimFromShard(final ReceiverEndPoint endPoint)
+    {
+        final int index = indexOf(shardedEndPoints, endPoint);
+        if (index == UNKNOWN_INDEX)
+        {
+            return;
+        }
+
+        awaitReclaim(endPoint);
+        shardedEndPoints = ArrayUtil.remove(shardedEndPoints, index);
+        if (!endPoint.hasDisconnected())
+        {
+            add(endPoint);
+        }
+    }
+
+    private void awaitReclaim(final ReceiverEndPoint endPoint)
+    {
+        // Only fails whilst the shard is in the middle of reading from this end point.
+        while (!endPoint.tryReclaimFromShard())
+        {
+            Thread.yield();
+        }
+
+        shardFor(endPoint).onReclaimed(endPoint);
+    }
+
+    int pollShardDisconnects()
+    {
+        int disconnects = 0;
+        for (final FramerShard shard : shards)
+        {
+            disconnects += shard.drainDisconnects();
+        }
+
+        return disconnects;
+    }
+
+    private FramerShard shardFor(final ReceiverEndPoint endPoint)
+    {
+        return shards[(int)((endPoint.connectionId() & Long.MAX_VALUE) % shards.length)];
+    }
+
+    private static int indexOf(final ReceiverEndPoint[] endPoints, final ReceiverEndPoint endPoint)
+    {
+        for (int i = 0, length = endPoints.length; i < length; i++)
+        {
+            if (endPoints[i] == endPoint)
+            {
+                return i;
+            }
+        }
+
+        return UNKNOWN_INDEX;
+    }
+
     private void selectNowToForceProcessing()
     {
         try
@@ -98,11 +228,23 @@ class ReceiverEndPoints extends TransportPoller
                 final SelectionKey[] keys = selectedKeySet.keys();
                 for (int i = selectedKeySet.size() - 1; i >= 0; i--)
                 {
-                    bytesReceived += ((ReceiverEndPoint)keys[i].attachment()).pollForData();
+                    final ReceiverEndPoint endPoint = (ReceiverEndPoint)keys[i].attachment();
+                    bytesReceived += endPoint.pollForData();
+                    if (endPoint.isAuthenticating() && indexOf(authenticatingEndPoints, endPoint) == UNKNOWN_INDEX)
+                    {
+                        authenticatingEndPoints = ArrayUtil.add(authenticatingEndPoints, endPoint);
+                    }
+                    if (endPoint.isThrottled() && indexOf(throttledEndPoints, endPoint) == UNKNOWN_INDEX)
+                    {
+                        throttledEndPoints = ArrayUtil.add(throttledEndPoints, endPoint);
+                    }
                 }
 
                 selectedKeySet.reset();
             }
+
+            bytesReceived += pollAuthenticatingEndPoints();
+            bytesReceived += pollThrottledEndPoints();
         }
         catch (final IOException ex)
         {
@@ -112,8 +254,63 @@ class ReceiverEndPoints extends TransportPoller
         return bytesReceived;
     }
 
+    private int pollAuthenticatingEndPoints()
+    {
+        int bytesReceived = 0;
+        final ReceiverEndPoint[] authenticatingEndPoints = this.authenticatingEndPoints;
+        for (int i = authenticatingEndPoints.length - 1; i >= 0; i--)
+        {
+            final ReceiverEndPoint endPoint = authenticatingEndPoints[i];
+            if (endPoint.isAuthenticating() && !endPoint.isLogonQueued())
+            {
+                bytesReceived += endPoint.pollForData();
+            }
+
+            // End points that have disconnected are no longer authenticating, so they're dropped here as well
+            if (!endPoint.isAuthenticating())
+            {
+                this.authenticatingEndPoints = ArrayUtil.remove(this.authenticatingEndPoints, i);
+            }
+        }
+
+        return bytesReceived;
+    }
+
+    private int pollThrottledEndPoints()
+    {
+        int bytesReceived = 0;
+        final ReceiverEndPoint[] throttledEndPoints = this.throttledEndPoints;
+        for (int i = throttledEndPoints.length - 1; i >= 0; i--)
+        {
+            final ReceiverEndPoint endPoint = throttledEndPoints[i];
+            if (!endPoint.isThrottled())
+            {
+                bytesReceived += endPoint.pollForData();
+            }
+
+            // End points that have disconnected won't be read again, so they're dropped here as well
+            if (!endPoint.isThrottled() || endPoint.hasDisconnected())
+            {
+                this.throttledEndPoints = ArrayUtil.remove(this.throttledEndPoints, i);
+            }
+        }
+
+        return bytesReceived;
+    }
+
+    private void removeThrottled(final ReceiverEndPoint endPoint)
+    {
+        final int index = indexOf(throttledEndPoints, endPoint);
+        if (index != UNKNOWN_INDEX)
+        {
+            throttledEndPoints = ArrayUtil.remove(throttledEndPoints, index);
+        }
+    }
+
     public void close()
     {
+        Stream.of(shardedEndPoints).forEach(this::awaitReclaim);
+        Stream.of(shardedEndPoints).forEach(receiverEndPoint -> receiverEndPoint.close(ENGINE_SHUTDOWN));
         Stream.of(endPoints).forEach(receiverEndPoint -> receiverEndPoint.close(ENGINE_SHUTDOWN));
         super.close();
     }
@@ -19,6 +19,7 @@ import uk.co.real_logic.artio.Pressure;
 import uk.co.real_logic.artio.Reply;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 import uk.co.real_logic.artio.session.Session;
 
 import java.util.function.LongToIntFunction;
@@ -39,7 +40,7 @@ class ResetSequenceNumberCommand implements Reply<Void>, AdminCommand
     private final SessionContexts sessionContexts;
     private final SequenceNumberIndexReader receivedSequenceNumberIndex;
     private final SequenceNumberIndexReader sentSequenceNumberIndex;
-    private final GatewayPublication inboundPublication;
+    private final InboundPublications inboundPublications;
     private final GatewayPublication outboundPublication;
     private Session session;
     private LongToIntFunction libraryLookup;
@@ -85,7 +86,7 @@ class ResetSequenceNumberCommand implements Reply<Void>, AdminCommand
         final SessionContexts sessionContexts,
         final SequenceNumberIndexReader receivedSequenceNumberIndex,
         final SequenceNumberIndexReader sentSequenceNumberIndex,
-        final GatewayPublication inboundPublication,
+        final InboundPublications inboundPublications,
         final GatewayPublication outboundPublication)
     {
         this.sessionId = sessionId;
@@ -93,7 +94,7 @@ class ResetSequenceNumberCommand implements Reply<Void>, AdminCommand
         this.sessionContexts = sessionContexts;
         this.receivedSequenceNumberIndex = receivedSequenceNumberIndex;
         this.sentSequenceNumberIndex = sentSequenceNumberIndex;
-        this.inboundPublication = inboundPublication;
+        this.inboundPublications = inboundPublications;
         this.outboundPublication = outboundPublication;
     }
 
@@ -175,6 +176,7 @@ class ResetSequenceNumberCommand implements Reply<Void>, AdminCommand
                 if (isAuthenticated())
                 {
                     final int libraryId = libraryLookup.applyAsInt(sessionId);
+                    final GatewayPublication inboundPublication = inboundPublications.forLibrary(libraryId);
                     if (!Pressure.isBackPressured(
                         inboundPublication.saveResetLibrarySequenceNumber(libraryId, sessionId)))
                     {
@@ -191,7 +193,7 @@ class ResetSequenceNumberCommand implements Reply<Void>, AdminCommand
             }
 
             case RESET_RECV:
-                return reset(inboundPublication, Step.RESET_SENT);
+                return reset(inboundPublications.defaultPublication(), Step.RESET_SENT);
 
             case RESET_SENT:
                 return reset(outboundPublication, Step.AWAIT_RECV);
@@ -21,9 +21,11 @@ import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.DebugLogger;
+import uk.co.real_logic.artio.decoder.*;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
 import uk.co.real_logic.artio.engine.logger.ArchiveDescriptor;
+import uk.co.real_logic.artio.engine.logger.Replayer;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 
 import java.io.IOException;
@@ -34,10 +36,13 @@ import static uk.co.real_logic.artio.LogTag.FIX_MESSAGE;
 import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
 import static uk.co.real_logic.artio.messages.DisconnectReason.EXCEPTION;
 import static uk.co.real_logic.artio.messages.DisconnectReason.SLOW_CONSUMER;
+import static uk.co.real_logic.artio.messages.DisconnectReason.THROTTLE_QUEUE_FULL;
 import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
 class SenderEndPoint
 {
+    static final int MAX_GATHERED_MESSAGES = 64;
+
     private final long connectionId;
     private final TcpChannel channel;
     private final AtomicCounter bytesInBuffer;
@@ -48,7 +53,20 @@ class SenderEndPoint
     private final long slowConsumerTimeoutInMs;
     private final StreamTracker outboundTracker;
     private final StreamTracker replayTracker;
+    // One per replay stream, indexed by the replayer shard that publishes on it
+    private final BlockablePosition[] replayBlockablePositions;
     private final SenderSequenceNumber senderSequenceNumber;
+    // Only set when slow consumers spill their unsent messages rather than being re-peeked from the log
+    private final SpillQueue spillQueue;
+    // Only set when outbound messages are throttled, which always spills slow consumers
+    private final OutboundThrottle throttle;
+
+    // Outbound messages waiting to be written with a single gathering write, see gatherOutboundMessage()
+    private final ByteBuffer[] gatheredBuffers = new ByteBuffer[MAX_GATHERED_MESSAGES];
+    private final ByteBuffer[] gatheredSourceBuffers = new ByteBuffer[MAX_GATHERED_MESSAGES];
+    private final int[] gatheredBodyLengths = new int[MAX_GATHERED_MESSAGES];
+    private final long[] gatheredPositions = new long[MAX_GATHERED_MESSAGES];
+    private int gatheredMessages;
 
     private int libraryId;
     private long sessionId;
@@ -58,7 +76,7 @@ class SenderEndPoint
         final long connectionId,
         final int libraryId,
         final BlockablePosition outboundBlockablePosition,
-        final BlockablePosition replayBlockablePosition,
+        final BlockablePosition[] replayBlockablePositions,
         final TcpChannel channel,
         final AtomicCounter bytesInBuffer,
         final AtomicCounter invalidLibraryAttempts,
@@ -67,7 +85,9 @@ class SenderEndPoint
         final int maxBytesInBuffer,
         final long slowConsumerTimeoutInMs,
         final long timeInMs,
-        final SenderSequenceNumber senderSequenceNumber)
+        final SenderSequenceNumber senderSequenceNumber,
+        final boolean spillSlowConsumers,
+        final OutboundThrottle throttle)
     {
         this.connectionId = connectionId;
         this.libraryId = libraryId;
@@ -79,9 +99,13 @@ class SenderEndPoint
         this.maxBytesInBuffer = maxBytesInBuffer;
         this.slowConsumerTimeoutInMs = slowConsumerTimeoutInMs;
         this.senderSequenceNumber = senderSequenceNumber;
+        this.throttle = throttle;
+        this.replayBlockablePositions = replayBlockablePositions;
+        // Held messages have been copied out of the log, so the log can't be re-read for a slow consumer's messages
+        spillQueue = spillSlowConsumers || throttle != null ? new SpillQueue(maxBytesInBuffer) : null;
 
         outboundTracker = new StreamTracker(outboundBlockablePosition);
-        replayTracker = new StreamTracker(replayBlockablePosition);
+        replayTracker = new StreamTracker(replayBlockablePositions[0]);
         sendingTimeoutTimeInMs = timeInMs + slowConsumerTimeoutInMs;
     }
 
@@ -91,19 +115,139 @@ class SenderEndPoint
         final int offset,
         final int bodyLength,
         final int sequenceNumber,
+        final int messageType,
         final long position,
         final long timeInMs)
     {
+        flushGatheredMessages(timeInMs);
+
         if (isWrongLibraryId(libraryId))
         {
             invalidLibraryAttempts.increment();
             return;
         }
 
-        attemptFramedMessage(directBuffer, offset, bodyLength, timeInMs, position, outboundTracker);
+        if (!throttleMessage(directBuffer, offset, bodyLength, sequenceNumber, messageType, position, timeInMs))
+        {
+            attemptFramedMessage(directBuffer, offset, bodyLength, timeInMs, position, outboundTracker);
+
+            // TODO: think about how to deal with slow messages
+            senderSequenceNumber.onNewMessage(sequenceNumber);
+        }
+    }
+
+    /**
+     * Queues up an outbound message to be written by {@link #flushGatheredMessages(long)} in a single gathering
+     * write along with any other messages for this connection. The message isn't copied, so the buffer must remain
+     * unchanged until the flush.
+     *
+     * @return true if this is the first message gathered since the last flush, and the end point needs flushing.
+     */
+    boolean gatherOutboundMessage(
+        final int libraryId,
+        final DirectBuffer directBuffer,
+        final int offset,
+        final int bodyLength,
+        final int sequenceNumber,
+        final int messageType,
+        final long position,
+        final long timeInMs)
+    {
+        if (isWrongLibraryId(libraryId))
+        {
+            invalidLibraryAttempts.increment();
+            return false;
+        }
+
+        final boolean firstGathered = gatheredMessages == 0;
+        if (gatheredMessages == MAX_GATHERED_MESSAGES)
+        {
+            flushGatheredMessages(timeInMs);
+        }
+
+        if (throttleMessage(directBuffer, offset, bodyLength, sequenceNumber, messageType, position, timeInMs))
+        {
+            return false;
+        }
+
+        if (isSlowConsumer())
+        {
+            bufferSlowMessage(messageBuffer(directBuffer, offset, bodyLength), bodyLength, position, outboundTracker);
+        }
+        else
+        {
+            final int index = gatheredMessages;
+            final ByteBuffer sourceBuffer = directBuffer.byteBuffer();
+            ByteBuffer buffer = gatheredBuffers[index];
+            if (gatheredSourceBuffers[index] != sourceBuffer)
+            {
+                buffer = sourceBuffer.duplicate();
+                gatheredBuffers[index] = buffer;
+                gatheredSourceBuffers[index] = sourceBuffer;
+            }
+            ByteBufferUtil.limit(buffer, offset + bodyLength);
+            ByteBufferUtil.position(buffer, offset);
+            gatheredBodyLengths[index] = bodyLength;
+            gatheredPositions[index] = position;
+            gatheredMessages = index + 1;
+        }
 
-        // TODO: think about how to deal with slow messages
         senderSequenceNumber.onNewMessage(sequenceNumber);
+
+        return firstGathered && gatheredMessages > 0;
+    }
+
+    /**
+     * Writes the messages queued by {@link #gatherOutboundMessage} to the channel. If the channel doesn't accept
+     * all of them this becomes a slow consumer from the first message that wasn't completely written, exactly as
+     * though the messages had been written one at a time.
+     */
+    void flushGatheredMessages(final long timeInMs)
+    {
+        final int gatheredMessages = this.gatheredMessages;
+        if (gatheredMessages == 0)
+        {
+            return;
+        }
+        this.gatheredMessages = 0;
+
+        try
+        {
+            long written = channel.write(gatheredBuffers, 0, gatheredMessages);
+            updateSendingTimeoutTimeInMs(timeInMs, written);
+
+            for (int i = 0; i < gatheredMessages; i++)
+            {
+                final int bodyLength = gatheredBodyLengths[i];
+                final long position = gatheredPositions[i];
+                final ByteBuffer buffer = gatheredBuffers[i];
+                if (isSlowConsumer())
+                {
+                    if (bufferSlowMessage(buffer, bodyLength, position, outboundTracker))
+                    {
+                        return;
+                    }
+                }
+                else if (written >= bodyLength)
+                {
+                    DebugLogger.log(FIX_MESSAGE, "Written  %s%n", buffer, bodyLength);
+                    written -= bodyLength;
+                    outboundTracker.sentPosition = position;
+                }
+                else
+                {
+                    if (becomeSlowConsumer(buffer, (int)written, bodyLength, position, outboundTracker))
+                    {
+                        return;
+                    }
+                    written = 0;
+                }
+            }
+        }
+        catch (final IOException ex)
+        {
+            onError(ex);
+        }
     }
 
     Action onReplayMessage(
@@ -113,6 +257,7 @@ class SenderEndPoint
         final long timeInMs,
         final long position)
     {
+        flushGatheredMessages(timeInMs);
         attemptFramedMessage(directBuffer, offset, bodyLength, timeInMs, position, replayTracker);
 
         return CONTINUE;
@@ -128,7 +273,15 @@ class SenderEndPoint
         final int offsetAfterHeader = offset - FRAME_SIZE;
         final int length = bodyLength + FRAME_SIZE;
 
-        return attemptSlowMessage(buffer, offsetAfterHeader, length, position, bodyLength, timeInMs, replayTracker);
+        return attemptSlowMessage(
+            buffer,
+            offsetAfterHeader,
+            length,
+            position,
+            fragmentStartPosition(position, length),
+            bodyLength,
+            timeInMs,
+            replayTracker);
     }
 
     private void attemptFramedMessage(
@@ -141,13 +294,7 @@ class SenderEndPoint
     {
         if (isSlowConsumer())
         {
-            final long bytesInBuffer = bytesInBufferWeak() + bodyLength;
-            if (bytesInBuffer > maxBytesInBuffer)
-            {
-                removeEndpoint(SLOW_CONSUMER);
-            }
-
-            this.bytesInBuffer.setOrdered(bytesInBuffer);
+            bufferSlowMessage(messageBuffer(directBuffer, offset, bodyLength), bodyLength, position, tracker);
 
             return;
         }
@@ -158,7 +305,7 @@ class SenderEndPoint
 
             if (written != bodyLength)
             {
-                becomeSlowConsumer(written, bodyLength, position, tracker);
+                becomeSlowConsumer(directBuffer.byteBuffer(), written, bodyLength, position, tracker);
             }
             else
             {
@@ -171,17 +318,244 @@ class SenderEndPoint
         }
     }
 
-    private int writeFramedMessage(
+    /**
+     * Account for a message that can't be written because the end point is already a slow consumer.
+     *
+     * @param message the message, from its position to its limit, only needed when spilling.
+     * @return true if the end point has been disconnected for having too many bytes buffered.
+     */
+    private boolean bufferSlowMessage(
+        final ByteBuffer message, final int bodyLength, final long position, final StreamTracker tracker)
+    {
+        if (spillQueue != null)
+        {
+            return spill(message, position, tracker);
+        }
+
+        final long bytesInBuffer = bytesInBufferWeak() + bodyLength;
+        final boolean removed = bytesInBuffer > maxBytesInBuffer;
+        if (removed)
+        {
+            removeEndpoint(SLOW_CONSUMER);
+        }
+
+        this.bytesInBuffer.setOrdered(bytesInBuffer);
+
+        return removed;
+    }
+
+    private boolean spill(final ByteBuffer message, final long position, final StreamTracker tracker)
+    {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (exceedsBufferedBytes(message.remaining()) || !spillQueue.offer(message))
+        {
+            removeEndpoint(SLOW_CONSUMER);
+            return true;
+        }
+
+        // The message is now our responsibility, so the stream doesn't need to be held back or re-read for it.
+        tracker.sentPosition = position;
+        bytesInBuffer.setOrdered(spillQueue.size());
+
+        return false;
+    }
+
+    /**
+     * Write as much of the spill queue as the TCP connection will take, going back to being a normal consumer once
+     * it has all been written.
+     *
+     * @param timeInMs the current time.
+     * @return the number of bytes written.
+     */
+    int drainSpillQueue(final long timeInMs)
+    {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null || spillQueue.isEmpty())
+        {
+            return 0;
+        }
+
+        try
+        {
+            final int written = spillQueue.drainTo(channel);
+            updateSendingTimeoutTimeInMs(timeInMs, written);
+            bytesInBuffer.setOrdered(spillQueue.size());
+            if (spillQueue.isEmpty())
+            {
+                becomeNormalConsumer();
+            }
+
+            return written;
+        }
+        catch (final IOException ex)
+        {
+            onError(ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Hold an outbound message back if the session has reached its throttle limit, or if earlier messages are
+     * already being held back, since messages have to be sent in order. Session level messages never count towards
+     * the limit.
+     *
+     * @return true if the message has been held, or the end point disconnected, rather than needing to be sent.
+     */
+    private boolean throttleMessage(
         final DirectBuffer directBuffer,
         final int offset,
-        final int length,
+        final int bodyLength,
+        final int sequenceNumber,
+        final int messageType,
+        final long position,
         final long timeInMs)
-        throws IOException
+    {
+        final OutboundThrottle throttle = this.throttle;
+        if (throttle == null)
+        {
+            return false;
+        }
+
+        final boolean wasThrottled = throttle.hasHeldMessages();
+        final boolean isSessionMessage = isSessionMessage(messageType);
+        if (!wasThrottled && (isSessionMessage || throttle.tryAcquire(timeInMs)))
+        {
+            return false;
+        }
+
+        if (exceedsBufferedBytes(OutboundThrottle.HEADER_SIZE + bodyLength) ||
+            !throttle.hold(messageBuffer(directBuffer, offset, bodyLength), sequenceNumber, isSessionMessage))
+        {
+            removeEndpoint(THROTTLE_QUEUE_FULL);
+            return true;
+        }
+
+        outboundTracker.sentPosition = position;
+        if (!wasThrottled)
+        {
+            sendThrottleStatus(true);
+        }
+
+        return true;
+    }
+
+    /**
+     * Send the held messages that the throttle now allows, once any slow consumer messages have been written.
+     *
+     * @param timeInMs the current time.
+     * @return the number of messages released.
+     */
+    int releaseThrottledMessages(final long timeInMs)
+    {
+        final OutboundThrottle throttle = this.throttle;
+        if (throttle == null || !throttle.hasHeldMessages())
+        {
+            return 0;
+        }
+
+        int released = 0;
+        try
+        {
+            while (!isSlowConsumer() && throttle.hasHeldMessages() && throttle.tryAcquireOldest(timeInMs))
+            {
+                final ByteBuffer message = throttle.oldest();
+                final int bodyLength = message.remaining();
+                final int written = channel.write(message);
+                DebugLogger.log(FIX_MESSAGE, "Written  %s%n", message, written);
+                updateSendingTimeoutTimeInMs(timeInMs, written);
+                senderSequenceNumber.onNewMessage(throttle.oldestSequenceNumber());
+
+                final boolean disconnected = written != bodyLength && spillUnwritten(message);
+                throttle.removeOldest();
+                released++;
+                if (disconnected)
+                {
+                    return released;
+                }
+            }
+        }
+        catch (final IOException ex)
+        {
+            onError(ex);
+            return released;
+        }
+
+        if (released > 0 && !throttle.hasHeldMessages())
+        {
+            sendThrottleStatus(false);
+        }
+
+        return released;
+    }
+
+    /**
+     * The spill queue and the throttle's held messages share a single budget of bytes. A released message is
+     * counted by the throttle until its unwritten bytes have been spilled, so spilling them never exceeds it.
+     *
+     * @param length the number of bytes about to be buffered.
+     * @return true if buffering them would take the end point beyond its maximum bytes in buffer.
+     */
+    private boolean exceedsBufferedBytes(final int length)
+    {
+        final OutboundThrottle throttle = this.throttle;
+        return spillQueue.size() + (throttle == null ? 0 : throttle.size()) + length > maxBytesInBuffer;
+    }
+
+    static boolean isSessionMessage(final int messageType)
+    {
+        switch (messageType)
+        {
+            case HeartbeatDecoder.MESSAGE_TYPE:
+            case TestRequestDecoder.MESSAGE_TYPE:
+            case ResendRequestDecoder.MESSAGE_TYPE:
+            case RejectDecoder.MESSAGE_TYPE:
+            case SequenceResetDecoder.MESSAGE_TYPE:
+            case LogoutDecoder.MESSAGE_TYPE:
+            case LogonDecoder.MESSAGE_TYPE:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param unwritten the rest of a released message that the TCP connection wouldn't take.
+     * @return true if the end point has been disconnected for having too many bytes buffered.
+     */
+    private boolean spillUnwritten(final ByteBuffer unwritten)
+    {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (!spillQueue.offer(unwritten))
+        {
+            removeEndpoint(SLOW_CONSUMER);
+            return true;
+        }
+
+        bytesInBuffer.setOrdered(spillQueue.size());
+        sendSlowStatus(true);
+
+        return false;
+    }
+
+    private ByteBuffer messageBuffer(final DirectBuffer directBuffer, final int offset, final int length)
     {
         final ByteBuffer buffer = directBuffer.byteBuffer();
         ByteBufferUtil.limit(buffer, offset + length);
         ByteBufferUtil.position(buffer, offset);
 
+        return buffer;
+    }
+
+    private int writeFramedMessage(
+        final DirectBuffer directBuffer,
+        final int offset,
+        final int length,
+        final long timeInMs)
+        throws IOException
+    {
+        final ByteBuffer buffer = messageBuffer(directBuffer, offset, length);
+
         final int written = channel.write(buffer);
         DebugLogger.log(FIX_MESSAGE, "Written  %s%n", buffer, written);
         updateSendingTimeoutTimeInMs(timeInMs, written);
@@ -189,7 +563,7 @@ class SenderEndPoint
         return written;
     }
 
-    private void updateSendingTimeoutTimeInMs(final long timeInMs, final int written)
+    private void updateSendingTimeoutTimeInMs(final long timeInMs, final long written)
     {
         if (written > 0)
         {
@@ -204,14 +578,35 @@ class SenderEndPoint
         removeEndpoint(EXCEPTION);
     }
 
-    private void becomeSlowConsumer(
-        final int written, final int bodyLength, final long position, final StreamTracker tracker)
+    /**
+     * @param unwritten the message, positioned after the bytes that have been written.
+     * @return true if the end point has been disconnected for having too many bytes buffered.
+     */
+    private boolean becomeSlowConsumer(
+        final ByteBuffer unwritten,
+        final int written,
+        final int bodyLength,
+        final long position,
+        final StreamTracker tracker)
     {
+        if (spillQueue != null)
+        {
+            if (spill(unwritten, position, tracker))
+            {
+                return true;
+            }
+
+            sendSlowStatus(true);
+            return false;
+        }
+
         final int remainingBytes = bodyLength - written;
         bytesInBuffer.setOrdered(remainingBytes);
         sendSlowStatus(true);
         tracker.sentPosition = position - remainingBytes;
         tracker.partiallySentMessage = true;
+
+        return false;
     }
 
     private void becomeNormalConsumer()
@@ -224,6 +619,11 @@ class SenderEndPoint
         framer.slowStatus(libraryId, connectionId, hasBecomeSlow);
     }
 
+    private void sendThrottleStatus(final boolean isThrottled)
+    {
+        framer.throttleStatus(libraryId, connectionId, isThrottled);
+    }
+
     private void removeEndpoint(final DisconnectReason reason)
     {
         framer.onDisconnect(libraryId, connectionId, reason);
@@ -251,11 +651,17 @@ class SenderEndPoint
         invalidLibraryAttempts.close();
     }
 
+    /**
+     * @param fragmentStartPosition the position of the start of the fragment that the message is in, which is
+     *                              where the stream needs to be re-read from if the message can't be written.
+     *                              This is earlier than the start of the message for messages within a batch.
+     */
     Action onSlowOutboundMessage(
         final DirectBuffer directBuffer,
         final int offsetAfterHeader,
         final int length,
         final long position,
+        final long fragmentStartPosition,
         final int bodyLength,
         final int libraryId,
         final long timeInMs)
@@ -267,7 +673,20 @@ class SenderEndPoint
         }
 
         return attemptSlowMessage(
-            directBuffer, offsetAfterHeader, length, position, bodyLength, timeInMs, outboundTracker);
+            directBuffer,
+            offsetAfterHeader,
+            length,
+            position,
+            fragmentStartPosition,
+            bodyLength,
+            timeInMs,
+            outboundTracker);
+    }
+
+    static long fragmentStartPosition(final long position, final int length)
+    {
+        final int alignedLength = ArchiveDescriptor.alignTerm(length);
+        return position - (alignedLength + DataHeaderFlyweight.HEADER_LENGTH);
     }
 
     private Action attemptSlowMessage(
@@ -275,11 +694,13 @@ class SenderEndPoint
         final int offsetAfterHeader,
         final int length,
         final long position,
+        final long fragmentStartPosition,
         final int bodyLength,
         final long timeInMs,
         final StreamTracker tracker)
     {
-        if (!isSlowConsumer())
+        // Spilled messages have already been copied out of the stream
+        if (spillQueue != null || !isSlowConsumer())
         {
             return CONTINUE;
         }
@@ -302,7 +723,7 @@ class SenderEndPoint
 
         if (partiallySentOtherStream(tracker))
         {
-            return blockPosition(position, length, tracker);
+            return blockPosition(position, fragmentStartPosition, tracker);
         }
 
         try
@@ -337,7 +758,7 @@ class SenderEndPoint
             if (bodyLength > (written + bytesPreviouslySent))
             {
                 tracker.moveSentPosition(written);
-                return blockPosition(position, length, tracker);
+                return blockPosition(position, fragmentStartPosition, tracker);
             }
             else
             {
@@ -359,11 +780,10 @@ class SenderEndPoint
         return CONTINUE;
     }
 
-    private Action blockPosition(final long position, final int length, final StreamTracker tracker)
+    private Action blockPosition(
+        final long position, final long fragmentStartPosition, final StreamTracker tracker)
     {
-        final int alignedLength = ArchiveDescriptor.alignTerm(length);
-        final long startPosition = position - (alignedLength + DataHeaderFlyweight.HEADER_LENGTH);
-        tracker.blockablePosition.blockPosition(startPosition);
+        tracker.blockablePosition.blockPosition(fragmentStartPosition);
         tracker.skipPosition = position;
         return Action.CONTINUE;
     }
@@ -402,6 +822,9 @@ class SenderEndPoint
     void sessionId(final long sessionId)
     {
         this.sessionId = sessionId;
+        // All of a session's replays come from its replayer shard, so they're only ever read from that shard's stream.
+        replayTracker.blockablePosition =
+            replayBlockablePositions[Replayer.shardIndex(sessionId, replayBlockablePositions.length)];
     }
 
     long sessionId()
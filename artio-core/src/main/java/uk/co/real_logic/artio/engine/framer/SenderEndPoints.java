@@ -21,12 +21,17 @@ import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.collections.Long2ObjectHashMap;
 import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.messages.FixMessageBatchDecoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
+import java.util.ArrayList;
 import java.util.function.LongToIntFunction;
 
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
 class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
 {
@@ -35,6 +40,7 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
     private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
     private final FixMessageDecoder fixMessage = new FixMessageDecoder();
     private final Long2ObjectHashMap<SenderEndPoint> connectionIdToSenderEndpoint = new Long2ObjectHashMap<>();
+    private final ArrayList<SenderEndPoint> endPointsWithGatheredMessages = new ArrayList<>();
     private final ErrorHandler errorHandler;
     private final LongToIntFunction libraryLookup = this::libraryLookup;
 
@@ -52,6 +58,7 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
     }
 
     private long timeInMs;
+    private boolean canGatherMessage;
 
     SenderEndPoints(final ErrorHandler errorHandler)
     {
@@ -68,6 +75,7 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
         final SenderEndPoint senderEndPoint = connectionIdToSenderEndpoint.remove(connectionId);
         if (senderEndPoint != null)
         {
+            senderEndPoint.flushGatheredMessages(timeInMs);
             senderEndPoint.close();
         }
     }
@@ -79,13 +87,86 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
         final int offset,
         final int length,
         final int sequenceNumber,
+        final int messageType,
         final long position)
     {
         final SenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (endPoint != null)
         {
-            endPoint.onOutboundMessage(libraryId, buffer, offset, length, sequenceNumber, position, timeInMs);
+            if (canGatherMessage)
+            {
+                if (endPoint.gatherOutboundMessage(
+                    libraryId, buffer, offset, length, sequenceNumber, messageType, position, timeInMs))
+                {
+                    endPointsWithGatheredMessages.add(endPoint);
+                }
+            }
+            else
+            {
+                endPoint.onOutboundMessage(
+                    libraryId, buffer, offset, length, sequenceNumber, messageType, position, timeInMs);
+            }
+        }
+    }
+
+    /**
+     * Wraps the handler for the outbound stream so that messages polled from it are gathered up and written to each
+     * connection in one go by {@link #flushGatheredMessages()} at the end of the poll. Messages are only gathered when
+     * they're read straight out of the term buffer: a message that has been reassembled from fragments lives in the
+     * assembler's buffer, which is overwritten by the next fragmented message, so it's written immediately.
+     *
+     * @param handler the handler to wrap.
+     * @return the wrapped handler.
+     */
+    ControlledFragmentHandler gatheringHandler(final ControlledFragmentHandler handler)
+    {
+        return (buffer, offset, length, header) ->
+        {
+            canGatherMessage = (header.flags() & UNFRAGMENTED) == UNFRAGMENTED;
+            try
+            {
+                return handler.onFragment(buffer, offset, length, header);
+            }
+            finally
+            {
+                canGatherMessage = false;
+            }
+        };
+    }
+
+    int flushGatheredMessages()
+    {
+        final ArrayList<SenderEndPoint> endPoints = this.endPointsWithGatheredMessages;
+        final int size = endPoints.size();
+        for (int i = 0; i < size; i++)
+        {
+            endPoints.get(i).flushGatheredMessages(timeInMs);
+        }
+        endPoints.clear();
+
+        return size;
+    }
+
+    int drainSpillQueues()
+    {
+        int bytesWritten = 0;
+        for (final SenderEndPoint senderEndPoint : connectionIdToSenderEndpoint.values())
+        {
+            bytesWritten += senderEndPoint.drainSpillQueue(timeInMs);
+        }
+
+        return bytesWritten > 0 ? 1 : 0;
+    }
+
+    int releaseThrottledMessages()
+    {
+        int messagesReleased = 0;
+        for (final SenderEndPoint senderEndPoint : connectionIdToSenderEndpoint.values())
+        {
+            messagesReleased += senderEndPoint.releaseThrottledMessages(timeInMs);
         }
+
+        return messagesReleased;
     }
 
     Action onReplayMessage(
@@ -143,7 +224,8 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
     {
         messageHeader.wrap(buffer, offset);
 
-        if (messageHeader.templateId() == FixMessageDecoder.TEMPLATE_ID)
+        final int templateId = messageHeader.templateId();
+        if (templateId == FixMessageDecoder.TEMPLATE_ID)
         {
             offset += HEADER_LENGTH;
             fixMessage.wrap(buffer, offset, messageHeader.blockLength(), messageHeader.version());
@@ -154,10 +236,63 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
             {
                 final int bodyLength = fixMessage.bodyLength();
                 final int libraryId = fixMessage.libraryId();
+                final int messageLength = length - HEADER_LENGTH;
                 return senderEndPoint.onSlowOutboundMessage(
-                    buffer, offset, length - HEADER_LENGTH, position, bodyLength, libraryId, timeInMs);
+                    buffer,
+                    offset,
+                    messageLength,
+                    position,
+                    SenderEndPoint.fragmentStartPosition(position, messageLength),
+                    bodyLength,
+                    libraryId,
+                    timeInMs);
             }
         }
+        else if (templateId == FixMessageBatchDecoder.TEMPLATE_ID)
+        {
+            return onSlowConsumerMessageBatch(buffer, offset, length, position);
+        }
+
+        return CONTINUE;
+    }
+
+    // Positions of messages within a batch are worked out the same way as in ProtocolSubscription, but the whole
+    // batch has to be read again if any of them can't be written. Messages that were written before an abort are
+    // skipped when the batch is read again, since they're behind their end point's sent position.
+    private Action onSlowConsumerMessageBatch(
+        final DirectBuffer buffer, final int offset, final int length, final long position)
+    {
+        final long fragmentStartPosition = SenderEndPoint.fragmentStartPosition(position, length - HEADER_LENGTH);
+        final int endOffset = offset + length;
+        int messageOffset = offset + HEADER_LENGTH + messageHeader.blockLength();
+        while (messageOffset < endOffset)
+        {
+            messageHeader.wrap(buffer, messageOffset);
+            final int frameOffset = messageOffset + HEADER_LENGTH;
+            fixMessage.wrap(buffer, frameOffset, messageHeader.blockLength(), messageHeader.version());
+            final int bodyLength = fixMessage.bodyLength();
+            final int nextMessageOffset = frameOffset + FRAME_SIZE + bodyLength;
+
+            final SenderEndPoint senderEndPoint = connectionIdToSenderEndpoint.get(fixMessage.connection());
+            if (senderEndPoint != null)
+            {
+                final Action action = senderEndPoint.onSlowOutboundMessage(
+                    buffer,
+                    frameOffset,
+                    nextMessageOffset - frameOffset,
+                    position - (endOffset - nextMessageOffset),
+                    fragmentStartPosition,
+                    bodyLength,
+                    fixMessage.libraryId(),
+                    timeInMs);
+                if (action == ABORT)
+                {
+                    return ABORT;
+                }
+            }
+
+            messageOffset = nextMessageOffset;
+        }
 
         return CONTINUE;
     }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import uk.co.real_logic.artio.engine.ByteBufferUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded off-heap queue of the bytes that a slow consumer hasn't been able to write to its TCP connection yet.
+ *
+ * The buffer is only allocated when a connection first becomes slow and grows up to the maximum size as needed.
+ * Queued data lives between the read offset and the buffer's position, it's moved back to the start of the buffer
+ * when there isn't space left at the end.
+ */
+class SpillQueue
+{
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+
+    private final int maxBytes;
+
+    private ByteBuffer buffer;
+    private int readOffset;
+
+    SpillQueue(final int maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Copy the remaining bytes of a message onto the end of the queue.
+     *
+     * @param message the message, from its position to its limit.
+     * @return true if the message was queued, false if it would take the queue beyond its maximum size.
+     */
+    boolean offer(final ByteBuffer message)
+    {
+        final int length = message.remaining();
+        if (size() + length > maxBytes)
+        {
+            return false;
+        }
+
+        ensureCapacity(length);
+        buffer.put(message);
+
+        return true;
+    }
+
+    /**
+     * Write as much of the queue to the channel as it will accept.
+     *
+     * @param channel the channel to write to.
+     * @return the number of bytes written.
+     * @throws IOException if the channel fails.
+     */
+    int drainTo(final TcpChannel channel) throws IOException
+    {
+        if (isEmpty())
+        {
+            return 0;
+        }
+
+        final ByteBuffer buffer = this.buffer;
+        final int writeOffset = buffer.position();
+        ByteBufferUtil.limit(buffer, writeOffset);
+        ByteBufferUtil.position(buffer, readOffset);
+
+        final int written = channel.write(buffer);
+        readOffset += written;
+        if (readOffset == writeOffset)
+        {
+            readOffset = 0;
+            buffer.clear();
+        }
+        else
+        {
+            ByteBufferUtil.limit(buffer, buffer.capacity());
+            ByteBufferUtil.position(buffer, writeOffset);
+        }
+
+        return written;
+    }
+
+    int size()
+    {
+        return buffer == null ? 0 : buffer.position() - readOffset;
+    }
+
+    boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    private void ensureCapacity(final int length)
+    {
+        final ByteBuffer buffer = this.buffer;
+        if (buffer == null)
+        {
+            this.buffer = ByteBuffer.allocateDirect(newCapacity(INITIAL_CAPACITY, length));
+            return;
+        }
+
+        if (buffer.remaining() >= length)
+        {
+            return;
+        }
+
+        final int size = size();
+        final int readOffset = this.readOffset;
+        ByteBufferUtil.limit(buffer, readOffset + size);
+        ByteBufferUtil.position(buffer, readOffset);
+        if (buffer.capacity() >= size + length)
+        {
+            buffer.compact();
+        }
+        else
+        {
+            final int capacity = newCapacity(2 * buffer.capacity(), size + length);
+            final ByteBuffer largerBuffer = ByteBuffer.allocateDirect(capacity);
+            largerBuffer.put(buffer);
+            this.buffer = largerBuffer;
+        }
+        this.readOffset = 0;
+    }
+
+    private int newCapacity(final int preferredCapacity, final int requiredCapacity)
+    {
+        return Math.min(maxBytes, Math.max(preferredCapacity, requiredCapacity));
+    }
+}
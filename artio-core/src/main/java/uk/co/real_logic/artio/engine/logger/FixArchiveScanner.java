@@ -24,6 +24,7 @@ import io.aeron.logbuffer.FragmentHandler;
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
 import org.agrona.concurrent.IdleStrategy;
+import uk.co.real_logic.artio.messages.FixMessageBatchDecoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
@@ -36,6 +37,7 @@ import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
 import static java.util.Comparator.comparingLong;
 import static uk.co.real_logic.artio.GatewayProcess.*;
 import static uk.co.real_logic.artio.engine.logger.FixArchiveScanner.MessageType.SENT;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
 /**
  * Scan the archive for fix messages. Can be combined with predicates to create rich queries.
@@ -217,7 +219,8 @@ public class FixArchiveScanner implements AutoCloseable
             final DirectBuffer buffer, int offset, final int length, final Header header)
         {
             messageHeader.wrap(buffer, offset);
-            if (messageHeader.templateId() == FixMessageDecoder.TEMPLATE_ID)
+            final int templateId = messageHeader.templateId();
+            if (templateId == FixMessageDecoder.TEMPLATE_ID)
             {
                 offset += MessageHeaderDecoder.ENCODED_LENGTH;
 
@@ -225,6 +228,23 @@ public class FixArchiveScanner implements AutoCloseable
 
                 handler.onMessage(fixMessage, buffer, offset, length, header);
             }
+            else if (templateId == FixMessageBatchDecoder.TEMPLATE_ID)
+            {
+                final int endOffset = offset + length;
+                offset += MessageHeaderDecoder.ENCODED_LENGTH + messageHeader.blockLength();
+                while (offset < endOffset)
+                {
+                    messageHeader.wrap(buffer, offset);
+                    final int messageOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH;
+
+                    fixMessage.wrap(buffer, messageOffset, messageHeader.blockLength(), messageHeader.version());
+                    final int messageEnd = messageOffset + FRAME_SIZE + fixMessage.bodyLength();
+
+                    handler.onMessage(fixMessage, buffer, messageOffset, messageEnd - offset, header);
+
+                    offset = messageEnd;
+                }
+            }
         }
     }
 
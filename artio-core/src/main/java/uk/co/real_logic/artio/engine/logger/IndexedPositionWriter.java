@@ -47,6 +47,8 @@ class IndexedPositionWriter
     private final ErrorHandler errorHandler;
     private final ChecksumFramer checksumFramer;
 
+    private int endOfRecords = HEADER_LENGTH;
+
     IndexedPositionWriter(
         final AtomicBuffer buffer,
         final ErrorHandler errorHandler,
@@ -116,6 +118,7 @@ class IndexedPositionWriter
                         .recordingId(recordingId);
 
                     recordOffsets.put(aeronSessionId, offset);
+                    endOfRecords = Math.max(endOfRecords, offset + RECORD_LENGTH);
                     putPosition(position, buffer, offset);
                     return;
                 }
@@ -134,9 +137,20 @@ class IndexedPositionWriter
         updateChecksums();
     }
 
+    // Only the sectors that hold records written since this was created can have changed
     void updateChecksums()
     {
-        checksumFramer.updateChecksums();
+        checksumFramer.updateChecksums(endOfRecords);
+    }
+
+    /**
+     * Gets the offset after the last record written since this was created, nothing after it is changed.
+     *
+     * @return the offset after the last record written since this was created.
+     */
+    int endOfRecords()
+    {
+        return endOfRecords;
     }
 
     AtomicBuffer buffer()
@@ -0,0 +1,461 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2ObjectCache;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.decoder.HeaderDecoder;
+import uk.co.real_logic.artio.messages.FixMessageBatchDecoder;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.function.LongFunction;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+import static io.aeron.logbuffer.FrameDescriptor.BEGIN_FRAG_FLAG;
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
+import static uk.co.real_logic.artio.engine.logger.ReplayQuery.sequenceKey;
+import static uk.co.real_logic.artio.messages.MessageStatus.OK;
+
+/**
+ * Keeps the most recently sent messages of each session in memory, so that resend requests for them can be
+ * answered without starting a replay from the archive.
+ *
+ * It's populated by the outbound {@link Indexer} and each session's messages are kept in their own off heap ring
+ * buffer, oldest messages being dropped to make room for new ones. Every record is a small header followed by the
+ * message exactly as it was published, so a cached message can be handed to the replay's handler just like one that
+ * has been replayed from the archive. Messages in a batch are cached one by one, but messages that are fragmented
+ * or too big for the buffer aren't cached at all and the messages that were sent before them are dropped, so that
+ * the cache never has a hole in it.
+ *
+ * A resend request is only replayed from the cache if none of the messages that it asks for have been dropped,
+ * otherwise it's left to the archive. The number of sessions that are cached is bounded by a
+ * {@link Long2ObjectCache}, the buffers of sessions that it evicts are reused.
+ *
+ * Not thread safe, should be run on the same thread as the {@link Replayer} that uses it.
+ */
+public class ReplayCache implements Index
+{
+    // Record header:
+    // Length of the record including its header and alignment, 4 bytes
+    // Length of the message, 4 bytes
+    // Sequence index, 4 bytes
+    // Sequence number, 4 bytes
+    private static final int RECORD_LENGTH_OFFSET = 0;
+    private static final int MESSAGE_LENGTH_OFFSET = RECORD_LENGTH_OFFSET + SIZE_OF_INT;
+    private static final int SEQUENCE_INDEX_OFFSET = MESSAGE_LENGTH_OFFSET + SIZE_OF_INT;
+    private static final int SEQUENCE_NUMBER_OFFSET = SEQUENCE_INDEX_OFFSET + SIZE_OF_INT;
+    static final int RECORD_HEADER_LENGTH = SEQUENCE_NUMBER_OFFSET + SIZE_OF_INT;
+    // Padding records only have the two length fields, so they fit into the smallest gap at the end of a buffer
+    private static final int RECORD_ALIGNMENT = 2 * SIZE_OF_INT;
+    private static final int PADDING = -1;
+    private static final int REPLAY_LIMIT = 100;
+
+    private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
+    private final FixMessageDecoder fixMessage = new FixMessageDecoder();
+    private final HeaderDecoder fixHeader = new HeaderDecoder();
+    private final AsciiBuffer asciiBuffer = new MutableAsciiBuffer();
+    private final ArrayDeque<UnsafeBuffer> freeBuffers = new ArrayDeque<>();
+    private final LongFunction<SessionCache> newSessionCache = sessionId -> new SessionCache();
+    private final Long2ObjectCache<SessionCache> sessionIdToCache;
+
+    private final int bufferCapacity;
+    private final AtomicCounter hits;
+    private final AtomicCounter misses;
+
+    /**
+     * Creates a cache.
+     *
+     * @param bufferSize the size of each session's buffer, rounded up to a power of two.
+     * @param cacheNumSets the number of sets of sessions.
+     * @param cacheSetSize the number of sessions in each set.
+     * @param hits incremented for each resend request that's replayed from the cache.
+     * @param misses incremented for each resend request that has to be replayed from the archive.
+     */
+    public ReplayCache(
+        final int bufferSize,
+        final int cacheNumSets,
+        final int cacheSetSize,
+        final AtomicCounter hits,
+        final AtomicCounter misses)
+    {
+        this.hits = hits;
+        this.misses = misses;
+
+        bufferCapacity = BitUtil.findNextPositivePowerOfTwo(Math.max(bufferSize, RECORD_HEADER_LENGTH));
+        sessionIdToCache = new Long2ObjectCache<>(cacheNumSets, cacheSetSize, this::onEviction);
+    }
+
+    public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        final byte flags = header.flags();
+        final boolean unfragmented = (flags & UNFRAGMENTED) == UNFRAGMENTED;
+        if (!unfragmented && (flags & BEGIN_FRAG_FLAG) != BEGIN_FRAG_FLAG)
+        {
+            return;
+        }
+
+        messageHeader.wrap(buffer, offset);
+        final int templateId = messageHeader.templateId();
+        if (templateId == FixMessageDecoder.TEMPLATE_ID)
+        {
+            wrapFixMessage(buffer, offset);
+            if (fixMessage.status() == OK)
+            {
+                final long sessionId = fixMessage.session();
+                final int sequenceIndex = fixMessage.sequenceIndex();
+                final int sequenceNumber = sequenceNumber(buffer, offset);
+                final SessionCache sessionCache = sessionIdToCache.computeIfAbsent(sessionId, newSessionCache);
+                if (unfragmented && length <= bufferCapacity - RECORD_HEADER_LENGTH)
+                {
+                    sessionCache.add(buffer, offset, length, sequenceIndex, sequenceNumber);
+                }
+                else
+                {
+                    sessionCache.dropUpTo(sequenceKey(sequenceIndex, sequenceNumber));
+                }
+            }
+        }
+        else if (templateId == FixMessageBatchDecoder.TEMPLATE_ID)
+        {
+            if (unfragmented)
+            {
+                onMessageBatch(buffer, offset, length);
+            }
+            else
+            {
+                // The messages of a fragmented batch could be for any session, so none of the caches can be used
+                sessionIdToCache.clear();
+            }
+        }
+    }
+
+    private void onMessageBatch(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final int endOffset = offset + length;
+        int messageOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH + messageHeader.blockLength();
+        while (messageOffset < endOffset)
+        {
+            messageHeader.wrap(buffer, messageOffset);
+            wrapFixMessage(buffer, messageOffset);
+            final int messageLength = MessageHeaderDecoder.ENCODED_LENGTH + messageHeader.blockLength() +
+                FixMessageDecoder.bodyHeaderLength() + fixMessage.bodyLength();
+
+            if (fixMessage.status() == OK)
+            {
+                final int sequenceIndex = fixMessage.sequenceIndex();
+                final int sequenceNumber = sequenceNumber(buffer, messageOffset);
+                final SessionCache sessionCache = sessionIdToCache.computeIfAbsent(
+                    fixMessage.session(), newSessionCache);
+                if (messageLength <= bufferCapacity - RECORD_HEADER_LENGTH)
+                {
+                    sessionCache.add(buffer, messageOffset, messageLength, sequenceIndex, sequenceNumber);
+                }
+                else
+                {
+                    sessionCache.dropUpTo(sequenceKey(sequenceIndex, sequenceNumber));
+                }
+            }
+
+            messageOffset += messageLength;
+        }
+    }
+
+    private void wrapFixMessage(final DirectBuffer buffer, final int offset)
+    {
+        fixMessage.wrap(
+            buffer,
+            offset + MessageHeaderDecoder.ENCODED_LENGTH,
+            messageHeader.blockLength(),
+            messageHeader.version());
+    }
+
+    // Uses the FIX header's sequence number, like the ReplayIndex, so that both agree on what a replay contains
+    private int sequenceNumber(final DirectBuffer buffer, final int offset)
+    {
+        final int bodyOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH + messageHeader.blockLength() +
+            FixMessageDecoder.bodyHeaderLength();
+        asciiBuffer.wrap(buffer);
+        fixHeader.decode(asciiBuffer, bodyOffset, fixMessage.bodyLength());
+        return fixHeader.msgSeqNum();
+    }
+
+    /**
+     * Starts replaying a range of a session's messages from the cache.
+     *
+     * @param handler the handler that the messages are replayed to.
+     * @param sessionId the session whose messages are replayed.
+     * @param sequenceIndex the sequence index of the messages.
+     * @param beginSequenceNumber the sequence number of the first message to replay.
+     * @param endSequenceNumber the sequence number of the last message to replay, or
+     *                          {@link Replayer#MOST_RECENT_MESSAGE} to replay up to the most recent message.
+     * @return the replay, or null if some of the messages might not be in the cache and the archive should be used.
+     */
+    CachedReplay replay(
+        final ControlledFragmentHandler handler,
+        final long sessionId,
+        final int sequenceIndex,
+        final int beginSequenceNumber,
+        final int endSequenceNumber)
+    {
+        final SessionCache sessionCache = sessionIdToCache.get(sessionId);
+        if (sessionCache == null || sessionCache.isEmpty() ||
+            sessionCache.droppedKey >= sequenceKey(sequenceIndex, beginSequenceNumber))
+        {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return new CachedReplay(handler, sessionCache, sequenceIndex, beginSequenceNumber, endSequenceNumber);
+    }
+
+    public void close()
+    {
+        sessionIdToCache.clear();
+        freeBuffers.clear();
+    }
+
+    public void readLastPosition(final IndexedPositionConsumer consumer)
+    {
+        // Deliberately empty: the cache starts off empty rather than being caught up from the archive.
+    }
+
+    private void onEviction(final SessionCache sessionCache)
+    {
+        sessionCache.close();
+    }
+
+    private UnsafeBuffer acquireBuffer()
+    {
+        final UnsafeBuffer buffer = freeBuffers.poll();
+        return buffer != null ? buffer : new UnsafeBuffer(ByteBuffer.allocateDirect(bufferCapacity));
+    }
+
+    private final class SessionCache
+    {
+        private final int mask = bufferCapacity - 1;
+
+        private UnsafeBuffer buffer;
+        // Virtual positions of the oldest record and the end of the newest one
+        private long tail;
+        private long head;
+        // The key of the newest message that has been dropped, every message after it is in the cache
+        private long droppedKey = Long.MIN_VALUE;
+        private boolean closed;
+
+        void add(
+            final DirectBuffer srcBuffer,
+            final int srcOffset,
+            final int srcLength,
+            final int sequenceIndex,
+            final int sequenceNumber)
+        {
+            if (buffer == null)
+            {
+                buffer = acquireBuffer();
+                // Messages sent before this one may be in the archive but can't be in the cache
+                droppedKey = Math.max(droppedKey, sequenceKey(sequenceIndex, sequenceNumber) - 1);
+            }
+
+            final int recordLength = BitUtil.align(RECORD_HEADER_LENGTH + srcLength, RECORD_ALIGNMENT);
+            int offset = (int)head & mask;
+            final int remaining = bufferCapacity - offset;
+            if (recordLength > remaining)
+            {
+                final long wrappedHead = head + remaining;
+                dropRecords(wrappedHead + recordLength - bufferCapacity);
+                if (isEmpty())
+                {
+                    tail = wrappedHead;
+                }
+                else
+                {
+                    buffer.putInt(offset + RECORD_LENGTH_OFFSET, remaining);
+                    buffer.putInt(offset + MESSAGE_LENGTH_OFFSET, PADDING);
+                }
+                head = wrappedHead;
+                offset = 0;
+            }
+            else
+            {
+                dropRecords(head + recordLength - bufferCapacity);
+            }
+
+            buffer.putInt(offset + RECORD_LENGTH_OFFSET, recordLength);
+            buffer.putInt(offset + MESSAGE_LENGTH_OFFSET, srcLength);
+            buffer.putInt(offset + SEQUENCE_INDEX_OFFSET, sequenceIndex);
+            buffer.putInt(offset + SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+            buffer.putBytes(offset + RECORD_HEADER_LENGTH, srcBuffer, srcOffset, srcLength);
+            head += recordLength;
+        }
+
+        // Used when a message can't be cached, so that a replay that includes it isn't served from the cache
+        void dropUpTo(final long key)
+        {
+            tail = head;
+            droppedKey = Math.max(droppedKey, key);
+        }
+
+        private void dropRecords(final long newTail)
+        {
+            final UnsafeBuffer buffer = this.buffer;
+            while (tail < newTail && tail < head)
+            {
+                final int offset = (int)tail & mask;
+                if (buffer.getInt(offset + MESSAGE_LENGTH_OFFSET) != PADDING)
+                {
+                    droppedKey = Math.max(droppedKey, sequenceKey(
+                        buffer.getInt(offset + SEQUENCE_INDEX_OFFSET),
+                        buffer.getInt(offset + SEQUENCE_NUMBER_OFFSET)));
+                }
+                tail += buffer.getInt(offset + RECORD_LENGTH_OFFSET);
+            }
+        }
+
+        boolean isEmpty()
+        {
+            return tail == head;
+        }
+
+        void close()
+        {
+            closed = true;
+            if (buffer != null)
+            {
+                freeBuffers.add(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    /**
+     * A continuable replay of messages from the cache, the counterpart of a {@link ReplayOperation}.
+     *
+     * Messages can be dropped from the cache whilst they're being replayed, in which case the replay stops early and
+     * {@link #isDropped()} is true. The rest of the messages should then be replayed from the archive, starting at
+     * {@link #nextSequenceNumber()}.
+     */
+    static final class CachedReplay
+    {
+        private final ControlledFragmentHandler handler;
+        private final SessionCache sessionCache;
+        private final int sequenceIndex;
+        private final int beginSequenceNumber;
+        private final int endSequenceNumber;
+        // Messages that are added after the replay starts aren't part of it
+        private final long endPosition;
+
+        private long position;
+        private int replayedMessages;
+        private int nextSequenceNumber;
+        private boolean dropped;
+
+        CachedReplay(
+            final ControlledFragmentHandler handler,
+            final SessionCache sessionCache,
+            final int sequenceIndex,
+            final int beginSequenceNumber,
+            final int endSequenceNumber)
+        {
+            this.handler = handler;
+            this.sessionCache = sessionCache;
+            this.sequenceIndex = sequenceIndex;
+            this.beginSequenceNumber = beginSequenceNumber;
+            this.endSequenceNumber = endSequenceNumber == MOST_RECENT_MESSAGE ? Integer.MAX_VALUE : endSequenceNumber;
+
+            position = sessionCache.tail;
+            endPosition = sessionCache.head;
+            nextSequenceNumber = beginSequenceNumber;
+        }
+
+        /**
+         * Replays some of the messages.
+         *
+         * @return true if the replay has finished, either because all the messages have been replayed or because
+         * some have been dropped from the cache.
+         */
+        boolean attemptReplay()
+        {
+            if (position >= endPosition)
+            {
+                return true;
+            }
+
+            final SessionCache sessionCache = this.sessionCache;
+            if (sessionCache.closed || position < sessionCache.tail)
+            {
+                dropped = true;
+                return true;
+            }
+
+            final UnsafeBuffer buffer = sessionCache.buffer;
+            final int mask = sessionCache.mask;
+            int replayed = 0;
+            while (position < endPosition && replayed < REPLAY_LIMIT)
+            {
+                final int offset = (int)position & mask;
+                final int messageLength = buffer.getInt(offset + MESSAGE_LENGTH_OFFSET);
+                if (messageLength != PADDING)
+                {
+                    final int sequenceNumber = buffer.getInt(offset + SEQUENCE_NUMBER_OFFSET);
+                    if (buffer.getInt(offset + SEQUENCE_INDEX_OFFSET) == sequenceIndex &&
+                        sequenceNumber >= beginSequenceNumber && sequenceNumber <= endSequenceNumber)
+                    {
+                        if (handler.onFragment(buffer, offset + RECORD_HEADER_LENGTH, messageLength, null) == ABORT)
+                        {
+                            return false;
+                        }
+
+                        replayedMessages++;
+                        replayed++;
+                        nextSequenceNumber = sequenceNumber + 1;
+                    }
+                }
+
+                position += buffer.getInt(offset + RECORD_LENGTH_OFFSET);
+            }
+
+            return position >= endPosition;
+        }
+
+        boolean isDropped()
+        {
+            return dropped;
+        }
+
+        int replayedMessages()
+        {
+            return replayedMessages;
+        }
+
+        int nextSequenceNumber()
+        {
+            return nextSequenceNumber;
+        }
+    }
+}
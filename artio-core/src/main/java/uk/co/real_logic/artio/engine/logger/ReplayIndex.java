@@ -24,6 +24,7 @@ import org.agrona.collections.Long2ObjectCache;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.decoder.HeaderDecoder;
+import uk.co.real_logic.artio.messages.FixMessageBatchDecoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.FixMessageEncoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
@@ -40,6 +41,7 @@ import static io.aeron.logbuffer.FrameDescriptor.*;
 import static org.agrona.UnsafeAccess.UNSAFE;
 import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.*;
 import static uk.co.real_logic.artio.messages.MessageStatus.OK;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
 /**
  * Builds an index of a composite key of session id and sequence number for a given stream.
@@ -160,6 +162,10 @@ public class ReplayIndex implements Index
                         .onRecord(streamId, endPosition, length, sequenceNumber, sequenceIndex, header);
                 }
             }
+            else if (frameHeaderDecoder.templateId() == FixMessageBatchDecoder.TEMPLATE_ID)
+            {
+                onMessageBatch(srcBuffer, srcOffset, srcLength, streamId, endPosition, length, header);
+            }
         }
         else
         {
@@ -169,6 +175,41 @@ public class ReplayIndex implements Index
         }
     }
 
+    // Every message in a batch is indexed as the whole batch, since that's the unit that can be replayed.
+    private void onMessageBatch(
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
+        final int streamId,
+        final long endPosition,
+        final int length,
+        final Header header)
+    {
+        asciiBuffer.wrap(srcBuffer);
+
+        final int endOffset = srcOffset + srcLength;
+        int offset = srcOffset + frameHeaderDecoder.encodedLength() + frameHeaderDecoder.blockLength();
+        while (offset < endOffset)
+        {
+            frameHeaderDecoder.wrap(srcBuffer, offset);
+            offset += frameHeaderDecoder.encodedLength();
+
+            messageFrame.wrap(srcBuffer, offset, frameHeaderDecoder.blockLength(), frameHeaderDecoder.version());
+            final int bodyLength = messageFrame.bodyLength();
+            if (messageFrame.status() == OK)
+            {
+                fixHeader.decode(asciiBuffer, offset + FRAME_SIZE, bodyLength);
+
+                fixSessionIdToIndex
+                    .computeIfAbsent(messageFrame.session(), newSessionIndex)
+                    .onRecord(
+                        streamId, endPosition, length, fixHeader.msgSeqNum(), messageFrame.sequenceIndex(), header);
+            }
+
+            offset += FRAME_SIZE + bodyLength;
+        }
+    }
+
     public void close()
     {
         positionWriter.close();
@@ -15,16 +15,17 @@
  */
 package uk.co.real_logic.artio.engine.logger;
 
-import io.aeron.Aeron;
 import io.aeron.ControlledFragmentAssembler;
-import io.aeron.Subscription;
+import io.aeron.Image;
 import io.aeron.archive.client.AeronArchive;
 import io.aeron.archive.status.RecordingPos;
 import io.aeron.logbuffer.ControlledFragmentHandler;
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.agrona.concurrent.status.CountersReader;
+import uk.co.real_logic.artio.messages.FixMessageBatchDecoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
@@ -33,52 +34,85 @@ import java.util.List;
 import static io.aeron.CommonContext.IPC_CHANNEL;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
-import static uk.co.real_logic.artio.GatewayProcess.ARCHIVE_REPLAY_STREAM;
+import static uk.co.real_logic.artio.messages.MessageStatus.OK;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
 /**
- * A continuable replay operation that can retried
+ * A continuable replay operation that can retried.
+ *
+ * The replayed messages are read from the image of this operation's replay on a {@link ReplaySubscription} that's
+ * shared with the other replays of the same query.
  */
 public class ReplayOperation
 {
-    private final MessageTracker messageTracker = new MessageTracker();
-    private final ControlledFragmentAssembler assembler = new ControlledFragmentAssembler(messageTracker);
+    private static final long NO_REPLAY = -1;
+
+    private final MessageTracker messageTracker;
+    private final ControlledFragmentAssembler assembler;
 
     private final List<RecordingRange> ranges;
     private final AeronArchive aeronArchive;
     private final ErrorHandler errorHandler;
     private final CountersReader countersReader;
-    private final Subscription subscription;
+    private final ReplaySubscription replaySubscription;
+    private final AtomicCounter replaySetupTimeInNs;
+    private final long createdTimeInNs;
 
     private int replayedMessages = 0;
     private RecordingRange recordingRange;
-
-
-
+    private long replaySessionId = NO_REPLAY;
+    private Image image;
+    private boolean setupTimeRecorded;
 
     ReplayOperation(
         final ControlledFragmentHandler handler,
         final List<RecordingRange> ranges,
         final AeronArchive aeronArchive,
-        final ErrorHandler errorHandler)
+        final ErrorHandler errorHandler,
+        final ReplaySubscription replaySubscription,
+        final AtomicCounter replaySetupTimeInNs,
+        final BatchedMessageFilter batchedMessageFilter)
     {
         this.ranges = ranges;
         this.aeronArchive = aeronArchive;
         this.errorHandler = errorHandler;
+        this.replaySubscription = replaySubscription;
+        this.replaySetupTimeInNs = replaySetupTimeInNs;
 
-        final Aeron aeron = aeronArchive.context().aeron();
-        countersReader = aeron.countersReader();
+        createdTimeInNs = System.nanoTime();
+        countersReader = aeronArchive.context().aeron().countersReader();
+        messageTracker = new MessageTracker(batchedMessageFilter);
+        assembler = new ControlledFragmentAssembler(messageTracker);
         messageTracker.wrap(handler);
-        subscription = aeron.addSubscription(IPC_CHANNEL, ARCHIVE_REPLAY_STREAM);
     }
 
     public boolean attemptReplay()
     {
-        final boolean complete = attemptReplayStep();
-        if (complete)
+        replaySubscription.drainUnclaimedImages();
+        return attemptReplayStep();
+    }
+
+    /**
+     * Stops the archive's replay if it's still in progress, should be called if the operation is abandoned before
+     * it completes.
+     */
+    public void close()
+    {
+        if (replaySessionId != NO_REPLAY)
         {
-            subscription.close();
+            releaseReplay();
+            ranges.clear();
+            recordingRange = null;
+
+            try
+            {
+                aeronArchive.stopReplay(replaySessionId);
+            }
+            catch (final Throwable exception)
+            {
+                errorHandler.onError(exception);
+            }
         }
-        return complete;
     }
 
     private boolean attemptReplayStep()
@@ -104,13 +138,16 @@ public class ReplayOperation
 
             try
             {
-                final int aeronSessionId = (int)aeronArchive.startReplay(
+                replaySubscription.open();
+                replaySessionId = aeronArchive.startReplay(
                     recordingId,
                     beginPosition,
                     length,
                     IPC_CHANNEL,
-                    ARCHIVE_REPLAY_STREAM);
+                    replaySubscription.streamId());
 
+                final int aeronSessionId = (int)replaySessionId;
+                replaySubscription.claim(aeronSessionId);
                 messageTracker.reset(aeronSessionId);
             }
             catch (final Throwable exception)
@@ -121,7 +158,22 @@ public class ReplayOperation
             }
         }
 
-        subscription.controlledPoll(assembler, Integer.MAX_VALUE);
+        if (image == null)
+        {
+            image = replaySubscription.image((int)replaySessionId);
+            if (image == null)
+            {
+                return false;
+            }
+
+            if (!setupTimeRecorded)
+            {
+                replaySetupTimeInNs.setOrdered(System.nanoTime() - createdTimeInNs);
+                setupTimeRecorded = true;
+            }
+        }
+
+        image.controlledPoll(assembler, Integer.MAX_VALUE);
 
         // Have we finished this range?
         if (messageTracker.count < recordingRange.count)
@@ -132,11 +184,19 @@ public class ReplayOperation
         {
             replayedMessages += recordingRange.count;
             recordingRange = null;
+            releaseReplay();
 
             return ranges.isEmpty();
         }
     }
 
+    private void releaseReplay()
+    {
+        replaySubscription.release((int)replaySessionId);
+        replaySessionId = NO_REPLAY;
+        image = null;
+    }
+
     int replayedMessages()
     {
         return replayedMessages;
@@ -155,14 +215,36 @@ public class ReplayOperation
         return false;
     }
 
+    /**
+     * A batch holds messages for any of a library's sessions, so only some of the messages in a replayed batch
+     * are meant to be part of the replay.
+     */
+    @FunctionalInterface
+    interface BatchedMessageFilter
+    {
+        boolean isReplayed(long sessionId, int sequenceIndex, int sequenceNumber);
+    }
+
     private static class MessageTracker implements ControlledFragmentHandler
     {
+        private static final long NO_BATCH = -1;
+
         private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+        private final FixMessageDecoder fixMessage = new FixMessageDecoder();
+        private final BatchedMessageFilter batchedMessageFilter;
 
         ControlledFragmentHandler messageHandler;
         int count;
         private int aeronSessionId;
 
+        private long abortedBatchPosition = NO_BATCH;
+        private int abortedBatchOffset;
+
+        MessageTracker(final BatchedMessageFilter batchedMessageFilter)
+        {
+            this.batchedMessageFilter = batchedMessageFilter;
+        }
+
         @Override
         public Action onFragment(
             final DirectBuffer buffer, final int offset, final int length, final Header header)
@@ -171,7 +253,8 @@ public class ReplayOperation
             {
                 messageHeaderDecoder.wrap(buffer, offset);
 
-                if (messageHeaderDecoder.templateId() == FixMessageDecoder.TEMPLATE_ID)
+                final int templateId = messageHeaderDecoder.templateId();
+                if (templateId == FixMessageDecoder.TEMPLATE_ID)
                 {
                     final Action action = messageHandler.onFragment(buffer, offset, length, header);
                     if (action != ABORT)
@@ -180,11 +263,63 @@ public class ReplayOperation
                     }
                     return action;
                 }
+                else if (templateId == FixMessageBatchDecoder.TEMPLATE_ID)
+                {
+                    return onMessageBatch(buffer, offset, length, header);
+                }
             }
 
             return CONTINUE;
         }
 
+        private Action onMessageBatch(
+            final DirectBuffer buffer, final int offset, final int length, final Header header)
+        {
+            final long position = header.position();
+            final int endOffset = offset + length;
+
+            int messageOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH + messageHeaderDecoder.blockLength();
+            if (abortedBatchPosition == position)
+            {
+                messageOffset = abortedBatchOffset;
+            }
+            abortedBatchPosition = NO_BATCH;
+
+            Action result = CONTINUE;
+            while (messageOffset < endOffset)
+            {
+                messageHeaderDecoder.wrap(buffer, messageOffset);
+                fixMessage.wrap(
+                    buffer,
+                    messageOffset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+                final int messageLength = MessageHeaderDecoder.ENCODED_LENGTH + FRAME_SIZE + fixMessage.bodyLength();
+
+                if (fixMessage.status() == OK && batchedMessageFilter.isReplayed(
+                    fixMessage.session(), fixMessage.sequenceIndex(), fixMessage.sequenceNumber()))
+                {
+                    final Action action = messageHandler.onFragment(buffer, messageOffset, messageLength, header);
+                    if (action == ABORT)
+                    {
+                        abortedBatchPosition = position;
+                        abortedBatchOffset = messageOffset;
+                        return ABORT;
+                    }
+
+                    count++;
+                    if (action != CONTINUE)
+                    {
+                        result = action;
+                    }
+                }
+
+                messageOffset += messageLength;
+            }
+
+            return result;
+        }
+
         void wrap(final ControlledFragmentHandler handler)
         {
             this.messageHandler = handler;
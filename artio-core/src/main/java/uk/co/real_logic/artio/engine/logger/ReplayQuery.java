@@ -22,12 +22,14 @@ import org.agrona.IoUtil;
 import org.agrona.collections.Long2ObjectCache;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
 
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.LongFunction;
 
@@ -40,9 +42,24 @@ import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
  * Queries an index of a composite key of session id and sequence number.
  *
  * This object isn't thread-safe, but the underlying replay index is a single-writer, multiple-reader threadsafe index.
+ *
+ * Each session's query keeps a sparse index of the records that it has already scanned: a checkpoint every
+ * {@link #CHECKPOINT_INTERVAL} records, holding the sequence index and number at that position. So long as the
+ * records that it has scanned are in sequence order a query can start from the last checkpoint before the beginning
+ * of its range and skip from the end of its range to the records that haven't been scanned yet, rather than reading
+ * the whole index. Records that go backwards, for example when the index has been reset on a restart, stop the
+ * checkpoints before them from being used until they have been overwritten.
+ *
+ * The replays of a query all share one {@link ReplaySubscription} on its replay stream, so each query should have a
+ * replay stream of its own.
  */
 public class ReplayQuery implements AutoCloseable
 {
+    static final int CHECKPOINT_INTERVAL = 64;
+
+    private static final int CHECKPOINT_STRIDE = CHECKPOINT_INTERVAL * RECORD_LENGTH;
+    private static final long NO_CHECKPOINT = -1;
+
     private final MessageHeaderDecoder messageFrameHeader = new MessageHeaderDecoder();
     private final ReplayIndexRecordDecoder indexRecord = new ReplayIndexRecordDecoder();
 
@@ -54,6 +71,8 @@ public class ReplayQuery implements AutoCloseable
     private final IdleStrategy idleStrategy;
     private final AeronArchive aeronArchive;
     private final ErrorHandler errorHandler;
+    private final ReplaySubscription replaySubscription;
+    private final AtomicCounter replaySetupTimeInNs;
 
     public ReplayQuery(
         final String logFileDir,
@@ -63,7 +82,9 @@ public class ReplayQuery implements AutoCloseable
         final int requiredStreamId,
         final IdleStrategy idleStrategy,
         final AeronArchive aeronArchive,
-        final ErrorHandler errorHandler)
+        final ErrorHandler errorHandler,
+        final int replayStreamId,
+        final AtomicCounter replaySetupTimeInNs)
     {
         this.logFileDir = logFileDir;
         this.indexBufferFactory = indexBufferFactory;
@@ -71,7 +92,9 @@ public class ReplayQuery implements AutoCloseable
         this.idleStrategy = idleStrategy;
         this.aeronArchive = aeronArchive;
         this.errorHandler = errorHandler;
+        this.replaySetupTimeInNs = replaySetupTimeInNs;
 
+        replaySubscription = new ReplaySubscription(aeronArchive, replayStreamId);
         fixSessionToIndex = new Long2ObjectCache<>(cacheNumSets, cacheSetSize, SessionQuery::close);
     }
 
@@ -96,9 +119,28 @@ public class ReplayQuery implements AutoCloseable
             .query(handler, beginSequenceNumber, beginSequenceIndex, endSequenceNumber, endSequenceIndex);
     }
 
+    // Visible for benchmarking the index scan without replaying anything
+    List<RecordingRange> queryRanges(
+        final long sessionId,
+        final int beginSequenceNumber,
+        final int beginSequenceIndex,
+        final int endSequenceNumber,
+        final int endSequenceIndex)
+    {
+        return fixSessionToIndex
+            .computeIfAbsent(sessionId, newSessionQuery)
+            .queryRanges(beginSequenceNumber, beginSequenceIndex, endSequenceNumber, endSequenceIndex);
+    }
+
     public void close()
     {
         fixSessionToIndex.clear();
+        replaySubscription.close();
+    }
+
+    static long sequenceKey(final int sequenceIndex, final int sequenceNumber)
+    {
+        return ((long)sequenceIndex << 32) | (sequenceNumber & 0xFFFF_FFFFL);
     }
 
     private final class SessionQuery implements AutoCloseable
@@ -106,12 +148,30 @@ public class ReplayQuery implements AutoCloseable
         private final ByteBuffer wrappedBuffer;
         private final UnsafeBuffer buffer;
         private final int capacity;
+        private final long sessionId;
+
+        // Checkpoints are indexed by position / CHECKPOINT_STRIDE, wrapping around like the records do
+        private final long[] checkpointPositions;
+        private final long[] checkpointKeys;
+        private final int checkpointMask;
+
+        // The records in [scannedFrom, scannedUpTo) have been scanned, are checkpointed and are in sequence order
+        private long scannedFrom;
+        private long scannedUpTo;
+        private long lastScannedKey;
 
         SessionQuery(final long sessionId)
         {
+            this.sessionId = sessionId;
             wrappedBuffer = indexBufferFactory.map(logFile(logFileDir, sessionId, requiredStreamId));
             buffer = new UnsafeBuffer(wrappedBuffer);
             capacity = recordCapacity(buffer.capacity());
+
+            final int checkpointCount = Math.max(1, capacity / CHECKPOINT_STRIDE);
+            checkpointPositions = new long[checkpointCount];
+            checkpointKeys = new long[checkpointCount];
+            checkpointMask = checkpointCount - 1;
+            Arrays.fill(checkpointPositions, NO_CHECKPOINT);
         }
 
         ReplayOperation query(
@@ -120,6 +180,32 @@ public class ReplayQuery implements AutoCloseable
             final int beginSequenceIndex,
             final int endSequenceNumber,
             final int endSequenceIndex)
+        {
+            final List<RecordingRange> ranges = queryRanges(
+                beginSequenceNumber, beginSequenceIndex, endSequenceNumber, endSequenceIndex);
+
+            final boolean upToMostRecentMessage = endSequenceNumber == MOST_RECENT_MESSAGE;
+            final long sessionId = this.sessionId;
+            return new ReplayOperation(
+                handler,
+                ranges,
+                aeronArchive,
+                errorHandler,
+                replaySubscription,
+                replaySetupTimeInNs,
+                (messageSessionId, sequenceIndex, sequenceNumber) ->
+                    messageSessionId == sessionId &&
+                    (sequenceIndex > beginSequenceIndex ||
+                    (sequenceIndex == beginSequenceIndex && sequenceNumber >= beginSequenceNumber)) &&
+                    (upToMostRecentMessage || sequenceIndex < endSequenceIndex ||
+                    (sequenceIndex == endSequenceIndex && sequenceNumber <= endSequenceNumber)));
+        }
+
+        List<RecordingRange> queryRanges(
+            final int beginSequenceNumber,
+            final int beginSequenceIndex,
+            final int endSequenceNumber,
+            final int endSequenceIndex)
         {
             messageFrameHeader.wrap(buffer, 0);
 
@@ -127,14 +213,17 @@ public class ReplayQuery implements AutoCloseable
             final int actingVersion = messageFrameHeader.version();
             final int requiredStreamId = ReplayQuery.this.requiredStreamId;
             final boolean upToMostRecentMessage = endSequenceNumber == MOST_RECENT_MESSAGE;
+            final long beginKey = sequenceKey(beginSequenceIndex, beginSequenceNumber);
+            final long endKey = sequenceKey(endSequenceIndex, endSequenceNumber);
 
             // LOOKUP THE RANGE FROM THE INDEX
             // NB: this is a List as we are looking up recordings in the correct order to replay them.
             final List<RecordingRange> ranges = new ArrayList<>();
             RecordingRange currentRange = null;
 
-            long iteratorPosition = getIteratorPosition();
-            long stopIteratingPosition = iteratorPosition + capacity;
+            final long oldestPosition = getIteratorPosition();
+            long iteratorPosition = seek(oldestPosition, beginKey);
+            long stopIteratingPosition = oldestPosition + capacity;
 
             int lastSequenceNumber = -1;
             while (iteratorPosition != stopIteratingPosition)
@@ -169,6 +258,15 @@ public class ReplayQuery implements AutoCloseable
                         break;
                     }
 
+                    final long key = sequenceKey(sequenceIndex, sequenceNumber);
+                    if (!upToMostRecentMessage && key > endKey && isScannedInOrder(iteratorPosition))
+                    {
+                        // Everything up to the end of the scanned records is after the range as well
+                        iteratorPosition = Math.min(scannedUpTo, stopIteratingPosition);
+                        continue;
+                    }
+                    onScanned(iteratorPosition, key);
+
                     final boolean endOk = upToMostRecentMessage || sequenceIndex < endSequenceIndex ||
                         (sequenceIndex == endSequenceIndex && sequenceNumber <= endSequenceNumber);
                     final boolean startOk = sequenceIndex > beginSequenceIndex ||
@@ -209,7 +307,76 @@ public class ReplayQuery implements AutoCloseable
                 ranges.add(currentRange);
             }
 
-            return new ReplayOperation(handler, ranges, aeronArchive, errorHandler);
+            return ranges;
+        }
+
+        // Finds the last checkpoint before the key, every record before it must be before the key as well.
+        private long seek(final long oldestPosition, final long beginKey)
+        {
+            if (scannedFrom > oldestPosition || scannedUpTo <= oldestPosition)
+            {
+                return oldestPosition;
+            }
+
+            final long[] checkpointPositions = this.checkpointPositions;
+            final long[] checkpointKeys = this.checkpointKeys;
+            final int checkpointMask = this.checkpointMask;
+
+            long low = (oldestPosition + CHECKPOINT_STRIDE - 1) / CHECKPOINT_STRIDE;
+            long high = (scannedUpTo - 1) / CHECKPOINT_STRIDE;
+            long position = oldestPosition;
+            while (low <= high)
+            {
+                final long checkpoint = (low + high) >>> 1;
+                final int index = (int)checkpoint & checkpointMask;
+                final long checkpointPosition = checkpoint * CHECKPOINT_STRIDE;
+                if (checkpointPositions[index] == checkpointPosition && checkpointKeys[index] < beginKey)
+                {
+                    position = checkpointPosition;
+                    low = checkpoint + 1;
+                }
+                else
+                {
+                    high = checkpoint - 1;
+                }
+            }
+
+            return position;
+        }
+
+        private boolean isScannedInOrder(final long position)
+        {
+            return position >= scannedFrom && position < scannedUpTo;
+        }
+
+        private void onScanned(final long position, final long key)
+        {
+            if (position == scannedUpTo && position != scannedFrom)
+            {
+                if (key < lastScannedKey)
+                {
+                    // Out of order, so records before this can't be skipped over
+                    scannedFrom = position;
+                }
+            }
+            else if (!isScannedInOrder(position))
+            {
+                scannedFrom = position;
+            }
+            else
+            {
+                return;
+            }
+
+            if (position % CHECKPOINT_STRIDE == 0)
+            {
+                final int index = (int)(position / CHECKPOINT_STRIDE) & checkpointMask;
+                checkpointPositions[index] = position;
+                checkpointKeys[index] = key;
+            }
+
+            scannedUpTo = position + RECORD_LENGTH;
+            lastScannedKey = key;
         }
 
         private long getIteratorPosition()
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.collections.IntHashSet;
+
+import java.util.function.Consumer;
+
+import static io.aeron.CommonContext.IPC_CHANNEL;
+
+/**
+ * A subscription to the archive's replays that lasts as long as the query that owns it, rather than one being added
+ * to the media driver for every replay.
+ *
+ * Replays that are in progress at the same time are told apart by the session id of their image. Each replay claims
+ * its session id and polls its own image, any other images, for example from a replay that has been abandoned, are
+ * drained so that they don't hold up the archive.
+ *
+ * Not thread safe, should only be used on the thread that polls the replays.
+ */
+class ReplaySubscription implements AutoCloseable
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final FragmentHandler drainHandler = (buffer, offset, length, header) ->
+    {
+    };
+    private final Consumer<Image> drainUnclaimedImage = this::drainUnclaimedImage;
+    private final IntHashSet claimedSessionIds = new IntHashSet(INITIAL_CAPACITY);
+    private final AeronArchive aeronArchive;
+    private final int streamId;
+
+    private Subscription subscription;
+
+    ReplaySubscription(final AeronArchive aeronArchive, final int streamId)
+    {
+        this.aeronArchive = aeronArchive;
+        this.streamId = streamId;
+    }
+
+    int streamId()
+    {
+        return streamId;
+    }
+
+    /**
+     * Adds the subscription if it hasn't been added yet, should be called before starting a replay.
+     */
+    void open()
+    {
+        subscription();
+    }
+
+    void claim(final int aeronSessionId)
+    {
+        claimedSessionIds.add(aeronSessionId);
+    }
+
+    void release(final int aeronSessionId)
+    {
+        claimedSessionIds.remove(aeronSessionId);
+    }
+
+    /**
+     * Gets the image of a replay that has been claimed.
+     *
+     * @param aeronSessionId the session id of the replay.
+     * @return the image or null if it isn't available yet.
+     */
+    Image image(final int aeronSessionId)
+    {
+        return subscription().imageBySessionId(aeronSessionId);
+    }
+
+    void drainUnclaimedImages()
+    {
+        if (subscription != null)
+        {
+            subscription.forEachImage(drainUnclaimedImage);
+        }
+    }
+
+    public void close()
+    {
+        CloseHelper.close(subscription);
+        subscription = null;
+        claimedSessionIds.clear();
+    }
+
+    private Subscription subscription()
+    {
+        if (subscription == null)
+        {
+            subscription = aeronArchive.context().aeron().addSubscription(IPC_CHANNEL, streamId);
+        }
+
+        return subscription;
+    }
+
+    private void drainUnclaimedImage(final Image image)
+    {
+        if (!claimedSessionIds.contains(image.sessionId()))
+        {
+            image.poll(drainHandler, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -48,6 +48,11 @@ import static uk.co.real_logic.artio.messages.MessageStatus.OK;
  * This agent subscribes to the stream of incoming fix data messages. It parses
  * Resend Request messages and searches the log, using the replay index to find
  * relevant messages to resend.
+ *
+ * If it has a {@link ReplayCache} then resend requests for recently sent messages are replayed from memory instead.
+ *
+ * Resend requests can be split between several replayers by session id, each replayer only answers the requests of
+ * the sessions in its own shard, see {@link #shardIndex(long, int)}.
  */
 public class Replayer implements ProtocolHandler, Agent
 {
@@ -66,6 +71,7 @@ public class Replayer implements ProtocolHandler, Agent
     private final List<ReplayerSession> replayerSessions = new ArrayList<>();
 
     private final ReplayQuery replayQuery;
+    private final ReplayCache replayCache;
     private final ExclusivePublication publication;
     private final IdleStrategy idleStrategy;
     private final ErrorHandler errorHandler;
@@ -76,6 +82,8 @@ public class Replayer implements ProtocolHandler, Agent
     private final EpochClock clock;
     private final ReplayHandler replayHandler;
     private final SenderSequenceNumbers senderSequenceNumbers;
+    private final int shardIndex;
+    private final int shardCount;
 
     public Replayer(
         final ReplayQuery replayQuery,
@@ -89,7 +97,10 @@ public class Replayer implements ProtocolHandler, Agent
         final EpochClock clock,
         final Set<String> gapfillOnReplayMessageTypes,
         final ReplayHandler replayHandler,
-        final SenderSequenceNumbers senderSequenceNumbers)
+        final SenderSequenceNumbers senderSequenceNumbers,
+        final ReplayCache replayCache,
+        final int shardIndex,
+        final int shardCount)
     {
         this.replayQuery = replayQuery;
         this.publication = publication;
@@ -102,6 +113,9 @@ public class Replayer implements ProtocolHandler, Agent
         this.clock = clock;
         this.replayHandler = replayHandler;
         this.senderSequenceNumbers = senderSequenceNumbers;
+        this.replayCache = replayCache;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
 
         gapFillMessageTypes = new IntHashSet();
         gapfillOnReplayMessageTypes.forEach(messageTypeAsString ->
@@ -122,7 +136,8 @@ public class Replayer implements ProtocolHandler, Agent
         final int sequenceNumber,
         final long position)
     {
-        if (messageType == ResendRequestDecoder.MESSAGE_TYPE && status == OK)
+        if (messageType == ResendRequestDecoder.MESSAGE_TYPE && status == OK &&
+            shardIndex(sessionId, shardCount) == shardIndex)
         {
             final int limit = Math.min(length, srcBuffer.capacity() - srcOffset);
 
@@ -163,6 +178,7 @@ public class Replayer implements ProtocolHandler, Agent
                 sessionId,
                 sequenceIndex,
                 replayQuery,
+                replayCache,
                 message,
                 errorHandler,
                 resendRequest.header());
@@ -200,6 +216,18 @@ public class Replayer implements ProtocolHandler, Agent
 
     public String roleName()
     {
-        return agentNamePrefix + "Replayer";
+        return shardCount > 1 ? agentNamePrefix + "Replayer-" + shardIndex : agentNamePrefix + "Replayer";
+    }
+
+    /**
+     * Gets the shard of the replayer that answers a session's resend requests.
+     *
+     * @param sessionId the id of the session.
+     * @param shardCount the number of replayer shards.
+     * @return the index of the session's shard.
+     */
+    public static int shardIndex(final long sessionId, final int shardCount)
+    {
+        return (int)((sessionId & Long.MAX_VALUE) % shardCount);
     }
 }
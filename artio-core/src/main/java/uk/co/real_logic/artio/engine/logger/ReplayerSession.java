@@ -63,6 +63,7 @@ class ReplayerSession implements ControlledFragmentHandler
     private final SenderSequenceNumbers senderSequenceNumbers;
     private final ExclusivePublication publication;
     private final ReplayQuery replayQuery;
+    private final ReplayCache replayCache;
     private final ErrorHandler errorHandler;
 
     private int beginSeqNo;
@@ -76,6 +77,8 @@ class ReplayerSession implements ControlledFragmentHandler
     private int beginGapFillSeqNum = NONE;
 
     private ReplayOperation currentReplayOperation;
+    private ReplayCache.CachedReplay cachedReplay;
+    private int cachedMessages;
 
     ReplayerSession(
         final ExclusiveBufferClaim bufferClaim,
@@ -91,6 +94,7 @@ class ReplayerSession implements ControlledFragmentHandler
         final long sessionId,
         final int sequenceIndex,
         final ReplayQuery replayQuery,
+        final ReplayCache replayCache,
         final String message,
         final ErrorHandler errorHandler,
         final HeaderDecoder requestHeader)
@@ -111,6 +115,7 @@ class ReplayerSession implements ControlledFragmentHandler
         this.message = message;
         this.errorHandler = errorHandler;
         this.replayQuery = replayQuery;
+        this.replayCache = replayCache;
 
         lastSeqNo = beginSeqNo - 1;
 
@@ -146,6 +151,20 @@ class ReplayerSession implements ControlledFragmentHandler
     }
 
     void query()
+    {
+        if (replayCache != null)
+        {
+            cachedReplay = replayCache.replay(this, sessionId, sequenceIndex, beginSeqNo, endSeqNo);
+            if (cachedReplay != null)
+            {
+                return;
+            }
+        }
+
+        queryArchive(beginSeqNo);
+    }
+
+    private void queryArchive(final int beginSeqNo)
     {
         currentReplayOperation = replayQuery.query(
             this,
@@ -278,13 +297,34 @@ class ReplayerSession implements ControlledFragmentHandler
 
     boolean attempCurrentReplayOperation()
     {
+        final ReplayCache.CachedReplay cachedReplay = this.cachedReplay;
+        if (cachedReplay != null)
+        {
+            if (!cachedReplay.attemptReplay())
+            {
+                return false;
+            }
+
+            if (!cachedReplay.isDropped())
+            {
+                return completeReplay();
+            }
+
+            // Messages were dropped from the cache part way through the replay, the archive has the rest of them.
+            cachedMessages = cachedReplay.replayedMessages();
+            this.cachedReplay = null;
+            queryArchive(cachedReplay.nextSequenceNumber());
+            return false;
+        }
+
         return currentReplayOperation.attemptReplay() && completeReplay();
     }
 
     private boolean completeReplay()
     {
         // Load state needed to complete the replay
-        final int replayedMessages = currentReplayOperation.replayedMessages();
+        final int replayedMessages = cachedReplay != null ?
+            cachedReplay.replayedMessages() : cachedMessages + currentReplayOperation.replayedMessages();
 
         // If the last N messages were admin messages then we need to send a gapfill
         // after the replay query has run.
@@ -22,6 +22,7 @@ import uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberDecoder;
 
 import java.io.File;
 
+import static org.agrona.BitUtil.SIZE_OF_LONG;
 import static uk.co.real_logic.artio.engine.SectorFramer.SECTOR_SIZE;
 import static uk.co.real_logic.artio.engine.SectorFramer.nextSectorStart;
 
@@ -32,13 +33,15 @@ import static uk.co.real_logic.artio.engine.SectorFramer.nextSectorStart;
  * off-heap in a single-writer threadsafe manner.
  * <p>
  * Message Header
+ * Reset Generation, incremented whenever the records are reset
  * Series of LastKnownSequenceNumber records
  * ...
  * Positions Table
  */
 final class SequenceNumberIndexDescriptor
 {
-    static final int HEADER_SIZE = MessageHeaderDecoder.ENCODED_LENGTH;
+    static final int RESET_GENERATION_OFFSET = MessageHeaderDecoder.ENCODED_LENGTH;
+    static final int HEADER_SIZE = RESET_GENERATION_OFFSET + SIZE_OF_LONG;
     static final int RECORD_SIZE = LastKnownSequenceNumberDecoder.BLOCK_LENGTH;
 
     static final double SEQUENCE_NUMBER_RATIO = 0.9;
@@ -16,6 +16,7 @@
 package uk.co.real_logic.artio.engine.logger;
 
 import org.agrona.ErrorHandler;
+import org.agrona.collections.Long2LongHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import uk.co.real_logic.artio.engine.SectorFramer;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
@@ -25,17 +26,34 @@ import uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEncoder;
 import static uk.co.real_logic.artio.engine.SectorFramer.OUT_OF_SPACE;
 import static uk.co.real_logic.artio.engine.SessionInfo.UNK_SESSION;
 import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexDescriptor.*;
+import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexWriter.SEQUENCE_NUMBER_OFFSET;
 import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEncoder.BLOCK_LENGTH;
 import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEncoder.SCHEMA_VERSION;
 
+/**
+ * Reads the last known sequence number of each session from the index that a {@link SequenceNumberIndexWriter}
+ * writes into a shared buffer.
+ * <p>
+ * The writer only ever appends records, so the offset of each session's record is kept in a hash table. Lookups of
+ * sessions in the table check that the record is still theirs and lookups of other sessions carry on from the
+ * last record that was read, so only records written since the previous miss are scanned. The writer increments the
+ * reset generation in the file header whenever it resets the index, and the table is rebuilt when that changes.
+ */
 public class SequenceNumberIndexReader
 {
+    private static final long MISSING_RECORD = -1L;
+
     private final MessageHeaderDecoder fileHeaderDecoder = new MessageHeaderDecoder();
     private final LastKnownSequenceNumberDecoder lastKnownDecoder = new LastKnownSequenceNumberDecoder();
     private final AtomicBuffer inMemoryBuffer;
     private final SectorFramer sectorFramer;
     private final IndexedPositionReader positions;
     private final ErrorHandler errorHandler;
+    private final Long2LongHashMap recordOffsets = new Long2LongHashMap(MISSING_RECORD);
+
+    // Records before this position are in recordOffsets
+    private int indexedUpTo = HEADER_SIZE;
+    private long resetGeneration;
 
     public SequenceNumberIndexReader(final AtomicBuffer inMemoryBuffer, final ErrorHandler errorHandler)
     {
@@ -44,12 +62,39 @@ public class SequenceNumberIndexReader
         final int positionTableOffset = positionTableOffset(inMemoryBuffer.capacity());
         sectorFramer = new SectorFramer(positionTableOffset);
         validateBuffer();
+        resetGeneration = resetGeneration();
         positions = new IndexedPositionReader(positionsBuffer(inMemoryBuffer, positionTableOffset));
     }
 
     public int lastKnownSequenceNumber(final long sessionId)
     {
-        int position = SequenceNumberIndexDescriptor.HEADER_SIZE;
+        final long resetGeneration = resetGeneration();
+        if (resetGeneration != this.resetGeneration)
+        {
+            this.resetGeneration = resetGeneration;
+            clearRecordOffsets();
+        }
+
+        final int recordOffset = (int)recordOffsets.get(sessionId);
+        if (recordOffset != MISSING_RECORD)
+        {
+            final int sequenceNumber = sequenceNumber(recordOffset);
+            if (sequenceNumber != 0 && sessionId(recordOffset) == sessionId)
+            {
+                return sequenceNumber;
+            }
+
+            // The writer is part way through a reset that this lookup read the generation from before
+            clearRecordOffsets();
+        }
+
+        return indexNewRecords(sessionId);
+    }
+
+    // Reads the records written since the last time, until it finds the one for sessionId
+    private int indexNewRecords(final long sessionId)
+    {
+        int position = indexedUpTo;
         while (true)
         {
             position = sectorFramer.claim(position, RECORD_SIZE);
@@ -58,17 +103,50 @@ public class SequenceNumberIndexReader
                 return UNK_SESSION;
             }
 
-            lastKnownDecoder.wrap(inMemoryBuffer, position, BLOCK_LENGTH, SCHEMA_VERSION);
-
-            if (lastKnownDecoder.sessionId() == sessionId)
+            // Records are written in order, so the first one that hasn't been written is the end of the index
+            final int sequenceNumber = sequenceNumber(position);
+            if (sequenceNumber == 0)
             {
-                return lastKnownDecoder.sequenceNumber();
+                indexedUpTo = position;
+                return UNK_SESSION;
             }
 
+            final long recordSessionId = sessionId(position);
+            recordOffsets.put(recordSessionId, position);
             position += RECORD_SIZE;
+
+            if (recordSessionId == sessionId)
+            {
+                indexedUpTo = position;
+                return sequenceNumber;
+            }
         }
     }
 
+    // The writer has reset the index, so the records may have moved
+    private void clearRecordOffsets()
+    {
+        recordOffsets.clear();
+        indexedUpTo = HEADER_SIZE;
+    }
+
+    private long resetGeneration()
+    {
+        return inMemoryBuffer.getLongVolatile(RESET_GENERATION_OFFSET);
+    }
+
+    private int sequenceNumber(final int recordOffset)
+    {
+        // Written after the session id, so this is read first
+        return inMemoryBuffer.getIntVolatile(recordOffset + SEQUENCE_NUMBER_OFFSET);
+    }
+
+    private long sessionId(final int recordOffset)
+    {
+        lastKnownDecoder.wrap(inMemoryBuffer, recordOffset, BLOCK_LENGTH, SCHEMA_VERSION);
+        return lastKnownDecoder.sessionId();
+    }
+
     public long indexedPosition(final int aeronSessionId)
     {
         return positions.indexedPosition(aeronSessionId);
@@ -32,14 +32,20 @@ import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.io.File;
+import java.util.Arrays;
 
 import static uk.co.real_logic.artio.engine.SectorFramer.*;
 import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexDescriptor.*;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEncoder.SCHEMA_VERSION;
 
 /**
  * Writes updates into an in-memory buffer. This buffer is then flushed down to disk. A passing place
  * file is used to ensure that there's a recoverable option if it fails.
+ *
+ * Only the sectors that have changed are checksummed and copied when flushing. The index and writable files are
+ * flipped after every flush, so the writable file last had a flush copied into it two flushes ago and any sector
+ * that has changed since then needs to be copied into it.
  */
 public class SequenceNumberIndexWriter implements Index
 {
@@ -76,6 +82,9 @@ public class SequenceNumberIndexWriter implements Index
     private MappedFile writableFile;
     private MappedFile indexFile;
     private long nextRollPosition = UNINITIALISED;
+    // Indexed by sector, changed since the last flush and changed between the last flush and the one before it.
+    private boolean[] dirtySectors;
+    private boolean[] previouslyDirtySectors;
 
     public SequenceNumberIndexWriter(
         final AtomicBuffer inMemoryBuffer,
@@ -97,6 +106,13 @@ public class SequenceNumberIndexWriter implements Index
         passingPlacePath = passingPath(indexFilePath);
         writableFile = MappedFile.map(writablePath, fileCapacity);
 
+        // Nothing is known about what's in the writable file, so every sector is copied into both files at first
+        final int sectorCount = (fileCapacity + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        dirtySectors = new boolean[sectorCount];
+        previouslyDirtySectors = new boolean[sectorCount];
+        Arrays.fill(dirtySectors, true);
+        Arrays.fill(previouslyDirtySectors, true);
+
         // TODO: Fsync parent directory
         indexedPositionsOffset = positionTableOffset(fileCapacity);
         checksumFramer = new ChecksumFramer(
@@ -158,6 +174,12 @@ public class SequenceNumberIndexWriter implements Index
                 break;
             }
 
+            case FixMessageBatchDecoder.TEMPLATE_ID:
+            {
+                onMessageBatch(buffer, offset + actingBlockLength, srcOffset + length);
+                break;
+            }
+
             case ResetSessionIdsDecoder.TEMPLATE_ID:
             {
                 resetSequenceNumbers();
@@ -177,10 +199,35 @@ public class SequenceNumberIndexWriter implements Index
         positions.indexedUpTo(aeronSessionId, recordingId, endPosition);
     }
 
+    private void onMessageBatch(final DirectBuffer buffer, final int firstMessageOffset, final int endOffset)
+    {
+        asciiBuffer.wrap(buffer);
+
+        int offset = firstMessageOffset;
+        while (offset < endOffset)
+        {
+            messageHeader.wrap(buffer, offset);
+            offset += messageHeader.encodedLength();
+
+            messageFrame.wrap(buffer, offset, messageHeader.blockLength(), messageHeader.version());
+            final int bodyLength = messageFrame.bodyLength();
+            fixHeader.decode(asciiBuffer, offset + FRAME_SIZE, bodyLength);
+
+            saveRecord(fixHeader.msgSeqNum(), messageFrame.session());
+
+            offset += FRAME_SIZE + bodyLength;
+        }
+    }
+
     void resetSequenceNumbers()
     {
+        final long resetGeneration = inMemoryBuffer.getLong(RESET_GENERATION_OFFSET);
         inMemoryBuffer.setMemory(0, indexedPositionsOffset, (byte)0);
+        recordOffsets.clear();
+        markDirty(0, indexedPositionsOffset);
         initialiseBlankBuffer();
+        // Written after the records are cleared, so a reader that sees the new generation won't see the old records
+        inMemoryBuffer.putLongOrdered(RESET_GENERATION_OFFSET, resetGeneration + 1);
     }
 
     private void checkTermRoll(final DirectBuffer buffer, final int offset, final long endPosition, final int length)
@@ -200,16 +247,71 @@ public class SequenceNumberIndexWriter implements Index
 
     private void updateFile()
     {
-        checksumFramer.updateChecksums();
-        positions.updateChecksums();
+        updateChecksums();
         saveFile();
         flipFiles();
     }
 
+    private void updateChecksums()
+    {
+        final boolean[] dirtySectors = this.dirtySectors;
+        final int recordSectors = indexedPositionsOffset / SECTOR_SIZE;
+        for (int sector = 0; sector < recordSectors; sector++)
+        {
+            if (dirtySectors[sector])
+            {
+                checksumFramer.updateChecksum(sector * SECTOR_SIZE);
+            }
+        }
+
+        // Positions are updated on every fragment, so it's cheaper to work out what they've touched at flush time
+        positions.updateChecksums();
+        markDirty(indexedPositionsOffset, indexedPositionsOffset + positions.endOfRecords());
+    }
+
     private void saveFile()
     {
-        writableFile.buffer().putBytes(0, inMemoryBuffer, 0, fileCapacity);
+        final AtomicBuffer fileBuffer = writableFile.buffer();
+        final boolean[] dirtySectors = this.dirtySectors;
+        final boolean[] previouslyDirtySectors = this.previouslyDirtySectors;
+        final int sectorCount = dirtySectors.length;
+
+        int sector = 0;
+        while (sector < sectorCount)
+        {
+            if (dirtySectors[sector] || previouslyDirtySectors[sector])
+            {
+                // Copy runs of adjacent sectors in one go
+                final int start = sector * SECTOR_SIZE;
+                do
+                {
+                    sector++;
+                }
+                while (sector < sectorCount && (dirtySectors[sector] || previouslyDirtySectors[sector]));
+
+                final int end = Math.min(sector * SECTOR_SIZE, fileCapacity);
+                fileBuffer.putBytes(start, inMemoryBuffer, start, end - start);
+            }
+            else
+            {
+                sector++;
+            }
+        }
+
         writableFile.force();
+
+        Arrays.fill(previouslyDirtySectors, false);
+        this.previouslyDirtySectors = dirtySectors;
+        this.dirtySectors = previouslyDirtySectors;
+    }
+
+    private void markDirty(final int start, final int end)
+    {
+        final boolean[] dirtySectors = this.dirtySectors;
+        for (int sector = start / SECTOR_SIZE, lastSector = (end - 1) / SECTOR_SIZE; sector <= lastSector; sector++)
+        {
+            dirtySectors[sector] = true;
+        }
     }
 
     private void flipFiles()
@@ -415,5 +517,6 @@ public class SequenceNumberIndexWriter implements Index
         final int value)
     {
         inMemoryBuffer.putIntOrdered(recordOffset + SEQUENCE_NUMBER_OFFSET, value);
+        dirtySectors[recordOffset / SECTOR_SIZE] = true;
     }
 }
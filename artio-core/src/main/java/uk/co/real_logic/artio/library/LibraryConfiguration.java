@@ -60,7 +60,7 @@ public final class LibraryConfiguration extends CommonConfiguration
         }
     };
 
-    private final int libraryId;
+    private int libraryId;
 
     {
         int libraryId;
@@ -222,6 +222,12 @@ public final class LibraryConfiguration extends CommonConfiguration
 
     void conclude()
     {
+        if (dedicatedLibraryInboundSessions())
+        {
+            // The library id is also the Aeron session id of the library's inbound session
+            libraryId = ThreadLocalRandom.current().nextInt(DEDICATED_LIBRARY_ID_LOW, DEDICATED_LIBRARY_ID_HIGH + 1);
+        }
+
         super.conclude("library-" + libraryId());
 
         if (libraryAeronChannels.isEmpty())
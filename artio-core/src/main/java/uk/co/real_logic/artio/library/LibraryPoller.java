@@ -101,6 +101,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
     private final LongHashSet sessionIds = new LongHashSet();
 
     private final SessionAccessor accessor = new SessionAccessor(LibraryPoller.class);
+    private final SessionTimerWheel<Session> sessionTimers;
 
     // Uniquely identifies library session
     private final int libraryId;
@@ -162,6 +163,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
         this.sentPositionHandler = configuration.sentPositionHandler();
         this.clock = clock;
         this.enginesAreClustered = configuration.libraryAeronChannels().size() > 1;
+        this.sessionTimers = new SessionTimerWheel<>(this::onSessionTimer);
     }
 
     boolean isConnected()
@@ -216,6 +218,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
     void disableSession(final Session session)
     {
         sessions = ArrayUtil.remove(sessions, session);
+        sessionTimers.remove(session);
         accessor.disable(session);
     }
 
@@ -511,18 +514,17 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
     //                     END CONNECTION LOGIC
     // -----------------------------------------------------------------------
 
+    // Only the sessions that have a heartbeat or timeout due, or have changed state, get polled.
     private int pollSessions(final long timeInMs)
     {
-        final Session[] sessions = this.sessions;
-        int total = 0;
-
-        for (int i = 0, size = sessions.length; i < size; i++)
-        {
-            final Session session = sessions[i];
-            total += session.poll(timeInMs);
-        }
+        return sessionTimers.poll(timeInMs);
+    }
 
-        return total;
+    private int onSessionTimer(final Session session, final long timeInMs)
+    {
+        final int actions = session.poll(timeInMs);
+        sessionTimers.schedule(session, session.nextPollTime(timeInMs));
+        return actions;
     }
 
     private int pollPendingInitiatorSessions(final long timeInMs)
@@ -539,6 +541,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
                 this.pendingInitiatorSessions = pendingSessions = ArrayUtil.remove(pendingSessions, i);
                 size--;
                 sessions = ArrayUtil.add(sessions, session);
+                sessionTimers.add(session, session, timeInMs);
             }
             else
             {
@@ -657,6 +660,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
                         connection, address, sessionState, heartbeatIntervalInS, sequenceIndex, logonTime);
                     newSession(connection, sessionId, session);
                     sessions = ArrayUtil.add(sessions, session);
+                    sessionTimers.add(session, session, timeInMs());
                 }
 
                 // ie the initial part of this library getting hold of this session.
@@ -766,6 +770,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
                     // session will be in either pendingInitiatorSessions or sessions
                     pendingInitiatorSessions = ArrayUtil.remove(pendingInitiatorSessions, session);
                     sessions = ArrayUtil.remove(sessions, session);
+                    sessionTimers.remove(session);
                 }
 
                 return action;
@@ -919,6 +924,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
                         subscriber.onTimeout(libraryId);
                     }
                     session.close();
+                    sessionTimers.remove(session);
                     // TODO(Nick): Maybe we shouldn't be creating a lot of arrays and batch this up?
                     sessions = ArrayUtil.remove(sessions, i);
                     size--;
@@ -962,6 +968,21 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
         return CONTINUE;
     }
 
+    public Action onThrottleNotification(
+        final int libraryId, final long connectionId, final boolean isThrottled)
+    {
+        if (libraryId == this.libraryId)
+        {
+            final SessionSubscriber subscriber = connectionIdToSession.get(connectionId);
+            if (subscriber != null)
+            {
+                subscriber.onThrottleNotification(libraryId, isThrottled);
+            }
+        }
+
+        return CONTINUE;
+    }
+
     public Action onResetLibrarySequenceNumber(final int libraryId, final long sessionId)
     {
         if (libraryId == this.libraryId)
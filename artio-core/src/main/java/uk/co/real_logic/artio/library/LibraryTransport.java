@@ -69,7 +69,9 @@ class LibraryTransport
             outboundPublication.close();
         }
 
-        inboundSubscription = aeron.addSubscription(aeronChannel, INBOUND_LIBRARY_STREAM);
+        final String inboundChannel = configuration.dedicatedLibraryInboundSessions() ?
+            Streams.libraryChannel(aeronChannel, configuration.libraryId()) : aeronChannel;
+        inboundSubscription = aeron.addSubscription(inboundChannel, INBOUND_LIBRARY_STREAM);
         StreamInformation.print(
             "library " + configuration.libraryId() + " inboundSubscription", inboundSubscription, configuration);
         outboundPublication = outboundLibraryStreams.gatewayPublication(
@@ -67,6 +67,18 @@ public interface SessionHandler
      */
     void onSlowStatus(int libraryId, Session session, boolean hasBecomeSlow);
 
+    /**
+     * Invoked when the engine's outbound throttle starts or stops holding back messages that this session has sent,
+     * see {@link uk.co.real_logic.artio.engine.EngineConfiguration#outboundThrottleMessagesPerWindow(int)}.
+     *
+     * @param libraryId the id of library which owns the session.
+     * @param session the session whose messages are being throttled.
+     * @param isThrottled true iff messages are now being held back, false once they have all been sent.
+     */
+    default void onThrottleStatus(final int libraryId, final Session session, final boolean isThrottled)
+    {
+    }
+
     /**
      * The session has disconnected.
      *
@@ -89,6 +89,7 @@ class SessionSubscriber implements AutoCloseable
                         position);
 
                 case CATCHUP_REPLAY:
+                    session.messageHeaderLength(0);
                     return handler.onMessage(
                         buffer,
                         offset,
@@ -100,6 +101,9 @@ class SessionSubscriber implements AutoCloseable
                         timestamp,
                         position);
 
+                case THROTTLED:
+                    return parser.onThrottledMessage(buffer, offset, length);
+
                 default:
                     return CONTINUE;
             }
@@ -175,6 +179,11 @@ class SessionSubscriber implements AutoCloseable
         handler.onSlowStatus(libraryId, session, hasBecomeSlow);
     }
 
+    void onThrottleNotification(final int libraryId, final boolean isThrottled)
+    {
+        handler.onThrottleStatus(libraryId, session, isThrottled);
+    }
+
     public void close()
     {
         session.requestDisconnect();
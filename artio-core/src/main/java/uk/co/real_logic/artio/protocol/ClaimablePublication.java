@@ -15,7 +15,7 @@
  */
 package uk.co.real_logic.artio.protocol;
 
-import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
 import io.aeron.logbuffer.ExclusiveBufferClaim;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.status.AtomicCounter;
@@ -35,7 +35,7 @@ class ClaimablePublication implements AutoCloseable
     private final AtomicCounter fails;
     protected final MessageHeaderEncoder header = new MessageHeaderEncoder();
     protected final ExclusiveBufferClaim bufferClaim = new ExclusiveBufferClaim();
-    protected final ExclusivePublication dataPublication;
+    protected final Publication dataPublication;
 
     protected final IdleStrategy idleStrategy;
 
@@ -43,7 +43,7 @@ class ClaimablePublication implements AutoCloseable
         final int maxClaimAttempts,
         final IdleStrategy idleStrategy,
         final AtomicCounter fails,
-        final ExclusivePublication dataPublication)
+        final Publication dataPublication)
     {
         this.maxClaimAttempts = maxClaimAttempts;
         this.idleStrategy = idleStrategy;
@@ -90,6 +90,11 @@ class ClaimablePublication implements AutoCloseable
         }
     }
 
+    public boolean isClosed()
+    {
+        return dataPublication.isClosed();
+    }
+
     public void close()
     {
         dataPublication.close();
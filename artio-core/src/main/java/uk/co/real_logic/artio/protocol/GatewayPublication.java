@@ -15,7 +15,7 @@
  */
 package uk.co.real_logic.artio.protocol;
 
-import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
 import io.aeron.logbuffer.ExclusiveBufferClaim;
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
@@ -47,6 +47,7 @@ public class GatewayPublication extends ClaimablePublication
     public static final int FRAME_SIZE = FixMessageEncoder.BLOCK_LENGTH + FixMessageDecoder.bodyHeaderLength();
 
     private static final int FRAMED_MESSAGE_SIZE = MessageHeaderEncoder.ENCODED_LENGTH + FRAME_SIZE;
+    private static final int MESSAGE_BATCH_HEADER_LENGTH = HEADER_LENGTH + FixMessageBatchEncoder.BLOCK_LENGTH;
 
     private static final byte[] NO_BYTES = {};
 
@@ -65,6 +66,7 @@ public class GatewayPublication extends ClaimablePublication
         NotLeaderEncoder.BLOCK_LENGTH + HEADER_LENGTH + libraryChannelHeaderLength();
     private static final int SLOW_STATUS_NOTIFICATION_LENGTH =
         HEADER_LENGTH + SlowStatusNotificationEncoder.BLOCK_LENGTH;
+    private static final int THROTTLE_NOTIFICATION_LENGTH = HEADER_LENGTH + ThrottleNotificationEncoder.BLOCK_LENGTH;
     private static final byte MIDDLE_FLAG = 0;
     private static final int MANAGE_SESSION_BLOCK_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH +
         ManageSessionEncoder.BLOCK_LENGTH + ManageSessionEncoder.localCompIdHeaderLength() * 7;
@@ -78,6 +80,7 @@ public class GatewayPublication extends ClaimablePublication
     private final RequestDisconnectEncoder requestDisconnect = new RequestDisconnectEncoder();
     private final DisconnectEncoder disconnect = new DisconnectEncoder();
     private final FixMessageEncoder fixMessage = new FixMessageEncoder();
+    private final FixMessageBatchEncoder fixMessageBatch = new FixMessageBatchEncoder();
     private final ErrorEncoder error = new ErrorEncoder();
     private final ApplicationHeartbeatEncoder applicationHeartbeat = new ApplicationHeartbeatEncoder();
     private final LibraryConnectEncoder libraryConnect = new LibraryConnectEncoder();
@@ -95,13 +98,14 @@ public class GatewayPublication extends ClaimablePublication
     private final ResetLibrarySequenceNumberEncoder resetLibrarySequenceNumber =
         new ResetLibrarySequenceNumberEncoder();
     private final SlowStatusNotificationEncoder slowStatusNotification = new SlowStatusNotificationEncoder();
+    private final ThrottleNotificationEncoder throttleNotification = new ThrottleNotificationEncoder();
 
     private final Clock clock;
     private final int maxPayloadLength;
     private final int maxInitialBodyLength;
 
     public GatewayPublication(
-        final ExclusivePublication dataPublication,
+        final Publication dataPublication,
         final AtomicCounter fails,
         final IdleStrategy idleStrategy,
         final Clock clock,
@@ -139,26 +143,20 @@ public class GatewayPublication extends ClaimablePublication
             return position;
         }
 
-        int offset = bufferClaim.offset();
+        final int offset = bufferClaim.offset();
         final MutableDirectBuffer destBuffer = bufferClaim.buffer();
 
-        header.wrap(destBuffer, offset)
-            .blockLength(fixMessage.sbeBlockLength())
-            .templateId(fixMessage.sbeTemplateId())
-            .schemaId(fixMessage.sbeSchemaId())
-            .version(fixMessage.sbeSchemaVersion());
-
-        offset += header.encodedLength();
-
-        fixMessage.wrap(destBuffer, offset)
-            .libraryId(libraryId)
-            .messageType(messageType)
-            .session(sessionId)
-            .sequenceIndex(sequenceIndex)
-            .connection(connectionId)
-            .timestamp(timestamp)
-            .status(status)
-            .sequenceNumber(sequenceNumber)
+        putMessageFrame(
+            destBuffer,
+            offset,
+            libraryId,
+            messageType,
+            sessionId,
+            sequenceIndex,
+            connectionId,
+            timestamp,
+            status,
+            sequenceNumber)
             .putBody(srcBuffer, srcFragmentOffset, srcFragmentLength);
 
         if (!fragmented)
@@ -167,7 +165,7 @@ public class GatewayPublication extends ClaimablePublication
         }
         else
         {
-            putBodyLength(srcLength, offset, destBuffer);
+            putBodyLength(srcLength, offset + HEADER_LENGTH, destBuffer);
 
             bufferClaim.flags((byte)BEGIN_FLAG).commit();
 
@@ -196,11 +194,264 @@ public class GatewayPublication extends ClaimablePublication
         return position;
     }
 
+    /**
+     * Claims a fragment for a FIX message of exactly messageLength bytes and writes its FixMessage header, so that
+     * the message itself can be written directly into {@link #claimedBuffer()} at {@link #claimedMessageOffset()}
+     * rather than being copied in from another buffer. A successful claim must be followed by either
+     * {@link #commitMessage()} or {@link #abortMessage()} before anything else is published.
+     *
+     * Only messages that fit into a single fragment can be claimed.
+     *
+     * @param messageLength the length of the FIX message that will be written.
+     * @param libraryId the id of the library sending the message.
+     * @param messageType the packed message type of the FIX message.
+     * @param sessionId the id of the session that the message is sent on.
+     * @param sequenceIndex the sequence index of the session.
+     * @param connectionId the connection that the message is sent on.
+     * @param status the status of the message.
+     * @param sequenceNumber the sequence number of the FIX message.
+     * @return the position in the stream that corresponds to the end of this message or a negative
+     * number indicating an error status.
+     * @throws IllegalArgumentException if the message doesn't fit into a single fragment.
+     */
+    public long claimMessage(
+        final int messageLength,
+        final int libraryId,
+        final int messageType,
+        final long sessionId,
+        final int sequenceIndex,
+        final long connectionId,
+        final MessageStatus status,
+        final int sequenceNumber)
+    {
+        final int framedLength = FRAMED_MESSAGE_SIZE + messageLength;
+        if (framedLength > maxPayloadLength)
+        {
+            throw new IllegalArgumentException(String.format(
+                "Message of framed length %d is too long to claim, the maximum payload length is %d",
+                framedLength,
+                maxPayloadLength));
+        }
+
+        final ExclusiveBufferClaim bufferClaim = this.bufferClaim;
+        final long position = claim(framedLength);
+        if (position < 0)
+        {
+            return position;
+        }
+
+        final int offset = bufferClaim.offset();
+        final MutableDirectBuffer destBuffer = bufferClaim.buffer();
+
+        putMessageFrame(
+            destBuffer,
+            offset,
+            libraryId,
+            messageType,
+            sessionId,
+            sequenceIndex,
+            connectionId,
+            clock.time(),
+            status,
+            sequenceNumber);
+
+        putBodyLength(messageLength, offset + HEADER_LENGTH, destBuffer);
+
+        return position;
+    }
+
+    public MutableDirectBuffer claimedBuffer()
+    {
+        return bufferClaim.buffer();
+    }
+
+    public int claimedMessageOffset()
+    {
+        return bufferClaim.offset() + FRAMED_MESSAGE_SIZE;
+    }
+
+    public void commitMessage()
+    {
+        final ExclusiveBufferClaim bufferClaim = this.bufferClaim;
+        DebugLogger.log(
+            FIX_MESSAGE,
+            "Enqueued %s%n",
+            bufferClaim.buffer(),
+            claimedMessageOffset(),
+            bufferClaim.length() - FRAMED_MESSAGE_SIZE);
+        bufferClaim.commit();
+    }
+
+    public void abortMessage()
+    {
+        bufferClaim.abort();
+    }
+
     private void putBodyLength(final int srcLength, final int offset, final MutableDirectBuffer destBuffer)
     {
         destBuffer.putShort(offset + FixMessageEncoder.BLOCK_LENGTH, (short)srcLength, LITTLE_ENDIAN);
     }
 
+    private FixMessageEncoder putMessageFrame(
+        final MutableDirectBuffer destBuffer,
+        final int offset,
+        final int libraryId,
+        final int messageType,
+        final long sessionId,
+        final int sequenceIndex,
+        final long connectionId,
+        final long timestamp,
+        final MessageStatus status,
+        final int sequenceNumber)
+    {
+        header.wrap(destBuffer, offset)
+            .blockLength(fixMessage.sbeBlockLength())
+            .templateId(fixMessage.sbeTemplateId())
+            .schemaId(fixMessage.sbeSchemaId())
+            .version(fixMessage.sbeSchemaVersion());
+
+        return fixMessage.wrap(destBuffer, offset + header.encodedLength())
+            .libraryId(libraryId)
+            .messageType(messageType)
+            .session(sessionId)
+            .sequenceIndex(sequenceIndex)
+            .connection(connectionId)
+            .timestamp(timestamp)
+            .status(status)
+            .sequenceNumber(sequenceNumber);
+    }
+
+    /**
+     * Gets the number of bytes that a FIX message of the given length takes up within a batch.
+     *
+     * @param messageLength the length of the FIX message.
+     * @return the number of bytes that the message takes up within a batch.
+     */
+    public static int batchedMessageLength(final int messageLength)
+    {
+        return FRAMED_MESSAGE_SIZE + messageLength;
+    }
+
+    /**
+     * Gets the maximum number of bytes of framed messages that can be sent in one batch, since a batch is always
+     * published as a single fragment.
+     *
+     * @return the maximum number of bytes of framed messages that can be sent in one batch.
+     */
+    public int maxBatchLength()
+    {
+        return maxPayloadLength - MESSAGE_BATCH_HEADER_LENGTH;
+    }
+
+    /**
+     * Frames a FIX message into a buffer so that it can later be published as part of a batch by
+     * {@link #saveMessageBatch(DirectBuffer, int, int, int, int)}.
+     *
+     * @param destBuffer the buffer that the batch is being built up in.
+     * @param destOffset the offset within destBuffer to write the framed message at.
+     * @param srcBuffer the buffer that contains the FIX message.
+     * @param srcOffset the offset of the FIX message within srcBuffer.
+     * @param srcLength the length of the FIX message.
+     * @param libraryId the id of the library sending the message.
+     * @param messageType the packed message type of the FIX message.
+     * @param sessionId the id of the session that the message is sent on.
+     * @param sequenceIndex the sequence index of the session.
+     * @param connectionId the connection that the message is sent on.
+     * @param status the status of the message.
+     * @param sequenceNumber the sequence number of the FIX message.
+     * @return the number of bytes written into destBuffer.
+     */
+    public int putBatchedMessage(
+        final MutableDirectBuffer destBuffer,
+        final int destOffset,
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
+        final int libraryId,
+        final int messageType,
+        final long sessionId,
+        final int sequenceIndex,
+        final long connectionId,
+        final MessageStatus status,
+        final int sequenceNumber)
+    {
+        putMessageFrame(
+            destBuffer,
+            destOffset,
+            libraryId,
+            messageType,
+            sessionId,
+            sequenceIndex,
+            connectionId,
+            clock.time(),
+            status,
+            sequenceNumber)
+            .putBody(srcBuffer, srcOffset, srcLength);
+
+        return batchedMessageLength(srcLength);
+    }
+
+    /**
+     * Publishes a batch of messages framed by
+     * {@link #putBatchedMessage(MutableDirectBuffer, int, DirectBuffer, int, int, int, int, long, int, long,
+     * MessageStatus, int)} as a single fragment.
+     *
+     * @param srcBuffer the buffer that contains the framed messages.
+     * @param srcOffset the offset of the first framed message within srcBuffer.
+     * @param srcLength the total length of the framed messages.
+     * @param libraryId the id of the library sending the messages.
+     * @param messageCount the number of messages in the batch.
+     * @return the position in the stream that corresponds to the end of the batch or a negative
+     * number indicating an error status.
+     * @throws IllegalArgumentException if the batch is longer than {@link #maxBatchLength()}.
+     */
+    public long saveMessageBatch(
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
+        final int libraryId,
+        final int messageCount)
+    {
+        if (srcLength > maxBatchLength())
+        {
+            throw new IllegalArgumentException(String.format(
+                "Batch of length %d is too long to publish, the maximum is %d", srcLength, maxBatchLength()));
+        }
+
+        final long position = claim(MESSAGE_BATCH_HEADER_LENGTH + srcLength);
+        if (position < 0)
+        {
+            return position;
+        }
+
+        final MutableDirectBuffer destBuffer = bufferClaim.buffer();
+        int offset = bufferClaim.offset();
+
+        header
+            .wrap(destBuffer, offset)
+            .blockLength(fixMessageBatch.sbeBlockLength())
+            .templateId(fixMessageBatch.sbeTemplateId())
+            .schemaId(fixMessageBatch.sbeSchemaId())
+            .version(fixMessageBatch.sbeSchemaVersion());
+
+        offset += header.encodedLength();
+
+        fixMessageBatch
+            .wrap(destBuffer, offset)
+            .libraryId(libraryId)
+            .messageCount(messageCount);
+
+        offset += fixMessageBatch.encodedLength();
+
+        destBuffer.putBytes(offset, srcBuffer, srcOffset, srcLength);
+
+        bufferClaim.commit();
+
+        DebugLogger.log(FIX_MESSAGE, "Enqueued batch of %d messages%n", messageCount);
+
+        return position;
+    }
+
     public long saveManageSession(
         final int libraryId,
         final long connection,
@@ -781,6 +1032,30 @@ public class GatewayPublication extends ClaimablePublication
         return position;
     }
 
+    public long saveThrottleNotification(final int libraryId, final long connectionId, final ThrottleStatus status)
+    {
+        final long position = claim(THROTTLE_NOTIFICATION_LENGTH);
+        if (position < 0)
+        {
+            return position;
+        }
+
+        final MutableDirectBuffer buffer = bufferClaim.buffer();
+        final int offset = bufferClaim.offset();
+
+        throttleNotification
+            .wrapAndApplyHeader(buffer, offset, header)
+            .libraryId(libraryId)
+            .connectionId(connectionId)
+            .status(status);
+
+        bufferClaim.commit();
+
+        logSbeMessage(GATEWAY_MESSAGE, throttleNotification);
+
+        return position;
+    }
+
     public int id()
     {
         return dataPublication.sessionId();
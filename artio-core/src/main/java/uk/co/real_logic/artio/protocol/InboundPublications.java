@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.protocol;
+
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.concurrent.IdleStrategy;
+
+import java.util.function.Consumer;
+
+import static uk.co.real_logic.artio.CommonConfiguration.DEDICATED_LIBRARY_ID_HIGH;
+import static uk.co.real_logic.artio.CommonConfiguration.DEDICATED_LIBRARY_ID_LOW;
+
+/**
+ * Picks the publication that inbound messages addressed to a library are written to.
+ *
+ * When dedicated library inbound sessions are enabled each library has its own Aeron session on the inbound stream,
+ * created when the library connects and closed once it has been told that it has timed out. Messages for the
+ * engine's own sessions, and for libraries without their own session, stay on the default publication.
+ *
+ * Not thread safe. The library sessions are exclusive publications, so only the Framer creates an instance with
+ * library publications.
+ */
+public final class InboundPublications
+{
+    private final Int2ObjectHashMap<GatewayPublication> libraryIdToPublication = new Int2ObjectHashMap<>();
+    private final GatewayPublication defaultPublication;
+    private final Streams streams;
+    private final IdleStrategy idleStrategy;
+    private final String name;
+
+    public InboundPublications(final GatewayPublication defaultPublication)
+    {
+        this(defaultPublication, null, null, null);
+    }
+
+    /**
+     * Creates the publications for a writing thread.
+     *
+     * @param defaultPublication the publication for messages that aren't routed to a dedicated library session.
+     * @param streams the inbound streams to create library publications on, or null if they are disabled.
+     * @param idleStrategy the idle strategy used by the library publications when back pressured.
+     * @param name the name used when printing the stream identifiers.
+     */
+    public InboundPublications(
+        final GatewayPublication defaultPublication,
+        final Streams streams,
+        final IdleStrategy idleStrategy,
+        final String name)
+    {
+        this.defaultPublication = defaultPublication;
+        this.streams = streams;
+        this.idleStrategy = idleStrategy;
+        this.name = name;
+    }
+
+    public GatewayPublication forLibrary(final int libraryId)
+    {
+        final GatewayPublication publication = libraryIdToPublication.get(libraryId);
+        return publication == null ? defaultPublication : publication;
+    }
+
+    /**
+     * Gets the publication for a library that is connecting, creating the library's own session if it doesn't have
+     * one yet. Only libraries whose ids are in the dedicated range get their own session, see
+     * {@link uk.co.real_logic.artio.CommonConfiguration#DEDICATED_LIBRARY_ID_LOW}.
+     *
+     * @param libraryId the id of the library.
+     * @return the publication, or null if the library's session isn't being archived yet and the caller should retry.
+     */
+    public GatewayPublication addLibrary(final int libraryId)
+    {
+        if (streams == null || libraryId < DEDICATED_LIBRARY_ID_LOW || libraryId > DEDICATED_LIBRARY_ID_HIGH)
+        {
+            return defaultPublication;
+        }
+
+        GatewayPublication publication = libraryIdToPublication.get(libraryId);
+        if (publication == null)
+        {
+            publication = streams.libraryGatewayPublication(idleStrategy, name + "-" + libraryId, libraryId);
+            libraryIdToPublication.put(libraryId, publication);
+        }
+
+        // Messages written before the archiver picks up the session wouldn't be recorded or indexed
+        return streams.isRecording(publication) ? publication : null;
+    }
+
+    /**
+     * Closes a library's own session, after which its messages go to the default publication.
+     *
+     * @param libraryId the id of the library.
+     */
+    public void removeLibrary(final int libraryId)
+    {
+        final GatewayPublication publication = libraryIdToPublication.remove(libraryId);
+        if (publication != null)
+        {
+            publication.close();
+        }
+    }
+
+    public boolean hasLibraryPublications()
+    {
+        return streams != null;
+    }
+
+    public GatewayPublication defaultPublication()
+    {
+        return defaultPublication;
+    }
+
+    public void forEachPublication(final Consumer<GatewayPublication> consumer)
+    {
+        consumer.accept(defaultPublication);
+        libraryIdToPublication.values().forEach(consumer);
+    }
+}
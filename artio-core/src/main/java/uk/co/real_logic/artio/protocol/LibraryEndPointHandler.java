@@ -37,6 +37,8 @@ public interface LibraryEndPointHandler
 
     Action onSlowStatusNotification(int libraryId, long connectionId, boolean hasBecomeSlow);
 
+    Action onThrottleNotification(int libraryId, long connectionId, boolean isThrottled);
+
     Action onResetLibrarySequenceNumber(int libraryId, long sessionId);
 
     Action onManageSession(
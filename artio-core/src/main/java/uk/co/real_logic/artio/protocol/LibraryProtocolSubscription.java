@@ -34,6 +34,7 @@ public final class LibraryProtocolSubscription implements ControlledFragmentHand
     private final NotLeaderDecoder libraryConnect = new NotLeaderDecoder();
     private final ControlNotificationDecoder controlNotification = new ControlNotificationDecoder();
     private final SlowStatusNotificationDecoder slowStatusNotification = new SlowStatusNotificationDecoder();
+    private final ThrottleNotificationDecoder throttleNotification = new ThrottleNotificationDecoder();
     private final ResetLibrarySequenceNumberDecoder resetLibrarySequenceNumber =
         new ResetLibrarySequenceNumberDecoder();
     private final ManageSessionDecoder manageSession = new ManageSessionDecoder();
@@ -101,6 +102,11 @@ public final class LibraryProtocolSubscription implements ControlledFragmentHand
                 return onSlowStatusNotification(buffer, offset, blockLength, version);
             }
 
+            case ThrottleNotificationDecoder.TEMPLATE_ID:
+            {
+                return onThrottleNotification(buffer, offset, blockLength, version);
+            }
+
             case ResetLibrarySequenceNumberDecoder.TEMPLATE_ID:
             {
                 return onResetLibrarySequenceNumber(buffer, offset, blockLength, version);
@@ -165,6 +171,26 @@ public final class LibraryProtocolSubscription implements ControlledFragmentHand
             slowStatusNotification.status() == SlowStatus.SLOW);
     }
 
+    private Action onThrottleNotification(
+        final DirectBuffer buffer,
+        final int offset,
+        final int blockLength,
+        final int version)
+    {
+        throttleNotification.wrap(buffer, offset, blockLength, version);
+        final int libraryId = throttleNotification.libraryId();
+        final Action action = handler.onApplicationHeartbeat(libraryId);
+        if (action == ABORT)
+        {
+            return action;
+        }
+
+        return handler.onThrottleNotification(
+            libraryId,
+            throttleNotification.connectionId(),
+            throttleNotification.status() == ThrottleStatus.THROTTLED);
+    }
+
     private Action onResetLibrarySequenceNumber(
         final DirectBuffer buffer,
         final int offset,
@@ -20,10 +20,12 @@ import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.messages.DisconnectDecoder;
+import uk.co.real_logic.artio.messages.FixMessageBatchDecoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.messages.ReplicatedMessageDecoder;
 
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static uk.co.real_logic.artio.LogTag.FIX_MESSAGE;
 import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
@@ -33,6 +35,7 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
     private static final int HEADER_LENGTH = MessageHeaderDecoder.ENCODED_LENGTH;
 
     private static final Action UNKNOWN_TEMPLATE = null;
+    private static final long NO_BATCH = -1;
 
     private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
     private final DisconnectDecoder disconnect = new DisconnectDecoder();
@@ -41,6 +44,10 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
     private final ProtocolHandler protocolHandler;
     private final Action defaultAction;
 
+    // Where to carry on from if a batch is redelivered after one of its messages has been aborted
+    private long abortedBatchPosition = NO_BATCH;
+    private int abortedBatchOffset;
+
     public static ProtocolSubscription of(final ProtocolHandler protocolHandler)
     {
         return new ProtocolSubscription(protocolHandler, CONTINUE);
@@ -91,6 +98,11 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
                 return onFixMessage(buffer, offset, blockLength, version, position);
             }
 
+            case FixMessageBatchDecoder.TEMPLATE_ID:
+            {
+                return onFixMessageBatch(buffer, offset, length - HEADER_LENGTH, blockLength, position);
+            }
+
             case DisconnectDecoder.TEMPLATE_ID:
             {
                 return onDisconnect(buffer, offset, blockLength, version);
@@ -117,6 +129,59 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
         return protocolHandler.onDisconnect(disconnect.libraryId(), connectionId, disconnect.reason());
     }
 
+    /**
+     * Hands each message in a batch to the handler as though it had been received on its own. Each message is given
+     * the position in the stream that its end would have if the batch ended there, so that positions still increase
+     * from one message to the next and the last message has the batch's position.
+     */
+    private Action onFixMessageBatch(
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final int blockLength,
+        final long position)
+    {
+        final int endOffset = offset + length;
+
+        int messageOffset = offset + blockLength;
+        if (abortedBatchPosition == position)
+        {
+            messageOffset = abortedBatchOffset;
+        }
+        abortedBatchPosition = NO_BATCH;
+
+        Action result = CONTINUE;
+        while (messageOffset < endOffset)
+        {
+            messageHeader.wrap(buffer, messageOffset);
+            final int messageBlockLength = messageHeader.blockLength();
+            final int messageVersion = messageHeader.version();
+            final int frameOffset = messageOffset + HEADER_LENGTH;
+
+            messageFrame.wrap(buffer, frameOffset, messageBlockLength, messageVersion);
+            final int nextMessageOffset = frameOffset + FRAME_SIZE + messageFrame.bodyLength();
+            final long messagePosition = position - (endOffset - nextMessageOffset);
+
+            final Action action = onFixMessage(
+                buffer, frameOffset, messageBlockLength, messageVersion, messagePosition);
+            if (action == ABORT)
+            {
+                abortedBatchPosition = position;
+                abortedBatchOffset = messageOffset;
+                return ABORT;
+            }
+
+            if (action != CONTINUE)
+            {
+                result = action;
+            }
+
+            messageOffset = nextMessageOffset;
+        }
+
+        return result;
+    }
+
     private Action onFixMessage(
         final DirectBuffer buffer,
         final int offset,
@@ -16,7 +16,9 @@
 package uk.co.real_logic.artio.protocol;
 
 import io.aeron.Aeron;
+import io.aeron.ChannelUri;
 import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
 import io.aeron.Subscription;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.status.AtomicCounter;
@@ -24,6 +26,8 @@ import uk.co.real_logic.artio.Clock;
 import uk.co.real_logic.artio.StreamInformation;
 import uk.co.real_logic.artio.engine.RecordingCoordinator;
 
+import static io.aeron.CommonContext.SESSION_ID_PARAM_NAME;
+
 public final class Streams
 {
     private final int streamId;
@@ -66,6 +70,80 @@ public final class Streams
         );
     }
 
+    /**
+     * Creates a gateway publication backed by a concurrent Aeron publication. All gateway publications
+     * created this way for the same stream append to the same log, so messages written from different
+     * threads are seen in a single order by subscribers, indexers and the archiver.
+     *
+     * @param idleStrategy the idle strategy to use when back pressured.
+     * @param name the name used when printing the stream identifiers.
+     * @return the gateway publication.
+     */
+    public GatewayPublication sharedGatewayPublication(final IdleStrategy idleStrategy, final String name)
+    {
+        return new GatewayPublication(
+            sharedDataPublication(name),
+            failedPublications,
+            idleStrategy,
+            clock,
+            maxClaimAttempts
+        );
+    }
+
+    /**
+     * Creates a gateway publication on the Aeron session dedicated to a library, see
+     * {@link #libraryChannel(String, int)}. Aeron only shares a single concurrent publication per stream between
+     * threads, so this is an exclusive publication and all messages to the library must be written from one thread.
+     *
+     * @param idleStrategy the idle strategy to use when back pressured.
+     * @param name the name used when printing the stream identifiers.
+     * @param libraryId the library that the messages are addressed to.
+     * @return the gateway publication.
+     */
+    public GatewayPublication libraryGatewayPublication(
+        final IdleStrategy idleStrategy, final String name, final int libraryId)
+    {
+        // Not tracked by the recording coordinator, callers check isRecording before using the publication.
+        final ExclusivePublication publication = aeron.addExclusivePublication(
+            libraryChannel(aeronChannel, libraryId), streamId);
+        StreamInformation.print(name, publication, printAeronStreamIdentifiers);
+
+        return new GatewayPublication(
+            publication,
+            failedPublications,
+            idleStrategy,
+            clock,
+            maxClaimAttempts
+        );
+    }
+
+    /**
+     * Checks whether the archiver has started recording a publication's session, if the stream is being archived.
+     * The stream's recording picks up new sessions as they appear, so this is needed for sessions created after the
+     * engine has started.
+     *
+     * @param publication the publication to check.
+     * @return true if the publication's messages are being archived, or the stream isn't archived.
+     */
+    public boolean isRecording(final GatewayPublication publication)
+    {
+        return recordingCoordinator == null || recordingCoordinator.isRecording(streamId, publication.id());
+    }
+
+    /**
+     * Gets the channel for the Aeron session that carries the inbound messages of a single library.
+     *
+     * @param aeronChannel the channel shared by the engine and its libraries.
+     * @param libraryId the id of the library.
+     * @return the channel with its session id set to the library id.
+     */
+    public static String libraryChannel(final String aeronChannel, final int libraryId)
+    {
+        final ChannelUri channelUri = ChannelUri.parse(aeronChannel);
+        channelUri.put(SESSION_ID_PARAM_NAME, String.valueOf(libraryId));
+        return channelUri.toString();
+    }
+
     private ExclusivePublication dataPublication(final String name)
     {
         final ExclusivePublication publication = aeron.addExclusivePublication(aeronChannel, streamId);
@@ -77,6 +155,17 @@ public final class Streams
         return publication;
     }
 
+    private Publication sharedDataPublication(final String name)
+    {
+        final Publication publication = aeron.addPublication(aeronChannel, streamId);
+        if (recordingCoordinator != null)
+        {
+            recordingCoordinator.track(publication);
+        }
+        StreamInformation.print(name, publication, printAeronStreamIdentifiers);
+        return publication;
+    }
+
     public Subscription subscription(final String name)
     {
         final Subscription subscription = aeron.addSubscription(aeronChannel, streamId);
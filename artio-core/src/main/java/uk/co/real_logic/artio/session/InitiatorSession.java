@@ -177,4 +177,14 @@ public class InitiatorSession extends Session
 
         return actions + super.poll(time);
     }
+
+    public long nextPollTime(final long time)
+    {
+        if (state() == SessionState.CONNECTED)
+        {
+            return time;
+        }
+
+        return super.nextPollTime(time);
+    }
 }
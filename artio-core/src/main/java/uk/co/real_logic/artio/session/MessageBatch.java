@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.agrona.collections.IntArrayList;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.builder.Encoder;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.ArrayList;
+
+import static uk.co.real_logic.artio.messages.MessageStatus.OK;
+
+/**
+ * Collects up messages, possibly for different sessions, so that they can be sent to the engine together
+ * as a single message rather than one at a time with {@link Session#send(Encoder)}.
+ * <p>
+ * All the sessions in a batch must be owned by the same library and a batch is published as a single fragment,
+ * so the number of messages that fit into it is limited by the MTU of the library's publication. Sequence numbers
+ * are allocated when a message is added, but a session's sequence number is only moved on once the batch has
+ * been sent, so messages shouldn't be sent on a session in between it being added to a batch and the batch
+ * being sent.
+ * <p>
+ * Should only be accessed on the same thread as the sessions in it.
+ */
+public class MessageBatch
+{
+    private final ArrayList<Session> sessions = new ArrayList<>();
+    private final IntArrayList sequenceNumbers = new IntArrayList();
+
+    private GatewayPublication publication;
+    private int libraryId;
+    private UnsafeBuffer buffer;
+    private MutableAsciiBuffer encodeBuffer;
+    private int length;
+
+    /**
+     * Adds a message to the batch.
+     *
+     * @param session the session that the message should be sent on.
+     * @param encoder the encoder of the message to be sent.
+     * @return true if the message was added, false if there wasn't enough space for it in the batch, in which
+     * case the batch should be sent before adding the message again.
+     * @throws IllegalArgumentException if the session is owned by a different library to the other sessions in the
+     *                                  batch, or the message is too large to ever fit in a batch.
+     * @throws IllegalStateException if the session isn't in a state where it can send a message.
+     */
+    public boolean add(final Session session, final Encoder encoder)
+    {
+        session.validateCanSendMessage();
+        checkPublication(session);
+
+        final int sentSeqNum = nextSequenceNumber(session);
+        session.prepareHeader(encoder, sentSeqNum);
+
+        final MutableAsciiBuffer encodeBuffer = this.encodeBuffer;
+        final long result = encoder.encode(encodeBuffer, 0);
+        final int messageLength = Encoder.length(result);
+        final int messageOffset = Encoder.offset(result);
+
+        if (length + GatewayPublication.batchedMessageLength(messageLength) > buffer.capacity())
+        {
+            if (isEmpty())
+            {
+                throw new IllegalArgumentException(String.format(
+                    "Message of length %d is too long to send in a batch", messageLength));
+            }
+
+            return false;
+        }
+
+        length += publication.putBatchedMessage(
+            buffer,
+            length,
+            encodeBuffer,
+            messageOffset,
+            messageLength,
+            libraryId,
+            encoder.messageType(),
+            session.id(),
+            session.sequenceIndex(),
+            session.connectionId(),
+            OK,
+            sentSeqNum);
+        sessions.add(session);
+        sequenceNumbers.addInt(sentSeqNum);
+
+        return true;
+    }
+
+    /**
+     * Sends all the messages in the batch to the engine. If this succeeds the batch is emptied so that it can be
+     * reused, otherwise the same batch can be sent again.
+     *
+     * @return the position in the stream that corresponds to the end of the batch or a negative
+     * number indicating an error status.
+     * @throws IllegalStateException if the batch is empty.
+     */
+    public long send()
+    {
+        if (isEmpty())
+        {
+            throw new IllegalStateException("There are no messages in this batch");
+        }
+
+        final ArrayList<Session> sessions = this.sessions;
+        final int messageCount = sessions.size();
+        final long position = publication.saveMessageBatch(buffer, 0, length, libraryId, messageCount);
+        if (position > 0)
+        {
+            final IntArrayList sequenceNumbers = this.sequenceNumbers;
+            for (int i = 0; i < messageCount; i++)
+            {
+                sessions.get(i).lastSentMsgSeqNum(sequenceNumbers.getInt(i));
+            }
+
+            reset();
+        }
+
+        return position;
+    }
+
+    /**
+     * Discards all the messages in the batch without sending them.
+     */
+    public void reset()
+    {
+        sessions.clear();
+        sequenceNumbers.clear();
+        length = 0;
+    }
+
+    public int messageCount()
+    {
+        return sessions.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return sessions.isEmpty();
+    }
+
+    private void checkPublication(final Session session)
+    {
+        final GatewayPublication publication = session.publication;
+        if (isEmpty())
+        {
+            if (this.publication != publication)
+            {
+                final int maxBatchLength = publication.maxBatchLength();
+                if (buffer == null || buffer.capacity() != maxBatchLength)
+                {
+                    buffer = new UnsafeBuffer(new byte[maxBatchLength]);
+                    encodeBuffer = new MutableAsciiBuffer(new byte[maxBatchLength]);
+                }
+
+                this.publication = publication;
+            }
+
+            libraryId = session.libraryId;
+        }
+        else if (this.publication != publication || libraryId != session.libraryId)
+        {
+            throw new IllegalArgumentException(String.format(
+                "Session %d is owned by a different library to the other sessions in this batch", session.id()));
+        }
+    }
+
+    private int nextSequenceNumber(final Session session)
+    {
+        final ArrayList<Session> sessions = this.sessions;
+        for (int i = sessions.size() - 1; i >= 0; i--)
+        {
+            if (sessions.get(i) == session)
+            {
+                return sequenceNumbers.getInt(i) + 1;
+            }
+        }
+
+        return session.newSentSeqNum();
+    }
+}
@@ -102,8 +102,10 @@ public class Session implements AutoCloseable
     static final String TEST_REQ_ID = "TEST";
     private static final char[] TEST_REQ_ID_CHARS = TEST_REQ_ID.toCharArray();
     private static final int NO_LOGOUT_REJECT_REASON = -1;
+    private static final long NO_CLAIM = -1;
 
     private final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+    private final MutableAsciiBuffer claimBuffer = new MutableAsciiBuffer();
 
     protected final long connectionId;
     protected final SessionIdStrategy sessionIdStrategy;
@@ -125,6 +127,7 @@ public class Session implements AutoCloseable
     private int lastReceivedMsgSeqNum = 0;
     private int lastSentMsgSeqNum;
     private int sequenceIndex;
+    private int messageHeaderLength;
 
     private long heartbeatIntervalInMs;
     private long nextRequiredInboundMessageTimeInMs;
@@ -143,6 +146,12 @@ public class Session implements AutoCloseable
 
     private int logoutRejectReason = NO_LOGOUT_REJECT_REASON;
 
+    private long claimPosition = NO_CLAIM;
+    private int claimSequenceNumber;
+
+    private SessionTimerWheel<?> timerWheel;
+    private int timerId = SessionTimerWheel.NO_TIMER;
+
     public Session(
         final int heartbeatIntervalInS,
         final long connectionId,
@@ -249,6 +258,23 @@ public class Session implements AutoCloseable
         return lastReceivedMsgSeqNum;
     }
 
+    /**
+     * Get the length of the header of the application message that is being received by this session, or 0 if it
+     * isn't known. The header has already been parsed by the session, so a decoder can be given just the rest of the
+     * message, eg: <code>decoder.decode(buffer, offset + headerLength, length - headerLength)</code>, rather than
+     * decoding the header again. This is only valid within
+     * {@link uk.co.real_logic.artio.library.SessionHandler#onMessage}.
+     * <p>
+     * A decoder that's given the message this way has no header fields, so its <code>validate()</code> method
+     * reports the required header fields as missing. Decode the whole message if it needs to be validated.
+     *
+     * @return the length of the header of the message that is being received, or 0 if it isn't known.
+     */
+    public int messageHeaderLength()
+    {
+        return messageHeaderLength;
+    }
+
     /**
      * Get the heartbeat interval for this session in milliseconds. This can be configured locally
      * or agreed by the logon process.
@@ -391,12 +417,168 @@ public class Session implements AutoCloseable
      * number indicating an error status.
      * @throws IndexOutOfBoundsException if the encoded message is too large, if this happens consider
      *                                   increasing {@link CommonConfiguration#sessionBufferSize(int)}
+     * @see MessageBatch
      */
     public long send(final Encoder encoder)
     {
         validateCanSendMessage();
 
+        final int sentSeqNum = prepareHeader(encoder);
+
+        final long result = encoder.encode(asciiBuffer, 0);
+        final int length = Encoder.length(result);
+        final int offset = Encoder.offset(result);
+
+        return send(asciiBuffer, offset, length, sentSeqNum, encoder.messageType());
+    }
+
+    /**
+     * Send a message on this session, encoding it directly into the publication to the engine rather than into an
+     * intermediate buffer. This requires the length of the encoded message to be known in advance.
+     *
+     * @param encoder the encoder of the message to be sent
+     * @param messageLength the length of the encoded message, including its header and trailer.
+     * @return the position in the stream that corresponds to the end of this message or a negative
+     * number indicating an error status.
+     * @throws uk.co.real_logic.artio.EncodingException if the encoded message isn't messageLength bytes long, in
+     *                                                 which case the message isn't sent.
+     * @see #tryClaim(int, int)
+     */
+    public long send(final Encoder encoder, final int messageLength)
+    {
+        validateCanSendMessage();
+
+        prepareHeader(encoder);
+
+        final long position = tryClaim(messageLength, encoder.messageType());
+        if (position < 0)
+        {
+            return position;
+        }
+
+        try
+        {
+            encoder.encode(claimBuffer, claimOffset(), messageLength);
+        }
+        catch (final RuntimeException e)
+        {
+            abort();
+            throw e;
+        }
+
+        return commit();
+    }
+
+    /**
+     * Claims space for a message of exactly messageLength bytes on the publication to the engine, so that the
+     * message can be written directly into {@link #claimBuffer()} at {@link #claimOffset()} without being copied.
+     * The message must be complete, including its header and trailer, use {@link #claimSequenceNumber()} as its
+     * MsgSeqNum and have a correct body length and checksum. It is sent by calling {@link #commit()}, or can be
+     * discarded by calling {@link #abort()}. No other message can be sent through this library in between.
+     *
+     * @param messageLength the length of the message that will be written.
+     * @param messageType the int encoded message type.
+     * @return the position in the stream that corresponds to the end of this message or a negative
+     * number indicating an error status, in which case nothing has been claimed.
+     * @throws IllegalArgumentException if the message is too long to be claimed, in which case it can be sent
+     *                                  with {@link #send(DirectBuffer, int, int, int, int)} instead.
+     */
+    public long tryClaim(final int messageLength, final int messageType)
+    {
+        validateCanSendMessage();
+
         final int sentSeqNum = newSentSeqNum();
+        final long position = publication.claimMessage(
+            messageLength, libraryId, messageType, id(), sequenceIndex(), connectionId, OK, sentSeqNum);
+
+        if (position > 0)
+        {
+            claimBuffer.wrap(publication.claimedBuffer());
+            claimSequenceNumber = sentSeqNum;
+            claimPosition = position;
+        }
+
+        return position;
+    }
+
+    /**
+     * Gets the buffer that a message claimed with {@link #tryClaim(int, int)} should be written to.
+     *
+     * @return the buffer that a claimed message should be written to.
+     */
+    public MutableAsciiBuffer claimBuffer()
+    {
+        return claimBuffer;
+    }
+
+    /**
+     * Gets the offset within {@link #claimBuffer()} that a claimed message starts at.
+     *
+     * @return the offset that a claimed message starts at.
+     */
+    public int claimOffset()
+    {
+        return publication.claimedMessageOffset();
+    }
+
+    /**
+     * Gets the sequence number that a message claimed with {@link #tryClaim(int, int)} must use.
+     *
+     * @return the sequence number of the claimed message.
+     */
+    public int claimSequenceNumber()
+    {
+        return claimSequenceNumber;
+    }
+
+    /**
+     * Sends a message claimed with {@link #tryClaim(int, int)}.
+     *
+     * @return the position in the stream that corresponds to the end of this message.
+     * @throws IllegalStateException if there's no claimed message.
+     */
+    public long commit()
+    {
+        validateHasClaim();
+
+        final long position = claimPosition;
+        publication.commitMessage();
+        lastSentMsgSeqNum(claimSequenceNumber, position);
+        claimPosition = NO_CLAIM;
+
+        return position;
+    }
+
+    /**
+     * Discards a message claimed with {@link #tryClaim(int, int)} without sending it.
+     *
+     * @throws IllegalStateException if there's no claimed message.
+     */
+    public void abort()
+    {
+        validateHasClaim();
+
+        publication.abortMessage();
+        claimPosition = NO_CLAIM;
+    }
+
+    private void validateHasClaim()
+    {
+        if (claimPosition == NO_CLAIM)
+        {
+            throw new IllegalStateException("There's no claimed message on this session");
+        }
+    }
+
+    private int prepareHeader(final Encoder encoder)
+    {
+        final int sentSeqNum = newSentSeqNum();
+        prepareHeader(encoder, sentSeqNum);
+        return sentSeqNum;
+    }
+
+    void prepareHeader(final Encoder encoder, final int sentSeqNum)
+    {
         final HeaderEncoder header = (HeaderEncoder)encoder.header();
         header
             .msgSeqNum(sentSeqNum)
@@ -406,12 +588,6 @@ public class Session implements AutoCloseable
         {
             sessionIdStrategy.setupSession(sessionKey, header);
         }
-
-        final long result = encoder.encode(asciiBuffer, 0);
-        final int length = Encoder.length(result);
-        final int offset = Encoder.offset(result);
-
-        return send(asciiBuffer, offset, length, sentSeqNum, encoder.messageType());
     }
 
     /**
@@ -605,6 +781,36 @@ public class Session implements AutoCloseable
         }
     }
 
+    /**
+     * Gets the time that {@link #poll(long)} next needs to be called, so that sessions with nothing to do don't
+     * need to be polled. Users of the API don't need to call this method.
+     *
+     * @param time the current time in milliseconds
+     * @return the time in milliseconds that the session next needs to be polled, this is no later than time if it
+     * needs to be polled straight away.
+     */
+    public long nextPollTime(final long time)
+    {
+        switch (state().value())
+        {
+            case DISCONNECTING_VALUE:
+            case LOGGING_OUT_VALUE:
+            case LOGGING_OUT_AND_DISCONNECTING_VALUE:
+                return time;
+
+            case ACTIVE_VALUE:
+            case AWAITING_RESEND_VALUE:
+                return Math.min(nextRequiredHeartbeatTimeInMs, nextRequiredInboundMessageTimeInMs);
+
+            case AWAITING_LOGOUT_VALUE:
+                return nextRequiredInboundMessageTimeInMs;
+
+            // Nothing is scheduled, the session gets polled again when its state changes
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
+
     public boolean isActive()
     {
         final SessionState state = this.state;
@@ -661,7 +867,7 @@ public class Session implements AutoCloseable
         }
     }
 
-    private void validateCanSendMessage()
+    void validateCanSendMessage()
     {
         if (!canSendMessage())
         {
@@ -1239,6 +1445,7 @@ public class Session implements AutoCloseable
         incNextReceivedInboundMessageTime(time);
         sendingHeartbeatIntervalInMs = (long)(heartbeatIntervalInMs * HEARTBEAT_PAUSE_FACTOR);
         nextRequiredHeartbeatTimeInMs = time + sendingHeartbeatIntervalInMs;
+        pollSoon();
 
         return this;
     }
@@ -1246,6 +1453,7 @@ public class Session implements AutoCloseable
     protected Session state(final SessionState state)
     {
         this.state = state;
+        pollSoon();
         return this;
     }
 
@@ -1325,6 +1533,12 @@ public class Session implements AutoCloseable
         return this;
     }
 
+    public Session messageHeaderLength(final int messageHeaderLength)
+    {
+        this.messageHeaderLength = messageHeaderLength;
+        return this;
+    }
+
     public Session logonTime(final long logonTime)
     {
         this.logonTime = logonTime;
@@ -1377,6 +1591,31 @@ public class Session implements AutoCloseable
             msgSeqNum, HeartbeatDecoder.MESSAGE_TYPE_BYTES, sendingTime, origSendingTime, isPossDupOrResend);
     }
 
+    // The engine's inbound throttle dropped the message, rejecting it keeps the counterparty's sequence numbers in step
+    // with ours rather than it being asked to resend a message that may be throttled again. Later messages are left to
+    // the normal gap detection.
+    Action onThrottledMessage(final int msgSeqNum, final byte[] msgType, final int msgTypeLength)
+    {
+        if (!isActive() || msgSeqNum != expectedReceivedSeqNum())
+        {
+            return CONTINUE;
+        }
+
+        final Action action = checkPosition(proxy.rejectThrottledMessage(
+            newSentSeqNum(),
+            msgSeqNum,
+            msgType,
+            msgTypeLength,
+            sequenceIndex()));
+
+        if (action != ABORT)
+        {
+            incReceivedSeqNum();
+        }
+
+        return action;
+    }
+
     Action onInvalidMessageType(final int msgSeqNum, final char[] msgType, final int msgTypeLength)
     {
         return checkPosition(proxy.reject(
@@ -1405,6 +1644,28 @@ public class Session implements AutoCloseable
         close();
     }
 
+    void timer(final SessionTimerWheel<?> timerWheel, final int timerId)
+    {
+        this.timerWheel = timerWheel;
+        this.timerId = timerId;
+    }
+
+    int timerId()
+    {
+        return timerId;
+    }
+
+    // Deadlines only get brought forward by a change of state or heartbeat interval, other changes push them back
+    // and can wait for the timer that's already scheduled.
+    private void pollSoon()
+    {
+        final SessionTimerWheel<?> timerWheel = this.timerWheel;
+        if (timerWheel != null)
+        {
+            timerWheel.scheduleNow(timerId);
+        }
+    }
+
     void libraryConnected(final boolean libraryConnected)
     {
         proxy.libraryConnected(libraryConnected);
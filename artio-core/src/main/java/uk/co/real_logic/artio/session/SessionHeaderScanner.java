@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import uk.co.real_logic.artio.Constants;
+import uk.co.real_logic.artio.util.AsciiBuffer;
+
+import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
+import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
+
+/**
+ * Picks out the header fields that a session needs to process an application message without decoding the whole
+ * header. Like the HeaderDecoder the header ends at the first field that isn't a header field, so the length of the
+ * header can be used to decode the rest of the message without going over the header again.
+ */
+final class SessionHeaderScanner
+{
+    private byte[] msgType = new byte[2];
+    private int msgTypeLength;
+    private int msgSeqNum;
+    private boolean possDup;
+    private boolean hasOrigSendingTime;
+    private int headerLength;
+
+    /**
+     * Scan the header of a message.
+     *
+     * @param buffer the buffer containing the message.
+     * @param offset the offset of the start of the message.
+     * @param length the length of the message.
+     */
+    void scan(final AsciiBuffer buffer, final int offset, final int length)
+    {
+        final int end = offset + length;
+        int msgSeqNum = MISSING_INT;
+        int msgTypeLength = 0;
+        boolean possDup = false;
+        boolean hasOrigSendingTime = false;
+
+        int position = offset;
+        while (position < end)
+        {
+            final int equalsPosition = buffer.scan(position, end - 1, '=');
+            if (equalsPosition == UNKNOWN_INDEX)
+            {
+                break;
+            }
+
+            final int tag = buffer.getInt(position, equalsPosition);
+            final int valueOffset = equalsPosition + 1;
+            final int endOfField = buffer.scan(valueOffset, end - 1, SEPARATOR);
+            if (endOfField == UNKNOWN_INDEX || !Constants.HEADER_FIELDS.contains(tag))
+            {
+                break;
+            }
+
+            switch (tag)
+            {
+                case Constants.MSG_SEQ_NUM:
+                    msgSeqNum = buffer.getInt(valueOffset, endOfField);
+                    break;
+
+                case Constants.MSG_TYPE:
+                    msgTypeLength = endOfField - valueOffset;
+                    msgType = buffer.getBytes(msgType, valueOffset, msgTypeLength);
+                    break;
+
+                case Constants.POSS_DUP_FLAG:
+                case Constants.POSS_RESEND:
+                    possDup |= buffer.getBoolean(valueOffset);
+                    break;
+
+                case Constants.ORIG_SENDING_TIME:
+                    hasOrigSendingTime = true;
+                    break;
+            }
+
+            position = endOfField + 1;
+        }
+
+        this.msgSeqNum = msgSeqNum;
+        this.msgTypeLength = msgTypeLength;
+        this.possDup = possDup;
+        this.hasOrigSendingTime = hasOrigSendingTime;
+        this.headerLength = position - offset;
+    }
+
+    byte[] msgType()
+    {
+        return msgType;
+    }
+
+    int msgTypeLength()
+    {
+        return msgTypeLength;
+    }
+
+    int msgSeqNum()
+    {
+        return msgSeqNum;
+    }
+
+    boolean possDup()
+    {
+        return possDup;
+    }
+
+    boolean hasOrigSendingTime()
+    {
+        return hasOrigSendingTime;
+    }
+
+    int headerLength()
+    {
+        return headerLength;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import uk.co.real_logic.artio.EncodingException;
+import uk.co.real_logic.artio.builder.Encoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static uk.co.real_logic.artio.builder.Encoder.CHECKSUM_FIELD_LENGTH;
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
+
+/**
+ * A session message that has been encoded once so that further messages of the same type can be written by copying
+ * it and filling in the fields that change from one message to the next, rather than encoding every field again.
+ * <p>
+ * The BeginString, CompIDs and any other header fields are copied as they were encoded. The MsgSeqNum, SendingTime
+ * and optionally one body field are filled in, and the BodyLength and CheckSum are worked out from them.
+ */
+final class SessionMessageTemplate
+{
+    static final int NO_BODY_FIELD = 0;
+
+    private static final byte[] BODY_LENGTH_FIELD = "\0019=".getBytes(US_ASCII);
+    private static final byte[] CHECKSUM_TAG = "10=".getBytes(US_ASCII);
+    private static final int MSG_SEQ_NUM_TAG = 34;
+    private static final int SENDING_TIME_TAG = 52;
+    private static final int MAX_FIELDS = 3;
+    private static final int INITIAL_VALUE_CAPACITY = 32;
+    private static final int NOT_FOUND = -1;
+
+    private final int[] tags;
+    private final MutableAsciiBuffer[] values;
+    private final int[] valueLengths;
+    private final int[] valueSums;
+    private final int[] valueStarts;
+    private final int[] valueEnds;
+    // Field indices in the order that the fields occur within the message
+    private final int[] fieldOrder;
+
+    private byte[] headerPrefix;
+    private byte[] body;
+    private int fixedBodyLength;
+    private int fixedSum;
+    private boolean rendered;
+
+    SessionMessageTemplate(final int bodyFieldTag)
+    {
+        final int fieldCount = bodyFieldTag == NO_BODY_FIELD ? MAX_FIELDS - 1 : MAX_FIELDS;
+        tags = new int[fieldCount];
+        tags[0] = MSG_SEQ_NUM_TAG;
+        tags[1] = SENDING_TIME_TAG;
+        if (bodyFieldTag != NO_BODY_FIELD)
+        {
+            tags[2] = bodyFieldTag;
+        }
+
+        values = new MutableAsciiBuffer[fieldCount];
+        for (int i = 0; i < fieldCount; i++)
+        {
+            values[i] = new MutableAsciiBuffer(new byte[INITIAL_VALUE_CAPACITY]);
+        }
+        valueLengths = new int[fieldCount];
+        valueSums = new int[fieldCount];
+        valueStarts = new int[fieldCount];
+        valueEnds = new int[fieldCount];
+        fieldOrder = new int[fieldCount];
+    }
+
+    /**
+     * Encode a message to use as the template. All the fields that are filled in must have a value when it's
+     * encoded, but it doesn't matter what the value is.
+     *
+     * @param buffer a buffer that can be used to encode the message.
+     * @param encoder the encoder of the message, with its header set up.
+     * @return true if the template could be rendered, false if a field to fill in was missing or the message
+     * couldn't be encoded, in which case the template can't be used.
+     */
+    boolean render(final MutableAsciiBuffer buffer, final Encoder encoder)
+    {
+        rendered = false;
+
+        final long result;
+        try
+        {
+            result = encoder.encode(buffer, 0);
+        }
+        catch (final EncodingException e)
+        {
+            // Leave it to the encoder to report the missing field when a message is actually sent
+            return false;
+        }
+
+        final int offset = Encoder.offset(result);
+        final int end = offset + Encoder.length(result) - CHECKSUM_FIELD_LENGTH;
+
+        final int bodyLengthField = find(buffer, offset, end, BODY_LENGTH_FIELD);
+        if (bodyLengthField == NOT_FOUND)
+        {
+            return false;
+        }
+        final int bodyLengthStart = bodyLengthField + BODY_LENGTH_FIELD.length;
+        final int bodyStart = buffer.scan(bodyLengthStart, end - 1, SEPARATOR) + 1;
+
+        int fixedBodyLength = end - bodyStart;
+        for (int i = 0; i < tags.length; i++)
+        {
+            final int valueStart = findValue(buffer, bodyStart - 1, end, tags[i]);
+            if (valueStart == NOT_FOUND)
+            {
+                return false;
+            }
+
+            final int valueEnd = buffer.scan(valueStart, end - 1, SEPARATOR);
+            valueStarts[i] = valueStart - bodyStart;
+            valueEnds[i] = valueEnd - bodyStart;
+            fixedBodyLength -= valueEnd - valueStart;
+            insertInOrder(i);
+        }
+
+        headerPrefix = new byte[bodyLengthStart - offset];
+        buffer.getBytes(offset, headerPrefix);
+        body = new byte[end - bodyStart];
+        buffer.getBytes(bodyStart, body);
+        this.fixedBodyLength = fixedBodyLength;
+
+        int fixedSum = buffer.sumBytes(offset, bodyLengthStart) + SEPARATOR;
+        int bodyOffset = bodyStart;
+        for (final int field : fieldOrder)
+        {
+            fixedSum += buffer.sumBytes(bodyOffset, bodyStart + valueStarts[field]);
+            bodyOffset = bodyStart + valueEnds[field];
+        }
+        fixedSum += buffer.sumBytes(bodyOffset, end);
+        this.fixedSum = fixedSum;
+
+        rendered = true;
+        return true;
+    }
+
+    boolean isRendered()
+    {
+        return rendered;
+    }
+
+    SessionMessageTemplate msgSeqNum(final int msgSeqNum)
+    {
+        putInt(0, msgSeqNum);
+        return this;
+    }
+
+    SessionMessageTemplate sendingTime(final byte[] sendingTime, final int length)
+    {
+        final MutableAsciiBuffer value = value(1, length);
+        value.putBytes(0, sendingTime, 0, length);
+        valueLengths[1] = length;
+        valueSums[1] = value.sumBytes(0, length);
+        return this;
+    }
+
+    SessionMessageTemplate bodyField(final int bodyField)
+    {
+        putInt(2, bodyField);
+        return this;
+    }
+
+    SessionMessageTemplate bodyField(final CharSequence bodyField)
+    {
+        final int length = bodyField.length();
+        final MutableAsciiBuffer value = value(2, length);
+        for (int i = 0; i < length; i++)
+        {
+            value.putByte(i, (byte)bodyField.charAt(i));
+        }
+        valueLengths[2] = length;
+        valueSums[2] = value.sumBytes(0, length);
+        return this;
+    }
+
+    /**
+     * Gets the length of the message with the values that have been filled in.
+     *
+     * @return the length of the message.
+     */
+    int length()
+    {
+        final int bodyLength = bodyLength();
+        return headerPrefix.length + MutableAsciiBuffer.lengthInAscii(bodyLength) + 1 + bodyLength +
+            CHECKSUM_FIELD_LENGTH;
+    }
+
+    /**
+     * Writes the message with the values that have been filled in.
+     *
+     * @param buffer the buffer to write the message to.
+     * @param offset the offset within buffer to write the message at, it takes up {@link #length()} bytes.
+     */
+    void write(final MutableAsciiBuffer buffer, final int offset)
+    {
+        final byte[] body = this.body;
+        int position = offset;
+
+        buffer.putBytes(position, headerPrefix);
+        position += headerPrefix.length;
+
+        final int bodyLengthStart = position;
+        position += buffer.putAsciiInt(position, bodyLength());
+        int checksum = fixedSum + buffer.sumBytes(bodyLengthStart, position);
+        buffer.putSeparator(position);
+        position++;
+
+        int bodyOffset = 0;
+        for (final int field : fieldOrder)
+        {
+            final int fixedLength = valueStarts[field] - bodyOffset;
+            buffer.putBytes(position, body, bodyOffset, fixedLength);
+            position += fixedLength;
+
+            final int valueLength = valueLengths[field];
+            buffer.putBytes(position, values[field], 0, valueLength);
+            position += valueLength;
+            checksum += valueSums[field];
+
+            bodyOffset = valueEnds[field];
+        }
+
+        final int fixedLength = body.length - bodyOffset;
+        buffer.putBytes(position, body, bodyOffset, fixedLength);
+        position += fixedLength;
+
+        buffer.putBytes(position, CHECKSUM_TAG);
+        position += CHECKSUM_TAG.length;
+        buffer.putNatural(position, 3, checksum % 256);
+        position += 3;
+        buffer.putSeparator(position);
+    }
+
+    private int bodyLength()
+    {
+        int bodyLength = fixedBodyLength;
+        for (final int valueLength : valueLengths)
+        {
+            bodyLength += valueLength;
+        }
+        return bodyLength;
+    }
+
+    private void putInt(final int field, final int intValue)
+    {
+        final MutableAsciiBuffer value = values[field];
+        final int length = value.putAsciiInt(0, intValue);
+        valueLengths[field] = length;
+        valueSums[field] = value.sumBytes(0, length);
+    }
+
+    private MutableAsciiBuffer value(final int field, final int length)
+    {
+        MutableAsciiBuffer value = values[field];
+        if (value.capacity() < length)
+        {
+            value = new MutableAsciiBuffer(new byte[length]);
+            values[field] = value;
+        }
+        return value;
+    }
+
+    private void insertInOrder(final int field)
+    {
+        final int[] fieldOrder = this.fieldOrder;
+        final int start = valueStarts[field];
+        int i = field;
+        while (i > 0 && valueStarts[fieldOrder[i - 1]] > start)
+        {
+            fieldOrder[i] = fieldOrder[i - 1];
+            i--;
+        }
+        fieldOrder[i] = field;
+    }
+
+    // Finds the start of the value of the first field with the tag, searching from a separator
+    private static int findValue(final MutableAsciiBuffer buffer, final int offset, final int end, final int tag)
+    {
+        final int tagLength = MutableAsciiBuffer.lengthInAscii(tag);
+        for (int index = offset; index < end - tagLength - 1; index++)
+        {
+            if (buffer.getByte(index) == SEPARATOR &&
+                buffer.getByte(index + tagLength + 1) == '=' &&
+                buffer.getNatural(index + 1, index + tagLength + 1) == tag)
+            {
+                return index + tagLength + 2;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    private static int find(final MutableAsciiBuffer buffer, final int offset, final int end, final byte[] bytes)
+    {
+        for (int index = offset; index <= end - bytes.length; index++)
+        {
+            boolean matches = true;
+            for (int i = 0; i < bytes.length && matches; i++)
+            {
+                matches = buffer.getByte(index + i) == bytes[i];
+            }
+
+            if (matches)
+            {
+                return index;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+}
@@ -54,6 +54,7 @@ public class SessionParser
     private final HeaderDecoder header = new HeaderDecoder();
     private final SequenceResetDecoder sequenceReset = new SequenceResetDecoder();
     private final HeartbeatDecoder heartbeat = new HeartbeatDecoder();
+    private final SessionHeaderScanner headerScanner = new SessionHeaderScanner();
 
     // TODO: optimisation candidate to just move to copying bytes.
     private byte[] msgTypeBuffer = new byte[2];
@@ -100,6 +101,7 @@ public class SessionParser
         final long sessionId)
     {
         asciiBuffer.wrap(buffer);
+        session.messageHeaderLength(0);
 
         switch (messageType)
         {
@@ -126,6 +128,29 @@ public class SessionParser
         }
     }
 
+    /**
+     * Handles a message that the engine's inbound throttle dropped. The message is only scanned for the fields that
+     * the session needs to reject it, it isn't validated.
+     *
+     * @param buffer the buffer containing the message.
+     * @param offset the offset of the message within the buffer.
+     * @param length the length of the message.
+     * @return the action to take on the stream that the message was read from.
+     */
+    public Action onThrottledMessage(final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (isDisconnectedOrAwaitingLogout())
+        {
+            return CONTINUE;
+        }
+
+        asciiBuffer.wrap(buffer);
+        final SessionHeaderScanner headerScanner = this.headerScanner;
+        headerScanner.scan(asciiBuffer, offset, length);
+        return session.onThrottledMessage(
+            headerScanner.msgSeqNum(), headerScanner.msgType(), headerScanner.msgTypeLength());
+    }
+
     private Action onHeartbeat(final int offset, final int length)
     {
         final HeartbeatDecoder heartbeat = this.heartbeat;
@@ -162,19 +187,24 @@ public class SessionParser
     private long decodeTimestamp(final byte[] sendingTime)
     {
         return CODEC_VALIDATION_ENABLED ?
-            timestampDecoder.decode(sendingTime, sendingTime.length) :
+            timestampDecoder.update(sendingTime, sendingTime.length) :
             MISSING_LONG;
     }
 
     private Action onAnyOtherMessage(final int offset, final int length)
     {
+        if (!CODEC_VALIDATION_ENABLED)
+        {
+            return onAnyOtherMessageHeader(offset, length);
+        }
+
         final HeaderDecoder header = this.header;
         header.reset();
-        header.decode(asciiBuffer, offset, length);
+        session.messageHeaderLength(header.decode(asciiBuffer, offset, length));
 
         final char[] msgType = header.msgType();
         final int msgTypeLength = header.msgTypeLength();
-        if (CODEC_VALIDATION_ENABLED && (!isValidMsgType(msgType, msgTypeLength) || !validateHeader(header)))
+        if (!isValidMsgType(msgType, msgTypeLength) || !validateHeader(header))
         {
             final int msgSeqNum = header.msgSeqNum();
             if (!isDisconnectedOrAwaitingLogout())
@@ -190,6 +220,23 @@ public class SessionParser
         return CONTINUE;
     }
 
+    // Without validation the session only looks at a few header fields, so the rest of the header isn't decoded
+    private Action onAnyOtherMessageHeader(final int offset, final int length)
+    {
+        final SessionHeaderScanner headerScanner = this.headerScanner;
+        headerScanner.scan(asciiBuffer, offset, length);
+        session.messageHeaderLength(headerScanner.headerLength());
+
+        final long origSendingTime = headerScanner.hasOrigSendingTime() ? MISSING_LONG : UNKNOWN;
+        return session.onMessage(
+            headerScanner.msgSeqNum(),
+            headerScanner.msgType(),
+            headerScanner.msgTypeLength(),
+            MISSING_LONG,
+            origSendingTime,
+            headerScanner.possDup());
+    }
+
     private Action onMessage(final HeaderDecoder header)
     {
         final long origSendingTime = origSendingTime(header);
@@ -33,6 +33,7 @@ import static java.util.Objects.requireNonNull;
 import static uk.co.real_logic.artio.fields.RejectReason.VALUE_IS_INCORRECT;
 import static uk.co.real_logic.artio.messages.MessageStatus.OK;
 import static uk.co.real_logic.artio.session.Session.LIBRARY_DISCONNECTED;
+import static uk.co.real_logic.artio.session.SessionMessageTemplate.NO_BODY_FIELD;
 
 /**
  * Encapsulates sending messages relating to sessions
@@ -42,6 +43,9 @@ public class SessionProxy
     private static final byte[] INCORRECT_BEGIN_STRING = "Incorrect BeginString".getBytes(US_ASCII);
     private static final byte[] NEGATIVE_HEARTBEAT = "HeartBtInt must not be negative".getBytes(US_ASCII);
     private static final byte[] NO_MSG_SEQ_NO = "Received message without MsgSeqNum".getBytes(US_ASCII);
+    private static final byte[] THROTTLED = "Throttle limit exceeded".getBytes(US_ASCII);
+    private static final int TEST_REQ_ID_TAG = 112;
+    private static final int NEW_SEQ_NO_TAG = 36;
     private static final int REJECT_COUNT = RejectReason.values().length;
     private static final byte[][] NOT_LOGGED_ON_SESSION_REJECT_REASONS = new byte[REJECT_COUNT][];
     private static final byte[][] LOGGED_ON_SESSION_REJECT_REASONS = new byte[REJECT_COUNT][];
@@ -88,6 +92,13 @@ public class SessionProxy
         logon.header(), resendRequest.header(), logout.header(), heartbeat.header(), reject.header(),
         testRequest.header(), sequenceReset.header());
 
+    // Heartbeats, test requests and sequence resets are sent often and only differ by a few fields, so are written
+    // from templates that are rendered once the session's header fields are known.
+    private final SessionMessageTemplate heartbeatTemplate = new SessionMessageTemplate(NO_BODY_FIELD);
+    private final SessionMessageTemplate testRequestTemplate = new SessionMessageTemplate(TEST_REQ_ID_TAG);
+    private final SessionMessageTemplate sequenceResetTemplate = new SessionMessageTemplate(NEW_SEQ_NO_TAG);
+    private final MutableAsciiBuffer claimBuffer = new MutableAsciiBuffer();
+
     private final AsciiFormatter lowSequenceNumber;
     private final MutableAsciiBuffer buffer;
     private final GatewayPublication gatewayPublication;
@@ -130,9 +141,29 @@ public class SessionProxy
             sessionIdStrategy.setupSession(sessionKey, header);
         }
 
+        renderTemplates();
+
         return this;
     }
 
+    private void renderTemplates()
+    {
+        setupHeader(heartbeat.header(), 1);
+        heartbeat.resetTestReqID();
+        heartbeatTemplate.render(buffer, heartbeat);
+        heartbeat.resetMessage();
+
+        setupHeader(testRequest.header(), 1);
+        testRequest.testReqID(Session.TEST_REQ_ID);
+        testRequestTemplate.render(buffer, testRequest);
+        testRequest.resetMessage();
+
+        setupHeader(sequenceReset.header(), 1);
+        sequenceReset.newSeqNo(1);
+        sequenceResetTemplate.render(buffer, sequenceReset);
+        sequenceReset.resetMessage();
+    }
+
     long resendRequest(final int msgSeqNo, final int beginSeqNo, final int endSeqNo, final int sequenceIndex)
     {
         final HeaderEncoder header = resendRequest.header();
@@ -262,6 +293,13 @@ public class SessionProxy
         final int msgSeqNo,
         final int sequenceIndex)
     {
+        final SessionMessageTemplate heartbeatTemplate = this.heartbeatTemplate;
+        if (testReqId == null && heartbeatTemplate.isRendered())
+        {
+            setupTemplate(heartbeatTemplate, msgSeqNo);
+            return send(heartbeatTemplate, HeartbeatDecoder.MESSAGE_TYPE, sequenceIndex, msgSeqNo);
+        }
+
         final HeaderEncoder header = heartbeat.header();
         setupHeader(header, msgSeqNo);
 
@@ -334,6 +372,20 @@ public class SessionProxy
         return sendReject(msgSeqNo, refSeqNum, rejectReason, sequenceIndex);
     }
 
+    public long rejectThrottledMessage(
+        final int msgSeqNo,
+        final int refSeqNum,
+        final byte[] refMsgType,
+        final int refMsgTypeLength,
+        final int sequenceIndex)
+    {
+        reject.resetRefTagID();
+        reject.refMsgType(refMsgType, refMsgTypeLength);
+        reject.text(THROTTLED);
+
+        return sendReject(msgSeqNo, refSeqNum, RejectReason.OTHER.representation(), sequenceIndex);
+    }
+
     private long sendReject(final int msgSeqNo, final int refSeqNum, final int rejectReason, final int sequenceIndex)
     {
         final HeaderEncoder header = reject.header();
@@ -348,6 +400,13 @@ public class SessionProxy
 
     public long testRequest(final int msgSeqNo, final CharSequence testReqID, final int sequenceIndex)
     {
+        final SessionMessageTemplate testRequestTemplate = this.testRequestTemplate;
+        if (testRequestTemplate.isRendered())
+        {
+            setupTemplate(testRequestTemplate, msgSeqNo).bodyField(testReqID);
+            return send(testRequestTemplate, TestRequestDecoder.MESSAGE_TYPE, sequenceIndex, msgSeqNo);
+        }
+
         final HeaderEncoder header = testRequest.header();
         setupHeader(header, msgSeqNo);
 
@@ -359,6 +418,13 @@ public class SessionProxy
 
     public long sequenceReset(final int msgSeqNo, final int newSeqNo, final int sequenceIndex)
     {
+        final SessionMessageTemplate sequenceResetTemplate = this.sequenceResetTemplate;
+        if (sequenceResetTemplate.isRendered())
+        {
+            setupTemplate(sequenceResetTemplate, msgSeqNo).bodyField(newSeqNo);
+            return send(sequenceResetTemplate, SequenceResetDecoder.MESSAGE_TYPE, sequenceIndex, msgSeqNo);
+        }
+
         final HeaderEncoder header = sequenceReset.header();
         setupHeader(header, msgSeqNo);
 
@@ -375,6 +441,39 @@ public class SessionProxy
         header.msgSeqNum(msgSeqNo);
     }
 
+    private SessionMessageTemplate setupTemplate(final SessionMessageTemplate template, final int msgSeqNo)
+    {
+        final UtcTimestampEncoder timestampEncoder = this.timestampEncoder;
+        return template
+            .sendingTime(timestampEncoder.buffer(), timestampEncoder.update(clock.time()))
+            .msgSeqNum(msgSeqNo);
+    }
+
+    private long send(
+        final SessionMessageTemplate template,
+        final int messageType,
+        final int sequenceIndex,
+        final int msgSeqNo)
+    {
+        if (!libraryConnected)
+        {
+            return LIBRARY_DISCONNECTED;
+        }
+
+        final GatewayPublication gatewayPublication = this.gatewayPublication;
+        final long position = gatewayPublication.claimMessage(
+            template.length(), libraryId, messageType, sessionId, sequenceIndex, connectionId, OK, msgSeqNo);
+        if (position > 0)
+        {
+            final MutableAsciiBuffer claimBuffer = this.claimBuffer;
+            claimBuffer.wrap(gatewayPublication.claimedBuffer());
+            template.write(claimBuffer, gatewayPublication.claimedMessageOffset());
+            gatewayPublication.commitMessage();
+        }
+
+        return position;
+    }
+
     private long send(
         final long result,
         final int messageType,
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of when sessions next need to be polled, so that a duty cycle only polls the sessions that have a
+ * heartbeat or timeout due rather than every session.
+ * <p>
+ * This is a hierarchical timer wheel with a tick of a millisecond. Each level has 256 slots and each slot covers a
+ * whole revolution of the level below it. A timer is put into the lowest level whose current revolution contains
+ * its deadline and moved down a level when the wheel reaches its slot, so scheduling, cancelling and expiring a
+ * timer all take constant time. Timers are held in arrays indexed by timer id, so nothing is allocated once there
+ * is enough space for the number of sessions. Deadlines that are too far away to fit expire at the end of the
+ * wheel's range, which is just over 49 days, and are expected to be scheduled again.
+ * <p>
+ * Each session has a single timer and scheduling it again moves it. When a timer expires it is polled again on the
+ * next call to {@link #poll(long)} unless the handler schedules it for later. A session that changes state or
+ * heartbeat interval brings its timer forward so that it's polled straight away.
+ * <p>
+ * Not thread safe, should only be used on the thread that polls the sessions.
+ *
+ * @param <T> the type of the object that owns each session's timer.
+ */
+public class SessionTimerWheel<T>
+{
+    @FunctionalInterface
+    public interface TimerHandler<T>
+    {
+        /**
+         * Called when the timer of a session expires.
+         *
+         * @param owner the owner of the timer's session.
+         * @param timeInMs the current time in milliseconds.
+         * @return the number of actions performed.
+         */
+        int onTimerExpiry(T owner, long timeInMs);
+    }
+
+    static final int NO_TIMER = -1;
+
+    private static final int NULL = -1;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long RANGE_MASK = (1L << (SLOT_BITS * LEVELS)) - 1;
+    // Timers are moved onto this list when they expire so that handlers can schedule them again
+    private static final int EXPIRING_LIST = LEVELS * SLOTS;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int[] heads = new int[LEVELS * SLOTS + 1];
+    private final int[] levelCounts = new int[LEVELS];
+    private final TimerHandler<T> handler;
+
+    private Object[] owners;
+    private Session[] sessions;
+    private long[] deadlines;
+    private int[] nexts;
+    private int[] prevs;
+    private int[] lists;
+    private int freeHead = NULL;
+    private int timerCount;
+    private long currentTick;
+
+    public SessionTimerWheel(final TimerHandler<T> handler)
+    {
+        this.handler = handler;
+        Arrays.fill(heads, NULL);
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds a timer for a session, which expires on the next poll.
+     *
+     * @param owner the object that is passed to the handler when the timer expires.
+     * @param session the session that the timer is for.
+     * @param timeInMs the current time in milliseconds.
+     * @throws IllegalArgumentException if the session already has a timer.
+     */
+    public void add(final T owner, final Session session, final long timeInMs)
+    {
+        if (session.timerId() != NO_TIMER)
+        {
+            throw new IllegalArgumentException(String.format("Session %d already has a timer", session.id()));
+        }
+
+        if (freeHead == NULL)
+        {
+            allocate(owners.length * 2);
+        }
+
+        // The wheel can be moved to any time when it's empty
+        if (timerCount == 0)
+        {
+            currentTick = timeInMs;
+        }
+
+        final int timerId = freeHead;
+        freeHead = nexts[timerId];
+        owners[timerId] = owner;
+        sessions[timerId] = session;
+        timerCount++;
+
+        session.timer(this, timerId);
+        place(timerId, currentTick);
+    }
+
+    /**
+     * Removes the timer of a session. Does nothing if the session doesn't have a timer on this wheel.
+     *
+     * @param session the session whose timer should be removed.
+     */
+    public void remove(final Session session)
+    {
+        final int timerId = session.timerId();
+        if (timerId == NO_TIMER || sessions[timerId] != session)
+        {
+            return;
+        }
+
+        unlink(timerId);
+        owners[timerId] = null;
+        sessions[timerId] = null;
+        nexts[timerId] = freeHead;
+        freeHead = timerId;
+        timerCount--;
+
+        session.timer(null, NO_TIMER);
+    }
+
+    /**
+     * Moves the timer of a session.
+     *
+     * @param session the session whose timer should be moved.
+     * @param deadlineInMs the time that the timer should expire, if this has already passed it expires on the next
+     *                     poll.
+     */
+    public void schedule(final Session session, final long deadlineInMs)
+    {
+        final int timerId = session.timerId();
+        if (timerId != NO_TIMER && sessions[timerId] == session)
+        {
+            unlink(timerId);
+            place(timerId, deadlineInMs);
+        }
+    }
+
+    /**
+     * Expires all the timers whose deadline has been reached.
+     *
+     * @param timeInMs the current time in milliseconds.
+     * @return the number of actions performed by the handler.
+     */
+    public int poll(final long timeInMs)
+    {
+        final int[] levelCounts = this.levelCounts;
+
+        collectExpiredTimers();
+        while (currentTick < timeInMs)
+        {
+            // Skip straight to the next slot at the lowest level that has any timers in it
+            int level = 0;
+            while (level < LEVELS && levelCounts[level] == 0)
+            {
+                level++;
+            }
+
+            if (level == LEVELS)
+            {
+                currentTick = timeInMs;
+                break;
+            }
+
+            final long slotMask = (1L << (SLOT_BITS * level)) - 1;
+            currentTick = Math.min((currentTick | slotMask) + 1, timeInMs);
+            cascade();
+            collectExpiredTimers();
+        }
+
+        return expireTimers(timeInMs);
+    }
+
+    public int timerCount()
+    {
+        return timerCount;
+    }
+
+    void scheduleNow(final int timerId)
+    {
+        unlink(timerId);
+        place(timerId, currentTick);
+    }
+
+    private void collectExpiredTimers()
+    {
+        final int list = (int)currentTick & SLOT_MASK;
+        int timerId;
+        while ((timerId = heads[list]) != NULL)
+        {
+            unlink(timerId);
+            link(timerId, EXPIRING_LIST);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int expireTimers(final long timeInMs)
+    {
+        int actions = 0;
+        int timerId;
+        while ((timerId = heads[EXPIRING_LIST]) != NULL)
+        {
+            unlink(timerId);
+            // If the handler doesn't schedule it, or throws, then the timer expires again on the next poll
+            place(timerId, currentTick);
+            actions += handler.onTimerExpiry((T)owners[timerId], timeInMs);
+        }
+
+        return actions;
+    }
+
+    private void cascade()
+    {
+        final long currentTick = this.currentTick;
+        for (int level = LEVELS - 1; level > 0; level--)
+        {
+            final int shift = SLOT_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) == 0)
+            {
+                final int list = level * SLOTS + ((int)(currentTick >>> shift) & SLOT_MASK);
+                int timerId;
+                while ((timerId = heads[list]) != NULL)
+                {
+                    unlink(timerId);
+                    place(timerId, deadlines[timerId]);
+                }
+            }
+        }
+    }
+
+    private void place(final int timerId, final long deadlineInMs)
+    {
+        final long currentTick = this.currentTick;
+        long tick = Math.max(deadlineInMs, currentTick);
+        if ((tick & ~RANGE_MASK) != (currentTick & ~RANGE_MASK))
+        {
+            tick = currentTick | RANGE_MASK;
+        }
+
+        int level = 0;
+        int shift = SLOT_BITS;
+        while ((tick >>> shift) != (currentTick >>> shift))
+        {
+            level++;
+            shift += SLOT_BITS;
+        }
+
+        deadlines[timerId] = tick;
+        link(timerId, level * SLOTS + ((int)(tick >>> (shift - SLOT_BITS)) & SLOT_MASK));
+    }
+
+    private void link(final int timerId, final int list)
+    {
+        final int head = heads[list];
+        prevs[timerId] = NULL;
+        nexts[timerId] = head;
+        if (head != NULL)
+        {
+            prevs[head] = timerId;
+        }
+        heads[list] = timerId;
+        lists[timerId] = list;
+
+        if (list != EXPIRING_LIST)
+        {
+            levelCounts[list >> SLOT_BITS]++;
+        }
+    }
+
+    private void unlink(final int timerId)
+    {
+        final int list = lists[timerId];
+        if (list == NULL)
+        {
+            return;
+        }
+
+        final int prev = prevs[timerId];
+        final int next = nexts[timerId];
+        if (prev == NULL)
+        {
+            heads[list] = next;
+        }
+        else
+        {
+            nexts[prev] = next;
+        }
+
+        if (next != NULL)
+        {
+            prevs[next] = prev;
+        }
+
+        lists[timerId] = NULL;
+
+        if (list != EXPIRING_LIST)
+        {
+            levelCounts[list >> SLOT_BITS]--;
+        }
+    }
+
+    private void allocate(final int capacity)
+    {
+        final int oldCapacity = owners == null ? 0 : owners.length;
+        if (oldCapacity == 0)
+        {
+            owners = new Object[capacity];
+            sessions = new Session[capacity];
+            deadlines = new long[capacity];
+            nexts = new int[capacity];
+            prevs = new int[capacity];
+            lists = new int[capacity];
+        }
+        else
+        {
+            owners = Arrays.copyOf(owners, capacity);
+            sessions = Arrays.copyOf(sessions, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            nexts = Arrays.copyOf(nexts, capacity);
+            prevs = Arrays.copyOf(prevs, capacity);
+            lists = Arrays.copyOf(lists, capacity);
+        }
+
+        for (int timerId = oldCapacity; timerId < capacity; timerId++)
+        {
+            nexts[timerId] = timerId + 1 < capacity ? timerId + 1 : freeHead;
+            lists[timerId] = NULL;
+        }
+        freeHead = oldCapacity;
+    }
+}
@@ -19,6 +19,10 @@ import uk.co.real_logic.artio.decoder.LogonDecoder;
 
 /**
  * Implement this interface in order to add customisable checks to logon messages.
+ *
+ * Checks that have to wait on something else, such as a call to an external service, should override
+ * {@link #authenticateAsync(LogonDecoder, AuthenticationProxy)} rather than block the thread that frames messages
+ * from every connection.
  */
 @FunctionalInterface
 public interface AuthenticationStrategy
@@ -34,4 +38,29 @@ public interface AuthenticationStrategy
     }
 
     boolean authenticate(LogonDecoder logon);
+
+    /**
+     * Authenticate a logon without blocking the engine. The result is given to the authProxy, either during this call
+     * or later on from any thread. The engine carries on framing messages from other connections in the meantime and
+     * disconnects the connection if there's no result before the authentication timeout.
+     *
+     * The logon decoder can only be used during this call, so anything needed afterwards must be copied out of it.
+     * The default implementation completes the authentication straight away with the result of
+     * {@link #authenticate(LogonDecoder)}.
+     *
+     * @param logon the logon message to authenticate.
+     * @param authProxy used to accept or reject the logon.
+     * @see uk.co.real_logic.artio.engine.EngineConfiguration#authenticationTimeoutInMs(int)
+     */
+    default void authenticateAsync(final LogonDecoder logon, final AuthenticationProxy authProxy)
+    {
+        if (authenticate(logon))
+        {
+            authProxy.accept();
+        }
+        else
+        {
+            authProxy.reject();
+        }
+    }
 }
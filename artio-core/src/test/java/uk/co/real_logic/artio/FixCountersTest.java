@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.agrona.concurrent.status.CountersReader.MAX_LABEL_LENGTH;
+
+public class FixCountersTest
+{
+    private final CountersManager countersManager = new CountersManager(
+        new UnsafeBuffer(new byte[64 * 1024]), new UnsafeBuffer(new byte[16 * 1024]));
+    private final FixCounters fixCounters = new FixCounters(countersManager);
+
+    @Test
+    public void shouldLabelConnectionCounters()
+    {
+        final AtomicCounter counter = fixCounters.messagesRead(5, "localhost:1234");
+
+        assertEquals("Messages Read from localhost:1234 id = 5", countersManager.getCounterLabel(counter.id()));
+    }
+
+    @Test
+    public void shouldReuseClosedConnectionCounters()
+    {
+        final AtomicCounter counter = fixCounters.messagesRead(5, "localhost:1234");
+        counter.increment();
+        final int maxCounterId = countersManager.maxCounterId();
+
+        counter.close();
+        assertEquals("Unused connection counter", countersManager.getCounterLabel(counter.id()));
+
+        final AtomicCounter reused = fixCounters.bytesInBuffer(6, "localhost:5678");
+
+        assertEquals(counter.id(), reused.id());
+        assertEquals(0, reused.get());
+        assertEquals("Quarantined bytes for localhost:5678 id = 6", countersManager.getCounterLabel(reused.id()));
+        assertEquals(maxCounterId, countersManager.maxCounterId());
+    }
+
+    @Test
+    public void shouldOnlyReleaseConnectionCounterOnce()
+    {
+        final AtomicCounter counter = fixCounters.sentMsgSeqNo(1);
+        counter.close();
+        counter.close();
+
+        final AtomicCounter first = fixCounters.sentMsgSeqNo(2);
+        final AtomicCounter second = fixCounters.receivedMsgSeqNo(3);
+
+        assertNotEquals(first.id(), second.id());
+        assertEquals("Last Sent MsgSeqNo for 2", countersManager.getCounterLabel(first.id()));
+        assertEquals("Last Received MsgSeqNo for 3", countersManager.getCounterLabel(second.id()));
+    }
+
+    @Test
+    public void shouldNotReleaseReusedCounterWhenClosedAgain()
+    {
+        final AtomicCounter counter = fixCounters.messagesRead(1, "localhost:1234");
+        counter.close();
+        final AtomicCounter reused = fixCounters.messagesRead(2, "localhost:5678");
+        reused.increment();
+
+        counter.close();
+
+        assertEquals(counter.id(), reused.id());
+        assertEquals(1, reused.get());
+        assertEquals("Messages Read from localhost:5678 id = 2", countersManager.getCounterLabel(reused.id()));
+        assertNotEquals(reused.id(), fixCounters.messagesRead(3, "localhost:9012").id());
+    }
+
+    @Test
+    public void shouldTruncateLongLabels()
+    {
+        final StringBuilder address = new StringBuilder();
+        for (int i = 0; i < MAX_LABEL_LENGTH; i++)
+        {
+            address.append('a');
+        }
+
+        final AtomicCounter counter = fixCounters.invalidLibraryAttempts(1, address.toString());
+
+        final String label = countersManager.getCounterLabel(counter.id());
+        assertEquals(MAX_LABEL_LENGTH, label.length());
+        assertTrue(label.startsWith("Invalid Library Attempts for aaa"));
+    }
+}
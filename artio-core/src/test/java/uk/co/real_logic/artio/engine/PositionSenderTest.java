@@ -1,5 +1,6 @@
 package uk.co.real_logic.artio.engine;
 
+import org.agrona.concurrent.ringbuffer.RingBuffer;
 import org.junit.Test;
 import org.mockito.verification.VerificationMode;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
@@ -41,6 +42,25 @@ public class PositionSenderTest
         resendScenario(times(1), CLOSED);
     }
 
+    @Test
+    public void shouldForwardPositionsToAnotherPositionSender()
+    {
+        final RingBuffer forwardedPositions = PositionSender.newForwardedPositions();
+        final PositionSender forwardingSender = new PositionSender(forwardedPositions);
+
+        forwardingSender.newPosition(LIBRARY_ID, 1024);
+        forwardingSender.newPosition(LIBRARY_ID, 2048);
+        forwardingSender.newPosition(OTHER_LIBRARY_ID, 768);
+        forwardingSender.doWork();
+
+        positionSender.receiveForwardedPositions(forwardedPositions);
+        doThreeWorks();
+
+        verify(publication).saveNewSentPosition(LIBRARY_ID, 2048);
+        verify(publication).saveNewSentPosition(OTHER_LIBRARY_ID, 768);
+        verifyNoMoreInteractions(publication);
+    }
+
     private void resendScenario(final VerificationMode times, final long saveResponse)
     {
         when(publication.saveNewSentPosition(LIBRARY_ID, 1024))
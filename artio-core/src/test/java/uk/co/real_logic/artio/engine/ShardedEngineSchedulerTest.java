@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
+
+public class ShardedEngineSchedulerTest
+{
+    private Agent framer = mock(Agent.class);
+    private Agent firstShard = mock(Agent.class);
+    private Agent secondShard = mock(Agent.class);
+    private Agent archivingAgent = mock(Agent.class);
+    private Agent firstReplayer = mock(Agent.class);
+    private Agent secondReplayer = mock(Agent.class);
+    private EngineConfiguration configuration = mock(EngineConfiguration.class);
+    private ErrorHandler mockErrorHandler = mock(ErrorHandler.class);
+    private RecordingCoordinator recordingCoordinator = mock(RecordingCoordinator.class);
+
+    @Test
+    public void shouldRunEachShardAndCloseThemBeforeTheFramer() throws Exception
+    {
+        when(configuration.framerIdleStrategy()).thenReturn(new BusySpinIdleStrategy());
+        when(configuration.archiverIdleStrategy()).thenReturn(new BusySpinIdleStrategy());
+        when(framer.roleName()).thenReturn("framer");
+        when(firstShard.roleName()).thenReturn("firstShard");
+        when(secondShard.roleName()).thenReturn("secondShard");
+        when(archivingAgent.roleName()).thenReturn("archivingAgent");
+
+        try (EngineScheduler scheduler = new ShardedEngineScheduler(BusySpinIdleStrategy::new))
+        {
+            scheduler.launch(
+                configuration,
+                mockErrorHandler,
+                framer,
+                asList(firstShard, secondShard),
+                archivingAgent,
+                null,
+                null,
+                recordingCoordinator);
+
+            assertEventuallyTrue(
+                "Failed to invoke framer shards",
+                () ->
+                {
+                    verify(firstShard, atLeastOnce()).doWork();
+                    verify(secondShard, atLeastOnce()).doWork();
+                    verify(framer, atLeastOnce()).doWork();
+                });
+        }
+
+        final InOrder inOrder = inOrder(firstShard, framer);
+        inOrder.verify(firstShard).onClose();
+        inOrder.verify(framer).onClose();
+        verify(secondShard).onClose();
+        verifyNoMoreInteractions(mockErrorHandler);
+    }
+
+    @Test
+    public void shouldRunEachReplayerShard() throws Exception
+    {
+        when(configuration.framerIdleStrategy()).thenReturn(new BusySpinIdleStrategy());
+        when(configuration.archiverIdleStrategy()).thenReturn(new BusySpinIdleStrategy());
+        when(framer.roleName()).thenReturn("framer");
+        when(archivingAgent.roleName()).thenReturn("archivingAgent");
+        when(firstReplayer.roleName()).thenReturn("firstReplayer");
+        when(secondReplayer.roleName()).thenReturn("secondReplayer");
+
+        try (EngineScheduler scheduler = new ShardedEngineScheduler(BusySpinIdleStrategy::new))
+        {
+            scheduler.launch(
+                configuration,
+                mockErrorHandler,
+                framer,
+                emptyList(),
+                archivingAgent,
+                asList(firstReplayer, secondReplayer),
+                null,
+                null,
+                recordingCoordinator);
+
+            assertEventuallyTrue(
+                "Failed to invoke replayer shards",
+                () ->
+                {
+                    verify(firstReplayer, atLeastOnce()).doWork();
+                    verify(secondReplayer, atLeastOnce()).doWork();
+                    verify(archivingAgent, atLeastOnce()).doWork();
+                });
+        }
+
+        verify(firstReplayer).onClose();
+        verify(secondReplayer).onClose();
+        verify(archivingAgent).onClose();
+        verifyNoMoreInteractions(mockErrorHandler);
+    }
+}
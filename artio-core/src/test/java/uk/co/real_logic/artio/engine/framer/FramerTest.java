@@ -40,6 +40,7 @@ import uk.co.real_logic.artio.engine.logger.ReplayQuery;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
 import uk.co.real_logic.artio.messages.*;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 import uk.co.real_logic.artio.session.CompositeKey;
 import uk.co.real_logic.artio.session.Session;
 import uk.co.real_logic.artio.session.SessionIdStrategy;
@@ -111,6 +112,8 @@ public class FramerTest
     private final Subscription outboundSlowSubscription = mock(Subscription.class);
     private final Image replayImage = mock(Image.class);
     private final Image replaySlowImage = mock(Image.class);
+    private final Image otherReplayImage = mock(Image.class);
+    private final Image otherReplaySlowImage = mock(Image.class);
     private final Image peekImage = mock(Image.class);
     private final Image normalImage = mock(Image.class);
     private final CompositeKey sessionKey = SessionIdStrategy
@@ -171,11 +174,12 @@ public class FramerTest
             mockEndPointFactory,
             outboundLibrarySubscription,
             outboundSlowSubscription,
-            replayImage,
-            replaySlowImage,
+            new Image[] {replayImage, otherReplayImage},
+            new Image[] {replaySlowImage, otherReplaySlowImage},
             replayQuery,
             mock(GatewayPublication.class),
-            inboundPublication,
+            new InboundPublications(inboundPublication),
+            null,
             mock(QueuedPipe.class),
             mockSessionIdStrategy,
             sessionContexts,
@@ -188,7 +192,8 @@ public class FramerTest
             mock(CompletionPosition.class),
             finalImagePositions,
             mock(AgentInvoker.class),
-            mock(RecordingCoordinator.class));
+            mock(RecordingCoordinator.class),
+            new FramerShard[0]);
 
         when(sessionContexts.onLogon(any())).thenReturn(new SessionContext(SESSION_ID,
             SessionContext.UNKNOWN_SEQUENCE_INDEX,
@@ -591,6 +596,39 @@ public class FramerTest
         verifyLibraryControlNotified(hasSize(0));
     }
 
+    @Test
+    public void shouldGiveEndPointsTheReplayPeekersInShardOrder()
+    {
+        final ArgumentCaptor<SlowPeeker[]> replaySlowPeekers = ArgumentCaptor.forClass(SlowPeeker[].class);
+        verify(mockEndPointFactory).replaySlowPeekers(replaySlowPeekers.capture());
+
+        final SlowPeeker[] peekers = replaySlowPeekers.getValue();
+        assertEquals(2, peekers.length);
+        assertSame(replaySlowImage, peekers[0].peekImage);
+        assertSame(replayImage, peekers[0].normalImage);
+        assertSame(otherReplaySlowImage, peekers[1].peekImage);
+        assertSame(otherReplayImage, peekers[1].normalImage);
+    }
+
+    @Test
+    public void shouldKeepReadingOtherReplayImagesWhenOneIsBlocked()
+    {
+        // The first shard's replays are blocked behind a slow consumer, so its image can't be read past them
+        when(replayImage.controlledPoll(any(), anyInt())).thenReturn(0);
+        when(replaySlowImage.position()).thenReturn(POSITION);
+        when(replayImage.position()).thenReturn(POSITION + 1024);
+        when(replaySlowImage.controlledPeek(anyLong(), any(), anyLong())).thenReturn(POSITION);
+        when(otherReplayImage.controlledPoll(any(), anyInt())).thenReturn(2);
+
+        doWork();
+        doWork();
+
+        verify(replayImage, times(2)).controlledPoll(any(), anyInt());
+        verify(otherReplayImage, times(2)).controlledPoll(any(), anyInt());
+        verify(replaySlowImage, times(2)).controlledPeek(eq(POSITION), any(), eq(POSITION + 1024));
+        verify(otherReplaySlowImage, times(2)).controlledPeek(anyLong(), any(), anyLong());
+    }
+
     @Test
     public void shouldNotifyLibraryOfControlledSessionsUponDuplicateConnectAfterTimeout() throws Exception
     {
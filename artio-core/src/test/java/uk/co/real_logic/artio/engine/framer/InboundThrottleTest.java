@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+import uk.co.real_logic.artio.engine.InboundThrottleAction;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class InboundThrottleTest
+{
+    private static final int MESSAGE_LENGTH = 100;
+
+    private final AtomicCounter throttledMessages = mock(AtomicCounter.class);
+    private long timeInNs = SECONDS.toNanos(10);
+
+    @Test
+    public void shouldAllowMessagesUpToTheMessageRate()
+    {
+        final InboundThrottle throttle = newThrottle(3, 0);
+
+        assertTrue(throttle.tryAcquire(MESSAGE_LENGTH));
+        assertTrue(throttle.tryAcquire(MESSAGE_LENGTH));
+        assertTrue(throttle.tryAcquire(MESSAGE_LENGTH));
+        assertFalse(throttle.tryAcquire(MESSAGE_LENGTH));
+
+        verify(throttledMessages, times(1)).incrementOrdered();
+    }
+
+    @Test
+    public void shouldRefillTokensOverTime()
+    {
+        final InboundThrottle throttle = newThrottle(10, 0);
+        acquireAll(throttle, 10);
+        assertFalse(throttle.hasCapacity());
+
+        timeInNs += MILLISECONDS.toNanos(250);
+
+        acquireAll(throttle, 2);
+        assertFalse(throttle.tryAcquire(MESSAGE_LENGTH));
+    }
+
+    @Test
+    public void shouldNotStoreMoreThanASecondOfTokens()
+    {
+        final InboundThrottle throttle = newThrottle(2, 0);
+
+        timeInNs += SECONDS.toNanos(5);
+
+        acquireAll(throttle, 2);
+        assertFalse(throttle.tryAcquire(MESSAGE_LENGTH));
+    }
+
+    @Test
+    public void shouldLimitBytes()
+    {
+        final InboundThrottle throttle = newThrottle(0, 2 * MESSAGE_LENGTH);
+
+        acquireAll(throttle, 2);
+        assertFalse(throttle.tryAcquire(MESSAGE_LENGTH));
+    }
+
+    @Test
+    public void shouldPayBackMessagesLargerThanTheByteRate()
+    {
+        final InboundThrottle throttle = newThrottle(0, MESSAGE_LENGTH);
+
+        assertTrue(throttle.tryAcquire(3 * MESSAGE_LENGTH));
+        assertFalse(throttle.hasCapacity());
+
+        timeInNs += SECONDS.toNanos(2);
+        assertFalse(throttle.hasCapacity());
+
+        timeInNs += SECONDS.toNanos(1);
+        assertTrue(throttle.hasCapacity());
+    }
+
+    @Test
+    public void shouldNotLimitWithoutRates()
+    {
+        final InboundThrottle throttle = newThrottle(0, 0);
+
+        acquireAll(throttle, 1000);
+        verify(throttledMessages, never()).incrementOrdered();
+    }
+
+    @Test
+    public void shouldCloseCounter()
+    {
+        newThrottle(1, 0).close();
+
+        verify(throttledMessages).close();
+    }
+
+    private void acquireAll(final InboundThrottle throttle, final int messages)
+    {
+        for (int i = 0; i < messages; i++)
+        {
+            assertTrue(throttle.tryAcquire(MESSAGE_LENGTH));
+        }
+    }
+
+    private InboundThrottle newThrottle(final int messagesPerSecond, final int bytesPerSecond)
+    {
+        return new InboundThrottle(
+            messagesPerSecond, bytesPerSecond, InboundThrottleAction.PAUSE, () -> timeInNs, throttledMessages);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+import uk.co.real_logic.artio.messages.ConnectionType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static uk.co.real_logic.artio.engine.framer.LogonQueue.*;
+
+public class LogonQueueTest
+{
+    private static final long TIME_IN_MS = 1_000;
+
+    private final AtomicCounter queueDepth = mock(AtomicCounter.class);
+    private LogonQueue logonQueue = new LogonQueue(2, 2, queueDepth);
+
+    @Test
+    public void shouldAdmitLogonsUpToTheLimitPerDutyCycle()
+    {
+        assertEquals(ADMITTED, logonQueue.admit(newSession(), TIME_IN_MS));
+        assertEquals(ADMITTED, logonQueue.admit(newSession(), TIME_IN_MS));
+        assertEquals(QUEUED, logonQueue.admit(newSession(), TIME_IN_MS));
+
+        verify(queueDepth).setOrdered(1);
+    }
+
+    @Test
+    public void shouldAdmitQueuedLogonsInOrderOnLaterDutyCycles()
+    {
+        fillDutyCycle();
+        final GatewaySession first = newSession();
+        final GatewaySession second = newSession();
+        final GatewaySession third = newSession();
+        logonQueue.admit(first, TIME_IN_MS);
+        logonQueue.admit(second, TIME_IN_MS);
+
+        assertEquals(2, logonQueue.onDutyCycle());
+
+        // A new logon has to wait behind the ones that were admitted from the queue
+        assertEquals(QUEUED, logonQueue.admit(third, TIME_IN_MS));
+        assertEquals(ADMITTED, logonQueue.admit(second, TIME_IN_MS));
+        assertEquals(ADMITTED, logonQueue.admit(first, TIME_IN_MS));
+        assertTrue(third.isLogonQueued());
+
+        assertEquals(1, logonQueue.onDutyCycle());
+        assertEquals(ADMITTED, logonQueue.admit(third, TIME_IN_MS));
+    }
+
+    @Test
+    public void shouldKeepQueuedLogonsWaitingUntilAdmitted()
+    {
+        fillDutyCycle();
+        final GatewaySession session = newSession();
+
+        assertEquals(QUEUED, logonQueue.admit(session, TIME_IN_MS));
+        assertEquals(QUEUED, logonQueue.admit(session, TIME_IN_MS + 1));
+        assertEquals(TIME_IN_MS, session.logonReceivedTimeInMs());
+    }
+
+    @Test
+    public void shouldRejectLogonsWhenFull()
+    {
+        fillDutyCycle();
+        logonQueue.admit(newSession(), TIME_IN_MS);
+        logonQueue.admit(newSession(), TIME_IN_MS);
+
+        final GatewaySession session = newSession();
+        assertEquals(FULL, logonQueue.admit(session, TIME_IN_MS));
+        assertFalse(session.isLogonQueued());
+    }
+
+    @Test
+    public void shouldNotAdmitRemovedLogons()
+    {
+        fillDutyCycle();
+        final GatewaySession removed = newSession();
+        final GatewaySession waiting = newSession();
+        logonQueue.admit(removed, TIME_IN_MS);
+        logonQueue.admit(waiting, TIME_IN_MS);
+
+        logonQueue.remove(removed);
+
+        assertEquals(1, logonQueue.onDutyCycle());
+        assertEquals(NOT_QUEUED, removed.logonQueueState());
+        assertEquals(ADMITTED, waiting.logonQueueState());
+    }
+
+    @Test
+    public void shouldAdmitEveryLogonWithoutALimit()
+    {
+        logonQueue = new LogonQueue(NO_LIMIT, 1, queueDepth);
+
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals(ADMITTED, logonQueue.admit(newSession(), TIME_IN_MS));
+        }
+        assertEquals(0, logonQueue.onDutyCycle());
+    }
+
+    private void fillDutyCycle()
+    {
+        logonQueue.admit(newSession(), TIME_IN_MS);
+        logonQueue.admit(newSession(), TIME_IN_MS);
+    }
+
+    private GatewaySession newSession()
+    {
+        return new GatewaySession(
+            1, mock(SessionContext.class), "localhost", ConnectionType.ACCEPTOR, null, null, null, null);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class OutboundThrottleTest
+{
+    private static final int MAX_BYTES = 16 * 1024;
+    private static final long WINDOW_IN_MS = 1000;
+
+    private final OutboundThrottle throttle = new OutboundThrottle(3, WINDOW_IN_MS, MAX_BYTES);
+
+    private byte nextByte;
+
+    @Test
+    public void shouldAllowMessagesUpToTheLimitInAWindow()
+    {
+        assertTrue(throttle.tryAcquire(0));
+        assertTrue(throttle.tryAcquire(10));
+        assertTrue(throttle.tryAcquire(20));
+        assertFalse(throttle.tryAcquire(30));
+        assertFalse(throttle.tryAcquire(WINDOW_IN_MS - 1));
+    }
+
+    @Test
+    public void shouldSlideTheWindowOneSendAtATime()
+    {
+        assertTrue(throttle.tryAcquire(0));
+        assertTrue(throttle.tryAcquire(500));
+        assertTrue(throttle.tryAcquire(900));
+
+        assertTrue(throttle.tryAcquire(WINDOW_IN_MS));
+        assertFalse(throttle.tryAcquire(WINDOW_IN_MS + 1));
+
+        assertTrue(throttle.tryAcquire(500 + WINDOW_IN_MS));
+        assertFalse(throttle.tryAcquire(600 + WINDOW_IN_MS));
+    }
+
+    @Test
+    public void shouldHoldMessagesInOrderWhilstGrowingAndCompacting()
+    {
+        // Remove some messages between holds so that data is compacted back to the start and the buffer grows.
+        int nextExpectedByte = 0;
+        for (int i = 0; i < 20; i++)
+        {
+            assertTrue(throttle.hold(message(1000), 1, false));
+            assertTrue(throttle.hold(message(500), 1, false));
+
+            nextExpectedByte = assertOldest(nextExpectedByte, i % 2 == 0 ? 1000 : 500);
+            throttle.removeOldest();
+        }
+
+        for (int i = 0; i < 20; i++)
+        {
+            nextExpectedByte = assertOldest(nextExpectedByte, i % 2 == 0 ? 1000 : 500);
+            throttle.removeOldest();
+        }
+
+        assertFalse(throttle.hasHeldMessages());
+
+        assertEquals(0, throttle.size());
+    }
+
+    @Test
+    public void shouldRejectMessagesBeyondMaximumSize()
+    {
+        assertTrue(throttle.hold(message(MAX_BYTES / 2), 1, false));
+        assertFalse(throttle.hold(message(MAX_BYTES / 2), 1, false));
+        assertTrue(throttle.hold(message(MAX_BYTES / 2 - 2 * OutboundThrottle.HEADER_SIZE), 1, false));
+    }
+
+    @Test
+    public void shouldKeepTheSequenceNumberOfEachHeldMessage()
+    {
+        assertTrue(throttle.hold(message(100), 5, false));
+        assertTrue(throttle.hold(message(200), 6, true));
+
+        assertEquals(5, throttle.oldestSequenceNumber());
+        throttle.removeOldest();
+        assertEquals(6, throttle.oldestSequenceNumber());
+    }
+
+    @Test
+    public void shouldAlwaysAllowHeldSessionMessagesToBeSent()
+    {
+        assertTrue(throttle.tryAcquire(0));
+        assertTrue(throttle.tryAcquire(0));
+        assertTrue(throttle.tryAcquire(0));
+
+        assertTrue(throttle.hold(message(100), 1, true));
+        assertTrue(throttle.hold(message(100), 2, false));
+
+        assertTrue(throttle.tryAcquireOldest(10));
+        throttle.removeOldest();
+        assertFalse(throttle.tryAcquireOldest(10));
+        assertTrue(throttle.tryAcquireOldest(WINDOW_IN_MS));
+    }
+
+    private int assertOldest(final int firstByte, final int length)
+    {
+        final ByteBuffer oldest = throttle.oldest();
+        assertEquals(length, oldest.remaining());
+        assertEquals((byte)firstByte, oldest.get(oldest.position()));
+        return firstByte + length;
+    }
+
+    private ByteBuffer message(final int length)
+    {
+        final ByteBuffer message = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++)
+        {
+            message.put(nextByte++);
+        }
+        message.flip();
+
+        return message;
+    }
+}
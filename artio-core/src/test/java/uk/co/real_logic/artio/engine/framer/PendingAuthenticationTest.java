@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static uk.co.real_logic.artio.engine.framer.PendingAuthentication.ACCEPTED;
+import static uk.co.real_logic.artio.engine.framer.PendingAuthentication.PENDING;
+import static uk.co.real_logic.artio.engine.framer.PendingAuthentication.REJECTED;
+
+public class PendingAuthenticationTest
+{
+    private static final long TIMEOUT_IN_MS = 1_000;
+
+    private final PendingAuthentication pendingAuthentication = new PendingAuthentication(null, null, TIMEOUT_IN_MS);
+
+    @Test
+    public void shouldBePendingUntilAccepted()
+    {
+        assertEquals(PENDING, pendingAuthentication.poll(0));
+
+        pendingAuthentication.accept();
+
+        assertEquals(ACCEPTED, pendingAuthentication.poll(1));
+    }
+
+    @Test
+    public void shouldOnlyCountTheFirstResult()
+    {
+        pendingAuthentication.reject();
+        pendingAuthentication.accept();
+
+        assertEquals(REJECTED, pendingAuthentication.poll(0));
+    }
+
+    @Test
+    public void shouldRejectOnceTimedOut()
+    {
+        assertEquals(PENDING, pendingAuthentication.poll(TIMEOUT_IN_MS - 1));
+        assertEquals(REJECTED, pendingAuthentication.poll(TIMEOUT_IN_MS));
+
+        pendingAuthentication.accept();
+
+        assertEquals(REJECTED, pendingAuthentication.poll(TIMEOUT_IN_MS + 1));
+    }
+
+    @Test
+    public void shouldNotTimeOutOnceAccepted()
+    {
+        pendingAuthentication.accept();
+
+        assertEquals(ACCEPTED, pendingAuthentication.poll(TIMEOUT_IN_MS + 1));
+    }
+}
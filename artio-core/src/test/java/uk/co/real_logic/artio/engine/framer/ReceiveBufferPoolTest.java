@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+import uk.co.real_logic.artio.FixCounters;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReceiveBufferPoolTest
+{
+    private static final int INITIAL_SIZE = 1024;
+    private static final int MAX_SIZE = 4096;
+
+    private final AtomicCounter smallInUse = mock(AtomicCounter.class);
+    private final AtomicCounter smallPooled = mock(AtomicCounter.class);
+    private final FixCounters fixCounters = mock(FixCounters.class);
+
+    {
+        when(fixCounters.receiveBuffersInUse(anyInt())).thenReturn(mock(AtomicCounter.class));
+        when(fixCounters.pooledReceiveBuffers(anyInt())).thenReturn(mock(AtomicCounter.class));
+        when(fixCounters.receiveBuffersInUse(INITIAL_SIZE)).thenReturn(smallInUse);
+        when(fixCounters.pooledReceiveBuffers(INITIAL_SIZE)).thenReturn(smallPooled);
+    }
+
+    private final ReceiveBufferPool pool = new ReceiveBufferPool(INITIAL_SIZE, MAX_SIZE, fixCounters);
+
+    @Test
+    public void shouldAcquireBuffersOfTheInitialSize()
+    {
+        final ByteBuffer buffer = pool.acquire();
+
+        assertEquals(INITIAL_SIZE, buffer.capacity());
+        assertTrue(buffer.isDirect());
+        verify(smallInUse).getAndAddOrdered(1);
+    }
+
+    @Test
+    public void shouldReuseReleasedBuffers()
+    {
+        final ByteBuffer buffer = pool.acquire();
+        buffer.position(10);
+
+        pool.release(buffer);
+        verify(smallPooled).setOrdered(1);
+        verify(smallInUse).getAndAddOrdered(-1);
+
+        final ByteBuffer reacquired = pool.acquire();
+        assertSame(buffer, reacquired);
+        assertEquals(0, reacquired.position());
+        verify(smallPooled).setOrdered(0);
+    }
+
+    @Test
+    public void shouldDoubleBufferSizeUpToTheMaximum()
+    {
+        final ByteBuffer small = pool.acquire();
+        final ByteBuffer medium = pool.acquireLarger(small);
+        final ByteBuffer large = pool.acquireLarger(medium);
+
+        assertEquals(2 * INITIAL_SIZE, medium.capacity());
+        assertEquals(MAX_SIZE, large.capacity());
+        assertNull(pool.acquireLarger(large));
+    }
+
+    @Test
+    public void shouldCapInitialSizeAtTheMaximum()
+    {
+        final ReceiveBufferPool pool = new ReceiveBufferPool(MAX_SIZE * 2, MAX_SIZE, fixCounters);
+
+        final ByteBuffer buffer = pool.acquire();
+
+        assertEquals(MAX_SIZE, buffer.capacity());
+        assertNull(pool.acquireLarger(buffer));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectBuffersFromElsewhere()
+    {
+        pool.release(ByteBuffer.allocateDirect(INITIAL_SIZE + 1));
+    }
+}
@@ -24,12 +24,16 @@ import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.verification.VerificationMode;
+import uk.co.real_logic.artio.FixCounters;
+import uk.co.real_logic.artio.decoder.TestRequestDecoder;
 import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.engine.InboundThrottleAction;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 import uk.co.real_logic.artio.messages.MessageStatus;
 import uk.co.real_logic.artio.messages.SessionState;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
 import uk.co.real_logic.artio.session.CompositeKey;
 import uk.co.real_logic.artio.session.Session;
 import uk.co.real_logic.artio.session.SessionIdStrategy;
@@ -40,8 +44,10 @@ import java.nio.channels.ClosedChannelException;
 import java.util.function.ToIntFunction;
 
 import static io.aeron.Publication.BACK_PRESSURED;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.dictionary.ExampleDictionary.TAG_SPECIFIED_OUT_OF_REQUIRED_ORDER_MESSAGE_BYTES;
 import static uk.co.real_logic.artio.messages.DisconnectReason.REMOTE_DISCONNECT;
@@ -61,6 +67,7 @@ public class ReceiverEndPointTest
 
     private TcpChannel mockChannel = mock(TcpChannel.class);
     private GatewayPublication publication = mock(GatewayPublication.class);
+    private GatewayPublication shardPublication = mock(GatewayPublication.class);
     private SessionContexts mockSessionContexts = mock(SessionContexts.class);
     private AtomicCounter messagesRead = mock(AtomicCounter.class);
     private ErrorHandler errorHandler = mock(ErrorHandler.class);
@@ -76,11 +83,21 @@ public class ReceiverEndPointTest
         .senderAndTarget()
         .onInitiateLogon("ACCEPTOR", "", "", "INIATOR", "", "");
 
+    private FixCounters fixCounters = mock(FixCounters.class);
+    {
+        when(fixCounters.receiveBuffersInUse(anyInt())).thenReturn(mock(AtomicCounter.class));
+        when(fixCounters.pooledReceiveBuffers(anyInt())).thenReturn(mock(AtomicCounter.class));
+    }
+
+    private long timeInNs = 0;
+    private AtomicCounter throttledMessages = mock(AtomicCounter.class);
+
+    private ReceiveBufferPool bufferPool = new ReceiveBufferPool(BUFFER_SIZE, BUFFER_SIZE, fixCounters);
     private ReceiverEndPoint endPoint = new ReceiverEndPoint(
-        mockChannel, BUFFER_SIZE, publication,
+        mockChannel, bufferPool, new InboundPublications(publication),
         CONNECTION_ID, UNKNOWN, SEQUENCE_INDEX, mockSessionContexts,
         sentSequenceNumbers, receivedSequenceNumbers, messagesRead, framer, errorHandler, LIBRARY_ID,
-        mockGatewaySessions);
+        mockGatewaySessions, null);
 
     @Before
     public void setUp()
@@ -116,6 +133,91 @@ public class ReceiverEndPointTest
         verifyDuplicateSession(times(1));
     }
 
+    @Test
+    public void shouldNotFrameMessagesWhilstAuthenticationIsPending()
+    {
+        givenAPendingAuthentication();
+
+        theEndpointReceivesACompleteMessage();
+        endPoint.pollForData();
+
+        assertTrue(endPoint.isAuthenticating());
+        nothingMoreSaved();
+    }
+
+    @Test
+    public void shouldFrameLogonOnceAuthenticationIsAccepted()
+    {
+        givenAPendingAuthentication();
+        theEndpointReceivesACompleteMessage();
+        endPoint.pollForData();
+
+        givenAnAcceptedAuthentication();
+        pollWithNoData();
+
+        assertFalse(endPoint.isAuthenticating());
+        savesAFramedMessage();
+        sessionReceivesOneMessage();
+    }
+
+    @Test
+    public void shouldDisconnectWhenPendingAuthenticationIsRejected()
+    {
+        givenAPendingAuthentication();
+        theEndpointReceivesACompleteMessage();
+        endPoint.pollForData();
+
+        when(mockGatewaySessions.authenticateAndInitiate(any(), anyLong(), any(), any(), any())).thenReturn(
+            AuthenticationResult.FAILED_AUTHENTICATION);
+        pollWithNoData();
+
+        assertFalse(endPoint.isAuthenticating());
+        verify(publication).saveDisconnect(LIBRARY_ID, CONNECTION_ID, DisconnectReason.FAILED_AUTHENTICATION);
+    }
+
+    @Test
+    public void shouldDisconnectWhenLogonQueueIsFull()
+    {
+        when(mockGatewaySessions.authenticateAndInitiate(any(), anyLong(), any(), any(), any())).thenReturn(
+            AuthenticationResult.LOGON_QUEUE_FULL);
+
+        theEndpointReceivesACompleteMessage();
+        endPoint.pollForData();
+
+        verify(publication).saveDisconnect(LIBRARY_ID, CONNECTION_ID, DisconnectReason.LOGON_QUEUE_FULL);
+        verify(framer).onDisconnect(LIBRARY_ID, CONNECTION_ID, null);
+        nothingMoreSaved();
+    }
+
+    @Test
+    public void shouldNotDecodeLogonWhilstQueued()
+    {
+        givenAPendingAuthentication();
+        theEndpointReceivesACompleteMessage();
+        endPoint.pollForData();
+
+        when(gatewaySession.isLogonQueued()).thenReturn(true);
+        pollWithNoData();
+
+        verify(mockGatewaySessions, times(1)).authenticateAndInitiate(any(), anyLong(), any(), any(), any());
+        assertTrue(endPoint.isAuthenticating());
+    }
+
+    @Test
+    public void shouldAbortPendingAuthenticationWhenDisconnected() throws IOException
+    {
+        givenAPendingAuthentication();
+        theEndpointReceivesACompleteMessage();
+        endPoint.pollForData();
+
+        theChannelIsClosed();
+        endPoint.pollForData();
+
+        assertFalse(endPoint.isAuthenticating());
+        verify(mockGatewaySessions).abortAuthentication(gatewaySession);
+        assertSavesDisconnect();
+    }
+
     @Test
     public void shouldFrameValidFixMessage()
     {
@@ -180,6 +282,25 @@ public class ReceiverEndPointTest
         sessionReceivesOneMessage();
     }
 
+    @Test
+    public void shouldFrameFixMessageReceivedInSeveralPieces()
+    {
+        theEndpointReceivesAMessageInPiecesOf(EG_MESSAGE, MSG_LEN, 10);
+
+        savesAFramedMessage();
+
+        sessionReceivesOneMessage();
+    }
+
+    @Test
+    public void invalidChecksumOfSplitMessageRecorded()
+    {
+        theEndpointReceivesAMessageInPiecesOf(INVALID_CHECKSUM_MSG, INVALID_CHECKSUM_LEN, INVALID_CHECKSUM_LEN / 2);
+
+        savesInvalidChecksumMessage(times(1));
+        nothingMoreSaved();
+    }
+
     @Test
     public void shouldFrameTwoCompleteFixMessagesInOnePacket()
     {
@@ -213,11 +334,154 @@ public class ReceiverEndPointTest
         theEndpointReceivesTheRestOfTheMessage();
         endPoint.pollForData();
 
+        savesTwoFramedMessages(1);
+
+        sessionReceivesTwoMessages();
+    }
+
+    @Test
+    public void shouldMoveSplitMessageToBufferStartWhenBufferIsFull()
+    {
+        endPointWithBufferSizes(2 * MSG_LEN, 2 * MSG_LEN);
+
+        theEndpointReceivesACompleteAndAnIncompleteMessage();
+        endPoint.pollForData();
+
+        theEndpointReceivesTheRestOfTheMessage();
+        endPoint.pollForData();
+
         savesFramedMessages(2, OK, MSG_LEN);
 
         sessionReceivesTwoMessageAtBufferStart();
     }
 
+    @Test
+    public void shouldGrowBufferWhenMessageDoesNotFit()
+    {
+        endPointWithBufferSizes(MSG_LEN / 4, BUFFER_SIZE);
+
+        theEndpointReceivesAMessageInPiecesOf(EG_MESSAGE, MSG_LEN, MSG_LEN / 4);
+
+        savesAFramedMessage();
+
+        sessionReceivesOneMessage();
+    }
+
+    @Test
+    public void shouldNotGrowBufferWhenFullOfBackPressuredMessages()
+    {
+        final ReceiveBufferPool bufferPool = spy(new ReceiveBufferPool(2 * MSG_LEN, BUFFER_SIZE, fixCounters));
+        endPointWithBufferPool(bufferPool);
+        when(publication
+            .saveMessage(
+                anyBuffer(), anyInt(), anyInt(), anyInt(), anyInt(), anyLong(), anyInt(), anyLong(), any(), anyInt()))
+            .thenReturn(BACK_PRESSURED);
+
+        theEndpointReceivesTwoCompleteMessages();
+        endPoint.pollForData();
+        pollWithNoData();
+        pollWithNoData();
+
+        verify(bufferPool, never()).acquireLarger(any());
+        verify(publication, never()).saveMessage(
+            anyBuffer(), eq(MSG_LEN), anyInt(), anyInt(), anyInt(), anyLong(), anyInt(), anyLong(), any(), anyInt());
+    }
+
+    @Test
+    public void shouldReleaseBufferWhenClosed()
+    {
+        final ReceiveBufferPool bufferPool = mock(ReceiveBufferPool.class);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        when(bufferPool.acquire()).thenReturn(buffer);
+        endPoint = new ReceiverEndPoint(
+            mockChannel, bufferPool, new InboundPublications(publication),
+            CONNECTION_ID, UNKNOWN, SEQUENCE_INDEX, mockSessionContexts,
+            sentSequenceNumbers, receivedSequenceNumbers, messagesRead, framer, errorHandler, LIBRARY_ID,
+            mockGatewaySessions, null);
+
+        endPoint.close(DisconnectReason.ENGINE_SHUTDOWN);
+        endPoint.close(DisconnectReason.ENGINE_SHUTDOWN);
+
+        verify(bufferPool, times(1)).release(buffer);
+    }
+
+    @Test
+    public void shouldStopReadingWhilstThrottled() throws IOException
+    {
+        endPointWithThrottle(InboundThrottleAction.PAUSE);
+        theEndpointReceivesTwoCompleteMessages();
+
+        endPoint.pollForData();
+        pollWithNoData();
+
+        verify(mockChannel, times(1)).read(any(ByteBuffer.class));
+        verify(throttledMessages).incrementOrdered();
+        assertTrue(endPoint.isThrottled());
+
+        timeInNs += SECONDS.toNanos(1);
+        assertFalse(endPoint.isThrottled());
+        pollWithNoData();
+
+        savesTwoFramedMessages(1);
+        sessionReceivesTwoMessages();
+    }
+
+    @Test
+    public void shouldNotThrottleSessionMessages()
+    {
+        endPointWithThrottle(InboundThrottleAction.REJECT);
+        endpointBufferUpdatedWith(
+            (buffer) ->
+            {
+                buffer.put(EG_MESSAGE).put(TEST_REQUEST);
+                return MSG_LEN + TEST_REQUEST_LEN;
+            });
+
+        endPoint.pollForData();
+
+        savesFramedMessages(1, OK, MSG_LEN);
+        verify(publication).saveMessage(
+            anyBuffer(), eq(MSG_LEN), eq(TEST_REQUEST_LEN), eq(LIBRARY_ID),
+            eq(TestRequestDecoder.MESSAGE_TYPE), eq(SESSION_ID), eq(SEQUENCE_INDEX), eq(CONNECTION_ID),
+            eq(OK), eq(0));
+        // The session gets the test request, so it replies with a heartbeat rather than rejecting it
+        verify(gatewaySession).onMessage(
+            any(), eq(MSG_LEN), eq(TEST_REQUEST_LEN), eq(TestRequestDecoder.MESSAGE_TYPE), eq(SESSION_ID));
+        verify(gatewaySession, never()).onThrottledMessage(any(), anyInt(), anyInt());
+        verifyNoError();
+    }
+
+    @Test
+    public void shouldSaveThrottledMessagesWithThrottledStatus()
+    {
+        endPointWithThrottle(InboundThrottleAction.REJECT);
+        theEndpointReceivesTwoCompleteMessages();
+
+        endPoint.pollForData();
+
+        savesFramedMessages(1, OK, MSG_LEN);
+        verify(publication).saveMessage(
+            anyBuffer(), eq(MSG_LEN), eq(MSG_LEN), eq(LIBRARY_ID),
+            eq(MESSAGE_TYPE), eq(SESSION_ID), eq(SEQUENCE_INDEX), eq(CONNECTION_ID),
+            eq(THROTTLED), eq(0));
+        sessionReceivesOneMessage();
+        verify(gatewaySession).onThrottledMessage(any(), eq(MSG_LEN), eq(MSG_LEN));
+        verifyNoError();
+    }
+
+    @Test
+    public void shouldDisconnectWhenThrottled()
+    {
+        endPointWithThrottle(InboundThrottleAction.DISCONNECT);
+        theEndpointReceivesTwoCompleteMessages();
+
+        endPoint.pollForData();
+
+        savesAFramedMessage();
+        verify(publication).saveDisconnect(LIBRARY_ID, CONNECTION_ID, DisconnectReason.THROTTLED);
+        assertTrue(endPoint.hasDisconnected());
+    }
+
     @Test
     public void aClosedSocketSavesItsDisconnect() throws IOException
     {
@@ -239,6 +503,54 @@ public class ReceiverEndPointTest
         assertSavesDisconnect();
     }
 
+    @Test
+    public void shouldSaveMessagesToShardPublicationOnceTransferred()
+    {
+        endPoint.transferToShard(new InboundPublications(shardPublication));
+        theEndpointReceivesACompleteMessage();
+
+        assertEquals(2 * MSG_LEN, endPoint.pollOnShard());
+
+        verify(shardPublication).saveMessage(
+            anyBuffer(), eq(0), eq(MSG_LEN), eq(LIBRARY_ID),
+            eq(MESSAGE_TYPE), eq(SESSION_ID), eq(SEQUENCE_INDEX), eq(CONNECTION_ID),
+            eq(OK), eq(0));
+        verifyNoMoreInteractions(publication);
+    }
+
+    @Test
+    public void shouldNotPollOnShardOnceReclaimed()
+    {
+        endPoint.transferToShard(new InboundPublications(shardPublication));
+        assertTrue(endPoint.tryReclaimFromShard());
+        theEndpointReceivesACompleteMessage();
+
+        assertEquals(0, endPoint.pollOnShard());
+
+        pollsData(2 * MSG_LEN);
+        savesAFramedMessage();
+        verifyNoMoreInteractions(shardPublication);
+    }
+
+    @Test
+    public void shouldHandDisconnectDetectedOnShardBackToFramer() throws IOException
+    {
+        endPoint.transferToShard(new InboundPublications(shardPublication));
+        theChannelIsClosed();
+
+        endPoint.pollOnShard();
+
+        verify(framer, never()).onDisconnect(anyInt(), anyLong(), any());
+        assertFalse(endPoint.isOwnedByShard());
+        assertTrue(endPoint.hasShardDisconnect());
+
+        endPoint.onShardDisconnect();
+
+        assertSavesDisconnect();
+        verify(framer).onDisconnect(LIBRARY_ID, CONNECTION_ID, null);
+        verify(shardPublication, never()).saveDisconnect(anyInt(), anyLong(), any());
+    }
+
     @Test
     public void invalidChecksumMessageRecorded() throws IOException
     {
@@ -488,6 +800,43 @@ public class ReceiverEndPointTest
             });
     }
 
+    private void theEndpointReceivesAMessageInPiecesOf(final byte[] data, final int length, final int pieceLength)
+    {
+        for (int offset = 0; offset < length; offset += pieceLength)
+        {
+            theEndpointReceives(data, offset, Math.min(pieceLength, length - offset));
+            endPoint.pollForData();
+        }
+    }
+
+    private void endPointWithBufferSizes(final int initialBufferSize, final int maxBufferSize)
+    {
+        endPointWithBufferPool(new ReceiveBufferPool(initialBufferSize, maxBufferSize, fixCounters));
+    }
+
+    private void endPointWithBufferPool(final ReceiveBufferPool bufferPool)
+    {
+        endPoint = new ReceiverEndPoint(
+            mockChannel,
+            bufferPool,
+            new InboundPublications(publication),
+            CONNECTION_ID, UNKNOWN, SEQUENCE_INDEX, mockSessionContexts,
+            sentSequenceNumbers, receivedSequenceNumbers, messagesRead, framer, errorHandler, LIBRARY_ID,
+            mockGatewaySessions, null);
+        endPoint.gatewaySession(gatewaySession);
+    }
+
+    private void endPointWithThrottle(final InboundThrottleAction action)
+    {
+        final InboundThrottle throttle = new InboundThrottle(1, 0, action, () -> timeInNs, throttledMessages);
+        endPoint = new ReceiverEndPoint(
+            mockChannel, bufferPool, new InboundPublications(publication),
+            CONNECTION_ID, UNKNOWN, SEQUENCE_INDEX, mockSessionContexts,
+            sentSequenceNumbers, receivedSequenceNumbers, messagesRead, framer, errorHandler, LIBRARY_ID,
+            mockGatewaySessions, throttle);
+        endPoint.gatewaySession(gatewaySession);
+    }
+
     private void theEndpointReceivesNothing()
     {
         endpointBufferUpdatedWith(buffer -> 0);
@@ -597,4 +946,16 @@ public class ReceiverEndPointTest
         when(mockGatewaySessions.authenticateAndInitiate(any(), anyLong(), any(), any(), any())).thenReturn(
             AuthenticationResult.DUPLICATE_SESSION);
     }
+
+    private void givenAPendingAuthentication()
+    {
+        when(mockGatewaySessions.authenticateAndInitiate(any(), anyLong(), any(), any(), any())).thenReturn(
+            AuthenticationResult.PENDING);
+    }
+
+    private void givenAnAcceptedAuthentication()
+    {
+        when(mockGatewaySessions.authenticateAndInitiate(any(), anyLong(), any(), any(), any())).thenReturn(
+            authenticationResult);
+    }
 }
@@ -21,22 +21,30 @@ import org.agrona.LangUtil;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.stubbing.Answer;
 import org.mockito.verification.VerificationMode;
+import uk.co.real_logic.artio.decoder.HeartbeatDecoder;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS;
+import static uk.co.real_logic.artio.engine.framer.SenderEndPoint.fragmentStartPosition;
 import static uk.co.real_logic.artio.engine.logger.ArchiveDescriptor.alignTerm;
 import static uk.co.real_logic.artio.messages.DisconnectReason.SLOW_CONSUMER;
+import static uk.co.real_logic.artio.messages.DisconnectReason.THROTTLE_QUEUE_FULL;
 import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
 public class SenderEndPointTest
@@ -51,6 +59,7 @@ public class SenderEndPointTest
     private static final int FRAGMENT_LENGTH = alignTerm(HEADER_LENGTH + FRAME_SIZE + BODY_LENGTH);
     private static final long BEGIN_POSITION = 8000;
     private static final int MAX_BYTES_IN_BUFFER = 3 * BODY_LENGTH;
+    private static final int APPLICATION_MESSAGE_TYPE = 'D';
 
     private TcpChannel tcpChannel = mock(TcpChannel.class);
     private AtomicCounter bytesInBuffer = fakeCounter();
@@ -67,7 +76,7 @@ public class SenderEndPointTest
         CONNECTION_ID,
         LIBRARY_ID,
         libraryBlockablePosition,
-        replayBlockablePosition,
+        new BlockablePosition[] {replayBlockablePosition},
         tcpChannel,
         bytesInBuffer,
         invalidLibraryAttempts,
@@ -76,7 +85,9 @@ public class SenderEndPointTest
         MAX_BYTES_IN_BUFFER,
         DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
         0,
-        senderSequenceNumber);
+        senderSequenceNumber,
+        false,
+        null);
 
     @Test
     public void shouldRetrySlowConsumerMessage()
@@ -282,6 +293,40 @@ public class SenderEndPointTest
         verifySlowConsumerDisconnect(times(1));
     }
 
+    @Test
+    public void shouldBlockReplaysOnTheReplayStreamOfTheSessionsShard()
+    {
+        final BlockablePosition otherReplayBlockablePosition = mock(BlockablePosition.class);
+        endPoint = new SenderEndPoint(
+            CONNECTION_ID,
+            LIBRARY_ID,
+            libraryBlockablePosition,
+            new BlockablePosition[] {otherReplayBlockablePosition, replayBlockablePosition},
+            tcpChannel,
+            bytesInBuffer,
+            invalidLibraryAttempts,
+            errorHandler,
+            framer,
+            MAX_BYTES_IN_BUFFER,
+            DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
+            0,
+            senderSequenceNumber,
+            false,
+            null);
+        // Session 1 is answered by the second of two replayer shards
+        endPoint.sessionId(1);
+
+        channelWillWrite(0);
+        onReplayMessage(0, POSITION);
+        byteBufferWritten();
+
+        channelWillWrite(41);
+        onSlowReplayMessage(0, POSITION);
+        byteBufferWritten();
+        verifyBlocksReplayAt(BEGIN_POSITION);
+        verify(otherReplayBlockablePosition, never()).blockPosition(anyLong());
+    }
+
     @Test
     public void shouldBeAbleToFragmentReplaySlowConsumerRetries()
     {
@@ -383,6 +428,357 @@ public class SenderEndPointTest
         verifyNoMoreErrors();
     }
 
+    @Test
+    public void shouldWriteGatheredMessagesInOneWrite() throws IOException
+    {
+        channelWillGatherWrite(2 * BODY_LENGTH);
+
+        assertTrue(gatherOutboundMessage(POSITION));
+        assertFalse(gatherOutboundMessage(POSITION + FRAGMENT_LENGTH));
+        verifyNoMoreInteractions(tcpChannel);
+
+        endPoint.flushGatheredMessages(100);
+
+        verify(tcpChannel).write(any(ByteBuffer[].class), eq(0), eq(2));
+        assertBytesInBuffer(0);
+        verify(framer, never()).slowStatus(anyInt(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void shouldBecomeSlowConsumerFromPartiallyWrittenGatheredMessage() throws IOException
+    {
+        final int firstWrites = 41;
+        final long secondPosition = POSITION + FRAGMENT_LENGTH;
+        channelWillGatherWrite(BODY_LENGTH + firstWrites);
+
+        gatherOutboundMessage(POSITION);
+        gatherOutboundMessage(secondPosition);
+        gatherOutboundMessage(secondPosition + FRAGMENT_LENGTH);
+        endPoint.flushGatheredMessages(100);
+
+        assertBytesInBuffer((BODY_LENGTH - firstWrites) + BODY_LENGTH);
+        verify(framer).slowStatus(LIBRARY_ID, CONNECTION_ID, true);
+        verifySlowConsumerDisconnect(never());
+
+        channelWillWrite(BODY_LENGTH - firstWrites);
+        endPoint.onSlowOutboundMessage(
+            buffer,
+            HEADER_LENGTH,
+            LENGTH,
+            secondPosition,
+            fragmentStartPosition(secondPosition, LENGTH),
+            BODY_LENGTH,
+            LIBRARY_ID,
+            100);
+        byteBufferWritten();
+        assertBytesInBuffer(BODY_LENGTH);
+    }
+
+    @Test
+    public void shouldFlushGatheredMessagesBeforeWritingReplay() throws IOException
+    {
+        channelWillGatherWrite(BODY_LENGTH);
+        channelWillWrite(BODY_LENGTH);
+
+        gatherOutboundMessage(POSITION);
+        onReplayMessage(0, POSITION);
+
+        final InOrder inOrder = inOrder(tcpChannel);
+        inOrder.verify(tcpChannel).write(any(ByteBuffer[].class), eq(0), eq(1));
+        inOrder.verify(tcpChannel).write(byteBuffer);
+    }
+
+    @Test
+    public void shouldSpillUnwrittenMessagesWithoutBlockingTheStream() throws IOException
+    {
+        final int firstWrites = 41;
+        spillingEndPoint();
+
+        channelWillConsume(firstWrites);
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+
+        assertBytesInBuffer((BODY_LENGTH - firstWrites) + BODY_LENGTH);
+        verify(framer).slowStatus(LIBRARY_ID, CONNECTION_ID, true);
+        verify(tcpChannel, times(1)).write(any(ByteBuffer.class));
+
+        onSlowOutboundMessage();
+        verifyDoesNotBlockLibrary();
+        verifySlowConsumerDisconnect(never());
+        verifyNoMoreErrors();
+    }
+
+    @Test
+    public void shouldDrainSpilledMessagesInOrderThenBecomeNormalConsumer() throws IOException
+    {
+        final int firstWrites = 41;
+        spillingEndPoint();
+        writeMessageBody();
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+        channelWillConsume(firstWrites, sent);
+        onOutboundMessage(100, POSITION);
+        onReplayMessage(100, POSITION);
+
+        channelWillConsume(BODY_LENGTH, sent);
+        assertEquals(BODY_LENGTH, endPoint.drainSpillQueue(100));
+        assertBytesInBuffer(BODY_LENGTH - firstWrites);
+        verify(framer, never()).slowStatus(LIBRARY_ID, CONNECTION_ID, false);
+
+        channelWillConsume(BODY_LENGTH, sent);
+        endPoint.drainSpillQueue(100);
+        assertBytesInBuffer(0);
+        verify(framer).slowStatus(LIBRARY_ID, CONNECTION_ID, false);
+
+        final byte[] expected = new byte[2 * BODY_LENGTH];
+        buffer.getBytes(0, expected, 0, BODY_LENGTH);
+        buffer.getBytes(0, expected, BODY_LENGTH, BODY_LENGTH);
+        assertArrayEquals(expected, sent.toByteArray());
+    }
+
+    @Test
+    public void shouldDisconnectWhenSpillQueueIsFull() throws IOException
+    {
+        spillingEndPoint();
+
+        channelWillConsume(0);
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+        onOutboundMessage(100, POSITION + 2 * FRAGMENT_LENGTH);
+        verifySlowConsumerDisconnect(never());
+
+        onOutboundMessage(100, POSITION + 3 * FRAGMENT_LENGTH);
+        verifySlowConsumerDisconnect(times(1));
+    }
+
+    @Test
+    public void shouldHoldMessagesOverTheThrottleLimitUntilTheWindowMovesOn() throws IOException
+    {
+        throttledEndPoint(1);
+        writeMessageBody();
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        channelWillConsume(BODY_LENGTH, sent);
+
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+
+        verify(tcpChannel, times(1)).write(any(ByteBuffer.class));
+        verify(framer).throttleStatus(LIBRARY_ID, CONNECTION_ID, true);
+        verifyDoesNotBlockLibrary();
+
+        assertEquals(0, endPoint.releaseThrottledMessages(1099));
+        verify(framer, never()).throttleStatus(LIBRARY_ID, CONNECTION_ID, false);
+
+        assertEquals(1, endPoint.releaseThrottledMessages(1100));
+        verify(tcpChannel, times(2)).write(any(ByteBuffer.class));
+        verify(framer).throttleStatus(LIBRARY_ID, CONNECTION_ID, false);
+        assertEquals(2 * BODY_LENGTH, sent.size());
+        assertBytesInBuffer(0);
+    }
+
+    @Test
+    public void shouldKeepHeldMessagesInOrder() throws IOException
+    {
+        throttledEndPoint(2);
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        channelWillConsume(BODY_LENGTH, sent);
+
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+
+        buffer.putByte(0, (byte)'1');
+        onOutboundMessage(100, POSITION + 2 * FRAGMENT_LENGTH);
+        // Held even though the window has moved on, since an earlier message is still held.
+        buffer.putByte(0, (byte)'2');
+        onOutboundMessage(1100, POSITION + 3 * FRAGMENT_LENGTH);
+        verify(tcpChannel, times(2)).write(any(ByteBuffer.class));
+
+        sent.reset();
+        assertEquals(2, endPoint.releaseThrottledMessages(1100));
+
+        final byte[] released = sent.toByteArray();
+        assertEquals('1', released[0]);
+        assertEquals('2', released[BODY_LENGTH]);
+    }
+
+    @Test
+    public void shouldDisconnectWhenThrottleCannotHoldMoreMessages() throws IOException
+    {
+        throttledEndPoint(1);
+        channelWillConsume(BODY_LENGTH);
+
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+        onOutboundMessage(100, POSITION + 2 * FRAGMENT_LENGTH);
+        verify(framer, never()).onDisconnect(anyInt(), anyLong(), any());
+
+        onOutboundMessage(100, POSITION + 3 * FRAGMENT_LENGTH);
+        verify(framer).onDisconnect(LIBRARY_ID, CONNECTION_ID, THROTTLE_QUEUE_FULL);
+    }
+
+    @Test
+    public void shouldSpillPartiallyWrittenReleasedMessage() throws IOException
+    {
+        final int firstWrites = 41;
+        throttledEndPoint(1);
+        channelWillConsume(BODY_LENGTH);
+
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+        onOutboundMessage(100, POSITION + 2 * FRAGMENT_LENGTH);
+
+        channelWillConsume(firstWrites);
+        assertEquals(1, endPoint.releaseThrottledMessages(1100));
+        assertBytesInBuffer(BODY_LENGTH - firstWrites);
+        verify(framer).slowStatus(LIBRARY_ID, CONNECTION_ID, true);
+
+        // Not released until the slow consumer's spilled bytes have been written
+        assertEquals(0, endPoint.releaseThrottledMessages(2100));
+
+        channelWillConsume(BODY_LENGTH);
+        endPoint.drainSpillQueue(2100);
+        assertEquals(1, endPoint.releaseThrottledMessages(2100));
+        verify(framer).throttleStatus(LIBRARY_ID, CONNECTION_ID, false);
+    }
+
+    @Test
+    public void shouldNotThrottleSessionMessages() throws IOException
+    {
+        throttledEndPoint(1);
+        channelWillConsume(BODY_LENGTH);
+
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH, 0, HeartbeatDecoder.MESSAGE_TYPE);
+
+        verify(tcpChannel, times(2)).write(any(ByteBuffer.class));
+        verify(framer, never()).throttleStatus(LIBRARY_ID, CONNECTION_ID, true);
+    }
+
+    @Test
+    public void shouldHoldSessionMessagesBehindHeldMessagesWithoutLimitingThem() throws IOException
+    {
+        throttledEndPoint(1);
+        channelWillConsume(BODY_LENGTH);
+
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+        onOutboundMessage(100, POSITION + 2 * FRAGMENT_LENGTH, 0, HeartbeatDecoder.MESSAGE_TYPE);
+        verify(tcpChannel, times(1)).write(any(ByteBuffer.class));
+
+        assertEquals(0, endPoint.releaseThrottledMessages(1099));
+        assertEquals(2, endPoint.releaseThrottledMessages(1100));
+        verify(tcpChannel, times(3)).write(any(ByteBuffer.class));
+    }
+
+    @Test
+    public void shouldShareTheMaximumBytesInBufferBetweenSpilledAndHeldMessages() throws IOException
+    {
+        throttledEndPoint(1);
+        channelWillConsume(0);
+
+        onOutboundMessage(100, POSITION);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH);
+        assertBytesInBuffer(BODY_LENGTH);
+        verify(framer, never()).onDisconnect(anyInt(), anyLong(), any());
+
+        onOutboundMessage(100, POSITION + 2 * FRAGMENT_LENGTH);
+        verify(framer).onDisconnect(LIBRARY_ID, CONNECTION_ID, THROTTLE_QUEUE_FULL);
+    }
+
+    @Test
+    public void shouldOnlyRecordTheSequenceNumberOfHeldMessagesOnceTheyAreSent() throws IOException
+    {
+        throttledEndPoint(1);
+        channelWillConsume(BODY_LENGTH);
+
+        onOutboundMessage(100, POSITION, 1, APPLICATION_MESSAGE_TYPE);
+        onOutboundMessage(100, POSITION + FRAGMENT_LENGTH, 2, APPLICATION_MESSAGE_TYPE);
+        verify(senderSequenceNumber).onNewMessage(1);
+        verify(senderSequenceNumber, never()).onNewMessage(2);
+
+        assertEquals(1, endPoint.releaseThrottledMessages(1100));
+        verify(senderSequenceNumber).onNewMessage(2);
+    }
+
+    private void throttledEndPoint(final int messagesPerWindow)
+    {
+        endPoint = new SenderEndPoint(
+            CONNECTION_ID,
+            LIBRARY_ID,
+            libraryBlockablePosition,
+            new BlockablePosition[] {replayBlockablePosition},
+            tcpChannel,
+            bytesInBuffer,
+            invalidLibraryAttempts,
+            errorHandler,
+            framer,
+            MAX_BYTES_IN_BUFFER,
+            DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
+            0,
+            senderSequenceNumber,
+            false,
+            new OutboundThrottle(messagesPerWindow, 1000, MAX_BYTES_IN_BUFFER));
+    }
+
+    private void spillingEndPoint()
+    {
+        endPoint = new SenderEndPoint(
+            CONNECTION_ID,
+            LIBRARY_ID,
+            libraryBlockablePosition,
+            new BlockablePosition[] {replayBlockablePosition},
+            tcpChannel,
+            bytesInBuffer,
+            invalidLibraryAttempts,
+            errorHandler,
+            framer,
+            MAX_BYTES_IN_BUFFER,
+            DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
+            0,
+            senderSequenceNumber,
+            true,
+            null);
+    }
+
+    private void writeMessageBody()
+    {
+        for (int i = 0; i < BODY_LENGTH; i++)
+        {
+            buffer.putByte(i, (byte)('A' + (i % 26)));
+        }
+    }
+
+    private void channelWillConsume(final int bytes) throws IOException
+    {
+        channelWillConsume(bytes, new ByteArrayOutputStream());
+    }
+
+    private void channelWillConsume(final int bytes, final ByteArrayOutputStream sent) throws IOException
+    {
+        when(tcpChannel.write(any(ByteBuffer.class))).then(
+            (inv) ->
+            {
+                final ByteBuffer source = inv.getArgument(0);
+                final int written = Math.min(bytes, source.remaining());
+                for (int i = 0; i < written; i++)
+                {
+                    sent.write(source.get());
+                }
+                return written;
+            });
+    }
+
+    private boolean gatherOutboundMessage(final long position)
+    {
+        return endPoint.gatherOutboundMessage(
+            LIBRARY_ID, buffer, 0, BODY_LENGTH, 0, APPLICATION_MESSAGE_TYPE, position, 100);
+    }
+
+    private void channelWillGatherWrite(final long bytesWritten) throws IOException
+    {
+        when(tcpChannel.write(any(ByteBuffer[].class), anyInt(), anyInt())).thenReturn(bytesWritten);
+    }
+
     private void byteBufferNotWritten()
     {
         byteBufferWritten(never());
@@ -400,7 +796,14 @@ public class SenderEndPointTest
 
     private void onOutboundMessage(final long timeInMs, final long position)
     {
-        endPoint.onOutboundMessage(LIBRARY_ID, buffer, 0, BODY_LENGTH, 0, position, timeInMs);
+        onOutboundMessage(timeInMs, position, 0, APPLICATION_MESSAGE_TYPE);
+    }
+
+    private void onOutboundMessage(
+        final long timeInMs, final long position, final int sequenceNumber, final int messageType)
+    {
+        endPoint.onOutboundMessage(
+            LIBRARY_ID, buffer, 0, BODY_LENGTH, sequenceNumber, messageType, position, timeInMs);
     }
 
     private void onReplayMessage(final long timeInMs, final long position)
@@ -453,6 +856,7 @@ public class SenderEndPointTest
             HEADER_LENGTH,
             LENGTH,
             POSITION,
+            fragmentStartPosition(POSITION, LENGTH),
             BODY_LENGTH,
             LIBRARY_ID,
             timeInMs);
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import io.aeron.logbuffer.ControlledFragmentHandler.Action;
+import io.aeron.logbuffer.Header;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.OngoingStubbing;
+import uk.co.real_logic.artio.messages.FixMessageBatchEncoder;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.messages.MessageStatus;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.batchedMessageLength;
+
+public class SenderEndPointsTest
+{
+    private static final long CONNECTION_ID = 1;
+    private static final long OTHER_CONNECTION_ID = 2;
+    private static final int LIBRARY_ID = 3;
+    private static final int HEADER_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH;
+
+    private static final long POSITION = 8 * 1024;
+    private static final int BODY_LENGTH = 20;
+    private static final int LENGTH = FRAME_SIZE + BODY_LENGTH;
+    private static final int BATCHED_LENGTH = batchedMessageLength(BODY_LENGTH);
+
+    private final MessageHeaderEncoder header = new MessageHeaderEncoder();
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final Header fragmentHeader = mock(Header.class);
+    private final SenderEndPoint endPoint = mock(SenderEndPoint.class);
+    private final SenderEndPoint otherEndPoint = mock(SenderEndPoint.class);
+    private final SenderEndPoints senderEndPoints = new SenderEndPoints(mock(ErrorHandler.class));
+
+    private int batchLength;
+
+    @Before
+    public void setUp()
+    {
+        when(endPoint.connectionId()).thenReturn(CONNECTION_ID);
+        when(otherEndPoint.connectionId()).thenReturn(OTHER_CONNECTION_ID);
+        senderEndPoints.add(endPoint);
+        senderEndPoints.add(otherEndPoint);
+
+        when(fragmentHeader.position()).thenReturn(POSITION);
+        onSlowOutboundMessage(endPoint).thenReturn(CONTINUE);
+        onSlowOutboundMessage(otherEndPoint).thenReturn(CONTINUE);
+
+        new FixMessageBatchEncoder()
+            .wrapAndApplyHeader(buffer, 0, header)
+            .libraryId(LIBRARY_ID)
+            .messageCount(3);
+        batchLength = HEADER_LENGTH + FixMessageBatchEncoder.BLOCK_LENGTH;
+
+        putMessage(CONNECTION_ID);
+        putMessage(OTHER_CONNECTION_ID);
+        putMessage(CONNECTION_ID);
+    }
+
+    @Test
+    public void shouldWriteEachMessageOfABatchToItsSlowConsumer()
+    {
+        assertEquals(CONTINUE, onFragment());
+
+        verifySlowOutboundMessage(endPoint, POSITION - 2 * BATCHED_LENGTH);
+        verifySlowOutboundMessage(otherEndPoint, POSITION - BATCHED_LENGTH);
+        verifySlowOutboundMessage(endPoint, POSITION);
+    }
+
+    @Test
+    public void shouldAbortBatchWhenASlowConsumerCannotBeWritten()
+    {
+        onSlowOutboundMessage(endPoint).thenReturn(ABORT, CONTINUE);
+
+        assertEquals(ABORT, onFragment());
+
+        verifySlowOutboundMessage(endPoint, POSITION - 2 * BATCHED_LENGTH);
+        verify(otherEndPoint, never()).onSlowOutboundMessage(
+            any(), anyInt(), anyInt(), anyLong(), anyLong(), anyInt(), anyInt(), anyLong());
+        verify(endPoint, never()).onSlowOutboundMessage(
+            any(), anyInt(), anyInt(), eq(POSITION), anyLong(), anyInt(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void shouldWriteWholeBatchAgainOnceAnAbortedSlowConsumerCanBeWritten()
+    {
+        onSlowOutboundMessage(endPoint).thenReturn(ABORT, CONTINUE);
+
+        assertEquals(ABORT, onFragment());
+        assertEquals(CONTINUE, onFragment());
+
+        verify(endPoint, times(2)).onSlowOutboundMessage(
+            any(), anyInt(), eq(LENGTH), eq(POSITION - 2 * BATCHED_LENGTH), anyLong(), eq(BODY_LENGTH),
+            eq(LIBRARY_ID), anyLong());
+        verifySlowOutboundMessage(otherEndPoint, POSITION - BATCHED_LENGTH);
+        verifySlowOutboundMessage(endPoint, POSITION);
+    }
+
+    private OngoingStubbing<Action> onSlowOutboundMessage(final SenderEndPoint senderEndPoint)
+    {
+        return when(senderEndPoint.onSlowOutboundMessage(
+            any(), anyInt(), anyInt(), anyLong(), anyLong(), anyInt(), anyInt(), anyLong()));
+    }
+
+    private void verifySlowOutboundMessage(final SenderEndPoint senderEndPoint, final long position)
+    {
+        verify(senderEndPoint).onSlowOutboundMessage(
+            any(), anyInt(), eq(LENGTH), eq(position), anyLong(), eq(BODY_LENGTH), eq(LIBRARY_ID), anyLong());
+    }
+
+    private Action onFragment()
+    {
+        return senderEndPoints.onFragment(buffer, 0, batchLength, fragmentHeader);
+    }
+
+    private void putMessage(final long connectionId)
+    {
+        new FixMessageEncoder()
+            .wrapAndApplyHeader(buffer, batchLength, header)
+            .libraryId(LIBRARY_ID)
+            .connection(connectionId)
+            .status(MessageStatus.OK)
+            .putBody(new UnsafeBuffer(new byte[BODY_LENGTH]), 0, BODY_LENGTH);
+        batchLength += BATCHED_LENGTH;
+    }
+}
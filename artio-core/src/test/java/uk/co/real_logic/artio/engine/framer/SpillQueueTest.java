@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpillQueueTest
+{
+    private static final int MAX_BYTES = 16 * 1024;
+
+    private final TcpChannel channel = mock(TcpChannel.class);
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final SpillQueue queue = new SpillQueue(MAX_BYTES);
+
+    private byte nextByte;
+
+    @Test
+    public void shouldRejectMessagesBeyondMaximumSize()
+    {
+        assertTrue(queue.offer(message(MAX_BYTES - 1)));
+        assertFalse(queue.offer(message(2)));
+        assertTrue(queue.offer(message(1)));
+
+        assertEquals(MAX_BYTES, queue.size());
+    }
+
+    @Test
+    public void shouldDrainInOrderWhilstGrowingAndCompacting() throws IOException
+    {
+        final ByteArrayOutputStream offered = new ByteArrayOutputStream();
+
+        // Partially drain between offers so that data wraps back to the start of the buffer and the buffer grows.
+        for (int i = 0; i < 20; i++)
+        {
+            final ByteBuffer message = message(1000);
+            offered.write(message.array(), 0, message.remaining());
+            assertTrue(queue.offer(message));
+
+            channelWillConsume(700);
+            queue.drainTo(channel);
+        }
+
+        channelWillConsume(MAX_BYTES);
+        queue.drainTo(channel);
+
+        assertTrue(queue.isEmpty());
+        assertArrayEquals(offered.toByteArray(), written.toByteArray());
+    }
+
+    @Test
+    public void shouldNotWriteWhenEmpty() throws IOException
+    {
+        assertEquals(0, queue.drainTo(channel));
+        assertEquals(0, written.size());
+    }
+
+    private ByteBuffer message(final int length)
+    {
+        final ByteBuffer message = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++)
+        {
+            message.put(i, nextByte++);
+        }
+
+        return message;
+    }
+
+    private void channelWillConsume(final int bytes) throws IOException
+    {
+        when(channel.write(any(ByteBuffer.class))).then(
+            (inv) ->
+            {
+                final ByteBuffer source = inv.getArgument(0);
+                final int length = Math.min(bytes, source.remaining());
+                for (int i = 0; i < length; i++)
+                {
+                    written.write(source.get());
+                }
+                return length;
+            });
+    }
+}
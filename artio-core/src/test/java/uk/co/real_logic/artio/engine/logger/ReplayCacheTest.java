@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.ControlledFragmentHandler.Action;
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.decoder.HeaderDecoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.engine.logger.Replayer.MESSAGE_FRAME_BLOCK_LENGTH;
+import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
+
+public class ReplayCacheTest extends AbstractLogTest
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Header fragmentHeader = mock(Header.class);
+    private final AtomicCounter hits = mock(AtomicCounter.class);
+    private final AtomicCounter misses = mock(AtomicCounter.class);
+    private final List<Integer> replayedSequenceNumbers = new ArrayList<>();
+    private final HeaderDecoder fixHeader = new HeaderDecoder();
+    private final MutableAsciiBuffer asciiBuffer = new MutableAsciiBuffer();
+
+    private Action replayAction = CONTINUE;
+    private ReplayCache replayCache = new ReplayCache(BUFFER_SIZE, 1, 4, hits, misses);
+
+    @Before
+    public void setUp()
+    {
+        when(fragmentHeader.flags()).thenReturn((byte)DataHeaderFlyweight.BEGIN_AND_END_FLAGS);
+    }
+
+    @Test
+    public void shouldReplayRangeOfCachedMessages()
+    {
+        cacheMessages(SESSION_ID, 1, 5);
+
+        assertReplays(replay(SESSION_ID, 2, 4), 2, 3, 4);
+        verify(hits).increment();
+        verifyNoMoreInteractions(misses);
+    }
+
+    @Test
+    public void shouldReplayUpToMostRecentMessage()
+    {
+        cacheMessages(SESSION_ID, 1, 5);
+
+        assertReplays(replay(SESSION_ID, 3, MOST_RECENT_MESSAGE), 3, 4, 5);
+    }
+
+    @Test
+    public void shouldOnlyReplayMessagesOfTheRequestedSession()
+    {
+        cacheMessages(SESSION_ID, 1, 2);
+        cacheMessages(SESSION_ID_2, 1, 3);
+        cacheMessages(SESSION_ID, 3, 4);
+
+        assertReplays(replay(SESSION_ID, 1, MOST_RECENT_MESSAGE), 1, 2, 3, 4);
+    }
+
+    @Test
+    public void shouldNotReplayMessagesOfAnotherSequenceIndex()
+    {
+        cacheMessages(SESSION_ID, 1, 3);
+        cacheMessage(SESSION_ID, 1, SEQUENCE_INDEX + 1);
+
+        assertReplays(replay(SESSION_ID, 1, MOST_RECENT_MESSAGE), 1, 2, 3);
+    }
+
+    @Test
+    public void shouldNotReplayMessagesThatWereSentBeforeTheSessionWasCached()
+    {
+        cacheMessages(SESSION_ID, 5, 6);
+
+        assertNull(replay(SESSION_ID, 4, 6));
+        verify(misses).increment();
+        verifyNoMoreInteractions(hits);
+    }
+
+    @Test
+    public void shouldNotReplayMessagesThatHaveBeenDropped()
+    {
+        replayCache = new ReplayCache(1024, 1, 1, hits, misses);
+        cacheMessages(SESSION_ID, 1, 50);
+
+        assertNull(replay(SESSION_ID, 1, 50));
+        final ReplayCache.CachedReplay cachedReplay = replay(SESSION_ID, 48, 50);
+        assertReplays(cachedReplay, 48, 49, 50);
+    }
+
+    @Test
+    public void shouldReplayMostRecentMessagesAfterWrapping()
+    {
+        replayCache = new ReplayCache(1024, 1, 1, hits, misses);
+        for (int sequenceNumber = 1; sequenceNumber <= 200; sequenceNumber++)
+        {
+            // Vary the length of the messages so that the padding at the end of the buffer varies
+            cacheMessage(SESSION_ID, sequenceNumber, SEQUENCE_INDEX, testReqId(1 + sequenceNumber % 7));
+
+            if (sequenceNumber > 2)
+            {
+                assertReplays(
+                    replay(SESSION_ID, sequenceNumber - 2, MOST_RECENT_MESSAGE),
+                    sequenceNumber - 2, sequenceNumber - 1, sequenceNumber);
+                replayedSequenceNumbers.clear();
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotReplayFromCacheOverAFragmentedMessage()
+    {
+        cacheMessages(SESSION_ID, 1, 2);
+        when(fragmentHeader.flags()).thenReturn((byte)DataHeaderFlyweight.BEGIN_FLAG);
+        cacheMessage(SESSION_ID, 3, SEQUENCE_INDEX);
+        when(fragmentHeader.flags()).thenReturn((byte)DataHeaderFlyweight.BEGIN_AND_END_FLAGS);
+        cacheMessages(SESSION_ID, 4, 5);
+
+        assertNull(replay(SESSION_ID, 2, 5));
+        assertNull(replay(SESSION_ID, 3, 5));
+        assertReplays(replay(SESSION_ID, 4, 5), 4, 5);
+    }
+
+    @Test
+    public void shouldRetryAbortedMessages()
+    {
+        cacheMessages(SESSION_ID, 1, 3);
+        final ReplayCache.CachedReplay cachedReplay = replay(SESSION_ID, 1, 3);
+
+        replayAction = ABORT;
+        assertFalse(cachedReplay.attemptReplay());
+        assertFalse(cachedReplay.attemptReplay());
+
+        replayAction = CONTINUE;
+        assertReplays(cachedReplay, 1, 2, 3);
+    }
+
+    @Test
+    public void shouldStopReplayWhenMessagesAreDroppedPartWayThrough()
+    {
+        replayCache = new ReplayCache(1024, 1, 1, hits, misses);
+        cacheMessages(SESSION_ID, 1, 3);
+        final ReplayCache.CachedReplay cachedReplay = replay(SESSION_ID, 1, 3);
+
+        replayAction = ABORT;
+        assertFalse(cachedReplay.attemptReplay());
+
+        cacheMessages(SESSION_ID, 4, 50);
+        replayAction = CONTINUE;
+
+        assertTrue(cachedReplay.attemptReplay());
+        assertTrue(cachedReplay.isDropped());
+        assertEquals(1, cachedReplay.nextSequenceNumber());
+        assertEquals(0, cachedReplay.replayedMessages());
+    }
+
+    @Test
+    public void shouldStopReplayWhenSessionIsEvicted()
+    {
+        replayCache = new ReplayCache(BUFFER_SIZE, 1, 1, hits, misses);
+        cacheMessages(SESSION_ID, 1, 3);
+        final ReplayCache.CachedReplay cachedReplay = replay(SESSION_ID, 1, 3);
+
+        cacheMessages(SESSION_ID_2, 1, 3);
+
+        assertTrue(cachedReplay.attemptReplay());
+        assertTrue(cachedReplay.isDropped());
+        assertNull(replay(SESSION_ID, 1, 3));
+        assertReplays(replay(SESSION_ID_2, 1, 3), 1, 2, 3);
+    }
+
+    private void cacheMessages(final long sessionId, final int beginSequenceNumber, final int endSequenceNumber)
+    {
+        for (int sequenceNumber = beginSequenceNumber; sequenceNumber <= endSequenceNumber; sequenceNumber++)
+        {
+            cacheMessage(sessionId, sequenceNumber, SEQUENCE_INDEX);
+        }
+    }
+
+    private void cacheMessage(final long sessionId, final int sequenceNumber, final int sequenceIndex)
+    {
+        cacheMessage(sessionId, sequenceNumber, sequenceIndex, "abc");
+    }
+
+    private void cacheMessage(
+        final long sessionId, final int sequenceNumber, final int sequenceIndex, final String testReqId)
+    {
+        bufferContainsExampleMessage(true, sessionId, sequenceNumber, sequenceIndex, testReqId);
+        replayCache.onFragment(buffer, START, fragmentLength(), fragmentHeader);
+    }
+
+    private static String testReqId(final int length)
+    {
+        final StringBuilder testReqId = new StringBuilder();
+        for (int i = 0; i < length; i++)
+        {
+            testReqId.append('x');
+        }
+        return testReqId.toString();
+    }
+
+    private ReplayCache.CachedReplay replay(final long sessionId, final int beginSeqNo, final int endSeqNo)
+    {
+        return replayCache.replay(this::onReplayedMessage, sessionId, SEQUENCE_INDEX, beginSeqNo, endSeqNo);
+    }
+
+    private void assertReplays(final ReplayCache.CachedReplay cachedReplay, final Integer... sequenceNumbers)
+    {
+        assertNotNull(cachedReplay);
+        while (!cachedReplay.attemptReplay())
+        {
+        }
+
+        assertFalse(cachedReplay.isDropped());
+        assertEquals(asList(sequenceNumbers), replayedSequenceNumbers);
+        assertEquals(sequenceNumbers.length, cachedReplay.replayedMessages());
+    }
+
+    private Action onReplayedMessage(
+        final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        if (replayAction == CONTINUE)
+        {
+            asciiBuffer.wrap(buffer);
+            fixHeader.decode(asciiBuffer, offset + MESSAGE_FRAME_BLOCK_LENGTH, length - MESSAGE_FRAME_BLOCK_LENGTH);
+            replayedSequenceNumbers.add(fixHeader.msgSeqNum());
+        }
+
+        return replayAction;
+    }
+}
@@ -28,12 +28,14 @@ import org.agrona.IoUtil;
 import org.agrona.concurrent.NoOpIdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.verification.VerificationMode;
 import uk.co.real_logic.artio.TestFixtures;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
+import uk.co.real_logic.artio.messages.FixMessageBatchEncoder;
 import uk.co.real_logic.artio.messages.ManageSessionEncoder;
 import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
 
@@ -44,6 +46,7 @@ import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.GatewayProcess.ARCHIVE_REPLAY_STREAM;
 import static uk.co.real_logic.artio.GatewayProcess.OUTBOUND_LIBRARY_STREAM;
 import static uk.co.real_logic.artio.TestFixtures.cleanupMediaDriver;
 import static uk.co.real_logic.artio.TestFixtures.largeTestReqId;
@@ -124,7 +127,9 @@ public class ReplayIndexTest extends AbstractLogTest
             OUTBOUND_LIBRARY_STREAM,
             new NoOpIdleStrategy(),
             aeronArchive,
-            errorHandler);
+            errorHandler,
+            ARCHIVE_REPLAY_STREAM,
+            mock(AtomicCounter.class));
 
         returnBuffer(indexBuffer, SESSION_ID);
         returnBuffer(ByteBuffer.allocate(16 * 1024), SESSION_ID_2);
@@ -135,7 +140,7 @@ public class ReplayIndexTest extends AbstractLogTest
     public void teardown()
     {
         aeronArchive.stopRecording(CHANNEL, STREAM_ID);
-        Exceptions.closeAll(replayIndex, aeronArchive);
+        Exceptions.closeAll(query, replayIndex, aeronArchive);
         cleanupMediaDriver(mediaDriver);
     }
 
@@ -181,6 +186,17 @@ public class ReplayIndexTest extends AbstractLogTest
         assertEquals(2, msgCount);
     }
 
+    @Test
+    public void shouldOnlyReplayTheQueriedSessionsMessagesFromABatch()
+    {
+        indexExampleBatch();
+
+        final int msgCount = query(SEQUENCE_NUMBER, SEQUENCE_INDEX, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+
+        verifyMessagesRead(2);
+        assertEquals(2, msgCount);
+    }
+
     @Test
     public void shouldReadRecordsFromBeforeARestart() throws IOException
     {
@@ -274,6 +290,59 @@ public class ReplayIndexTest extends AbstractLogTest
         verifyMessagesRead(totalMessages);
     }
 
+    @Test
+    public void shouldQueryTheEndOfAnIndexRepeatedly()
+    {
+        final int lastSequenceNumber = 5 * ReplayQuery.CHECKPOINT_INTERVAL;
+        indexExampleMessages(1, lastSequenceNumber);
+
+        final int beginSequenceNumber = lastSequenceNumber - 20;
+        final int endSequenceNumber = lastSequenceNumber - 10;
+        assertEquals(11, query(beginSequenceNumber, SEQUENCE_INDEX, endSequenceNumber, SEQUENCE_INDEX));
+        assertEquals(11, query(beginSequenceNumber, SEQUENCE_INDEX, endSequenceNumber, SEQUENCE_INDEX));
+
+        indexExampleMessage(SESSION_ID, lastSequenceNumber + 1, SEQUENCE_INDEX);
+
+        assertEquals(2, query(lastSequenceNumber, SEQUENCE_INDEX, MOST_RECENT_MESSAGE, SEQUENCE_INDEX));
+        assertEquals(5, query(1, SEQUENCE_INDEX, 5, SEQUENCE_INDEX));
+        assertEquals(2, query(lastSequenceNumber, SEQUENCE_INDEX, lastSequenceNumber + 1, SEQUENCE_INDEX));
+    }
+
+    @Test
+    public void shouldNotSkipRecordsThatAreOutOfOrder()
+    {
+        indexExampleMessages(1, 3 * ReplayQuery.CHECKPOINT_INTERVAL);
+        indexExampleMessages(1, 2 * ReplayQuery.CHECKPOINT_INTERVAL);
+
+        assertEquals(10, query(1, SEQUENCE_INDEX, 5, SEQUENCE_INDEX));
+        assertEquals(10, query(1, SEQUENCE_INDEX, 5, SEQUENCE_INDEX));
+    }
+
+    @Test
+    public void shouldReplayConcurrentQueriesFromTheSameSubscription()
+    {
+        indexExampleMessage();
+        indexExampleMessage(SESSION_ID, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+
+        final ReplayOperation firstOperation = query.query(
+            mockHandler, SESSION_ID, SEQUENCE_NUMBER, SEQUENCE_INDEX, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+        final ReplayOperation secondOperation = query.query(
+            mockHandler, SESSION_ID, SEQUENCE_NUMBER, SEQUENCE_INDEX, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+
+        boolean firstComplete = false;
+        boolean secondComplete = false;
+        while (!firstComplete || !secondComplete)
+        {
+            firstComplete = firstComplete || firstOperation.attemptReplay();
+            secondComplete = secondComplete || secondOperation.attemptReplay();
+            Thread.yield();
+        }
+
+        assertEquals(1, firstOperation.replayedMessages());
+        assertEquals(2, secondOperation.replayedMessages());
+        verifyMessagesRead(3);
+    }
+
     @Test
     public void shouldUpdatePositionForIndexedRecord()
     {
@@ -400,6 +469,44 @@ public class ReplayIndexTest extends AbstractLogTest
         indexRecord();
     }
 
+    private void indexExampleMessages(final int beginSequenceNumber, final int endSequenceNumber)
+    {
+        IntStream.rangeClosed(beginSequenceNumber, endSequenceNumber).forEach(seqNum ->
+            indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+    }
+
+    private void indexExampleBatch()
+    {
+        final UnsafeBuffer batchBuffer = new UnsafeBuffer(new byte[BIG_BUFFER_LENGTH]);
+        new FixMessageBatchEncoder()
+            .wrapAndApplyHeader(batchBuffer, 0, header)
+            .libraryId(LIBRARY_ID)
+            .messageCount(3);
+
+        int batchLength = header.encodedLength() + FixMessageBatchEncoder.BLOCK_LENGTH;
+        batchLength += putBatchedExampleMessage(batchBuffer, batchLength, SESSION_ID, SEQUENCE_NUMBER);
+        batchLength += putBatchedExampleMessage(batchBuffer, batchLength, SESSION_ID_2, SEQUENCE_NUMBER);
+        batchLength += putBatchedExampleMessage(batchBuffer, batchLength, SESSION_ID, SEQUENCE_NUMBER + 1);
+
+        while (publication.offer(batchBuffer, 0, batchLength) <= 0)
+        {
+            Thread.yield();
+        }
+
+        indexRecord();
+    }
+
+    private int putBatchedExampleMessage(
+        final UnsafeBuffer batchBuffer, final int batchOffset, final long sessionId, final int sequenceNumber)
+    {
+        bufferContainsExampleMessage(true, sessionId, sequenceNumber, SEQUENCE_INDEX);
+        messageFrame.wrap(buffer, START + header.encodedLength()).sequenceNumber(sequenceNumber);
+
+        final int length = PREFIX_LENGTH + logEntryLength;
+        batchBuffer.putBytes(batchOffset, buffer, START, length);
+        return length;
+    }
+
     private void publishBuffer()
     {
         while (publication.offer(buffer, START, logEntryLength + PREFIX_LENGTH) <= 0)
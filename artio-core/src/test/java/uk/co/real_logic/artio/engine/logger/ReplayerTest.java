@@ -25,6 +25,7 @@ import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.EpochClock;
 import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -101,7 +102,17 @@ public class ReplayerTest extends AbstractLogTest
 
         setReplayedMessages(1);
 
-        replayer = new Replayer(
+        replayer = newReplayer(null);
+    }
+
+    private Replayer newReplayer(final ReplayCache replayCache)
+    {
+        return newReplayer(replayCache, 0, 1);
+    }
+
+    private Replayer newReplayer(final ReplayCache replayCache, final int shardIndex, final int shardCount)
+    {
+        return new Replayer(
             replayQuery,
             publication,
             claim,
@@ -113,7 +124,10 @@ public class ReplayerTest extends AbstractLogTest
             clock,
             EngineConfiguration.DEFAULT_GAPFILL_ON_REPLAY_MESSAGE_TYPES,
             replayHandler,
-            senderSequenceNumbers);
+            senderSequenceNumbers,
+            replayCache,
+            shardIndex,
+            shardCount);
     }
 
     private void setReplayedMessages(final int replayedMessages)
@@ -189,6 +203,40 @@ public class ReplayerTest extends AbstractLogTest
         assertHasResentWithPossDupFlag(srcLength, times(2));
     }
 
+    @Test
+    public void shouldReplayRecentMessagesFromTheCache()
+    {
+        final ReplayCache replayCache = new ReplayCache(
+            64 * 1024, 1, 1, mock(AtomicCounter.class), mock(AtomicCounter.class));
+        bufferContainsExampleMessage(true);
+        final int srcLength = fragmentLength();
+        replayCache.onFragment(buffer, START, srcLength, fragmentHeader);
+        replayer = newReplayer(replayCache);
+        setupMessage(srcLength);
+
+        final long result = bufferHasResendRequest(END_SEQ_NO);
+        onRequestResendMessage(result);
+        replayer.doWork();
+
+        verifyNoMoreInteractions(replayQuery);
+        assertHasResentWithPossDupFlag(srcLength, times(1));
+    }
+
+    @Test
+    public void shouldOnlyReplayForSessionsInItsOwnShard()
+    {
+        replayer = newReplayer(null, Replayer.shardIndex(SESSION_ID, 2), 2);
+
+        final long otherShardResult = bufferHasResendRequest(END_SEQ_NO, RESEND_TARGET_2);
+        onMessageWithSession(
+            ResendRequestDecoder.MESSAGE_TYPE, otherShardResult, CONTINUE, SESSION_ID_2, CONNECTION_ID_2);
+        verifyNoMoreInteractions(replayQuery);
+
+        final long result = bufferHasResendRequest(END_SEQ_NO);
+        onRequestResendMessage(result);
+        verifyQueriedService(END_SEQ_NO);
+    }
+
     // TODO: queue replay requests by fix session
 
     @Test
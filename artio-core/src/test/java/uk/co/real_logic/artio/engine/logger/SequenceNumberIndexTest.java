@@ -34,6 +34,7 @@ import uk.co.real_logic.artio.engine.SessionInfo;
 import java.io.File;
 
 import static org.agrona.IoUtil.deleteIfExists;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
@@ -250,6 +251,102 @@ public class SequenceNumberIndexTest extends AbstractLogTest
         assertUnknownSession();
     }
 
+    @Test
+    public void shouldFindRecordsWrittenAfterAnEarlierLookup()
+    {
+        indexFixMessage();
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, SessionInfo.UNK_SESSION);
+
+        bufferContainsExampleMessage(true, SESSION_ID_2, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord(alignedEndPosition() + fragmentLength());
+
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, SEQUENCE_NUMBER + 1);
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER);
+    }
+
+    @Test
+    public void shouldFindRecordsThatHaveMovedAfterAReset()
+    {
+        indexFixMessage();
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER);
+
+        writer.resetSequenceNumbers();
+        assertUnknownSession();
+
+        bufferContainsExampleMessage(true, SESSION_ID_2, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord(alignedEndPosition() + fragmentLength());
+        bufferContainsExampleMessage(true, SESSION_ID, SEQUENCE_NUMBER + 2, SEQUENCE_INDEX);
+        indexRecord(alignedEndPosition() + 2 * fragmentLength());
+
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER + 2);
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, SEQUENCE_NUMBER + 1);
+    }
+
+    @Test
+    public void shouldFindNewRecordsAfterAResetThatLeavesTheLastRecordUnchanged()
+    {
+        final long sessionId3 = 3;
+        indexFixMessage();
+        bufferContainsExampleMessage(true, SESSION_ID_2, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+        indexRecord(alignedEndPosition() + fragmentLength());
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER);
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, SEQUENCE_NUMBER);
+
+        // [SESSION_ID, SESSION_ID_2] becomes [sessionId3, SESSION_ID_2]
+        writer.resetSequenceNumbers();
+        bufferContainsExampleMessage(true, sessionId3, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord(alignedEndPosition() + 2 * fragmentLength());
+        bufferContainsExampleMessage(true, SESSION_ID_2, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+        indexRecord(alignedEndPosition() + 3 * fragmentLength());
+
+        assertLastKnownSequenceNumberIs(sessionId3, SEQUENCE_NUMBER + 1);
+        assertLastKnownSequenceNumberIs(SESSION_ID, SessionInfo.UNK_SESSION);
+        assertLastKnownSequenceNumberIs(SESSION_ID_2, SEQUENCE_NUMBER);
+    }
+
+    @Test
+    public void shouldSaveChangedSectorsIntoBothFilesAcrossRotations()
+    {
+        final int recordsInFirstSector = (SECTOR_SIZE - SequenceNumberIndexDescriptor.HEADER_SIZE) / RECORD_SIZE;
+        final long sessionInSecondSector = recordsInFirstSector + 1;
+        int position = alignedEndPosition();
+        for (long sessionId = 1; sessionId <= sessionInSecondSector; sessionId++)
+        {
+            bufferContainsExampleMessage(true, sessionId, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+            indexRecord(position);
+            position += fragmentLength();
+        }
+
+        // Only the first sector changes over these rotations
+        for (int i = 1; i <= 5; i++)
+        {
+            bufferContainsExampleMessage(true, 1, SEQUENCE_NUMBER + i, SEQUENCE_INDEX);
+            indexRecord(position);
+            position += fragmentLength();
+        }
+
+        bufferContainsExampleMessage(true, sessionInSecondSector, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord(position);
+
+        writer.close();
+
+        assertIndexFileMatchesInMemoryBuffer();
+        final SequenceNumberIndexReader newReader = newInstanceAfterRestart();
+        assertLastKnownSequenceNumberIs(1, SEQUENCE_NUMBER + 5, newReader);
+        assertLastKnownSequenceNumberIs(2, SEQUENCE_NUMBER, newReader);
+        assertLastKnownSequenceNumberIs(sessionInSecondSector, SEQUENCE_NUMBER + 1, newReader);
+    }
+
+    private void assertIndexFileMatchesInMemoryBuffer()
+    {
+        try (MappedFile mappedFile = newIndexFile())
+        {
+            final byte[] fileContents = new byte[BUFFER_SIZE];
+            mappedFile.buffer().getBytes(0, fileContents);
+            assertArrayEquals(inMemoryBuffer.byteArray(), fileContents);
+        }
+    }
+
     @After
     public void verifyNoErrors()
     {
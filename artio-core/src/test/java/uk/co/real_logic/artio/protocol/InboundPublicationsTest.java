@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.protocol;
+
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.CommonConfiguration.DEDICATED_LIBRARY_ID_HIGH;
+import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
+
+public class InboundPublicationsTest
+{
+    private static final int LIBRARY_ID = 3;
+
+    private final GatewayPublication defaultPublication = mock(GatewayPublication.class);
+    private final GatewayPublication libraryPublication = mock(GatewayPublication.class);
+    private final Streams streams = mock(Streams.class);
+    private final InboundPublications publications = new InboundPublications(
+        defaultPublication, streams, new NoOpIdleStrategy(), "inboundPublication");
+
+    @Before
+    public void setUp()
+    {
+        when(streams.libraryGatewayPublication(any(), anyString(), anyInt())).thenReturn(libraryPublication);
+        when(streams.isRecording(libraryPublication)).thenReturn(true);
+    }
+
+    @Test
+    public void shouldUseTheDefaultPublicationWithoutDedicatedSessions()
+    {
+        final InboundPublications publications = new InboundPublications(defaultPublication);
+
+        assertSame(defaultPublication, publications.addLibrary(LIBRARY_ID));
+        assertSame(defaultPublication, publications.forLibrary(LIBRARY_ID));
+    }
+
+    @Test
+    public void shouldCreateAPublicationForEachConnectingLibraryOnce()
+    {
+        assertSame(libraryPublication, publications.addLibrary(LIBRARY_ID));
+        assertSame(libraryPublication, publications.addLibrary(LIBRARY_ID));
+        assertSame(libraryPublication, publications.forLibrary(LIBRARY_ID));
+
+        verify(streams).libraryGatewayPublication(any(), anyString(), eq(LIBRARY_ID));
+        assertSame(defaultPublication, publications.forLibrary(ENGINE_LIBRARY_ID));
+    }
+
+    @Test
+    public void shouldOnlyCreatePublicationsForLibrariesInTheDedicatedRange()
+    {
+        assertSame(defaultPublication, publications.addLibrary(DEDICATED_LIBRARY_ID_HIGH + 1));
+        assertSame(defaultPublication, publications.addLibrary(ENGINE_LIBRARY_ID));
+
+        verify(streams, never()).libraryGatewayPublication(any(), anyString(), anyInt());
+    }
+
+    @Test
+    public void shouldNotUseALibraryPublicationUntilItIsBeingRecorded()
+    {
+        when(streams.isRecording(libraryPublication)).thenReturn(false, true);
+
+        assertNull(publications.addLibrary(LIBRARY_ID));
+        assertSame(libraryPublication, publications.addLibrary(LIBRARY_ID));
+
+        verify(streams).libraryGatewayPublication(any(), anyString(), eq(LIBRARY_ID));
+    }
+
+    @Test
+    public void shouldCloseTheLibraryPublicationWhenTheLibraryIsRemoved()
+    {
+        publications.addLibrary(LIBRARY_ID);
+
+        publications.removeLibrary(LIBRARY_ID);
+
+        verify(libraryPublication).close();
+        assertSame(defaultPublication, publications.forLibrary(LIBRARY_ID));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.protocol;
+
+import io.aeron.logbuffer.ControlledFragmentHandler.Action;
+import io.aeron.logbuffer.Header;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.stubbing.OngoingStubbing;
+import org.mockito.verification.VerificationMode;
+import uk.co.real_logic.artio.messages.FixMessageBatchEncoder;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.messages.MessageStatus;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.batchedMessageLength;
+
+public class ProtocolSubscriptionTest
+{
+    private static final int LIBRARY_ID = 3;
+    private static final int HEADER_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH;
+
+    private static final long POSITION = 8 * 1024;
+    private static final int BODY_LENGTH = 20;
+    private static final int BATCHED_LENGTH = batchedMessageLength(BODY_LENGTH);
+
+    private final MessageHeaderEncoder header = new MessageHeaderEncoder();
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final Header fragmentHeader = mock(Header.class);
+    private final ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+    private final ProtocolSubscription protocolSubscription = ProtocolSubscription.of(protocolHandler);
+
+    private int batchLength;
+
+    @Before
+    public void setUp()
+    {
+        when(fragmentHeader.position()).thenReturn(POSITION);
+        onMessage().thenReturn(CONTINUE);
+
+        new FixMessageBatchEncoder()
+            .wrapAndApplyHeader(buffer, 0, header)
+            .libraryId(LIBRARY_ID)
+            .messageCount(3);
+        batchLength = HEADER_LENGTH + FixMessageBatchEncoder.BLOCK_LENGTH;
+
+        putMessage(1);
+        putMessage(2);
+        putMessage(3);
+    }
+
+    @Test
+    public void shouldDeliverEachMessageOfABatchWithItsOwnPosition()
+    {
+        assertEquals(CONTINUE, onFragment());
+
+        final InOrder inOrder = inOrder(protocolHandler);
+        verifyMessage(inOrder, 1, POSITION - 2 * BATCHED_LENGTH);
+        verifyMessage(inOrder, 2, POSITION - BATCHED_LENGTH);
+        verifyMessage(inOrder, 3, POSITION);
+        verifyNoMoreInteractions(protocolHandler);
+    }
+
+    @Test
+    public void shouldResumeBatchFromAbortedMessageWhenRedelivered()
+    {
+        onMessage().thenReturn(CONTINUE, ABORT, CONTINUE);
+
+        assertEquals(ABORT, onFragment());
+
+        final InOrder inOrder = inOrder(protocolHandler);
+        verifyMessage(inOrder, 1, POSITION - 2 * BATCHED_LENGTH);
+        verifyMessage(inOrder, 2, POSITION - BATCHED_LENGTH);
+        verifyNoMoreInteractions(protocolHandler);
+
+        assertEquals(CONTINUE, onFragment());
+
+        verifyMessage(inOrder, 2, POSITION - BATCHED_LENGTH);
+        verifyMessage(inOrder, 3, POSITION);
+        verifyNoMoreInteractions(protocolHandler);
+    }
+
+    @Test
+    public void shouldDeliverWholeBatchWhenADifferentBatchFollowsAnAbort()
+    {
+        onMessage().thenReturn(CONTINUE, ABORT, CONTINUE);
+
+        assertEquals(ABORT, onFragment());
+
+        final long nextPosition = POSITION + 1024;
+        when(fragmentHeader.position()).thenReturn(nextPosition);
+        assertEquals(CONTINUE, onFragment());
+
+        verifyMessage(times(1), 1, nextPosition - 2 * BATCHED_LENGTH);
+        verifyMessage(times(1), 2, nextPosition - BATCHED_LENGTH);
+        verifyMessage(times(1), 3, nextPosition);
+    }
+
+    private OngoingStubbing<Action> onMessage()
+    {
+        return when(protocolHandler.onMessage(
+            any(), anyInt(), anyInt(), anyInt(), anyLong(), anyLong(), anyInt(), anyInt(), anyLong(), any(),
+            anyInt(), anyLong()));
+    }
+
+    private void verifyMessage(final InOrder inOrder, final long connectionId, final long position)
+    {
+        inOrder.verify(protocolHandler).onMessage(
+            any(), anyInt(), eq(BODY_LENGTH), eq(LIBRARY_ID), eq(connectionId), anyLong(), anyInt(), anyInt(),
+            anyLong(), eq(MessageStatus.OK), anyInt(), eq(position));
+    }
+
+    private void verifyMessage(final VerificationMode mode, final long connectionId, final long position)
+    {
+        verify(protocolHandler, mode).onMessage(
+            any(), anyInt(), eq(BODY_LENGTH), eq(LIBRARY_ID), eq(connectionId), anyLong(), anyInt(), anyInt(),
+            anyLong(), eq(MessageStatus.OK), anyInt(), eq(position));
+    }
+
+    private Action onFragment()
+    {
+        return protocolSubscription.onFragment(buffer, 0, batchLength, fragmentHeader);
+    }
+
+    private void putMessage(final long connectionId)
+    {
+        new FixMessageEncoder()
+            .wrapAndApplyHeader(buffer, batchLength, header)
+            .libraryId(LIBRARY_ID)
+            .connection(connectionId)
+            .status(MessageStatus.OK)
+            .putBody(new UnsafeBuffer(new byte[BODY_LENGTH]), 0, BODY_LENGTH);
+        batchLength += BATCHED_LENGTH;
+    }
+}
@@ -459,6 +459,31 @@ public abstract class AbstractSessionTest
         assertSequenceIndexIs(SEQUENCE_INDEX);
     }
 
+    @Test
+    public void shouldRejectThrottledMessageAndCountItAsReceived()
+    {
+        session().state(ACTIVE);
+        session().lastReceivedMsgSeqNum(1);
+
+        assertEquals(CONTINUE, session().onThrottledMessage(2, MSG_TYPE_BYTES, MSG_TYPE_BYTES.length));
+
+        verify(mockProxy).rejectThrottledMessage(
+            anyInt(), eq(2), eq(MSG_TYPE_BYTES), eq(MSG_TYPE_BYTES.length), eq(SEQUENCE_INDEX));
+        assertEquals(3, session().expectedReceivedSeqNum());
+    }
+
+    @Test
+    public void shouldLeaveThrottledMessagesAfterAGapToGapDetection()
+    {
+        session().state(ACTIVE);
+        session().lastReceivedMsgSeqNum(1);
+
+        assertEquals(CONTINUE, session().onThrottledMessage(3, MSG_TYPE_BYTES, MSG_TYPE_BYTES.length));
+
+        verify(mockProxy, never()).rejectThrottledMessage(anyInt(), anyInt(), any(), anyInt(), anyInt());
+        assertEquals(2, session().expectedReceivedSeqNum());
+    }
+
     @Test
     public void shouldRejectLowSequenceReset()
     {
@@ -691,6 +716,67 @@ public abstract class AbstractSessionTest
         assertThat(secondMessage, containsString(":01\001"));
     }
 
+    @Test
+    public void shouldEncodeMessagesDirectlyIntoClaimedBuffer()
+    {
+        givenActive();
+
+        final String sentMessage = sendTestRequest(0);
+        final int claimSeqNum = session().lastSentMsgSeqNum() + 1;
+        final MutableAsciiBuffer claimedBuffer = new MutableAsciiBuffer(new byte[1024]);
+        final int claimedOffset = 64;
+        when(mockPublication.claimMessage(
+            eq(sentMessage.length()),
+            anyInt(),
+            anyInt(),
+            anyLong(),
+            anyInt(),
+            anyLong(),
+            any(),
+            eq(claimSeqNum))).thenReturn(POSITION);
+        when(mockPublication.claimedBuffer()).thenReturn(claimedBuffer);
+        when(mockPublication.claimedMessageOffset()).thenReturn(claimedOffset);
+
+        assertEquals(POSITION, session().send(testRequest, sentMessage.length()));
+
+        verify(mockPublication).commitMessage();
+        assertEquals(claimSeqNum, session().lastSentMsgSeqNum());
+        assertThat(
+            claimedBuffer.getAscii(claimedOffset, sentMessage.length()),
+            containsString("\00134=" + claimSeqNum + "\001"));
+    }
+
+    @Test
+    public void shouldSendMessagesInOneBatch()
+    {
+        givenActive();
+
+        final int firstSeqNum = session().lastSentMsgSeqNum() + 1;
+        when(mockPublication.maxBatchLength()).thenReturn(1024);
+        when(mockPublication.putBatchedMessage(
+            any(), anyInt(), any(), anyInt(), anyInt(), anyInt(), anyInt(), anyLong(), anyInt(), anyLong(), any(),
+            anyInt())).then(inv -> GatewayPublication.batchedMessageLength(inv.<Integer>getArgument(4)));
+        when(mockPublication.saveMessageBatch(any(), eq(0), anyInt(), eq(LIBRARY_ID), eq(2))).thenReturn(POSITION);
+
+        final MessageBatch batch = new MessageBatch();
+        testRequest.testReqID("firstTestReqID");
+        assertTrue(batch.add(session(), testRequest));
+        testRequest.testReqID("secondTestReqID");
+        assertTrue(batch.add(session(), testRequest));
+
+        assertEquals(firstSeqNum - 1, session().lastSentMsgSeqNum());
+        assertEquals(POSITION, batch.send());
+
+        verify(mockPublication).putBatchedMessage(
+            any(), eq(0), any(), anyInt(), anyInt(), eq(LIBRARY_ID), anyInt(), anyLong(), anyInt(), anyLong(), any(),
+            eq(firstSeqNum));
+        verify(mockPublication).putBatchedMessage(
+            any(), anyInt(), any(), anyInt(), anyInt(), eq(LIBRARY_ID), anyInt(), anyLong(), anyInt(), anyLong(),
+            any(), eq(firstSeqNum + 1));
+        assertEquals(firstSeqNum + 1, session().lastSentMsgSeqNum());
+        assertTrue(batch.isEmpty());
+    }
+
     private String sendTestRequest(final long nonSecondDurationInMs)
     {
         testRequest.reset();
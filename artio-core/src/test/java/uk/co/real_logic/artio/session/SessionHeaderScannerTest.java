@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.junit.Test;
+import uk.co.real_logic.artio.decoder.HeaderDecoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
+
+public class SessionHeaderScannerTest
+{
+    private static final String HEADER =
+        "8=FIX.4.4\0019=146\00135=D\00134=4\00149=abc\00152=20090323-15:40:29\00156=das\001";
+    private static final String BODY =
+        "11=NF 0542/03232009\00154=1\00138=100\00155=CVS\00140=1\00110=195\001";
+
+    private final SessionHeaderScanner headerScanner = new SessionHeaderScanner();
+    private final HeaderDecoder header = new HeaderDecoder();
+
+    @Test
+    public void shouldScanHeaderFields()
+    {
+        scan(HEADER + BODY);
+
+        assertEquals(4, headerScanner.msgSeqNum());
+        assertEquals("D", msgType());
+        assertFalse(headerScanner.possDup());
+        assertFalse(headerScanner.hasOrigSendingTime());
+    }
+
+    @Test
+    public void shouldScanMultiCharacterMsgType()
+    {
+        scan("8=FIX.4.4\0019=146\00135=AE\00134=4\00149=abc\001" + BODY);
+
+        assertEquals("AE", msgType());
+    }
+
+    @Test
+    public void shouldScanPossDupFields()
+    {
+        scan(HEADER + "43=Y\001122=20090323-15:40:28\001" + BODY);
+
+        assertTrue(headerScanner.possDup());
+        assertTrue(headerScanner.hasOrigSendingTime());
+
+        scan(HEADER + "43=N\00197=Y\001" + BODY);
+
+        assertTrue(headerScanner.possDup());
+        assertFalse(headerScanner.hasOrigSendingTime());
+    }
+
+    @Test
+    public void shouldNotifyOfMissingMsgSeqNum()
+    {
+        scan("8=FIX.4.4\0019=146\00135=D\00149=abc\001" + BODY);
+
+        assertEquals(MISSING_INT, headerScanner.msgSeqNum());
+    }
+
+    @Test
+    public void shouldNotScanBodyFields()
+    {
+        scan(HEADER + "54=1\00134=5\00143=Y\001" + BODY);
+
+        assertEquals(4, headerScanner.msgSeqNum());
+        assertFalse(headerScanner.possDup());
+    }
+
+    @Test
+    public void shouldFindTheSameHeaderLengthAsTheHeaderDecoder()
+    {
+        final String message = HEADER + "43=Y\001" + BODY;
+        final MutableAsciiBuffer buffer = bufferOf(message);
+
+        scan(message);
+
+        assertEquals(header.decode(buffer, 0, message.length()), headerScanner.headerLength());
+        assertEquals(HEADER.length() + "43=Y\001".length(), headerScanner.headerLength());
+    }
+
+    @Test
+    public void shouldScanMessageWithoutBody()
+    {
+        final String message = HEADER + "10=195\001";
+        scan(message);
+
+        assertEquals(HEADER.length(), headerScanner.headerLength());
+        assertEquals(4, headerScanner.msgSeqNum());
+    }
+
+    private void scan(final String message)
+    {
+        final String padding = "XXX";
+        final MutableAsciiBuffer buffer = bufferOf(padding + message + padding);
+        headerScanner.scan(buffer, padding.length(), message.length());
+    }
+
+    private String msgType()
+    {
+        return new String(headerScanner.msgType(), 0, headerScanner.msgTypeLength(), US_ASCII);
+    }
+
+    private MutableAsciiBuffer bufferOf(final String message)
+    {
+        return new MutableAsciiBuffer(message.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.junit.Test;
+import uk.co.real_logic.artio.builder.Encoder;
+import uk.co.real_logic.artio.builder.HeaderEncoder;
+import uk.co.real_logic.artio.builder.HeartbeatEncoder;
+import uk.co.real_logic.artio.builder.SequenceResetEncoder;
+import uk.co.real_logic.artio.builder.TestRequestEncoder;
+import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.co.real_logic.artio.session.SessionMessageTemplate.NO_BODY_FIELD;
+
+public class SessionMessageTemplateTest
+{
+    private static final int TEMPLATE_SEQ_NUM = 1;
+    private static final long TEMPLATE_TIME = 0;
+    private static final int OFFSET = 5;
+
+    private final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+    private final MutableAsciiBuffer renderBuffer = new MutableAsciiBuffer(new byte[8 * 1024]);
+    private final MutableAsciiBuffer encoderBuffer = new MutableAsciiBuffer(new byte[8 * 1024]);
+    private final MutableAsciiBuffer templateBuffer = new MutableAsciiBuffer(new byte[8 * 1024]);
+
+    @Test
+    public void shouldWriteHeartbeatsLikeTheEncoder()
+    {
+        final HeartbeatEncoder heartbeat = new HeartbeatEncoder();
+        final SessionMessageTemplate template = new SessionMessageTemplate(NO_BODY_FIELD);
+        setupHeader(heartbeat.header(), TEMPLATE_SEQ_NUM, TEMPLATE_TIME);
+        assertTrue(template.render(renderBuffer, heartbeat));
+
+        assertWritesLikeEncoder(template, heartbeat, 2, 1_500_000_000_000L);
+        assertWritesLikeEncoder(template, heartbeat, 12345, 1_500_000_123_456L);
+        assertWritesLikeEncoder(template, heartbeat, 9, 1_500_000_000_001L);
+    }
+
+    @Test
+    public void shouldWriteTestRequestsLikeTheEncoder()
+    {
+        final TestRequestEncoder testRequest = new TestRequestEncoder();
+        final SessionMessageTemplate template = new SessionMessageTemplate(112);
+        setupHeader(testRequest.header(), TEMPLATE_SEQ_NUM, TEMPLATE_TIME);
+        testRequest.testReqID("TEST");
+        assertTrue(template.render(renderBuffer, testRequest));
+
+        final String[] testReqIds = {"TEST", "A", "a much longer test request id than the one that was rendered"};
+        int msgSeqNum = 1;
+        for (final String testReqId : testReqIds)
+        {
+            testRequest.testReqID(testReqId);
+            template.bodyField(testReqId);
+            assertWritesLikeEncoder(template, testRequest, msgSeqNum, 1_500_000_000_000L + msgSeqNum);
+            msgSeqNum *= 100;
+        }
+    }
+
+    @Test
+    public void shouldWriteSequenceResetsLikeTheEncoder()
+    {
+        final SequenceResetEncoder sequenceReset = new SequenceResetEncoder();
+        final SessionMessageTemplate template = new SessionMessageTemplate(36);
+        setupHeader(sequenceReset.header(), TEMPLATE_SEQ_NUM, TEMPLATE_TIME);
+        sequenceReset.newSeqNo(1);
+        assertTrue(template.render(renderBuffer, sequenceReset));
+
+        final int[] newSeqNos = {3, 1000, Integer.MAX_VALUE};
+        for (final int newSeqNo : newSeqNos)
+        {
+            sequenceReset.newSeqNo(newSeqNo);
+            template.bodyField(newSeqNo);
+            assertWritesLikeEncoder(template, sequenceReset, 2, 1_500_000_000_000L);
+        }
+    }
+
+    @Test
+    public void shouldNotRenderWithoutTheBodyField()
+    {
+        final HeartbeatEncoder heartbeat = new HeartbeatEncoder();
+        final SessionMessageTemplate template = new SessionMessageTemplate(112);
+        setupHeader(heartbeat.header(), TEMPLATE_SEQ_NUM, TEMPLATE_TIME);
+
+        assertFalse(template.render(renderBuffer, heartbeat));
+        assertFalse(template.isRendered());
+    }
+
+    private void assertWritesLikeEncoder(
+        final SessionMessageTemplate template, final Encoder encoder, final int msgSeqNum, final long time)
+    {
+        setupHeader((HeaderEncoder)encoder.header(), msgSeqNum, time);
+        final long result = encoder.encode(encoderBuffer, 0);
+        final String expected = encoderBuffer.getAscii(Encoder.offset(result), Encoder.length(result));
+
+        template
+            .sendingTime(timestampEncoder.buffer(), timestampEncoder.update(time))
+            .msgSeqNum(msgSeqNum);
+        final int length = template.length();
+        template.write(templateBuffer, OFFSET);
+
+        assertEquals(expected, templateBuffer.getAscii(OFFSET, length));
+    }
+
+    private void setupHeader(final HeaderEncoder header, final int msgSeqNum, final long time)
+    {
+        header
+            .senderCompID("sender")
+            .targetCompID("target")
+            .sendingTime(timestampEncoder.buffer(), timestampEncoder.encode(time))
+            .msgSeqNum(msgSeqNum);
+    }
+}
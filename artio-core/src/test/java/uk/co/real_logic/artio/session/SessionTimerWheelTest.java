@@ -0,0 +1,283 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_SESSION_BUFFER_SIZE;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_REASONABLE_TRANSMISSION_TIME_IN_MS;
+import static uk.co.real_logic.artio.messages.SessionState.ACTIVE;
+import static uk.co.real_logic.artio.messages.SessionState.CONNECTED;
+import static uk.co.real_logic.artio.messages.SessionState.DISCONNECTING;
+
+public class SessionTimerWheelTest
+{
+    private static final long START_TIME = 1_500_000_000_000L;
+    private static final long PARKED = Long.MAX_VALUE;
+
+    private final List<Integer> expired = new ArrayList<>();
+    private final List<Session> sessions = new ArrayList<>();
+    private final List<Long> nextDeadlines = new ArrayList<>();
+    private final SessionTimerWheel<Integer> timerWheel = new SessionTimerWheel<>(this::onTimerExpiry);
+
+    @Test
+    public void shouldExpireNewTimerOnNextPoll()
+    {
+        addSessions(2);
+
+        assertEquals(2, timerWheel.poll(START_TIME));
+
+        assertExpired(0, 1);
+    }
+
+    @Test
+    public void shouldNotExpireTimerBeforeItsDeadline()
+    {
+        addSessions(1);
+        expireOnAdd(500);
+
+        assertEquals(0, timerWheel.poll(START_TIME + 499));
+        assertExpired();
+
+        assertEquals(1, timerWheel.poll(START_TIME + 500));
+        assertExpired(0);
+    }
+
+    @Test
+    public void shouldExpireTimersAtDeadlinesOnEachLevel()
+    {
+        final long[] delays = {1, 255, 256, 10_000, 65_536, SECONDS.toMillis(90), HOURS.toMillis(5)};
+        addSessions(delays.length);
+        timerWheel.poll(START_TIME);
+        expired.clear();
+
+        for (int i = 0; i < delays.length; i++)
+        {
+            timerWheel.schedule(sessions.get(i), START_TIME + delays[i]);
+        }
+
+        for (int i = 0; i < delays.length; i++)
+        {
+            timerWheel.poll(START_TIME + delays[i] - 1);
+            assertExpired();
+
+            timerWheel.poll(START_TIME + delays[i]);
+            assertExpired(i);
+        }
+    }
+
+    @Test
+    public void shouldExpireTimersWhenPolledInfrequently()
+    {
+        final Random random = new Random(42);
+        final int sessionCount = 1000;
+        addSessions(sessionCount);
+        timerWheel.poll(START_TIME);
+        expired.clear();
+
+        final long[] deadlines = new long[sessionCount];
+        for (int i = 0; i < sessionCount; i++)
+        {
+            deadlines[i] = START_TIME + 1 + random.nextInt((int)SECONDS.toMillis(200));
+            timerWheel.schedule(sessions.get(i), deadlines[i]);
+        }
+
+        long time = START_TIME;
+        int expiredCount = 0;
+        while (expiredCount < sessionCount)
+        {
+            final long lastTime = time;
+            time += 1 + random.nextInt(2000);
+            timerWheel.poll(time);
+
+            for (final int owner : expired)
+            {
+                assertTrue("Timer " + owner, deadlines[owner] > lastTime && deadlines[owner] <= time);
+            }
+            for (int i = 0; i < sessionCount; i++)
+            {
+                if (deadlines[i] > lastTime && deadlines[i] <= time)
+                {
+                    assertTrue("Timer " + i, expired.contains(i));
+                }
+            }
+
+            expiredCount += expired.size();
+            expired.clear();
+        }
+    }
+
+    @Test
+    public void shouldExpireAgainIfNotRescheduled()
+    {
+        addSessions(1);
+        nextDeadlines.set(0, null);
+
+        timerWheel.poll(START_TIME);
+        timerWheel.poll(START_TIME);
+        timerWheel.poll(START_TIME + 1);
+
+        assertExpired(0, 0, 0);
+    }
+
+    @Test
+    public void shouldMoveTimerWhenRescheduled()
+    {
+        addSessions(1);
+        expireOnAdd(1000);
+
+        timerWheel.schedule(sessions.get(0), START_TIME + 10);
+        timerWheel.poll(START_TIME + 10);
+
+        assertExpired(0);
+    }
+
+    @Test
+    public void shouldNotExpireRemovedTimer()
+    {
+        addSessions(2);
+        timerWheel.remove(sessions.get(0));
+
+        timerWheel.poll(START_TIME);
+
+        assertExpired(1);
+        assertEquals(1, timerWheel.timerCount());
+        assertEquals(SessionTimerWheel.NO_TIMER, sessions.get(0).timerId());
+    }
+
+    @Test
+    public void shouldReuseTimersOfRemovedSessions()
+    {
+        addSessions(20);
+        for (int i = 0; i < 20; i++)
+        {
+            timerWheel.remove(sessions.get(i));
+        }
+        sessions.clear();
+        nextDeadlines.clear();
+
+        addSessions(2);
+        timerWheel.poll(START_TIME);
+
+        assertExpired(0, 1);
+        assertEquals(2, timerWheel.timerCount());
+    }
+
+    @Test
+    public void shouldExpireTimerWhenSessionChangesState()
+    {
+        addSessions(1);
+        expireOnAdd(SECONDS.toMillis(30));
+
+        sessions.get(0).state(DISCONNECTING);
+        timerWheel.poll(START_TIME + 1);
+
+        assertExpired(0);
+    }
+
+    @Test
+    public void shouldNotPollSessionsWithoutAnythingDue()
+    {
+        final Session session = newSession();
+        session.state(ACTIVE);
+
+        final long nextPollTime = session.nextPollTime(START_TIME);
+        assertTrue(nextPollTime > START_TIME);
+
+        session.state(DISCONNECTING);
+        assertEquals(START_TIME, session.nextPollTime(START_TIME));
+
+        session.state(CONNECTED);
+        assertEquals(Long.MAX_VALUE, session.nextPollTime(START_TIME));
+    }
+
+    private int onTimerExpiry(final Integer owner, final long timeInMs)
+    {
+        expired.add(owner);
+
+        final Long nextDeadline = nextDeadlines.get(owner);
+        if (nextDeadline != null)
+        {
+            timerWheel.schedule(sessions.get(owner), nextDeadline);
+        }
+
+        return 1;
+    }
+
+    private void addSessions(final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            final Session session = newSession();
+            final int owner = sessions.size();
+            sessions.add(session);
+            nextDeadlines.add(PARKED);
+            timerWheel.add(owner, session, START_TIME);
+        }
+    }
+
+    // Expires the timers that have just been added and schedules them again
+    private void expireOnAdd(final long delay)
+    {
+        for (int i = 0; i < nextDeadlines.size(); i++)
+        {
+            nextDeadlines.set(i, START_TIME + delay);
+        }
+        timerWheel.poll(START_TIME);
+        expired.clear();
+    }
+
+    private void assertExpired(final Integer... owners)
+    {
+        final List<Integer> sortedExpired = new ArrayList<>(expired);
+        sortedExpired.sort(Integer::compare);
+        assertEquals(asList(owners), sortedExpired);
+        expired.clear();
+    }
+
+    private Session newSession()
+    {
+        return new AcceptorSession(
+            AbstractSessionTest.HEARTBEAT_INTERVAL,
+            AbstractSessionTest.CONNECTION_ID,
+            () -> START_TIME,
+            mock(SessionProxy.class),
+            mock(GatewayPublication.class),
+            mock(SessionIdStrategy.class),
+            AbstractSessionTest.SENDING_TIME_WINDOW,
+            mock(AtomicCounter.class),
+            mock(AtomicCounter.class),
+            AbstractSessionTest.LIBRARY_ID,
+            1,
+            AbstractSessionTest.SEQUENCE_INDEX,
+            CONNECTED,
+            DEFAULT_REASONABLE_TRANSMISSION_TIME_IN_MS,
+            new MutableAsciiBuffer(new byte[DEFAULT_SESSION_BUFFER_SIZE]));
+    }
+}
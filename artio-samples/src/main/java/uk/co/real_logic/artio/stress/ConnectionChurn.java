@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.stress;
+
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.SleepingIdleStrategy;
+import org.agrona.concurrent.status.CountersReader;
+import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.MonitoringFile;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.agrona.SystemUtil.loadPropertiesFiles;
+import static uk.co.real_logic.artio.stress.StressConfiguration.*;
+
+/**
+ * Connects to the server and immediately disconnects again from several threads, in the way that a load balancer
+ * health check or an aggressively reconnecting counterparty would. Prints the number of counters allocated by the
+ * server's engine afterwards, which should be bounded by the number of concurrent connections rather than growing
+ * with the total number of connections made.
+ */
+public final class ConnectionChurn
+{
+    public static void main(final String[] args) throws InterruptedException
+    {
+        loadPropertiesFiles(args);
+
+        final AgentRunner server = Server.createServer(
+            new SleepingIdleStrategy(100),
+            Throwable::printStackTrace);
+
+        AgentRunner.startOnThread(server);
+
+        final InetSocketAddress address = new InetSocketAddress("localhost", StressConfiguration.PORT);
+        final AtomicInteger remainingConnections = new AtomicInteger(CHURN_CONNECTIONS);
+        final AtomicInteger failedConnections = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(CHURN_THREADS);
+
+        final long startTime = System.currentTimeMillis();
+
+        for (int i = 0; i < CHURN_THREADS; i++)
+        {
+            final Thread thread = new Thread(() ->
+            {
+                while (remainingConnections.getAndDecrement() > 0)
+                {
+                    try (SocketChannel ignore = SocketChannel.open(address))
+                    {
+                        // Disconnect without sending anything
+                    }
+                    catch (final IOException ex)
+                    {
+                        failedConnections.incrementAndGet();
+                    }
+                }
+
+                finished.countDown();
+            }, "churn-" + i);
+            thread.start();
+        }
+
+        finished.await();
+
+        final long duration = System.currentTimeMillis() - startTime;
+
+        // Give the engine time to notice the last disconnects.
+        Thread.sleep(1000);
+
+        final CommonConfiguration configuration = new CommonConfiguration()
+            .monitoringFile(SERVER_MONITORING_FILE);
+        try (MonitoringFile monitoringFile = new MonitoringFile(false, configuration))
+        {
+            final CountersReader counters = monitoringFile.createCountersManager();
+            final AtomicInteger allocatedCounters = new AtomicInteger();
+            counters.forEach((counterId, label) -> allocatedCounters.incrementAndGet());
+
+            System.out.format("Engine has %d counters allocated%n", allocatedCounters.get());
+        }
+
+        server.close();
+
+        System.out.format(
+            "Connections %d (%d failed) from %d threads in %dms%n",
+            CHURN_CONNECTIONS, failedConnections.get(), CHURN_THREADS, duration);
+    }
+}
@@ -15,6 +15,9 @@
  */
 package uk.co.real_logic.artio.stress;
 
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.archive.ArchivingMediaDriver;
 import io.aeron.driver.MediaDriver;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.Agent;
@@ -33,7 +36,7 @@ import static uk.co.real_logic.artio.SampleUtil.blockingConnect;
 
 public class Server implements Agent
 {
-    private MediaDriver mediaDriver;
+    private ArchivingMediaDriver mediaDriver;
     private FixEngine fixEngine;
     private FixLibrary fixLibrary;
 
@@ -47,6 +50,7 @@ public class Server implements Agent
             .bindTo("localhost", StressConfiguration.PORT)
             .logFileDir("stress-server-logs")
             .libraryAeronChannel(aeronChannel);
+        configuration.monitoringFile(StressConfiguration.SERVER_MONITORING_FILE);
         configuration
             .authenticationStrategy(authenticationStrategy)
             .agentNamePrefix("server-");
@@ -58,7 +62,10 @@ public class Server implements Agent
         final MediaDriver.Context context = new MediaDriver.Context()
             .threadingMode(SHARED)
             .dirDeleteOnStart(true);
-        mediaDriver = MediaDriver.launch(context);
+        final Archive.Context archiveContext = new Archive.Context()
+            .threadingMode(ArchiveThreadingMode.SHARED)
+            .deleteArchiveOnStart(true);
+        mediaDriver = ArchivingMediaDriver.launch(context, archiveContext);
         fixEngine = FixEngine.launch(configuration);
 
         final LibraryConfiguration libraryConfiguration = new LibraryConfiguration();
@@ -15,6 +15,10 @@
  */
 package uk.co.real_logic.artio.stress;
 
+import java.io.File;
+
+import static uk.co.real_logic.artio.CommonConfiguration.optimalTmpDirName;
+
 final class StressConfiguration
 {
     static final int PORT = Integer.getInteger("fix.stress.port", 9999);
@@ -27,6 +31,10 @@ final class StressConfiguration
     static final int MIN_LENGTH = Integer.getInteger("fix.stress.messages.minLength", 1);
     static final int MAX_LENGTH = Integer.getInteger("fix.stress.messages.maxLength", 20);
     static final int MESSAGE_POOL = Integer.getInteger("fix.stress.messages.pool", MESSAGES_EXCHANGED);
+    static final int CHURN_CONNECTIONS = Integer.getInteger("fix.stress.churn.connections", 10_000);
+    static final int CHURN_THREADS = Integer.getInteger("fix.stress.churn.threads", 4);
+    static final String SERVER_MONITORING_FILE =
+        optimalTmpDirName() + File.separator + "fix-stress-server-monitoring";
 
     private static final int DO_NOT_PRINT = -1;
     private static final long FAILED_SPINS_PRINT = Long.getLong("fix.stress.failedSpinsPrint", DO_NOT_PRINT);
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
+
+/**
+ * Compares the word at a time scanning and checksum of {@link MutableAsciiBuffer} with a byte at a time loop. The
+ * message is a NewOrderSingle padded out with a text field to the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MutableAsciiBufferBenchmark
+{
+    private static final byte SEPARATOR = '\001';
+    private static final byte EQUALS = '=';
+
+    @Param({"170", "1024", "4096"})
+    int messageSize;
+
+    private MutableAsciiBuffer buffer;
+    private int length;
+
+    @Setup
+    public void setup()
+    {
+        final StringBuilder message = new StringBuilder(
+            "8=FIX.4.2\0019=145\00135=D\00134=4\00149=ABC_DEFG01\00152=20090323-15:40:29\00156=CCG\001115=XYZ\001" +
+            "11=NF 0542/03232009\00154=1\00138=100\00155=CVS\00140=1\00159=0\00147=A\00160=20090323-15:40:29\001" +
+            "21=1\001207=N\001");
+        final int paddingLength = messageSize - message.length() - "58=\00110=194\001".length();
+        if (paddingLength > 0)
+        {
+            message.append("58=");
+            for (int i = 0; i < paddingLength; i++)
+            {
+                message.append((char)('a' + (i % 26)));
+            }
+            message.append((char)SEPARATOR);
+        }
+        message.append("10=194\001");
+
+        final byte[] bytes = message.toString().getBytes(US_ASCII);
+        buffer = new MutableAsciiBuffer(bytes);
+        length = bytes.length;
+    }
+
+    @Benchmark
+    public int scanFields()
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int end = length - 1;
+        int fields = 0;
+        int position = 0;
+        while (position <= end)
+        {
+            final int equalsPosition = buffer.scan(position, end, EQUALS);
+            position = buffer.scan(equalsPosition + 1, end, SEPARATOR) + 1;
+            fields++;
+        }
+
+        return fields;
+    }
+
+    @Benchmark
+    public int scanFieldsByteAtATime()
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int end = length - 1;
+        int fields = 0;
+        int position = 0;
+        while (position <= end)
+        {
+            final int equalsPosition = scanByteAtATime(buffer, position, end, EQUALS);
+            position = scanByteAtATime(buffer, equalsPosition + 1, end, SEPARATOR) + 1;
+            fields++;
+        }
+
+        return fields;
+    }
+
+    @Benchmark
+    public int scanBackToChecksum()
+    {
+        return buffer.scanBack(length - 2, 0, SEPARATOR);
+    }
+
+    @Benchmark
+    public int scanBackToChecksumByteAtATime()
+    {
+        return scanBackByteAtATime(buffer, length - 2, 0, SEPARATOR);
+    }
+
+    @Benchmark
+    public int computeChecksum()
+    {
+        return buffer.computeChecksum(0, length - 7);
+    }
+
+    @Benchmark
+    public int computeChecksumByteAtATime()
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int end = length - 7;
+        int total = 0;
+        for (int index = 0; index < end; index++)
+        {
+            total += (int)buffer.getByte(index);
+        }
+
+        return total % 256;
+    }
+
+    private static int scanByteAtATime(
+        final MutableAsciiBuffer buffer, final int startInclusive, final int endInclusive, final byte terminator)
+    {
+        for (int index = startInclusive; index <= endInclusive; index++)
+        {
+            if (buffer.getByte(index) == terminator)
+            {
+                return index;
+            }
+        }
+
+        return UNKNOWN_INDEX;
+    }
+
+    private static int scanBackByteAtATime(
+        final MutableAsciiBuffer buffer, final int startInclusive, final int endExclusive, final byte terminator)
+    {
+        for (int index = startInclusive; index >= endExclusive; index--)
+        {
+            if (buffer.getByte(index) == terminator)
+            {
+                return index;
+            }
+        }
+
+        return UNKNOWN_INDEX;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import io.aeron.Aeron;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.Clock;
+import uk.co.real_logic.artio.FixCounters;
+import uk.co.real_logic.artio.engine.MappedFile;
+import uk.co.real_logic.artio.messages.ConnectionType;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.InboundPublications;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_SESSION_ID_BUFFER_SIZE;
+import static uk.co.real_logic.artio.engine.framer.SessionContexts.UNKNOWN_SESSION;
+
+/**
+ * Measures the cost of framing a stream of FIX messages in the {@link ReceiverEndPoint}, along with the number of
+ * bytes of partially received messages that get moved within the receive buffer.
+ *
+ * The socket is replaced by a channel that hands out a pre-built stream of messages in chunks of readSize bytes, so
+ * that messages are regularly split over reads in the same way as a busy TCP connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReceiverEndPointBenchmark
+{
+    private static final int MESSAGES_IN_STREAM = 64;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int CONNECTION_ID = 1;
+    private static final int SESSION_ID = 2;
+    private static final int LIBRARY_ID = 3;
+
+    @Param({"256", "4096"})
+    int messageSize;
+
+    @Param({"1460", "8192"})
+    int readSize;
+
+    private MediaDriver mediaDriver;
+    private Aeron aeron;
+    private Subscription subscription;
+    private ServerSocketChannel serverSocketChannel;
+    private SocketChannel socketChannel;
+    private File sessionContextsFile;
+    private StreamChannel channel;
+    private ReceiverEndPoint endPoint;
+    private long messagesFramed;
+    private final FragmentHandler onFragment =
+        new FragmentAssembler((buffer, offset, length, header) -> messagesFramed++);
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters
+    {
+        public long messages;
+        public long bytesCopied;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            messages = 0;
+            bytesCopied = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException
+    {
+        mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+            .threadingMode(ThreadingMode.SHARED)
+            .dirDeleteOnStart(true));
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+        subscription = aeron.addSubscription("aeron:ipc", 1);
+
+        final GatewayPublication publication = new GatewayPublication(
+            aeron.addExclusivePublication("aeron:ipc", 1),
+            new AtomicCounter(new UnsafeBuffer(new byte[1024]), 0),
+            new NoOpIdleStrategy(),
+            Clock.systemNanoTime(),
+            1);
+
+        // TcpChannel needs a connected socket to resolve its remote address, the socket isn't read from.
+        serverSocketChannel = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        socketChannel = SocketChannel.open(serverSocketChannel.getLocalAddress());
+
+        sessionContextsFile = new File(IoUtil.tmpDirName(), "receiver-end-point-benchmark-session-contexts");
+        IoUtil.delete(sessionContextsFile, true);
+        final SessionContexts sessionContexts = new SessionContexts(
+            MappedFile.map(sessionContextsFile, DEFAULT_SESSION_ID_BUFFER_SIZE), null, Throwable::printStackTrace);
+
+        channel = new StreamChannel(socketChannel, message(messageSize), readSize);
+
+        endPoint = new ReceiverEndPoint(
+            channel,
+            new ReceiveBufferPool(BUFFER_SIZE, BUFFER_SIZE, new FixCounters(new CountersManager(
+                new UnsafeBuffer(new byte[64 * 1024]), new UnsafeBuffer(new byte[16 * 1024])))),
+            new InboundPublications(publication),
+            CONNECTION_ID,
+            SESSION_ID,
+            0,
+            sessionContexts,
+            null,
+            null,
+            new AtomicCounter(new UnsafeBuffer(new byte[1024]), 0),
+            null,
+            Throwable::printStackTrace,
+            LIBRARY_ID,
+            new GatewaySessions(
+                null, null, null, null, null, null, null, 0, 0, 0, null, sessionContexts, null, null, null, 0,
+                null, null, null),
+            null);
+        endPoint.gatewaySession(new GatewaySession(
+            CONNECTION_ID, UNKNOWN_SESSION, "localhost", ConnectionType.ACCEPTOR, null, endPoint, null, null));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        CloseHelper.close(socketChannel);
+        CloseHelper.close(serverSocketChannel);
+        CloseHelper.close(aeron);
+        CloseHelper.close(mediaDriver);
+        IoUtil.delete(sessionContextsFile, true);
+    }
+
+    @Benchmark
+    public int pollForData(final Counters counters)
+    {
+        channel.counters(counters);
+        final int bytesRead = endPoint.pollForData();
+
+        messagesFramed = 0;
+        int fragmentsRead;
+        do
+        {
+            fragmentsRead = subscription.poll(onFragment, Integer.MAX_VALUE);
+        }
+        while (fragmentsRead > 0);
+        channel.onFramed(messagesFramed);
+        counters.messages += messagesFramed;
+
+        return bytesRead;
+    }
+
+    private static byte[] message(final int size)
+    {
+        final String prefix =
+            "35=D\u000149=INITIATOR\u000156=ACCEPTOR\u000134=1\u000152=20180101-00:00:00.000\u000158=";
+        final int textLength = Math.max(1, size - prefix.length() - 30);
+        final StringBuilder body = new StringBuilder(prefix);
+        for (int i = 0; i < textLength; i++)
+        {
+            body.append((char)('a' + (i % 26)));
+        }
+        body.append('\u0001');
+
+        final String header = "8=FIX.4.4\u00019=" + body.length() + "\u0001";
+        final byte[] withoutChecksum = (header + body).getBytes(US_ASCII);
+        int checksum = 0;
+        for (final byte value : withoutChecksum)
+        {
+            checksum += value;
+        }
+
+        return (header + body + String.format("10=%03d\u0001", checksum & 0xFF)).getBytes(US_ASCII);
+    }
+
+    /**
+     * Serves a repeating stream of messages and infers how many bytes the end point moved within its buffer: if
+     * a read doesn't continue from where the previous read finished whilst there's an unframed partial message
+     * then that partial message has been copied.
+     */
+    static final class StreamChannel extends TcpChannel
+    {
+        private final byte[] stream;
+        private final int messageLength;
+        private final int readSize;
+
+        private long bytesDelivered;
+        private long messagesFramed;
+        private int endOfLastRead;
+        private Counters counters;
+
+        StreamChannel(final SocketChannel socketChannel, final byte[] message, final int readSize)
+            throws IOException
+        {
+            super(socketChannel);
+            this.readSize = readSize;
+            messageLength = message.length;
+            stream = new byte[messageLength * MESSAGES_IN_STREAM];
+            for (int i = 0; i < MESSAGES_IN_STREAM; i++)
+            {
+                System.arraycopy(message, 0, stream, i * messageLength, messageLength);
+            }
+        }
+
+        public int read(final ByteBuffer dst)
+        {
+            final long unframedBytes = bytesDelivered - (messagesFramed * messageLength);
+            if (unframedBytes > 0 && dst.position() != endOfLastRead)
+            {
+                counters.bytesCopied += unframedBytes;
+            }
+
+            final int length = Math.min(readSize, dst.remaining());
+            int remaining = length;
+            while (remaining > 0)
+            {
+                final int streamOffset = (int)(bytesDelivered % stream.length);
+                final int chunk = Math.min(remaining, stream.length - streamOffset);
+                dst.put(stream, streamOffset, chunk);
+                bytesDelivered += chunk;
+                remaining -= chunk;
+            }
+            endOfLastRead = dst.position();
+
+            return length;
+        }
+
+        void counters(final Counters counters)
+        {
+            this.counters = counters;
+        }
+
+        void onFramed(final long messagesFramed)
+        {
+            this.messagesFramed += messagesFramed;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static uk.co.real_logic.artio.GatewayProcess.ARCHIVE_REPLAY_STREAM;
+import static uk.co.real_logic.artio.GatewayProcess.OUTBOUND_LIBRARY_STREAM;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.*;
+import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
+
+/**
+ * Measures the cost of looking up the last few messages of a session in its replay index, as a resend request
+ * would, when indexedMessages messages have been indexed. The index holds 65536 records, so it has wrapped around
+ * for the largest fill levels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReplayQueryBenchmark
+{
+    private static final long SESSION_ID = 1;
+    private static final int SEQUENCE_INDEX = 0;
+    private static final int RESENT_MESSAGES = 10;
+    private static final int MESSAGE_LENGTH = 256;
+
+    @Param({"1000", "16384", "65536", "131072"})
+    int indexedMessages;
+
+    private ReplayQuery replayQuery;
+
+    @Setup
+    public void setup()
+    {
+        final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(DEFAULT_REPLAY_INDEX_FILE_SIZE);
+        final UnsafeBuffer buffer = new UnsafeBuffer(indexBuffer);
+        final int capacity = recordCapacity(buffer.capacity());
+        final ReplayIndexRecordEncoder indexRecord = new ReplayIndexRecordEncoder();
+
+        new MessageHeaderEncoder()
+            .wrap(buffer, 0)
+            .blockLength(indexRecord.sbeBlockLength())
+            .templateId(indexRecord.sbeTemplateId())
+            .schemaId(indexRecord.sbeSchemaId())
+            .version(indexRecord.sbeSchemaVersion());
+
+        long changePosition = 0;
+        for (int i = 0; i < indexedMessages; i++)
+        {
+            beginChangeOrdered(buffer, changePosition + RECORD_LENGTH);
+            indexRecord
+                .wrap(buffer, offset(changePosition, capacity))
+                .streamId(OUTBOUND_LIBRARY_STREAM)
+                .position((long)(i + 1) * MESSAGE_LENGTH)
+                .sequenceNumber(i + 1)
+                .sequenceIndex(SEQUENCE_INDEX)
+                .recordingId(0)
+                .length(MESSAGE_LENGTH);
+            changePosition += RECORD_LENGTH;
+            endChangeOrdered(buffer, changePosition);
+        }
+
+        replayQuery = new ReplayQuery(
+            DEFAULT_LOG_FILE_DIR,
+            DEFAULT_LOGGER_CACHE_NUM_SETS,
+            DEFAULT_LOGGER_CACHE_SET_SIZE,
+            file -> indexBuffer,
+            OUTBOUND_LIBRARY_STREAM,
+            new NoOpIdleStrategy(),
+            null,
+            Throwable::printStackTrace,
+            ARCHIVE_REPLAY_STREAM,
+            new AtomicCounter(new UnsafeBuffer(new byte[1024]), 0));
+    }
+
+    @Benchmark
+    public List<RecordingRange> queryRecentMessages()
+    {
+        return replayQuery.queryRanges(
+            SESSION_ID,
+            indexedMessages - RESENT_MESSAGES + 1,
+            SEQUENCE_INDEX,
+            indexedMessages,
+            SEQUENCE_INDEX);
+    }
+
+    @Benchmark
+    public List<RecordingRange> queryUpToMostRecentMessage()
+    {
+        return replayQuery.queryRanges(
+            SESSION_ID,
+            indexedMessages - RESENT_MESSAGES + 1,
+            SEQUENCE_INDEX,
+            MOST_RECENT_MESSAGE,
+            SEQUENCE_INDEX);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.engine.SectorFramer;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE;
+import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexDescriptor.HEADER_SIZE;
+import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexDescriptor.RECORD_SIZE;
+import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexDescriptor.positionTableOffset;
+
+/**
+ * Measures the cost of looking up the last known sequence number of a session in an index that holds sessionCount
+ * sessions, for sessions that are in the index and for a session that isn't.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SequenceNumberIndexReaderBenchmark
+{
+    private static final int FIRST_SESSION_ID = 1;
+
+    @Param({"100", "1000", "10000", "30000"})
+    int sessionCount;
+
+    private SequenceNumberIndexReader reader;
+    private long sessionId = FIRST_SESSION_ID;
+
+    @Setup
+    public void setup()
+    {
+        final AtomicBuffer buffer = new UnsafeBuffer(new byte[DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE]);
+        final LastKnownSequenceNumberEncoder lastKnownEncoder = new LastKnownSequenceNumberEncoder();
+        LoggerUtil.initialiseBuffer(
+            buffer,
+            new MessageHeaderEncoder(),
+            new MessageHeaderDecoder(),
+            lastKnownEncoder.sbeSchemaId(),
+            lastKnownEncoder.sbeTemplateId(),
+            lastKnownEncoder.sbeSchemaVersion(),
+            lastKnownEncoder.sbeBlockLength(),
+            Throwable::printStackTrace);
+
+        final SectorFramer sectorFramer = new SectorFramer(positionTableOffset(buffer.capacity()));
+        int position = HEADER_SIZE;
+        for (int i = 0; i < sessionCount; i++)
+        {
+            position = sectorFramer.claim(position, RECORD_SIZE);
+            lastKnownEncoder
+                .wrap(buffer, position)
+                .sessionId(FIRST_SESSION_ID + i)
+                .sequenceNumber(i + 1);
+            position += RECORD_SIZE;
+        }
+
+        reader = new SequenceNumberIndexReader(buffer, Throwable::printStackTrace);
+    }
+
+    @Benchmark
+    public int lookupKnownSession()
+    {
+        final long sessionId = this.sessionId;
+        this.sessionId = sessionId == sessionCount ? FIRST_SESSION_ID : sessionId + 1;
+        return reader.lastKnownSequenceNumber(sessionId);
+    }
+
+    @Benchmark
+    public int lookupUnknownSession()
+    {
+        return reader.lastKnownSequenceNumber(FIRST_SESSION_ID + sessionCount);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.protocol;
+
+import io.aeron.Aeron;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.Clock;
+import uk.co.real_logic.artio.messages.ApplicationHeartbeatDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost for libraries of picking their own messages out of the inbound stream, with and without
+ * dedicated library inbound sessions.
+ *
+ * Each operation sends one message to every library and then has every library poll until it has seen its own
+ * message, filtering on the library id in the same way as the LibraryPoller. Without dedicated sessions every
+ * library has to read and discard the messages of all of the others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InboundPublicationsBenchmark
+{
+    private static final String CHANNEL = "aeron:ipc";
+    private static final int STREAM_ID = 1;
+    // Keeps the log buffers of 64 library publications within the memory of a small machine
+    private static final int IPC_TERM_BUFFER_LENGTH = 1024 * 1024;
+
+    @Param({"1", "4", "16", "64"})
+    int libraryCount;
+
+    @Param({"false", "true"})
+    boolean dedicated;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final ApplicationHeartbeatDecoder heartbeat = new ApplicationHeartbeatDecoder();
+
+    private MediaDriver mediaDriver;
+    private Aeron aeron;
+    private InboundPublications publications;
+    private Subscription[] subscriptions;
+    private FragmentHandler[] handlers;
+    private boolean[] received;
+    private long fragmentsRead;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters
+    {
+        public long fragmentsPerLibrary;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            fragmentsPerLibrary = 0;
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+            .threadingMode(ThreadingMode.SHARED)
+            .ipcTermBufferLength(IPC_TERM_BUFFER_LENGTH)
+            .dirDeleteOnStart(true));
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+
+        final AtomicCounter failedPublications = new AtomicCounter(new UnsafeBuffer(new byte[1024]), 0);
+        final GatewayPublication defaultPublication = new GatewayPublication(
+            aeron.addExclusivePublication(CHANNEL, STREAM_ID),
+            failedPublications,
+            new NoOpIdleStrategy(),
+            Clock.systemNanoTime(),
+            1);
+        final Streams streams = dedicated ? new Streams(
+            aeron, CHANNEL, false, failedPublications, STREAM_ID, Clock.systemNanoTime(), 1, null) : null;
+        publications = new InboundPublications(defaultPublication, streams, new NoOpIdleStrategy(), "benchmark");
+
+        subscriptions = new Subscription[libraryCount];
+        handlers = new FragmentHandler[libraryCount];
+        received = new boolean[libraryCount];
+        for (int i = 0; i < libraryCount; i++)
+        {
+            final int libraryId = libraryId(i);
+            final int index = i;
+            final String channel = dedicated ? Streams.libraryChannel(CHANNEL, libraryId) : CHANNEL;
+            subscriptions[i] = aeron.addSubscription(channel, STREAM_ID);
+            handlers[i] = (buffer, offset, length, header) -> onFragment(index, libraryId, buffer, offset);
+
+            // Allocate the publication upfront, as the framer does when a library connects.
+            final GatewayPublication publication = publications.addLibrary(libraryId);
+            while (!publication.dataPublication.isConnected())
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        CloseHelper.close(aeron);
+        CloseHelper.close(mediaDriver);
+    }
+
+    @Benchmark
+    public long pollOwnMessages(final Counters counters)
+    {
+        final int libraryCount = this.libraryCount;
+        for (int i = 0; i < libraryCount; i++)
+        {
+            final int libraryId = libraryId(i);
+            while (publications.forLibrary(libraryId).saveApplicationHeartbeat(libraryId) < 0)
+            {
+                Thread.yield();
+            }
+        }
+
+        fragmentsRead = 0;
+        for (int i = 0; i < libraryCount; i++)
+        {
+            final Subscription subscription = subscriptions[i];
+            final FragmentHandler handler = handlers[i];
+            while (!received[i])
+            {
+                subscription.poll(handler, Integer.MAX_VALUE);
+            }
+            received[i] = false;
+        }
+
+        counters.fragmentsPerLibrary += fragmentsRead / libraryCount;
+
+        return fragmentsRead;
+    }
+
+    private void onFragment(final int index, final int libraryId, final DirectBuffer buffer, final int offset)
+    {
+        fragmentsRead++;
+        header.wrap(buffer, offset);
+        if (header.templateId() == ApplicationHeartbeatDecoder.TEMPLATE_ID)
+        {
+            heartbeat.wrap(
+                buffer, offset + MessageHeaderDecoder.ENCODED_LENGTH, header.blockLength(), header.version());
+            if (heartbeat.libraryId() == libraryId)
+            {
+                received[index] = true;
+            }
+        }
+    }
+
+    private static int libraryId(final int index)
+    {
+        return index + 1;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import io.aeron.Aeron;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.Clock;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_SESSION_BUFFER_SIZE;
+import static uk.co.real_logic.artio.messages.SessionState.ACTIVE;
+
+/**
+ * Measures the cost of a duty cycle in which none of the sessions have anything to do, either by polling every
+ * session or by only polling those whose timer has expired on a {@link SessionTimerWheel}.
+ *
+ * The clock moves on by a millisecond each cycle and the heartbeat interval is long enough that no heartbeats or
+ * test requests come due during a run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SessionPollingBenchmark
+{
+    private static final int HEARTBEAT_INTERVAL_IN_S = (int)TimeUnit.DAYS.toSeconds(1);
+    private static final long START_TIME = 1_500_000_000_000L;
+    private static final int LIBRARY_ID = 1;
+
+    @Param({"1000", "10000", "50000"})
+    int sessionCount;
+
+    private MediaDriver mediaDriver;
+    private Aeron aeron;
+    private Session[] sessions;
+    private SessionTimerWheel<Session> timerWheel;
+    private long time = START_TIME;
+    private final EpochClock clock = () -> time;
+
+    @Setup
+    public void setup()
+    {
+        mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+            .threadingMode(ThreadingMode.SHARED)
+            .dirDeleteOnStart(true));
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+
+        final GatewayPublication publication = new GatewayPublication(
+            aeron.addExclusivePublication("aeron:ipc", 1),
+            new AtomicCounter(new UnsafeBuffer(new byte[1024]), 0),
+            new NoOpIdleStrategy(),
+            Clock.systemNanoTime(),
+            1);
+        final AtomicCounter counter = new AtomicCounter(new UnsafeBuffer(new byte[1024]), 0);
+        // Nothing gets encoded, so the sessions can share a buffer
+        final MutableAsciiBuffer asciiBuffer = new MutableAsciiBuffer(new byte[DEFAULT_SESSION_BUFFER_SIZE]);
+
+        timerWheel = new SessionTimerWheel<>(this::onTimerExpiry);
+        sessions = new Session[sessionCount];
+        for (int i = 0; i < sessionCount; i++)
+        {
+            final SessionProxy proxy = new SessionProxy(
+                asciiBuffer,
+                publication,
+                SessionIdStrategy.senderAndTarget(),
+                SessionCustomisationStrategy.none(),
+                clock,
+                i,
+                LIBRARY_ID);
+
+            final Session session = new Session(
+                HEARTBEAT_INTERVAL_IN_S,
+                i,
+                clock,
+                ACTIVE,
+                proxy,
+                publication,
+                SessionIdStrategy.senderAndTarget(),
+                1000,
+                counter,
+                counter,
+                LIBRARY_ID,
+                1,
+                0,
+                1000,
+                asciiBuffer);
+
+            sessions[i] = session;
+            timerWheel.add(session, session, time);
+        }
+        timerWheel.poll(time);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        CloseHelper.close(aeron);
+        CloseHelper.close(mediaDriver);
+    }
+
+    @Benchmark
+    public int pollEverySession()
+    {
+        final long time = ++this.time;
+        final Session[] sessions = this.sessions;
+        int total = 0;
+        for (int i = 0, size = sessions.length; i < size; i++)
+        {
+            total += sessions[i].poll(time);
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public int pollTimerWheel()
+    {
+        return timerWheel.poll(++time);
+    }
+
+    private int onTimerExpiry(final Session session, final long timeInMs)
+    {
+        final int actions = session.poll(timeInMs);
+        timerWheel.schedule(session, session.nextPollTime(timeInMs));
+        return actions;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2018 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.system_tests;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.engine.EngineConfiguration;
+import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.library.FixLibrary;
+import uk.co.real_logic.artio.library.LibraryConfiguration;
+import uk.co.real_logic.artio.session.Session;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static uk.co.real_logic.artio.TestFixtures.launchMediaDriver;
+import static uk.co.real_logic.artio.messages.SessionReplyStatus.OK;
+import static uk.co.real_logic.artio.system_tests.SystemTestUtil.*;
+
+public class DedicatedLibraryInboundSessionsSystemTest extends AbstractGatewayToGatewaySystemTest
+{
+    @Before
+    public void launch()
+    {
+        delete(ACCEPTOR_LOGS);
+
+        mediaDriver = launchMediaDriver();
+
+        final EngineConfiguration acceptingConfig = acceptingConfig(port, ACCEPTOR_ID, INITIATOR_ID);
+        acceptingConfig.dedicatedLibraryInboundSessions(true);
+        acceptingEngine = FixEngine.launch(acceptingConfig);
+
+        delete(CLIENT_LOGS);
+        final EngineConfiguration initiatingConfig = initiatingConfig(libraryAeronPort);
+        initiatingConfig.dedicatedLibraryInboundSessions(true);
+        initiatingEngine = FixEngine.launch(initiatingConfig);
+
+        acceptingLibrary = newDedicatedAcceptingLibrary(acceptingHandler);
+        initiatingLibrary = newDedicatedInitiatingLibrary(initiatingHandler);
+        testSystem = new TestSystem(acceptingLibrary, initiatingLibrary);
+
+        connectSessions();
+    }
+
+    @Test
+    public void messagesCanBeSentFromInitiatorToAcceptingLibrary()
+    {
+        acquireAcceptingSession();
+
+        messagesCanBeExchanged();
+
+        assertSequenceIndicesAre(0);
+    }
+
+    @Test
+    public void messagesCanBeSentFromAcceptingLibraryToInitiator()
+    {
+        acquireAcceptingSession();
+
+        messagesCanBeExchanged(acceptingSession, acceptingOtfAcceptor);
+
+        assertSequenceIndicesAre(0);
+    }
+
+    @Test
+    public void sessionsCanBeHandedOverBetweenLibraries()
+    {
+        acquireAcceptingSession();
+        messagesCanBeExchanged();
+
+        final long sessionId = acceptingSession.id();
+        assertEquals(OK, releaseToGateway(acceptingLibrary, acceptingSession, testSystem));
+
+        final FakeOtfAcceptor acceptingOtfAcceptor2 = new FakeOtfAcceptor();
+        final FakeHandler acceptingHandler2 = new FakeHandler(acceptingOtfAcceptor2);
+        try (FixLibrary acceptingLibrary2 = testSystem.add(newDedicatedAcceptingLibrary(acceptingHandler2)))
+        {
+            final Session acceptingSession2 = acquireSession(
+                acceptingHandler2, acceptingLibrary2, sessionId, testSystem);
+
+            acceptingOtfAcceptor.messages().clear();
+            assertTestRequestSentAndReceived(initiatingSession, testSystem, acceptingOtfAcceptor2);
+            assertTestRequestSentAndReceived(acceptingSession2, testSystem, initiatingOtfAcceptor);
+
+            assertThat("Messages received by the library that released the session",
+                acceptingOtfAcceptor.messages(), hasSize(0));
+        }
+    }
+
+    @Test
+    public void multipleLibrariesCanExchangeMessages()
+    {
+        final int initiator1MessageCount = initiatingOtfAcceptor.messages().size();
+
+        final FakeOtfAcceptor initiatingOtfAcceptor2 = new FakeOtfAcceptor();
+        final FakeHandler initiatingSessionHandler2 = new FakeHandler(initiatingOtfAcceptor2);
+        try (FixLibrary library2 = testSystem.add(newDedicatedInitiatingLibrary(initiatingSessionHandler2)))
+        {
+            acceptingHandler.clearSessions();
+            final Session session2 = testSystem.awaitReply(
+                initiate(library2, port, INITIATOR_ID2, ACCEPTOR_ID)).resultIfPresent();
+
+            assertConnected(session2);
+
+            final long sessionId = acceptingHandler.awaitSessionIdFor(
+                INITIATOR_ID2,
+                ACCEPTOR_ID,
+                testSystem::poll,
+                1000);
+
+            final Session acceptingSession2 = acquireSession(acceptingHandler, acceptingLibrary, sessionId, testSystem);
+
+            assertTestRequestSentAndReceived(acceptingSession2, testSystem, initiatingOtfAcceptor2);
+
+            assertOriginalLibraryDoesNotReceiveMessages(initiator1MessageCount);
+        }
+    }
+
+    private FixLibrary newDedicatedAcceptingLibrary(final FakeHandler handler)
+    {
+        final LibraryConfiguration configuration = acceptingLibraryConfig(handler);
+        configuration.dedicatedLibraryInboundSessions(true);
+        return connect(configuration);
+    }
+
+    private FixLibrary newDedicatedInitiatingLibrary(final FakeHandler handler)
+    {
+        final LibraryConfiguration configuration = initiatingLibraryConfig(libraryAeronPort, handler);
+        configuration.dedicatedLibraryInboundSessions(true);
+        return connect(configuration);
+    }
+}
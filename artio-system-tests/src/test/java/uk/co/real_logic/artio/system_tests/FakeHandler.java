@@ -37,6 +37,7 @@ public class FakeHandler
 
     private final List<Session> sessions = new ArrayList<>();
     private final Set<Session> slowSessions = new HashSet<>();
+    private final Set<Session> throttledSessions = new HashSet<>();
     private final Deque<CompleteSessionId> completeSessionIds = new ArrayDeque<>();
 
     private Session lastSession;
@@ -85,6 +86,18 @@ public class FakeHandler
         }
     }
 
+    public void onThrottleStatus(final int libraryId, final Session session, final boolean isThrottled)
+    {
+        if (isThrottled)
+        {
+            throttledSessions.add(session);
+        }
+        else
+        {
+            throttledSessions.remove(session);
+        }
+    }
+
     public Action onDisconnect(final int libraryId, final Session session, final DisconnectReason reason)
     {
         sessions.remove(session);
@@ -220,6 +233,11 @@ public class FakeHandler
         return slowSessions.contains(session);
     }
 
+    public boolean isThrottled(final Session session)
+    {
+        return throttledSessions.contains(session);
+    }
+
     public boolean lastSessionWasSlow()
     {
         return lastSessionWasSlow;
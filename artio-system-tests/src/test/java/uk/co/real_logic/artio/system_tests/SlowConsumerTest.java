@@ -20,6 +20,7 @@ import org.junit.After;
 import org.junit.Test;
 import uk.co.real_logic.artio.Timing;
 import uk.co.real_logic.artio.builder.Encoder;
+import uk.co.real_logic.artio.builder.ExampleMessageEncoder;
 import uk.co.real_logic.artio.builder.LogonEncoder;
 import uk.co.real_logic.artio.builder.TestRequestEncoder;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
@@ -53,6 +54,8 @@ public class SlowConsumerTest
 {
     private static final int BUFFER_CAPACITY = 8 * 1024;
     private static final int TEST_TIMEOUT = 20_000;
+    private static final String TEST_REQ_ID = "some relatively long test req id";
+    private static final long OUTBOUND_THROTTLE_WINDOW_IN_MS = 100;
 
     private int port = unusedPort();
     private ArchivingMediaDriver mediaDriver;
@@ -69,6 +72,8 @@ public class SlowConsumerTest
     private LockStepFramerEngineScheduler scheduler = new LockStepFramerEngineScheduler();
     private SocketChannel socket;
     private Session session;
+    private boolean spillSlowConsumers = false;
+    private int outboundThrottleMessagesPerWindow = 0;
 
     @Test(timeout = TEST_TIMEOUT)
     public void shouldQuarantineThenDisconnectASlowConsumer() throws IOException
@@ -107,6 +112,94 @@ public class SlowConsumerTest
 
     @Test(timeout = TEST_TIMEOUT)
     public void shouldRestoreConnectionFromSlowGroupWhenItCatchesUp() throws IOException
+    {
+        slowConnectionCatchesUp();
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void shouldRestoreSpillingConnectionWhenItCatchesUp() throws IOException
+    {
+        spillSlowConsumers = true;
+
+        slowConnectionCatchesUp();
+    }
+
+    @Test(timeout = TEST_TIMEOUT)
+    public void shouldHoldBackThenSendMessagesOverTheOutboundThrottle() throws IOException
+    {
+        final int messagesSent = 20;
+        final int messagesPerWindow = 5;
+        outboundThrottleMessagesPerWindow = messagesPerWindow;
+        setup(DEFAULT_SENDER_MAX_BYTES_IN_BUFFER);
+        initiateConnection();
+
+        final long sessionId = handler.awaitSessionId(testSystem::poll);
+        session = acquireSession(handler, library, sessionId, testSystem);
+
+        // Session level messages, like test requests, aren't throttled so send application messages.
+        final ExampleMessageEncoder exampleMessage = new ExampleMessageEncoder();
+        exampleMessage.testReqID(TEST_REQ_ID);
+
+        final long startTimeInMs = System.currentTimeMillis();
+        for (int i = 0; i < messagesSent; i++)
+        {
+            while (session.send(exampleMessage) < 0)
+            {
+                testSystem.poll();
+            }
+        }
+
+        while (!handler.isThrottled(session))
+        {
+            testSystem.poll();
+        }
+
+        socket.configureBlocking(false);
+        final StringBuilder received = new StringBuilder();
+        while (handler.isThrottled(session))
+        {
+            readInto(received);
+            testSystem.poll();
+        }
+        readInto(received);
+        final long durationInMs = System.currentTimeMillis() - startTimeInMs;
+
+        assertEquals(messagesSent, countOccurrences(received, "112=" + TEST_REQ_ID));
+        // Only the first window's messages can be sent straight away, the rest wait for the window to move on.
+        final long minimumDurationInMs = (messagesSent / messagesPerWindow - 1) * OUTBOUND_THROTTLE_WINDOW_IN_MS;
+        assertThat(durationInMs, greaterThanOrEqualTo(minimumDurationInMs));
+        assertEquals(ACTIVE, session.state());
+    }
+
+    private void readInto(final StringBuilder received) throws IOException
+    {
+        int bytesRead;
+        do
+        {
+            byteBuffer.clear();
+            bytesRead = socket.read(byteBuffer);
+            for (int i = 0; i < bytesRead; i++)
+            {
+                received.append((char)byteBuffer.get(i));
+            }
+        }
+        while (bytesRead > 0);
+    }
+
+    private int countOccurrences(final CharSequence received, final String value)
+    {
+        int count = 0;
+        int index = received.toString().indexOf(value);
+        while (index != -1)
+        {
+            count++;
+            index = received.toString().indexOf(value, index + 1);
+        }
+
+        return count;
+    }
+
+    private void slowConnectionCatchesUp() throws IOException
     {
         final SessionInfo sessionInfo = sessionBecomesSlow();
         socket.configureBlocking(false);
@@ -194,7 +287,7 @@ public class SlowConsumerTest
     private TestRequestEncoder newTestRequest()
     {
         final TestRequestEncoder testRequest = new TestRequestEncoder();
-        testRequest.testReqID("some relatively long test req id");
+        testRequest.testReqID(TEST_REQ_ID);
         return testRequest;
     }
 
@@ -260,7 +353,11 @@ public class SlowConsumerTest
         delete(ACCEPTOR_LOGS);
         final EngineConfiguration config = acceptingConfig(port, ACCEPTOR_ID, INITIATOR_ID)
             .scheduler(scheduler);
-        config.senderMaxBytesInBuffer(senderMaxBytesInBuffer);
+        config
+            .senderMaxBytesInBuffer(senderMaxBytesInBuffer)
+            .senderSpillSlowConsumers(spillSlowConsumers)
+            .outboundThrottleMessagesPerWindow(outboundThrottleMessagesPerWindow)
+            .outboundThrottleWindowInMs(OUTBOUND_THROTTLE_WINDOW_IN_MS);
         engine = FixEngine.launch(config);
         testSystem = new TestSystem(scheduler);
         final LibraryConfiguration libraryConfiguration = acceptingLibraryConfig(handler);